@@ -50,7 +50,8 @@ public class AnalyzeData {
 			fullData = datasetGenerator.readBinaryDataset(dataCacheFile);
 		} else {
 			log.info("Calculating forecast inputs from " + fcName);
-			fullData = datasetGenerator.calcSignalDataset(dataDir, forecastCalculator)
+			fullData = datasetGenerator.calcSignalDataset(dataDir,
+				() -> ForecastFactory.getCalculatorInstance(properties))
 				.filter(key -> key.timeInNanos > 1519862400L * 1000000000L); // discard pre-Mar since it is spotty
 		}
 		log.info("Loading data took " + (System.nanoTime() - startNanos) / 1000000000.0 + "sec");
@@ -0,0 +1,31 @@
+package com.mistrycapital.cryptobot;
+
+import com.mistrycapital.cryptobot.sim.GdaxEventLogConverter;
+import com.mistrycapital.cryptobot.util.MCLoggerFactory;
+import com.mistrycapital.cryptobot.util.MCProperties;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Converts recorded gdax message zips into binary event logs, which SampleData and SpreadSim replay when
+ * sim.useEventLogs is set
+ */
+public class ConvertGdaxData {
+	private static final Logger log = MCLoggerFactory.getLogger();
+
+	public static void main(String[] args)
+		throws IOException
+	{
+		MCProperties properties = new MCProperties();
+		Path dataDir = Paths.get(properties.getProperty("dataDir"));
+		final int convertThreads = properties.getIntProperty("sim.convertThreads",
+			Runtime.getRuntime().availableProcessors());
+
+		final long startNanos = System.nanoTime();
+		new GdaxEventLogConverter(dataDir, convertThreads).convertAll();
+		log.info("Converted zips in " + dataDir + " in " + (System.nanoTime() - startNanos) / 1000000000.0 + "s");
+	}
+}
@@ -1,9 +1,13 @@
 package com.mistrycapital.cryptobot;
 
 import com.mistrycapital.cryptobot.appender.IntervalDataAppender;
+import com.mistrycapital.cryptobot.appender.SnapshotRecorder;
 import com.mistrycapital.cryptobot.book.OrderBookManager;
 import com.mistrycapital.cryptobot.dynamic.DynamicTracker;
 import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessage;
+import com.mistrycapital.cryptobot.sim.BatchQueue;
+import com.mistrycapital.cryptobot.sim.DayParallelSampler;
+import com.mistrycapital.cryptobot.sim.GdaxEventLogReader;
 import com.mistrycapital.cryptobot.sim.GdaxMessageFileReader;
 import com.mistrycapital.cryptobot.sim.GdaxMessageTranslator;
 import com.mistrycapital.cryptobot.sim.GdaxSampleWriter;
@@ -13,11 +17,12 @@ import com.mistrycapital.cryptobot.util.MCLoggerFactory;
 import com.mistrycapital.cryptobot.util.MCProperties;
 import org.slf4j.Logger;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Run sampler code to
@@ -25,31 +30,98 @@ import java.util.concurrent.LinkedBlockingQueue;
 public class SampleData {
 	private static final Logger log = MCLoggerFactory.getLogger();
 
+	/** Checkpoint of the sequential sampler, in the data dir */
+	private static final String CHECKPOINT_FILE_NAME = "sample-checkpoint.bin";
+
 	public static void main(String[] args)
+		throws IOException
 	{
 		MCProperties properties = new MCProperties();
 		Path dataDir = Paths.get(properties.getProperty("dataDir"));
 		log.debug("Saving message and sample data to " + dataDir);
 		final String INTERVAL_FILE_NAME = properties.getProperty("output.filenameBase.samples","samples");
+		// leave a core each for the file reader and the sample writer
+		final int decodeThreads = properties.getIntProperty("sim.decodeThreads",
+			Math.max(1, Runtime.getRuntime().availableProcessors() - 2));
+		final int readAheadEntries = properties.getIntProperty("sim.readAheadEntries", 2);
+		final boolean useEventLogs = properties.getBooleanProperty("sim.useEventLogs", false);
+		final int sampleDayThreads = properties.getIntProperty("sim.sampleDayThreads", 1);
+		final int checkpointHours = properties.getIntProperty("sim.checkpointHours", 0);
+		Intervalizer intervalizer = new Intervalizer(properties);
+		// every resolution is sampled in the same pass; the history interval keeps the usual file name
+		final int historyIntervalSeconds = properties.getIntProperty("history.intervalSeconds");
+		final String[] resolutions =
+			properties.getProperty("sim.sampleIntervalSeconds", Integer.toString(historyIntervalSeconds)).split(",");
+
+		if(sampleDayThreads > 1) {
+			// each day is replayed on its own with one file per day, at the history interval only
+			for(String resolution : resolutions)
+				if(Integer.parseInt(resolution.trim()) != historyIntervalSeconds)
+					throw new RuntimeException("sim.sampleIntervalSeconds=" + String.join(",", resolutions)
+						+ " is not supported with sim.sampleDayThreads=" + sampleDayThreads);
+			if(checkpointHours > 0)
+				log.warn("Ignoring sim.checkpointHours=" + checkpointHours + " with sim.sampleDayThreads="
+					+ sampleDayThreads + ", which checkpoints each day as it is written instead");
+			new DayParallelSampler(dataDir, INTERVAL_FILE_NAME, intervalizer, sampleDayThreads, useEventLogs)
+				.sampleAll();
+			return;
+		}
 
 		SimTimeKeeper timeKeeper = new SimTimeKeeper();
 		OrderBookManager orderBookManager = new OrderBookManager(timeKeeper);
-		IntervalDataAppender intervalAppender = new IntervalDataAppender(dataDir, INTERVAL_FILE_NAME, timeKeeper);
-		DynamicTracker dynamicTracker = new DynamicTracker();
-		Intervalizer intervalizer = new Intervalizer(properties);
+		List<Intervalizer> intervalizers = new ArrayList<>(resolutions.length);
+		List<String> intervalFileNames = new ArrayList<>(resolutions.length);
+		List<SnapshotRecorder> intervalAppenders = new ArrayList<>(resolutions.length);
+		for(String resolution : resolutions) {
+			final int intervalSeconds = Integer.parseInt(resolution.trim());
+			final String fileName = intervalSeconds == historyIntervalSeconds
+				? INTERVAL_FILE_NAME : INTERVAL_FILE_NAME + "-" + intervalSeconds + "s";
+			intervalizers.add(new Intervalizer(properties.getIntProperty("history.secondsToKeep"), intervalSeconds));
+			intervalFileNames.add(fileName);
+			intervalAppenders.add(new IntervalDataAppender(dataDir, fileName, timeKeeper));
+		}
+		DynamicTracker dynamicTracker = new DynamicTracker(resolutions.length);
+
+		BatchQueue<GdaxMessage> messageQueue = new BatchQueue<>(100);
+		GdaxSampleWriter writer = new GdaxSampleWriter(timeKeeper, intervalizers, orderBookManager, dynamicTracker,
+			intervalAppenders, messageQueue);
+		Instant resumeTime = null;
+		if(checkpointHours > 0) {
+			final Path checkpointPath = dataDir.resolve(CHECKPOINT_FILE_NAME);
+			writer.checkpointEvery(checkpointPath, checkpointHours);
+			resumeTime = writer.resume(checkpointPath);
+			// snapshots recorded after the checkpoint will be recorded again
+			if(resumeTime != null) {
+				log.warn("Resuming sampling from checkpoint " + checkpointPath + " at " + timeKeeper.iso8601()
+					+ ", removing samples recorded after it from " + intervalFileNames
+					+ ". Delete the checkpoint to sample from the start");
+				for(String fileName : intervalFileNames)
+					IntervalDataAppender.removeSnapshotsAfter(dataDir, fileName, timeKeeper.epochMs());
+			}
+		}
+		if(useEventLogs) {
+			// binary logs from ConvertGdaxData need no translation
+			GdaxEventLogReader reader = new GdaxEventLogReader(dataDir, messageQueue, writer.getInterest());
+			if(resumeTime != null)
+				reader.resumeFrom(resumeTime);
+			Thread readerThread = new Thread(reader);
+			readerThread.setDaemon(true);
+			readerThread.start();
+		} else {
+			BatchQueue<String> messageStringQueue = new BatchQueue<>(10);
+			GdaxMessageTranslator translator =
+				new GdaxMessageTranslator(messageStringQueue, messageQueue, writer.getInterest(), decodeThreads);
+			GdaxMessageFileReader reader = new GdaxMessageFileReader(dataDir, messageStringQueue, readAheadEntries);
+			if(resumeTime != null)
+				reader.resumeFrom(resumeTime);
 
-		BlockingQueue<GdaxMessage> messageQueue = new LinkedBlockingQueue<>();
-		BlockingQueue<String> messageStringQueue = new ArrayBlockingQueue<>(10000);
-		GdaxSampleWriter writer = new GdaxSampleWriter(timeKeeper, intervalizer, orderBookManager, dynamicTracker, intervalAppender, messageQueue);
-		GdaxMessageTranslator translator = new GdaxMessageTranslator(messageStringQueue, messageQueue, writer);
-		GdaxMessageFileReader reader = new GdaxMessageFileReader(dataDir, messageStringQueue, translator);
-
-		Thread readerThread = new Thread(reader);
-		readerThread.setDaemon(true);
-		readerThread.start();
-		Thread translatorThread = new Thread(translator);
-		translatorThread.setDaemon(true);
-		translatorThread.start();
+			Thread readerThread = new Thread(reader);
+			readerThread.setDaemon(true);
+			readerThread.start();
+			Thread translatorThread = new Thread(translator);
+			translatorThread.setDaemon(true);
+			translatorThread.start();
+		}
 
 		writer.sample();
 	}
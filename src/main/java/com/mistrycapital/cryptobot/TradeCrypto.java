@@ -109,7 +109,8 @@ public class TradeCrypto {
 		OrderBookPeriodicEvaluator periodicEvaluator =
 			new OrderBookPeriodicEvaluator(timeKeeper, intervalizer, consolidatedHistory, accountant, orderBookManager,
 				dynamicTracker, intervalAppender, forecastCalculator, tactic, tradeRiskValidator, executionEngine,
-				decisionAppender, dailyAppender, forecastAppender, dbRecorder);
+				decisionAppender, dailyAppender, forecastAppender, dbRecorder,
+				properties.getIntProperty("forecast.threads", 0));
 
 		gdaxWebSocket.subscribe(orderBookManager);
 		gdaxWebSocket.subscribe(dynamicTracker);
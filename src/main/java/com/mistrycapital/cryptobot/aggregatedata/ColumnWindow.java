@@ -0,0 +1,31 @@
+package com.mistrycapital.cryptobot.aggregatedata;
+
+/**
+ * Contiguous view of one field's most recent values for one product, oldest first. The array is shared with the
+ * history, so loops can run over values[from..to) directly. A window is only valid until the next interval is
+ * added to the history
+ */
+public class ColumnWindow {
+	/** Backing array of the history column */
+	public final double[] values;
+	/** Index of the oldest value in the window */
+	public final int from;
+	/** Index just past the latest value in the window */
+	public final int to;
+
+	ColumnWindow(double[] values, int from, int to) {
+		this.values = values;
+		this.from = from;
+		this.to = to;
+	}
+
+	/** @return Number of intervals in the window */
+	public int size() {
+		return to - from;
+	}
+
+	/** @return Value the given number of intervals before the latest one */
+	public double get(int intervalsBack) {
+		return values[to - 1 - intervalsBack];
+	}
+}
@@ -1,114 +1,201 @@
 package com.mistrycapital.cryptobot.aggregatedata;
 
+import com.mistrycapital.cryptobot.gdax.common.Product;
 import com.mistrycapital.cryptobot.time.Intervalizer;
 
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 
 /**
- * History of static and dynamic data for all products
+ * History of static and dynamic data for all products. Besides the snapshots themselves, each field of each
+ * product is kept in its own primitive ring so signals can loop over a field's recent values in contiguous memory.
+ * Every column ring is mirrored (each value is written at i and i + capacity), which makes any window a single
+ * slice of the array.
+ * <p>
+ * There is a single writer. It fills the rings and then publishes the new interval count through a volatile, so
+ * readers take no locks: each iterator or window captures the count once and sees exactly the intervals that were
+ * published at that point. The rings hold twice the history length, so a view stays intact while the writer adds
+ * up to maxIntervals more intervals
  */
 public class ConsolidatedHistory {
 	/** Maximum number of intervals to track */
 	private final int maxIntervals;
+	/** Ring capacity, leaving room for views to outlive maxIntervals adds */
+	private final int capacity;
+	/** Spacing of intervals on the regular grid */
+	private final long intervalNanos;
 
-	/** Recorded snapshot data, in a linked list with the head containing the latest value */
-	private ConsolidatedSnapshot[] buffer;
-	/** Oldest node */
-	private int head;
-	/** Newest node */
-	private int tail;
-	/** Used to track if this object was modified during iteration */
-	private boolean modified;
+	/** Recorded snapshot data, the interval with sequence number n at n % capacity */
+	private final ConsolidatedSnapshot[] buffer;
+	/** Mirrored field rings, indexed by product index * SnapshotField.count + field ordinal */
+	private final double[][] columns;
+	/** Mirrored ring of interval times in nanos */
+	private final long[] times;
+	/** Number of intervals ever added. Written only by the writer, after the rings */
+	private volatile long count;
 
 	public ConsolidatedHistory(Intervalizer intervalizer) {
 		maxIntervals = intervalizer.getHistoryIntervals();
-		buffer = new ConsolidatedSnapshot[maxIntervals];
+		capacity = 2 * maxIntervals;
+		intervalNanos = intervalizer.getIntervalSeconds() * 1000000000L;
+		buffer = new ConsolidatedSnapshot[capacity];
+		columns = new double[Product.count * SnapshotField.count][2 * capacity];
+		times = new long[2 * capacity];
 	}
 
-	public synchronized void add(ConsolidatedSnapshot newData) {
-		modified = true;
+	/**
+	 * Adds the next interval. Must only be called from one thread at a time
+	 */
+	public void add(ConsolidatedSnapshot newData) {
+		final long sequence = count;
+		final int pos = (int) (sequence % capacity);
+		final int mirror = pos + capacity;
+		buffer[pos] = newData;
+		times[pos] = times[mirror] = newData.getTimeNanos();
+		for(Product product : Product.FAST_VALUES) {
+			final ProductSnapshot productSnapshot = newData.getProductSnapshot(product);
+			final int start = product.getIndex() * SnapshotField.count;
+			for(SnapshotField field : SnapshotField.FAST_VALUES) {
+				final double value = productSnapshot == null ? Double.NaN : field.get(productSnapshot);
+				columns[start + field.ordinal()][pos] = columns[start + field.ordinal()][mirror] = value;
+			}
+		}
+		count = sequence + 1;
+	}
+
+	/** @return Number of intervals in the history */
+	public int size() {
+		return (int) Math.min(count, maxIntervals);
+	}
+
+	/**
+	 * @return Contiguous window over the given field's latest values for the product, holding at most the given
+	 * number of intervals
+	 */
+	public ColumnWindow window(Product product, SnapshotField field, int intervals) {
+		final long end = count;
+		final int size = (int) Math.min(Math.min(intervals, maxIntervals), end);
+		final int next = (int) (end % capacity);
+		final int to = next >= size ? next : next + capacity;
+		return new ColumnWindow(columns[product.getIndex() * SnapshotField.count + field.ordinal()], to - size, to);
+	}
+
+	/**
+	 * @return Number of latest intervals whose time is within lookbackSeconds of the latest interval, matching
+	 * the intervals returned by {@link #inOrder(int)}
+	 */
+	public int intervalsWithin(int lookbackSeconds) {
+		return intervalsWithin(count, lookbackSeconds);
+	}
+
+	/**
+	 * Finds the window directly from the interval grid, falling back to a binary search over the interval times
+	 * when there are gaps
+	 */
+	private int intervalsWithin(long end, int lookbackSeconds) {
+		final long lookbackNanos = lookbackSeconds * 1000000000L;
+		final int size = (int) Math.min(end, maxIntervals);
+		if(size == 0)
+			return 0;
+		final int latest = (int) ((end - 1) % capacity) + capacity;
+		final long latestNanos = times[latest];
+
+		final int guess = (int) Math.min(size, lookbackNanos / intervalNanos + 1);
+		if(latestNanos - times[latest - guess + 1] <= lookbackNanos
+			&& (guess == size || latestNanos - times[latest - guess] > lookbackNanos))
+			return guess;
 
-		if(tail != 0 || buffer[tail] != null) {
-			tail = (tail + 1) % maxIntervals;
-			if(head == tail)
-				head = (head + 1) % maxIntervals;
+		// largest count whose oldest interval is still within the lookback
+		int lo = 1;
+		int hi = size;
+		while(lo < hi) {
+			final int mid = (lo + hi + 1) >>> 1;
+			if(latestNanos - times[latest - mid + 1] <= lookbackNanos)
+				lo = mid;
+			else
+				hi = mid - 1;
 		}
-		buffer[tail] = newData;
+		return lo;
+	}
+
+	/**
+	 * @return Number of intervals ever added. The latest interval has sequence number getCount() - 1, and the
+	 * history holds sequence numbers from getCount() - size() on. Capture it once to read a consistent view
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return Sequence number of the oldest interval within lookbackSeconds of the latest one, in the view as of
+	 * the given count. Iterating from here to count - 1 visits the same intervals as {@link #inOrder(int)}
+	 */
+	public long firstWithin(long count, int lookbackSeconds) {
+		return count - Math.max(1, intervalsWithin(count, lookbackSeconds));
+	}
+
+	/**
+	 * @return Snapshot with the given sequence number
+	 */
+	public ConsolidatedSnapshot get(long sequence) {
+		final ConsolidatedSnapshot snapshot = buffer[(int) (sequence % capacity)];
+		if(count - sequence >= capacity)
+			throw new ConcurrentModificationException();
+		return snapshot;
 	}
 
 	/**
 	 * @return Latest recorded interval value (not the interval we are currently tracking)
 	 */
-	public synchronized ConsolidatedSnapshot latest() {
-		return buffer[tail];
+	public ConsolidatedSnapshot latest() {
+		final long end = count;
+		return end == 0 ? null : buffer[(int) ((end - 1) % capacity)];
 	}
 
 	/**
-	 * @return The full history we are storing, sorted from oldest to latest
+	 * @return The full history we are storing, sorted from latest to oldest
 	 */
-	public synchronized Iterable<ConsolidatedSnapshot> values() {
-		modified = false;
-		return () -> new BufferIterator(this, tail, true);
+	public Iterable<ConsolidatedSnapshot> values() {
+		final long end = count;
+		return () -> new BufferIterator(end - 1, Math.max(0, end - maxIntervals), true);
 	}
 
-	public synchronized Iterable<ConsolidatedSnapshot> inOrder(int lookbackSeconds) {
-		modified = false;
-		if(buffer[tail] == null) {
-			return () -> new BufferIterator(this, tail, true);
-		} else {
-			long latestNanos = buffer[tail].getTimeNanos();
-			long lookbackNanos = lookbackSeconds * 1000000000L;
-			int first = head;
-			while(latestNanos - buffer[first].getTimeNanos() > lookbackNanos && first!=tail) {
-				first = (first + 1) % maxIntervals;
-			}
-			final int firstFinal = first;
-			return () -> new BufferIterator(this, firstFinal, false);
-		}
+	/**
+	 * @return Intervals within lookbackSeconds of the latest one, sorted from oldest to latest
+	 */
+	public Iterable<ConsolidatedSnapshot> inOrder(int lookbackSeconds) {
+		final long end = count;
+		if(end == 0)
+			return () -> new BufferIterator(-1, 0, false);
+		final long first = firstWithin(end, lookbackSeconds);
+		return () -> new BufferIterator(first, end - 1, false);
 	}
 
+	/** Iterator over a fixed range of sequence numbers, captured when the view was created */
 	private class BufferIterator implements Iterator<ConsolidatedSnapshot> {
-		private final ConsolidatedHistory history;
-		private int cur;
-		private boolean backward;
+		private long cur;
+		private final long last;
+		private final boolean backward;
 
-		BufferIterator(ConsolidatedHistory history, int startPos, boolean backward) {
-			this.history = history;
-			cur = startPos;
+		BufferIterator(long first, long last, boolean backward) {
+			cur = first;
+			this.last = last;
 			this.backward = backward;
 		}
 
 		@Override
 		public boolean hasNext() {
-			synchronized(history) {
-				if(modified) throw new ConcurrentModificationException();
-				return cur >= 0 && buffer[cur] != null;
-			}
+			return cur >= 0 && (backward ? cur >= last : cur <= last);
 		}
 
 		@Override
 		public ConsolidatedSnapshot next() {
-			synchronized(history) {
-				if(modified) throw new ConcurrentModificationException();
-				if(cur < 0 || buffer[cur] == null) {
-					return null;
-				} else {
-					ConsolidatedSnapshot retVal = buffer[cur];
-					if(backward) {
-						if(cur == head)
-							cur = -1;
-						else
-							cur = (cur - 1 + maxIntervals) % maxIntervals;
-					} else {
-						if(cur == tail)
-							cur = -1;
-						else
-							cur = (cur + 1) % maxIntervals;
-					}
-					return retVal;
-				}
-			}
+			if(!hasNext())
+				return null;
+			// only an iterator held while the writer added more than maxIntervals intervals can be overrun
+			final ConsolidatedSnapshot retVal = get(cur);
+			cur = backward ? cur - 1 : cur + 1;
+			return retVal;
 		}
 	}
 }
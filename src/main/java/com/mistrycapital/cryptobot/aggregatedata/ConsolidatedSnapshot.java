@@ -26,16 +26,47 @@ public class ConsolidatedSnapshot {
 	 */
 	public static final ConsolidatedSnapshot getSnapshot(final OrderBookManager orderBookManager,
 		final DynamicTracker dynamicTracker, final TimeKeeper timeKeeper)
+	{
+		return getSnapshot(orderBookManager, dynamicTracker, 0, timeKeeper);
+	}
+
+	/**
+	 * Snapshots book data and interval data of the given tracker resolution, rolling that resolution to its next
+	 * interval
+	 * @return Snapshot of all product data as of now (the end of the resolution's interval)
+	 */
+	public static final ConsolidatedSnapshot getSnapshot(final OrderBookManager orderBookManager,
+		final DynamicTracker dynamicTracker, final int resolution, final TimeKeeper timeKeeper)
 	{
 		final ProductSnapshot[] productSnapshots = new ProductSnapshot[Product.count];
 		for(Product product : Product.FAST_VALUES) {
 			final OrderBook orderBook = orderBookManager.getBook(product);
-			final IntervalData intervalData = dynamicTracker.getSnapshot(product);
+			final IntervalData intervalData = dynamicTracker.getSnapshot(resolution, product);
 			productSnapshots[product.getIndex()] = ProductSnapshot.getSnapshot(product, orderBook, intervalData);
 		}
 		return new ConsolidatedSnapshot(productSnapshots, timeKeeper.epochNanos());
 	}
 
+	/**
+	 * @param prevSnapshot Snapshot of the interval before this one, if this snapshot was taken by a tracker that did
+	 * not see it (e.g. when days are sampled independently). May be null
+	 * @return Snapshot with returns calculated from the previous interval's last prices, as a tracker that had seen
+	 * the previous interval would have done
+	 */
+	public ConsolidatedSnapshot withPrevSnapshot(ConsolidatedSnapshot prevSnapshot) {
+		if(prevSnapshot == null)
+			return this;
+		final ProductSnapshot[] patched = new ProductSnapshot[productSnapshots.length];
+		for(Product product : Product.FAST_VALUES) {
+			final int index = product.getIndex();
+			final ProductSnapshot prev = prevSnapshot.getProductSnapshot(product);
+			patched[index] = prev == null || productSnapshots[index] == null
+				? productSnapshots[index]
+				: productSnapshots[index].withPrevLastPrice(prev.lastPrice);
+		}
+		return new ConsolidatedSnapshot(patched, timeNanos);
+	}
+
 	public ProductSnapshot getProductSnapshot(Product product) {
 		return productSnapshots[product.getIndex()];
 	}
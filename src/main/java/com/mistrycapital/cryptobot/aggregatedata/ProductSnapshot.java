@@ -176,6 +176,112 @@ public class ProductSnapshot {
 		askCancelSize = intervalData.askCancelSize;
 	}
 
+	/** Copies the given snapshot with a different return */
+	private ProductSnapshot(ProductSnapshot other, double ret) {
+		product = other.product;
+		bidPrice = other.bidPrice;
+		askPrice = other.askPrice;
+		midPrice = other.midPrice;
+		bidSize = other.bidSize;
+		askSize = other.askSize;
+		bidCount1Pct = other.bidCount1Pct;
+		askCount1Pct = other.askCount1Pct;
+		bidCount5Pct = other.bidCount5Pct;
+		askCount5Pct = other.askCount5Pct;
+		bidSize1Pct = other.bidSize1Pct;
+		askSize1Pct = other.askSize1Pct;
+		bidSize5Pct = other.bidSize5Pct;
+		askSize5Pct = other.askSize5Pct;
+		weightedMid1 = other.weightedMid1;
+		weightedMid5 = other.weightedMid5;
+		weightedMid10 = other.weightedMid10;
+		weightedMid20 = other.weightedMid20;
+		weightedMid50 = other.weightedMid50;
+		weightedMid100 = other.weightedMid100;
+		size1Level = other.size1Level;
+		size5Level = other.size5Level;
+		size10Level = other.size10Level;
+		size20Level = other.size20Level;
+		size50Level = other.size50Level;
+		size100Level = other.size100Level;
+		lastPrice = other.lastPrice;
+		this.ret = ret;
+		volume = other.volume;
+		vwap = other.vwap;
+		bidTradeCount = other.bidTradeCount;
+		askTradeCount = other.askTradeCount;
+		bidTradeSize = other.bidTradeSize;
+		askTradeSize = other.askTradeSize;
+		newBidCount = other.newBidCount;
+		newAskCount = other.newAskCount;
+		newBidSize = other.newBidSize;
+		newAskSize = other.newAskSize;
+		bidCancelCount = other.bidCancelCount;
+		askCancelCount = other.askCancelCount;
+		bidCancelSize = other.bidCancelSize;
+		askCancelSize = other.askCancelSize;
+	}
+
+	/**
+	 * @param prevLastPrice Last price of the interval before this one, if this snapshot was taken without knowing it
+	 * @return Snapshot with the return over the interval calculated from the given previous last price
+	 */
+	public ProductSnapshot withPrevLastPrice(double prevLastPrice) {
+		if(Double.isNaN(prevLastPrice))
+			return this;
+		return new ProductSnapshot(this, lastPrice / prevLastPrice - 1.0);
+	}
+
+	/**
+	 * Creates a snapshot from field values, e.g. read from a column store
+	 *
+	 * @param values Value of each field, indexed by {@link SnapshotField} ordinal
+	 */
+	public ProductSnapshot(Product product, double[] values) {
+		this.product = product;
+		bidPrice = values[SnapshotField.BID_PRICE.ordinal()];
+		askPrice = values[SnapshotField.ASK_PRICE.ordinal()];
+		midPrice = values[SnapshotField.MID_PRICE.ordinal()];
+		bidSize = values[SnapshotField.BID_SIZE.ordinal()];
+		askSize = values[SnapshotField.ASK_SIZE.ordinal()];
+		bidCount1Pct = (int) values[SnapshotField.BID_COUNT_1PCT.ordinal()];
+		askCount1Pct = (int) values[SnapshotField.ASK_COUNT_1PCT.ordinal()];
+		bidSize1Pct = values[SnapshotField.BID_SIZE_1PCT.ordinal()];
+		askSize1Pct = values[SnapshotField.ASK_SIZE_1PCT.ordinal()];
+		bidCount5Pct = (int) values[SnapshotField.BID_COUNT_5PCT.ordinal()];
+		askCount5Pct = (int) values[SnapshotField.ASK_COUNT_5PCT.ordinal()];
+		bidSize5Pct = values[SnapshotField.BID_SIZE_5PCT.ordinal()];
+		askSize5Pct = values[SnapshotField.ASK_SIZE_5PCT.ordinal()];
+		weightedMid1 = values[SnapshotField.WEIGHTED_MID_1.ordinal()];
+		weightedMid5 = values[SnapshotField.WEIGHTED_MID_5.ordinal()];
+		weightedMid10 = values[SnapshotField.WEIGHTED_MID_10.ordinal()];
+		weightedMid20 = values[SnapshotField.WEIGHTED_MID_20.ordinal()];
+		weightedMid50 = values[SnapshotField.WEIGHTED_MID_50.ordinal()];
+		weightedMid100 = values[SnapshotField.WEIGHTED_MID_100.ordinal()];
+		size1Level = values[SnapshotField.SIZE_1_LEVEL.ordinal()];
+		size5Level = values[SnapshotField.SIZE_5_LEVEL.ordinal()];
+		size10Level = values[SnapshotField.SIZE_10_LEVEL.ordinal()];
+		size20Level = values[SnapshotField.SIZE_20_LEVEL.ordinal()];
+		size50Level = values[SnapshotField.SIZE_50_LEVEL.ordinal()];
+		size100Level = values[SnapshotField.SIZE_100_LEVEL.ordinal()];
+		lastPrice = values[SnapshotField.LAST_PRICE.ordinal()];
+		ret = values[SnapshotField.RET.ordinal()];
+		volume = values[SnapshotField.VOLUME.ordinal()];
+		vwap = values[SnapshotField.VWAP.ordinal()];
+		bidTradeCount = (long) values[SnapshotField.BID_TRADE_COUNT.ordinal()];
+		askTradeCount = (long) values[SnapshotField.ASK_TRADE_COUNT.ordinal()];
+		bidTradeSize = values[SnapshotField.BID_TRADE_SIZE.ordinal()];
+		askTradeSize = values[SnapshotField.ASK_TRADE_SIZE.ordinal()];
+		newBidCount = (long) values[SnapshotField.NEW_BID_COUNT.ordinal()];
+		newAskCount = (long) values[SnapshotField.NEW_ASK_COUNT.ordinal()];
+		newBidSize = values[SnapshotField.NEW_BID_SIZE.ordinal()];
+		newAskSize = values[SnapshotField.NEW_ASK_SIZE.ordinal()];
+		bidCancelCount = (long) values[SnapshotField.BID_CANCEL_COUNT.ordinal()];
+		askCancelCount = (long) values[SnapshotField.ASK_CANCEL_COUNT.ordinal()];
+		bidCancelSize = values[SnapshotField.BID_CANCEL_SIZE.ordinal()];
+		askCancelSize = values[SnapshotField.ASK_CANCEL_SIZE.ordinal()];
+	}
+
 	public ProductSnapshot(CSVRecord record) {
 		product = Product.parse(record.get("product"));
 		bidPrice = Double.parseDouble(record.get("bidPrice"));
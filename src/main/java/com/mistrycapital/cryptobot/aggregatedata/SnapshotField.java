@@ -0,0 +1,73 @@
+package com.mistrycapital.cryptobot.aggregatedata;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Numeric fields of a product snapshot, in csv column order. Used to store and read snapshots one column at a time
+ */
+public enum SnapshotField {
+	BID_PRICE("bidPrice", snapshot -> snapshot.bidPrice),
+	ASK_PRICE("askPrice", snapshot -> snapshot.askPrice),
+	MID_PRICE("midPrice", snapshot -> snapshot.midPrice),
+	BID_SIZE("bidSize", snapshot -> snapshot.bidSize),
+	ASK_SIZE("askSize", snapshot -> snapshot.askSize),
+	BID_COUNT_1PCT("bidCount1Pct", snapshot -> snapshot.bidCount1Pct),
+	ASK_COUNT_1PCT("askCount1Pct", snapshot -> snapshot.askCount1Pct),
+	BID_SIZE_1PCT("bidSize1Pct", snapshot -> snapshot.bidSize1Pct),
+	ASK_SIZE_1PCT("askSize1Pct", snapshot -> snapshot.askSize1Pct),
+	BID_COUNT_5PCT("bidCount5Pct", snapshot -> snapshot.bidCount5Pct),
+	ASK_COUNT_5PCT("askCount5Pct", snapshot -> snapshot.askCount5Pct),
+	BID_SIZE_5PCT("bidSize5Pct", snapshot -> snapshot.bidSize5Pct),
+	ASK_SIZE_5PCT("askSize5Pct", snapshot -> snapshot.askSize5Pct),
+	WEIGHTED_MID_1("weightedMid1", snapshot -> snapshot.weightedMid1),
+	WEIGHTED_MID_5("weightedMid5", snapshot -> snapshot.weightedMid5),
+	WEIGHTED_MID_10("weightedMid10", snapshot -> snapshot.weightedMid10),
+	WEIGHTED_MID_20("weightedMid20", snapshot -> snapshot.weightedMid20),
+	WEIGHTED_MID_50("weightedMid50", snapshot -> snapshot.weightedMid50),
+	WEIGHTED_MID_100("weightedMid100", snapshot -> snapshot.weightedMid100),
+	SIZE_1_LEVEL("size1Level", snapshot -> snapshot.size1Level),
+	SIZE_5_LEVEL("size5Level", snapshot -> snapshot.size5Level),
+	SIZE_10_LEVEL("size10Level", snapshot -> snapshot.size10Level),
+	SIZE_20_LEVEL("size20Level", snapshot -> snapshot.size20Level),
+	SIZE_50_LEVEL("size50Level", snapshot -> snapshot.size50Level),
+	SIZE_100_LEVEL("size100Level", snapshot -> snapshot.size100Level),
+	LAST_PRICE("lastPrice", snapshot -> snapshot.lastPrice),
+	RET("ret", snapshot -> snapshot.ret),
+	VOLUME("volume", snapshot -> snapshot.volume),
+	VWAP("vwap", snapshot -> snapshot.vwap),
+	BID_TRADE_COUNT("bidTradeCount", snapshot -> snapshot.bidTradeCount),
+	ASK_TRADE_COUNT("askTradeCount", snapshot -> snapshot.askTradeCount),
+	BID_TRADE_SIZE("bidTradeSize", snapshot -> snapshot.bidTradeSize),
+	ASK_TRADE_SIZE("askTradeSize", snapshot -> snapshot.askTradeSize),
+	NEW_BID_COUNT("newBidCount", snapshot -> snapshot.newBidCount),
+	NEW_ASK_COUNT("newAskCount", snapshot -> snapshot.newAskCount),
+	NEW_BID_SIZE("newBidSize", snapshot -> snapshot.newBidSize),
+	NEW_ASK_SIZE("newAskSize", snapshot -> snapshot.newAskSize),
+	BID_CANCEL_COUNT("bidCancelCount", snapshot -> snapshot.bidCancelCount),
+	ASK_CANCEL_COUNT("askCancelCount", snapshot -> snapshot.askCancelCount),
+	BID_CANCEL_SIZE("bidCancelSize", snapshot -> snapshot.bidCancelSize),
+	ASK_CANCEL_SIZE("askCancelSize", snapshot -> snapshot.askCancelSize);
+
+	/** All fields, in order */
+	public static final SnapshotField[] FAST_VALUES = SnapshotField.values();
+	/** Number of fields */
+	public static final int count = FAST_VALUES.length;
+
+	private final String columnName;
+	private final ToDoubleFunction<ProductSnapshot> getter;
+
+	SnapshotField(String columnName, ToDoubleFunction<ProductSnapshot> getter) {
+		this.columnName = columnName;
+		this.getter = getter;
+	}
+
+	/** @return Name of the csv column holding this field */
+	public String getColumnName() {
+		return columnName;
+	}
+
+	/** @return Value of this field in the given snapshot. Counts are exact as doubles */
+	public double get(ProductSnapshot snapshot) {
+		return getter.applyAsDouble(snapshot);
+	}
+}
@@ -23,7 +23,10 @@ public class ForecastAppender extends CommonFileAppender {
 		this.timeKeeper = timeKeeper;
 	}
 
-	public void logForecast(final Product product, final Map<String,Double> inputVariables, final double forecast)
+	/**
+	 * Appends a row for the product. Safe to call from several forecast threads at once
+	 */
+	public synchronized void logForecast(final Product product, final Map<String,Double> inputVariables, final double forecast)
 		throws IOException
 	{
 		if(addHeaderOnNextWrite) {
@@ -6,21 +6,82 @@ import com.mistrycapital.cryptobot.gdax.common.Product;
 import com.mistrycapital.cryptobot.time.TimeKeeper;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Stores a daily csv file with interval data
  */
-public class IntervalDataAppender extends CommonFileAppender {
+public class IntervalDataAppender extends CommonFileAppender implements SnapshotRecorder {
 
 	public IntervalDataAppender(final Path dataDir, final String baseFilename, final TimeKeeper timeKeeper) {
-		super(timeKeeper, dataDir, baseFilename, ".csv", RollingPolicy.DAILY, FlushPolicy.FLUSH_EACH_WRITE);
+		this(dataDir, baseFilename, timeKeeper, RollingPolicy.DAILY, FlushPolicy.FLUSH_EACH_WRITE);
 	}
 
-	/** Records aggregated data for the latest interval and static data, with the given timestamp */
+	private IntervalDataAppender(final Path dataDir, final String baseFilename, final TimeKeeper timeKeeper,
+		final RollingPolicy rollingPolicy, final FlushPolicy flushPolicy)
+	{
+		super(timeKeeper, dataDir, baseFilename, ".csv", rollingPolicy, flushPolicy);
+	}
+
+	/**
+	 * @return Appender that writes everything to the given date's file, named as the daily appender would name it,
+	 * no matter what time the snapshots are taken. Should be closed once done
+	 */
+	public static IntervalDataAppender forDate(final Path dataDir, final String baseFilename, final LocalDate date,
+		final TimeKeeper timeKeeper)
+	{
+		return new IntervalDataAppender(dataDir, baseFilename + '-' + RollingPolicy.DAILY.format(date), timeKeeper,
+			RollingPolicy.NEVER, FlushPolicy.DONT_FLUSH);
+	}
+
+	/**
+	 * Removes snapshots taken after the given time from the daily files, e.g. those recorded after the checkpoint a
+	 * replay is resuming from, so they are not recorded twice
+	 */
+	public static void removeSnapshotsAfter(final Path dataDir, final String baseFilename, final long timeMs)
+		throws IOException
+	{
+		final String firstFilename = baseFilename + '-'
+			+ RollingPolicy.DAILY.format(Instant.ofEpochMilli(timeMs).atZone(ZoneOffset.UTC)) + ".csv";
+		final String pattern = baseFilename + "-\\d\\d\\d\\d-\\d\\d-\\d\\d\\.csv";
+		final List<Path> dailyPaths = new ArrayList<>();
+		try(DirectoryStream<Path> paths = Files.newDirectoryStream(dataDir)) {
+			for(Path path : paths) {
+				final String filename = path.getFileName().toString();
+				if(filename.matches(pattern) && filename.compareTo(firstFilename) >= 0)
+					dailyPaths.add(path);
+			}
+		}
+
+		final long timeSeconds = timeMs / 1000L;
+		for(Path path : dailyPaths) {
+			final List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+			final List<String> kept = new ArrayList<>(lines.size());
+			for(String line : lines) {
+				// header, or date,unixTimestamp,...
+				final String[] columns = line.split(",", 3);
+				if(kept.isEmpty() || Long.parseLong(columns[1]) <= timeSeconds)
+					kept.add(line);
+			}
+			if(kept.size() == lines.size())
+				continue;
+			final Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+			Files.write(tmpPath, kept, StandardCharsets.UTF_8);
+			Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+	}
+
+	@Override
 	public void recordSnapshot(final long timeMs, final ConsolidatedSnapshot consolidatedSnapshot)
 		throws IOException
 	{
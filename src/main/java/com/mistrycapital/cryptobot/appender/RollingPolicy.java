@@ -1,7 +1,7 @@
 package com.mistrycapital.cryptobot.appender;
 
-import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
 
 /**
  * Instructs the appender on when to roll to a new file
@@ -23,7 +23,7 @@ enum RollingPolicy {
 	 * @return Date/time formatted to use in a filename consistent with the policy. For example,
 	 * on a daily policy, the time is returned as yyyy-MM-dd
 	 */
-	public String format(ZonedDateTime now) {
+	public String format(TemporalAccessor now) {
 		return dateTimeFormatter.format(now);
 	}
 
@@ -0,0 +1,14 @@
+package com.mistrycapital.cryptobot.appender;
+
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedSnapshot;
+
+import java.io.IOException;
+
+/**
+ * Receives the snapshot taken at the end of each interval
+ */
+public interface SnapshotRecorder {
+	/** Records aggregated data for the latest interval and static data, with the given timestamp */
+	void recordSnapshot(long timeMs, ConsolidatedSnapshot consolidatedSnapshot)
+		throws IOException;
+}
@@ -225,6 +225,36 @@ public class OrderBook implements BBOProvider {
 		return builder.toString();
 	}
 
+	/**
+	 * @return Snapshot of the order book as a Book message. Processing it rebuilds the same price levels, with
+	 * orders in the same queue order, though order times become the time of the snapshot
+	 */
+	public synchronized Book getBookMessage() {
+		final int count = activeOrders.size();
+		final UUID[] orderIds = new UUID[count];
+		final double[] prices = new double[count];
+		final double[] sizes = new double[count];
+		int i = 0;
+		for(OrderLine line = bids.getNext(); line != null; line = line.getNext()) {
+			for(Order order : line.getOrders()) {
+				orderIds[i] = order.getId();
+				prices[i] = order.getPrice();
+				sizes[i] = order.getSize();
+				i++;
+			}
+		}
+		final int bidCount = i;
+		for(OrderLine line = asks.getNext(); line != null; line = line.getNext()) {
+			for(Order order : line.getOrders()) {
+				orderIds[i] = order.getId();
+				prices[i] = order.getPrice();
+				sizes[i] = order.getSize();
+				i++;
+			}
+		}
+		return new Book(timeKeeper.epochNanos() / 1000L, product, sequence, orderIds, prices, sizes, bidCount);
+	}
+
 	//////////////////////////////////////////////////////
 	// MODIFY BOOK
 
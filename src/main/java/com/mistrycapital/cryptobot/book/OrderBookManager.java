@@ -2,9 +2,21 @@ package com.mistrycapital.cryptobot.book;
 
 import com.mistrycapital.cryptobot.gdax.websocket.*;
 import com.mistrycapital.cryptobot.gdax.common.Product;
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessage.Type;
 import com.mistrycapital.cryptobot.time.TimeKeeper;
 
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
 public class OrderBookManager implements GdaxMessageProcessor {
+	/**
+	 * Only these messages change the book. The book sequence can lag other message types but those never
+	 * need to be replayed onto the book
+	 */
+	private static final Set<Type> INTEREST =
+		Collections.unmodifiableSet(EnumSet.of(Type.BOOK, Type.OPEN, Type.DONE, Type.CHANGE_SIZE));
+
 	private OrderBook[] orderBooks;
 	private GdaxMessageProcessor[] bookProcessors;
 	
@@ -32,6 +44,11 @@ public class OrderBookManager implements GdaxMessageProcessor {
 			orderBook.subscribe(topOfBookSubscriber);
 	}
 
+	@Override
+	public Set<Type> getInterest() {
+		return INTEREST;
+	}
+
 	@Override
 	public void process(Book msg) {
 		bookProcessors[msg.getProduct().getIndex()].process(msg);
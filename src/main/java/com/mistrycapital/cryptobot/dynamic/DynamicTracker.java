@@ -3,21 +3,45 @@ package com.mistrycapital.cryptobot.dynamic;
 import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedSnapshot;
 import com.mistrycapital.cryptobot.gdax.common.Product;
 import com.mistrycapital.cryptobot.gdax.websocket.*;
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessage.Type;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 
 public class DynamicTracker implements GdaxMessageProcessor {
-	private final ProductTracker[] productTrackers;
+	/** Only new orders, cancels and trades are tracked */
+	private static final Set<Type> INTEREST = Collections.unmodifiableSet(EnumSet.of(Type.OPEN, Type.DONE, Type.MATCH));
+
+	/** Trackers for each resolution, indexed by resolution then product index */
+	private final ProductTracker[][] productTrackers;
 
 	public DynamicTracker() {
 		this(null);
 	}
 
 	public DynamicTracker(ConsolidatedSnapshot snapshot) {
-		productTrackers = new ProductTracker[Product.count];
-		for(Product product : Product.FAST_VALUES) {
-			productTrackers[product.getIndex()] = new ProductTracker(
-				product,
-				snapshot == null ? null : snapshot.getProductSnapshot(product)
-			);
+		this(1, snapshot);
+	}
+
+	/**
+	 * Creates a tracker that keeps separate interval data for each of the given number of resolutions, so intervals
+	 * of different lengths can be sampled from the same messages
+	 */
+	public DynamicTracker(int resolutions) {
+		this(resolutions, null);
+	}
+
+	private DynamicTracker(int resolutions, ConsolidatedSnapshot snapshot) {
+		productTrackers = new ProductTracker[resolutions][Product.count];
+		for(ProductTracker[] resolutionTrackers : productTrackers) {
+			for(Product product : Product.FAST_VALUES) {
+				resolutionTrackers[product.getIndex()] = new ProductTracker(
+					product,
+					snapshot == null ? null : snapshot.getProductSnapshot(product)
+				);
+			}
 		}
 	}
 
@@ -26,46 +50,102 @@ public class DynamicTracker implements GdaxMessageProcessor {
 	 * should be called at regular intervals to capture the history correctly.
 	 */
 	public IntervalData getSnapshot(Product product) {
-		return productTrackers[product.getIndex()].snapshot();
+		return getSnapshot(0, product);
+	}
+
+	/**
+	 * Records snapshot of the product's last interval data at the given resolution and rolls that resolution to
+	 * its next interval
+	 */
+	public IntervalData getSnapshot(int resolution, Product product) {
+		return productTrackers[resolution][product.getIndex()].snapshot();
+	}
+
+	/** @return Number of resolutions tracked */
+	public int getResolutions() {
+		return productTrackers.length;
+	}
+
+	/** @return Bytes written by writeState */
+	public int getStateSize() {
+		return productTrackers.length * Product.count * ProductTracker.STATE_SIZE;
+	}
+
+	/**
+	 * Writes the state of every product's current interval, which can be restored into another tracker with
+	 * readState to carry on tracking as if it had seen the same messages
+	 */
+	public void writeState(ByteBuffer buffer) {
+		for(ProductTracker[] resolutionTrackers : productTrackers)
+			for(ProductTracker productTracker : resolutionTrackers)
+				productTracker.writeState(buffer);
+	}
+
+	/** Restores state written by writeState from a tracker with the same number of resolutions */
+	public void readState(ByteBuffer buffer) {
+		for(ProductTracker[] resolutionTrackers : productTrackers)
+			for(ProductTracker productTracker : resolutionTrackers)
+				productTracker.readState(buffer);
+	}
+
+	@Override
+	public Set<Type> getInterest() {
+		return INTEREST;
 	}
 
 	@Override
 	public void process(final Book msg) {
-		productTrackers[msg.getProduct().getIndex()].process(msg);
+		final int index = msg.getProduct().getIndex();
+		for(ProductTracker[] resolutionTrackers : productTrackers)
+			resolutionTrackers[index].process(msg);
 	}
 
 	@Override
 	public void process(final Received msg) {
-		productTrackers[msg.getProduct().getIndex()].process(msg);
+		final int index = msg.getProduct().getIndex();
+		for(ProductTracker[] resolutionTrackers : productTrackers)
+			resolutionTrackers[index].process(msg);
 	}
 
 	@Override
 	public void process(final Open msg) {
-		productTrackers[msg.getProduct().getIndex()].process(msg);
+		final int index = msg.getProduct().getIndex();
+		for(ProductTracker[] resolutionTrackers : productTrackers)
+			resolutionTrackers[index].process(msg);
 	}
 
 	@Override
 	public void process(final Done msg) {
-		productTrackers[msg.getProduct().getIndex()].process(msg);
+		final int index = msg.getProduct().getIndex();
+		for(ProductTracker[] resolutionTrackers : productTrackers)
+			resolutionTrackers[index].process(msg);
 	}
 
 	@Override
 	public void process(final Match msg) {
-		productTrackers[msg.getProduct().getIndex()].process(msg);
+		final int index = msg.getProduct().getIndex();
+		for(ProductTracker[] resolutionTrackers : productTrackers)
+			resolutionTrackers[index].process(msg);
 	}
 
 	@Override
 	public void process(final ChangeSize msg) {
-		productTrackers[msg.getProduct().getIndex()].process(msg);
+		final int index = msg.getProduct().getIndex();
+		for(ProductTracker[] resolutionTrackers : productTrackers)
+			resolutionTrackers[index].process(msg);
 	}
 
 	@Override
 	public void process(final ChangeFunds msg) {
-		productTrackers[msg.getProduct().getIndex()].process(msg);
+		final int index = msg.getProduct().getIndex();
+		for(ProductTracker[] resolutionTrackers : productTrackers)
+			resolutionTrackers[index].process(msg);
 	}
 
 	@Override
 	public void process(final Activate msg) {
-		productTrackers[msg.getProduct().getIndex()].process(msg);
+		final int index = msg.getProduct().getIndex();
+		for(ProductTracker[] resolutionTrackers : productTrackers)
+			resolutionTrackers[index].process(msg);
 	}
 }
\ No newline at end of file
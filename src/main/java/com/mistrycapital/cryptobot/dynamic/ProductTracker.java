@@ -8,6 +8,8 @@ import com.mistrycapital.cryptobot.gdax.websocket.*;
 import com.mistrycapital.cryptobot.util.MCLoggerFactory;
 import org.slf4j.Logger;
 
+import java.nio.ByteBuffer;
+
 class ProductTracker implements GdaxMessageProcessor {
 	private static final Logger log = MCLoggerFactory.getLogger();
 
@@ -20,6 +22,9 @@ class ProductTracker implements GdaxMessageProcessor {
 	/** Volume times price, used for VWAP calculation */
 	private double volumeTimesPrice;
 
+	/** Bytes written by writeState */
+	static final int STATE_SIZE = 18 * 8;
+
 	ProductTracker(Product product) {
 		this.product = product;
 		curInterval = new IntervalData();
@@ -88,6 +93,51 @@ class ProductTracker implements GdaxMessageProcessor {
 		return retValue;
 	}
 
+	/** Writes the current interval and carried values so they can be restored with readState */
+	synchronized void writeState(ByteBuffer buffer) {
+		buffer.putDouble(prevLastPrice);
+		buffer.putDouble(volumeTimesPrice);
+		buffer.putDouble(curInterval.lastPrice);
+		buffer.putDouble(curInterval.ret);
+		buffer.putDouble(curInterval.volume);
+		buffer.putDouble(curInterval.vwap);
+		buffer.putLong(curInterval.bidTradeCount);
+		buffer.putLong(curInterval.askTradeCount);
+		buffer.putDouble(curInterval.bidTradeSize);
+		buffer.putDouble(curInterval.askTradeSize);
+		buffer.putLong(curInterval.newBidCount);
+		buffer.putLong(curInterval.newAskCount);
+		buffer.putDouble(curInterval.newBidSize);
+		buffer.putDouble(curInterval.newAskSize);
+		buffer.putLong(curInterval.bidCancelCount);
+		buffer.putLong(curInterval.askCancelCount);
+		buffer.putDouble(curInterval.bidCancelSize);
+		buffer.putDouble(curInterval.askCancelSize);
+	}
+
+	/** Replaces the current interval and carried values with those written by writeState */
+	synchronized void readState(ByteBuffer buffer) {
+		prevLastPrice = buffer.getDouble();
+		volumeTimesPrice = buffer.getDouble();
+		curInterval = new IntervalData();
+		curInterval.lastPrice = buffer.getDouble();
+		curInterval.ret = buffer.getDouble();
+		curInterval.volume = buffer.getDouble();
+		curInterval.vwap = buffer.getDouble();
+		curInterval.bidTradeCount = buffer.getLong();
+		curInterval.askTradeCount = buffer.getLong();
+		curInterval.bidTradeSize = buffer.getDouble();
+		curInterval.askTradeSize = buffer.getDouble();
+		curInterval.newBidCount = buffer.getLong();
+		curInterval.newAskCount = buffer.getLong();
+		curInterval.newBidSize = buffer.getDouble();
+		curInterval.newAskSize = buffer.getDouble();
+		curInterval.bidCancelCount = buffer.getLong();
+		curInterval.askCancelCount = buffer.getLong();
+		curInterval.bidCancelSize = buffer.getDouble();
+		curInterval.askCancelSize = buffer.getDouble();
+	}
+
 	@Override
 	public void process(final Book msg) {
 		// nothing to do
@@ -38,6 +38,9 @@ import static com.mistrycapital.cryptobot.gdax.client.GdaxClient.gdaxDecimalForm
  */
 public class ChasingGdaxExecutionEngine implements ExecutionEngine, GdaxMessageProcessor, TopOfBookSubscriber {
 	private static final Logger log = MCLoggerFactory.getLogger();
+	/** Only our own orders' lifecycle messages matter to execution */
+	private static final Set<GdaxMessage.Type> INTEREST = Collections.unmodifiableSet(
+		EnumSet.of(GdaxMessage.Type.RECEIVED, GdaxMessage.Type.DONE, GdaxMessage.Type.MATCH));
 
 	private static final long ONE_HOUR_NANOS = 60 * 60 * 1000000000L;
 	private static final double TICK_SIZE = 0.01;
@@ -416,6 +419,11 @@ public class ChasingGdaxExecutionEngine implements ExecutionEngine, GdaxMessageP
 			}
 	}
 
+	@Override
+	public Set<GdaxMessage.Type> getInterest() {
+		return INTEREST;
+	}
+
 	@Override
 	public void process(final Book msg) {
 		// nothing to do
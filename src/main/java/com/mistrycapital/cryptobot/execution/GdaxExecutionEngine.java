@@ -31,6 +31,9 @@ import static com.mistrycapital.cryptobot.gdax.client.GdaxClient.gdaxDecimalForm
 
 public class GdaxExecutionEngine implements ExecutionEngine, GdaxMessageProcessor {
 	private static final Logger log = MCLoggerFactory.getLogger();
+	/** Only our own orders' lifecycle messages matter to execution */
+	private static final Set<GdaxMessage.Type> INTEREST = Collections.unmodifiableSet(
+		EnumSet.of(GdaxMessage.Type.RECEIVED, GdaxMessage.Type.DONE, GdaxMessage.Type.MATCH));
 
 	private final TimeKeeper timeKeeper;
 	private final Accountant accountant;
@@ -204,6 +207,11 @@ public class GdaxExecutionEngine implements ExecutionEngine, GdaxMessageProcesso
 		}
 	}
 
+	@Override
+	public Set<GdaxMessage.Type> getInterest() {
+		return INTEREST;
+	}
+
 	@Override
 	public void process(final Book msg) {
 	}
@@ -1,7 +1,6 @@
 package com.mistrycapital.cryptobot.forecasts;
 
 import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedHistory;
-import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedSnapshot;
 import com.mistrycapital.cryptobot.aggregatedata.ProductSnapshot;
 import com.mistrycapital.cryptobot.appender.ForecastAppender;
 import com.mistrycapital.cryptobot.gdax.common.Product;
@@ -19,15 +18,33 @@ import static com.mistrycapital.cryptobot.forecasts.Alta.SignalType.*;
 /**
  * Forecast using optimized moving averages and other lag metrics
  */
-public class Alta implements ForecastCalculator {
+public class Alta implements LinearForecast {
 	private static final Logger log = MCLoggerFactory.getLogger();
 
 	private final double[][] coeffs;
-	private Map<String,Double> variableMap;
+	/** Slots of every signal computed, resolved once here so evaluation only indexes into values */
+	private final SignalRegistry registry;
+	/**
+	 * Signal values of the latest calculation for each product, by product index then slot. Keeping them per
+	 * product lets different products be calculated at the same time
+	 */
+	private final double[][] values;
+	/** Slots of signalsToUse, in coefficient order */
+	private final int[] signalsToUseSlots;
+	/** Calculations on earlier signals, in evaluation order */
+	private final List<DerivedCalculation> derivedCalcs;
+	/** Slots of btcRet and timeToMaxMin by hours back, or -1 if not calculated */
+	private final int[] btcRetSlots;
+	private final int[] timeToMaxMinSlots;
+	/** Indexes of the timeToMaxMin windows and btcRet snapshot signals in primitives by hours back */
+	private final int[] timeToMaxMinWindows;
+	private final int[] btcRetSignals;
 
 	private final boolean calcAllSignals;
 	private final int maxLookbackHours;
 	private final List<SignalCalculation> signalCalcs;
+	/** Rolling sums of the SMA and SUM calcs and the timeToMaxMin windows, possibly shared with other forecasts */
+	private final RollingPrimitives primitives;
 	public static final String[] signalsToUse =
 		new String[] {"bookSMA9", "onBalVol2", "RSIRatioxRet10", "btcRet2", "bookRatioxRet1", "newRatio9",
 			"cancelRatio8", "tradeRatio12", "upRatio3", "RSIRatio3", "timeToMaxMin10", "lagRet5",
@@ -35,7 +52,14 @@ public class Alta implements ForecastCalculator {
 	public static final Set<String> signalsToUseSet = Set.of(signalsToUse);
 
 	public Alta(MCProperties properties) {
-		String fcName = getClass().getSimpleName().toLowerCase(Locale.US);
+		this(properties, "alta", new RollingPrimitives());
+	}
+
+	/**
+	 * @param fcName Name of this forecast's properties, as in forecast.[fcName].coeffs.all
+	 * @param primitives Rolling primitives to declare the rolling calcs in
+	 */
+	public Alta(MCProperties properties, String fcName, RollingPrimitives primitives) {
 		calcAllSignals = properties.getBooleanProperty("forecast." + fcName + ".calcAllSignals", false);
 		coeffs = new double[Product.count][signalsToUse.length + 1];
 		for(Product product : Product.FAST_VALUES) {
@@ -53,11 +77,39 @@ public class Alta implements ForecastCalculator {
 			for(int i = 0; i < coeffs[productIndex].length; i++)
 			{ coeffs[productIndex][i] = Double.parseDouble(split[i]); }
 		}
-		variableMap = new HashMap<>();
-		for(String signal : signalsToUse) { variableMap.put(signal, 0.0); }
+		registry = new SignalRegistry();
+		signalsToUseSlots = new int[signalsToUse.length];
+		for(int i = 0; i < signalsToUse.length; i++)
+			signalsToUseSlots[i] = registry.register(signalsToUse[i]);
 
 		signalCalcs = new ArrayList<>();
 		initSignalCalcs();
+		for(SignalCalculation signalCalc : signalCalcs)
+			signalCalc.slot = registry.register(signalCalc.name);
+		derivedCalcs = new ArrayList<>();
+		initDerivedCalcs();
+		btcRetSlots = extraCalcSlots("btcRet");
+		timeToMaxMinSlots = extraCalcSlots("timeToMaxMin");
+		values = new double[Product.count][registry.size()];
+
+		this.primitives = primitives;
+		for(SignalCalculation signalCalc : signalCalcs)
+			if(signalCalc.signalType == SMA || signalCalc.signalType == SUM)
+				signalCalc.rollingIndex =
+					primitives.declareSum(signalCalc.name, signalCalc.lookbackHours, signalCalc.calculate);
+		timeToMaxMinWindows = new int[13];
+		Arrays.fill(timeToMaxMinWindows, -1);
+		for(int t = 1; t <= 12; t++)
+			if(timeToMaxMinSlots[t] >= 0)
+				timeToMaxMinWindows[t] = primitives.declareTimeToMaxMin(t);
+		// BTC returns are the same for every product, so they are calculated once per interval
+		btcRetSignals = new int[13];
+		Arrays.fill(btcRetSignals, -1);
+		for(int t = 1; t <= 12; t++)
+			if(btcRetSlots[t] >= 0) {
+				final int hours = t;
+				btcRetSignals[t] = primitives.declareSnapshotSignal("btcRet" + t, history -> btcRet(history, hours));
+			}
 
 		int maxLookbackHours = 0;
 		for(SignalCalculation signalCalc : signalCalcs)
@@ -84,10 +136,39 @@ public class Alta implements ForecastCalculator {
 			}
 	}
 
-	private void putDerivedCalc(String finalVarName, String thisVarName, IntFunction<Double> generateDerivedCalc) {
+	/**
+	 * Adds the derived calc at each lookback needed if the final variable is used, the same way as addSignalCalc().
+	 * The generator resolves the slots it reads when it is applied, so the calc itself only indexes into the
+	 * values it is given
+	 */
+	private void addDerivedCalc(String finalVarName, String thisVarName,
+		IntFunction<ToDoubleFunction<double[]>> generateDerivedCalc)
+	{
 		for(int t = 1; t <= 12; t++)
 			if(calcAllSignals || signalsToUseSet.contains(finalVarName + t))
-				variableMap.put(thisVarName + t, generateDerivedCalc.apply(t));
+				addDerivedCalc(thisVarName + t, generateDerivedCalc.apply(t));
+	}
+
+	private void addDerivedCalc(String name, ToDoubleFunction<double[]> calculate) {
+		final int slot = registry.register(name);
+		final boolean exists = derivedCalcs.stream().anyMatch(x -> x.slot == slot);
+		if(!exists)
+			derivedCalcs.add(new DerivedCalculation(slot, calculate));
+	}
+
+	/** @return Slot of name + t for each t up to 12 if it is calculated, otherwise -1 */
+	private int[] extraCalcSlots(String name) {
+		final int[] slots = new int[13];
+		Arrays.fill(slots, -1);
+		for(int t = 1; t <= 12; t++)
+			if(calcAllSignals || signalsToUseSet.contains(name + t))
+				slots[t] = registry.register(name + t);
+		return slots;
+	}
+
+	/** @return Slot of a signal calculated earlier */
+	private int slot(String name) {
+		return registry.getSlot(name);
 	}
 
 	/**
@@ -161,113 +242,104 @@ public class Alta implements ForecastCalculator {
 	}
 
 	/**
-	 * Computes signals derived from calculations of static and moving average data. This method serves as
+	 * Defines signals derived from calculations of static and moving average data. This method serves as
 	 * organizational convenience - there is no need to modify getInputVariables(); the calculation is
 	 * in initSignalCalcs() and here. Things that don't fit can be put in computeExtraCalcs()
 	 */
-	private void computeDerivedCalcs() {
-		variableMap.put("weightedMidRetLast", variableMap.get("weightedMidLast") / variableMap.get("lastPrice") - 1);
-
-		IntFunction<Double> lagRetGenerator = t ->
-			variableMap.get("lastPrice") / variableMap.get("price" + t + "h") - 1.0;
-		putDerivedCalc("lagRet", "lagRet", lagRetGenerator);
-
-		putDerivedCalc("bookRatioxRet", "lagRet", lagRetGenerator);
-		putDerivedCalc("bookRatioxRet", "bookRatioxRet", t ->
-			variableMap.get("bookRatio") * variableMap.get("lagRet" + t));
-
-		putDerivedCalc("onBalVol", "onBalVol", t ->
-			variableMap.get("sumVolxRet" + t) / variableMap.get("volume" + t));
-
-		IntFunction<Double> RSIRatioGenerator = t -> {
-			double sumDownChange = variableMap.get("sumDownChange" + t);
-			return sumDownChange == 0 ? Double.NaN :
-				variableMap.get("sumUpChange" + t) / variableMap.get("sumDownChange" + t);
+	private void initDerivedCalcs() {
+		final int lastPrice = slot("lastPrice");
+		final int weightedMidLast = slot("weightedMidLast");
+		addDerivedCalc("weightedMidRetLast", v -> v[weightedMidLast] / v[lastPrice] - 1);
+
+		IntFunction<ToDoubleFunction<double[]>> lagRetGenerator = t -> {
+			final int price = slot("price" + t + "h");
+			return v -> v[lastPrice] / v[price] - 1.0;
+		};
+		addDerivedCalc("lagRet", "lagRet", lagRetGenerator);
+
+		addDerivedCalc("bookRatioxRet", "lagRet", lagRetGenerator);
+		addDerivedCalc("bookRatioxRet", "bookRatioxRet", t -> {
+			final int bookRatio = slot("bookRatio");
+			final int lagRet = slot("lagRet" + t);
+			return v -> v[bookRatio] * v[lagRet];
+		});
+
+		addDerivedCalc("onBalVol", "onBalVol", t -> {
+			final int sumVolxRet = slot("sumVolxRet" + t);
+			final int volume = slot("volume" + t);
+			return v -> v[sumVolxRet] / v[volume];
+		});
+
+		IntFunction<ToDoubleFunction<double[]>> RSIRatioGenerator = t -> {
+			final int sumUpChange = slot("sumUpChange" + t);
+			final int sumDownChange = slot("sumDownChange" + t);
+			return v -> v[sumDownChange] == 0 ? Double.NaN : v[sumUpChange] / v[sumDownChange];
 		};
-		putDerivedCalc("RSIRatio", "RSIRatio", RSIRatioGenerator);
-		putDerivedCalc("RSIRatioxRet", "lagRet", lagRetGenerator);
-		putDerivedCalc("RSIRatioxRet", "RSIRatio", RSIRatioGenerator);
-		putDerivedCalc("RSIRatioxRet", "RSIRatioxRet", t ->
-			variableMap.get("RSIRatio" + t) * variableMap.get("lagRet" + t));
-
-		putDerivedCalc("tradeRatio", "tradeRatio", t -> variableMap.get("bidTradeCount" + t) /
-			(variableMap.get("bidTradeCount" + t) + variableMap.get("askTradeCount" + t)));
-		putDerivedCalc("newRatio", "newRatio", t ->
-			(variableMap.get("newBidCount" + t) - variableMap.get("newAskCount" + t)) /
-				variableMap.get("book5PctCount"));
-		putDerivedCalc("cancelRatio", "cancelRatio", t -> (variableMap.get("bidCancelCount" + t)
-			- variableMap.get("askCancelCount" + t)) / variableMap.get("book5PctCount"));
-
-		putDerivedCalc("weightedMidRetSMA", "weightedMidRetSMA", t ->
-			variableMap.get("weightedMidSMA" + t) / variableMap.get("lastPrice") - 1);
+		addDerivedCalc("RSIRatio", "RSIRatio", RSIRatioGenerator);
+		addDerivedCalc("RSIRatioxRet", "lagRet", lagRetGenerator);
+		addDerivedCalc("RSIRatioxRet", "RSIRatio", RSIRatioGenerator);
+		addDerivedCalc("RSIRatioxRet", "RSIRatioxRet", t -> {
+			final int RSIRatio = slot("RSIRatio" + t);
+			final int lagRet = slot("lagRet" + t);
+			return v -> v[RSIRatio] * v[lagRet];
+		});
+
+		addDerivedCalc("tradeRatio", "tradeRatio", t -> {
+			final int bidTradeCount = slot("bidTradeCount" + t);
+			final int askTradeCount = slot("askTradeCount" + t);
+			return v -> v[bidTradeCount] / (v[bidTradeCount] + v[askTradeCount]);
+		});
+		addDerivedCalc("newRatio", "newRatio", t -> {
+			final int newBidCount = slot("newBidCount" + t);
+			final int newAskCount = slot("newAskCount" + t);
+			final int book5PctCount = slot("book5PctCount");
+			return v -> (v[newBidCount] - v[newAskCount]) / v[book5PctCount];
+		});
+		addDerivedCalc("cancelRatio", "cancelRatio", t -> {
+			final int bidCancelCount = slot("bidCancelCount" + t);
+			final int askCancelCount = slot("askCancelCount" + t);
+			final int book5PctCount = slot("book5PctCount");
+			return v -> (v[bidCancelCount] - v[askCancelCount]) / v[book5PctCount];
+		});
+
+		addDerivedCalc("weightedMidRetSMA", "weightedMidRetSMA", t -> {
+			final int weightedMidSMA = slot("weightedMidSMA" + t);
+			return v -> v[weightedMidSMA] / v[lastPrice] - 1;
+		});
 	}
 
 	/**
 	 * Calculations that don't fit the framework
 	 */
-	private void computeExtraCalcs(final ConsolidatedHistory consolidatedHistory, final Product product) {
-		// lag BTC return
-		final ConsolidatedSnapshot latest = consolidatedHistory.latest();
-		final long latestTimeNanos = latest.getTimeNanos();
-		final ProductSnapshot latestBtc = latest.getProductSnapshot(Product.BTC_USD);
-		final double btcLastPrice = latestBtc == null ? Double.NaN : latestBtc.lastPrice;
-
+	private void computeExtraCalcs(final ConsolidatedHistory consolidatedHistory, final Product product,
+		final double[] values)
+	{
+		// lag BTC return, shared by every product
 		for(int i = 1; i <= 12; i++)
-			if(calcAllSignals || signalsToUseSet.contains("btcRet" + i)) {
-				double btcLagPrice = Double.NaN;
-				for(ConsolidatedSnapshot consolidatedSnapshot : consolidatedHistory.inOrder((i + 1) * 3600)) {
-					if(consolidatedSnapshot.getTimeNanos() > latestTimeNanos - i * 3600000000000L)
-						break;
-					final ProductSnapshot btc = consolidatedSnapshot.getProductSnapshot(Product.BTC_USD);
-					btcLagPrice = btc == null ? Double.NaN : btc.lastPrice;
-				}
-				variableMap.put("btcRet" + i, btcLagPrice / btcLastPrice - 1);
-			}
+			if(btcRetSlots[i] >= 0)
+				values[btcRetSlots[i]] = primitives.getSnapshotSignal(consolidatedHistory, btcRetSignals[i]);
 
-		// intervals since max/min
+		// intervals since max/min, kept in the rolling primitives
 		for(int i = 1; i <= 12; i++)
-			if(calcAllSignals || signalsToUseSet.contains("timeToMaxMin" + i)) {
-				double minPrice = Double.MAX_VALUE;
-				double maxPrice = 0.0;
-				int intervalsToMin = 0;
-				int intervalsToMax = 0;
-				for(ConsolidatedSnapshot consolidatedSnapshot : consolidatedHistory.inOrder(i * 3600)) {
-					ProductSnapshot snapshot = consolidatedSnapshot.getProductSnapshot(product);
-					if(snapshot == null) continue;
-
-					if(snapshot.vwap < minPrice) {
-						minPrice = snapshot.vwap;
-						intervalsToMin = 0;
-					} else {
-						intervalsToMin++;
-					}
-
-					if(snapshot.vwap > maxPrice) {
-						maxPrice = snapshot.vwap;
-						intervalsToMax = 0;
-					} else {
-						intervalsToMax++;
-					}
-				}
-				variableMap.put("timeToMaxMin" + i, (double) (intervalsToMax - intervalsToMin));
-			}
+			if(timeToMaxMinSlots[i] >= 0)
+				values[timeToMaxMinSlots[i]] = primitives.getTimeToMaxMin(product, timeToMaxMinWindows[i]);
 	}
 
 	@Override
 	public double calculate(final ConsolidatedHistory consolidatedHistory, final Product product,
 		final ForecastAppender forecastAppender)
 	{
-		final Map<String,Double> signals = getInputVariables(consolidatedHistory, product);
+		final double[] values = computeSignals(consolidatedHistory, product);
 		final double[] productCoeffs = coeffs[product.getIndex()];
 
 		double fcVal = productCoeffs[0];
-		for(int i = 0; i < signalsToUse.length; i++) {
-			fcVal += productCoeffs[i + 1] * signals.get(signalsToUse[i]);
+		for(int i = 0; i < signalsToUseSlots.length; i++) {
+			fcVal += productCoeffs[i + 1] * values[signalsToUseSlots[i]];
 		}
 
 		if(forecastAppender != null)
 			try {
-				forecastAppender.logForecast(product, signals, fcVal);
+				forecastAppender.logForecast(product, registry.toMap(values), fcVal);
 			} catch(IOException e) {
 				log.error("Could not log forecast for " + product, e);
 			}
@@ -279,106 +351,128 @@ public class Alta implements ForecastCalculator {
 	public Map<String,Double> getInputVariables(final ConsolidatedHistory consolidatedHistory,
 		final Product product)
 	{
-		long latestTimeNanos = consolidatedHistory.latest().getTimeNanos();
+		return registry.toMap(computeSignals(consolidatedHistory, product));
+	}
 
-		for(SignalCalculation signalCalc : signalCalcs) {
-			signalCalc.numDatapoints = 0;
-			signalCalc.multiplier = 0.0;
-			signalCalc.snapshot = null;
-			signalCalc.value = Double.NaN;
-		}
+	@Override
+	public String[] getSignalNames() {
+		return signalsToUse.clone();
+	}
 
-		// in first pass, get number of datapoints and snapshots
-		for(final ConsolidatedSnapshot consolidatedSnapshot : consolidatedHistory.inOrder(maxLookbackHours * 3600)) {
-			final ProductSnapshot snapshot = consolidatedSnapshot.getProductSnapshot(product);
-			if(snapshot == null) continue;
+	@Override
+	public double[] getCoeffs(final Product product) {
+		return coeffs[product.getIndex()].clone();
+	}
 
-			for(final SignalCalculation signalCalc : signalCalcs) {
-				final var timeCompare = Long.compare(
-					consolidatedSnapshot.getTimeNanos(),
-					latestTimeNanos - signalCalc.lookbackHours * 3600000000000L
-				);
-				switch(signalCalc.signalType) {
-					case STATIC:
-						if(timeCompare <= 0)
-							signalCalc.snapshot = snapshot;
-						break;
-
-					case SMA:
-					case EMA:
-					case SUM:
-						if(timeCompare >= 0)
-							signalCalc.numDatapoints++;
-						break;
-				}
-			}
-		}
+	@Override
+	public void calculateSignals(final ConsolidatedHistory consolidatedHistory, final Product product,
+		final double[] signals)
+	{
+		final double[] values = computeSignals(consolidatedHistory, product);
+		for(int i = 0; i < signalsToUseSlots.length; i++)
+			signals[i] = values[signalsToUseSlots[i]];
+	}
+
+	/**
+	 * Calculates every signal for the product as of the latest interval
+	 *
+	 * @return The product's values, by slot
+	 */
+	private double[] computeSignals(final ConsolidatedHistory consolidatedHistory, final Product product) {
+		final double[] values = this.values[product.getIndex()];
+		final long count = consolidatedHistory.getCount();
+		final long first = consolidatedHistory.firstWithin(count, maxLookbackHours * 3600);
+		final long latestTimeNanos = consolidatedHistory.get(count - 1).getTimeNanos();
+		primitives.advance(consolidatedHistory, product);
 
-		// calc static signals and multipliers for MAs
 		for(final SignalCalculation signalCalc : signalCalcs) {
 			switch(signalCalc.signalType) {
 				case STATIC:
-					signalCalc.value = signalCalc.snapshot == null ? Double.NaN
-						: signalCalc.calculate.applyAsDouble(signalCalc.snapshot);
+					// latest snapshot for the product as of the lookback
+					long sequence = lagSequence(consolidatedHistory, count, first, signalCalc.lookbackHours * 3600);
+					ProductSnapshot snapshot = null;
+					for(; sequence >= first && snapshot == null; sequence--)
+						snapshot = consolidatedHistory.get(sequence).getProductSnapshot(product);
+					values[signalCalc.slot] =
+						snapshot == null ? Double.NaN : signalCalc.calculate.applyAsDouble(snapshot);
 					break;
 
 				case SMA:
-					signalCalc.multiplier = 1.0 / signalCalc.numDatapoints;
-					break;
-
-				case EMA:
-					signalCalc.multiplier = 2.0 / (signalCalc.numDatapoints + 1);
+					final int datapoints = primitives.getDatapoints(product, signalCalc.rollingIndex);
+					values[signalCalc.slot] = datapoints == 0 ? Double.NaN
+						: primitives.getSum(product, signalCalc.rollingIndex) / datapoints;
 					break;
 
 				case SUM:
-					// nothing to do
-			}
-		}
-
-		// calc MAs
-		for(final ConsolidatedSnapshot consolidatedSnapshot : consolidatedHistory.inOrder(maxLookbackHours * 3600)) {
-			final ProductSnapshot snapshot = consolidatedSnapshot.getProductSnapshot(product);
-			if(snapshot == null) continue;
+					values[signalCalc.slot] = primitives.getDatapoints(product, signalCalc.rollingIndex) == 0
+						? Double.NaN : primitives.getSum(product, signalCalc.rollingIndex);
+					break;
 
-			for(final SignalCalculation signalCalc : signalCalcs) {
-				if(consolidatedSnapshot.getTimeNanos() < latestTimeNanos - signalCalc.lookbackHours * 3600000000000L)
-					continue;
-
-				switch(signalCalc.signalType) {
-					case SMA:
-						if(Double.isNaN(signalCalc.value)) signalCalc.value = 0.0;
-						signalCalc.value += signalCalc.multiplier * signalCalc.calculate.applyAsDouble(snapshot);
-						break;
-
-					case EMA:
-						final var curValue = signalCalc.calculate.applyAsDouble(snapshot);
-						if(Double.isNaN(signalCalc.value)) signalCalc.value = curValue;
-						signalCalc.value =
-							(1 - signalCalc.multiplier) * signalCalc.value + signalCalc.multiplier * curValue;
-						break;
-
-					case SUM:
-						if(Double.isNaN(signalCalc.value)) signalCalc.value = 0.0;
-						signalCalc.value += signalCalc.calculate.applyAsDouble(snapshot);
-
-					case STATIC:
-						// nothing to do here
-				}
+				case EMA:
+					values[signalCalc.slot] = calcEma(consolidatedHistory, product, count, latestTimeNanos, signalCalc);
 			}
 		}
 
-		// put in map
-		for(final SignalCalculation signalCalc : signalCalcs) {
-			variableMap.put(signalCalc.name, signalCalc.value);
-		}
-
 		// compute any signals derived from earlier calcs
-		computeDerivedCalcs();
+		for(final DerivedCalculation derivedCalc : derivedCalcs)
+			values[derivedCalc.slot] = derivedCalc.calculate.applyAsDouble(values);
 
 		// other calcs that don't fit the framework
-		computeExtraCalcs(consolidatedHistory, product);
+		computeExtraCalcs(consolidatedHistory, product, values);
+		return values;
+	}
 
-		return variableMap;
+	/**
+	 * @return BTC price the given hours ago over the latest BTC price, less 1
+	 */
+	private static double btcRet(final ConsolidatedHistory consolidatedHistory, final int hours) {
+		final long count = consolidatedHistory.getCount();
+		final ProductSnapshot latestBtc = consolidatedHistory.get(count - 1).getProductSnapshot(Product.BTC_USD);
+		final double btcLastPrice = latestBtc == null ? Double.NaN : latestBtc.lastPrice;
+		final long lagSequence = lagSequence(consolidatedHistory, count,
+			consolidatedHistory.firstWithin(count, (hours + 1) * 3600), hours * 3600);
+		final ProductSnapshot btc = lagSequence < 0 ? null
+			: consolidatedHistory.get(lagSequence).getProductSnapshot(Product.BTC_USD);
+		final double btcLagPrice = btc == null ? Double.NaN : btc.lastPrice;
+		return btcLagPrice / btcLastPrice - 1;
+	}
+
+	/**
+	 * @return Sequence number of the latest interval at least lookbackSeconds before the latest one, or -1 if
+	 * that is before first
+	 */
+	private static long lagSequence(final ConsolidatedHistory consolidatedHistory, final long count,
+		final long first, final int lookbackSeconds)
+	{
+		final long cutoffNanos =
+			consolidatedHistory.get(count - 1).getTimeNanos() - lookbackSeconds * 1000000000L;
+		long sequence = consolidatedHistory.firstWithin(count, lookbackSeconds);
+		if(consolidatedHistory.get(sequence).getTimeNanos() > cutoffNanos)
+			sequence--;
+		return sequence >= first ? sequence : -1;
+	}
+
+	/**
+	 * EMAs start from the oldest value in the window, so they cannot be rolled and take a pass over the window
+	 */
+	private static double calcEma(final ConsolidatedHistory consolidatedHistory, final Product product,
+		final long count, final long latestTimeNanos, final SignalCalculation signalCalc)
+	{
+		final long start = consolidatedHistory.firstWithin(count, signalCalc.lookbackHours * 3600);
+		int datapoints = 0;
+		for(long i = start; i < count; i++)
+			if(consolidatedHistory.get(i).getProductSnapshot(product) != null)
+				datapoints++;
+		final double multiplier = 2.0 / (datapoints + 1);
+		double value = Double.NaN;
+		for(long i = start; i < count; i++) {
+			final ProductSnapshot snapshot = consolidatedHistory.get(i).getProductSnapshot(product);
+			if(snapshot == null) continue;
+			final double curValue = signalCalc.calculate.applyAsDouble(snapshot);
+			if(Double.isNaN(value)) value = curValue;
+			value = (1 - multiplier) * value + multiplier * curValue;
+		}
+		return value;
 	}
 
 	enum SignalType {
@@ -402,14 +496,10 @@ public class Alta implements ForecastCalculator {
 		/** Used to get the calculation from the snapshot */
 		ToDoubleFunction<ProductSnapshot> calculate;
 
-		/** Number of datapoints - used in MA calcs */
-		int numDatapoints;
-		/** Moving average multiplier */
-		double multiplier;
-		/** Snapshot as of correct time - used in static calcs */
-		ProductSnapshot snapshot;
-		/** Value calculated */
-		double value;
+		/** Index of the rolling sum in primitives for SMA and SUM calcs */
+		int rollingIndex = -1;
+		/** Slot of the value calculated */
+		int slot;
 
 		SignalCalculation(String name, int lookbackHours, SignalType signalType,
 			ToDoubleFunction<ProductSnapshot> calculate)
@@ -420,4 +510,34 @@ public class Alta implements ForecastCalculator {
 			this.calculate = calculate;
 		}
 	}
+
+	/** Signal calculated from the values of earlier signals */
+	private static class DerivedCalculation {
+		final int slot;
+		/** Calculates from the values of the earlier signals */
+		final ToDoubleFunction<double[]> calculate;
+
+		DerivedCalculation(int slot, ToDoubleFunction<double[]> calculate) {
+			this.slot = slot;
+			this.calculate = calculate;
+		}
+	}
+
+	/** Builds Alta forecasts for {@link ForecastFactory} */
+	public static class Provider implements ForecastProvider {
+		@Override
+		public String getName() {
+			return "Alta";
+		}
+
+		@Override
+		public int getVersion() {
+			return 1;
+		}
+
+		@Override
+		public ForecastCalculator create(MCProperties properties, String fcName, RollingPrimitives primitives) {
+			return new Alta(properties, fcName, primitives);
+		}
+	}
 }
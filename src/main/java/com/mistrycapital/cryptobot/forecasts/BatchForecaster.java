@@ -0,0 +1,169 @@
+package com.mistrycapital.cryptobot.forecasts;
+
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedHistory;
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedSnapshot;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+import com.mistrycapital.cryptobot.time.Intervalizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Calculates a forecast at every interval of a whole history at once, for backtests and regression datasets.
+ * The snapshots are iterated once, a chunk at a time, and a product's forecasts depend only on the history, so each
+ * chunk is calculated for all products in parallel while the next chunk is read. Each product gets its own
+ * calculator and history, and only one task at a time works on a product, which keeps the calculator's rolling
+ * window and scratch state confined. The results are the same as adding each snapshot to a history and calling the
+ * calculator for every product
+ */
+public class BatchForecaster {
+	/** Snapshots handed to the products at once, about a day of five minute intervals */
+	private static final int CHUNK_SIZE = 24 * 12;
+
+	private final Intervalizer intervalizer;
+	private final Supplier<ForecastCalculator> calculators;
+
+	/**
+	 * @param calculators Creates a new calculator for each product
+	 */
+	public BatchForecaster(Intervalizer intervalizer, Supplier<ForecastCalculator> calculators) {
+		this.intervalizer = intervalizer;
+		this.calculators = calculators;
+	}
+
+	/**
+	 * @return Series of a single "forecast" signal for each product, by product index
+	 */
+	public Series[] calculateAll(Iterable<ConsolidatedSnapshot> snapshots) {
+		return run(snapshots, false);
+	}
+
+	/**
+	 * Input variables must have the same names in the same order at every interval, which holds for the maps
+	 * forecasts build from a {@link SignalRegistry}
+	 *
+	 * @return Series of every input variable for each product, by product index
+	 */
+	public Series[] getAllInputVariables(Iterable<ConsolidatedSnapshot> snapshots) {
+		return run(snapshots, true);
+	}
+
+	private Series[] run(Iterable<ConsolidatedSnapshot> snapshots, boolean inputVariables) {
+		final List<ProductForecaster> forecasters = new ArrayList<>(Product.count);
+		for(Product product : Product.FAST_VALUES)
+			forecasters.add(new ProductForecaster(product, inputVariables));
+		final ExecutorService pool = Executors.newFixedThreadPool(
+			Math.min(Product.count, Runtime.getRuntime().availableProcessors()), runnable -> {
+				final Thread thread = new Thread(runnable, "BatchForecaster");
+				thread.setDaemon(true);
+				return thread;
+			});
+		try {
+			final Iterator<ConsolidatedSnapshot> iterator = snapshots.iterator();
+			List<Future<?>> pending = Collections.emptyList();
+			while(true) {
+				final List<ConsolidatedSnapshot> chunk = new ArrayList<>(CHUNK_SIZE);
+				while(chunk.size() < CHUNK_SIZE && iterator.hasNext())
+					chunk.add(iterator.next());
+				// products must finish the previous chunk before they get the next
+				for(Future<?> future : pending)
+					future.get();
+				if(chunk.isEmpty())
+					break;
+				pending = new ArrayList<>(Product.count);
+				for(ProductForecaster forecaster : forecasters)
+					pending.add(pool.submit(() -> forecaster.addAll(chunk)));
+			}
+		} catch(InterruptedException | ExecutionException e) {
+			throw new RuntimeException("Could not calculate forecasts", e);
+		} finally {
+			pool.shutdownNow();
+		}
+		final Series[] series = new Series[Product.count];
+		for(ProductForecaster forecaster : forecasters)
+			series[forecaster.product.getIndex()] = forecaster.toSeries();
+		return series;
+	}
+
+	/** Values of named signals for one product at each interval */
+	public static class Series {
+		public final Product product;
+		public final String[] names;
+		/** Interval times in nanos */
+		public final long[] times;
+		/** Signal values, indexed by signal then interval */
+		public final double[][] values;
+		/** Number of intervals */
+		public final int size;
+
+		Series(Product product, String[] names, long[] times, double[][] values, int size) {
+			this.product = product;
+			this.names = names;
+			this.times = times;
+			this.values = values;
+			this.size = size;
+		}
+	}
+
+	/** One product's calculator, history and series so far */
+	private class ProductForecaster {
+		private final Product product;
+		private final boolean inputVariables;
+		private final ForecastCalculator calculator;
+		private final ConsolidatedHistory history;
+		private String[] names;
+		private long[] times;
+		private double[][] values;
+		private int size;
+
+		ProductForecaster(Product product, boolean inputVariables) {
+			this.product = product;
+			this.inputVariables = inputVariables;
+			calculator = calculators.get();
+			history = new ConsolidatedHistory(intervalizer);
+			names = inputVariables ? null : new String[] {"forecast"};
+			times = new long[1024];
+			values = inputVariables ? null : new double[1][times.length];
+		}
+
+		void addAll(List<ConsolidatedSnapshot> snapshots) {
+			for(ConsolidatedSnapshot snapshot : snapshots) {
+				history.add(snapshot);
+				if(size == times.length) {
+					times = Arrays.copyOf(times, size * 2);
+					for(int i = 0; i < values.length; i++)
+						values[i] = Arrays.copyOf(values[i], size * 2);
+				}
+				times[size] = snapshot.getTimeNanos();
+				if(inputVariables) {
+					final Map<String,Double> variables = calculator.getInputVariables(history, product);
+					if(names == null) {
+						names = variables.keySet().toArray(new String[0]);
+						values = new double[names.length][times.length];
+					}
+					int i = 0;
+					for(double value : variables.values())
+						values[i++][size] = value;
+				} else {
+					values[0][size] = calculator.calculate(history, product, null);
+				}
+				size++;
+			}
+		}
+
+		Series toSeries() {
+			if(names == null)
+				return new Series(product, new String[0], times, new double[0][], size);
+			return new Series(product, names, times, values, size);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package com.mistrycapital.cryptobot.forecasts;
+
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedHistory;
+import com.mistrycapital.cryptobot.appender.ForecastAppender;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+import com.mistrycapital.cryptobot.util.MCLoggerFactory;
+import com.mistrycapital.cryptobot.util.MCProperties;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Weighted sum of member forecasts, so several forecasts can run side by side. Members with zero weight are shadows:
+ * they are calculated and logged every interval but do not move the forecast traded. Members declare their rolling
+ * calculations in one shared {@link RollingPrimitives}, so a shadow costs little more than the signals only it uses.
+ * Members are listed in forecast.[fcName].members as forecast names, optionally with their own properties name, e.g.
+ * Alta,Alta:altaShadow,Snowbird. Weights are given in forecast.[fcName].weights and default to trading the first
+ * member alone
+ */
+public class Ensemble implements ForecastCalculator {
+	private static final Logger log = MCLoggerFactory.getLogger();
+
+	/** Name of each member, as logged and returned as input variables */
+	private final String[] names;
+	private final ForecastCalculator[] members;
+	private final double[] weights;
+
+	public Ensemble(MCProperties properties) {
+		this(properties, "ensemble", new RollingPrimitives());
+	}
+
+	/**
+	 * @param fcName Name of this forecast's properties, as in forecast.[fcName].members
+	 * @param primitives Rolling primitives shared by the members
+	 */
+	public Ensemble(MCProperties properties, String fcName, RollingPrimitives primitives) {
+		final String membersString = properties.getProperty("forecast." + fcName + ".members");
+		if(membersString == null)
+			throw new RuntimeException("Could not find members for ensemble " + fcName);
+		final String[] specs = membersString.split(",");
+		names = new String[specs.length];
+		members = new ForecastCalculator[specs.length];
+		for(int i = 0; i < specs.length; i++) {
+			final int colon = specs[i].indexOf(':');
+			names[i] = (colon < 0 ? specs[i] : specs[i].substring(colon + 1)).trim();
+			members[i] = ForecastFactory.getCalculatorInstance(properties, specs[i], primitives);
+		}
+
+		weights = new double[specs.length];
+		final String weightsString = properties.getProperty("forecast." + fcName + ".weights");
+		if(weightsString == null) {
+			weights[0] = 1.0;
+		} else {
+			final String[] split = weightsString.split(",");
+			if(split.length != weights.length)
+				throw new RuntimeException("Wrong number of weights for ensemble " + fcName + ": " + weightsString);
+			for(int i = 0; i < weights.length; i++)
+				weights[i] = Double.parseDouble(split[i]);
+		}
+		log.debug("Ensemble " + fcName + " members " + membersString + " weights " + weightsString);
+	}
+
+	@Override
+	public double calculate(final ConsolidatedHistory consolidatedHistory, final Product product,
+		final ForecastAppender forecastAppender)
+	{
+		final Map<String,Double> memberForecasts = forecastAppender == null ? null : new LinkedHashMap<>();
+		double fcVal = 0.0;
+		for(int i = 0; i < members.length; i++) {
+			final double memberForecast = members[i].calculate(consolidatedHistory, product, null);
+			if(weights[i] != 0.0)
+				fcVal += weights[i] * memberForecast;
+			if(memberForecasts != null)
+				memberForecasts.put(names[i], memberForecast);
+		}
+
+		if(forecastAppender != null)
+			try {
+				forecastAppender.logForecast(product, memberForecasts, fcVal);
+			} catch(IOException e) {
+				log.error("Could not log forecast for " + product, e);
+			}
+
+		return fcVal;
+	}
+
+	/**
+	 * @return Forecast of each member, by member name
+	 */
+	@Override
+	public Map<String,Double> getInputVariables(final ConsolidatedHistory consolidatedHistory, final Product product) {
+		final Map<String,Double> memberForecasts = new LinkedHashMap<>();
+		for(int i = 0; i < members.length; i++)
+			memberForecasts.put(names[i], members[i].calculate(consolidatedHistory, product, null));
+		return memberForecasts;
+	}
+
+	/** @return true if every member is cacheable */
+	@Override
+	public boolean isCacheable() {
+		for(ForecastCalculator member : members)
+			if(!member.isCacheable())
+				return false;
+		return true;
+	}
+
+	/** Builds ensembles for {@link ForecastFactory} */
+	public static class Provider implements ForecastProvider {
+		@Override
+		public String getName() {
+			return "Ensemble";
+		}
+
+		@Override
+		public int getVersion() {
+			return 1;
+		}
+
+		@Override
+		public ForecastCalculator create(MCProperties properties, String fcName, RollingPrimitives primitives) {
+			return new Ensemble(properties, fcName, primitives);
+		}
+	}
+}
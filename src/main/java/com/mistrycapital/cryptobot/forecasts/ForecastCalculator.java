@@ -6,6 +6,10 @@ import com.mistrycapital.cryptobot.gdax.common.Product;
 
 import java.util.Map;
 
+/**
+ * Calculates forecasts from the history. Calls for different products may run at the same time, so any scratch
+ * state must be kept per product; calls for the same product are never concurrent
+ */
 public interface ForecastCalculator {
 	/**
 	 * Calculates the latest value of this forecast for the given product. If logger is not null, logs the value
@@ -19,4 +23,13 @@ public interface ForecastCalculator {
 	 * @return All inputs used to calculate this forecast with the current history, as a map from name to value
 	 */
 	Map<String,Double> getInputVariables(ConsolidatedHistory consolidatedHistory, Product product);
+
+	/**
+	 * @return true if forecasts depend only on the history kept, so saved forecasts can be reused and recalculation
+	 * can start a history length before the first changed interval. false if they depend on every interval
+	 * calculated before, as with coefficients estimated online
+	 */
+	default boolean isCacheable() {
+		return true;
+	}
 }
@@ -1,20 +1,82 @@
 package com.mistrycapital.cryptobot.forecasts;
 
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedHistory;
 import com.mistrycapital.cryptobot.util.MCProperties;
 
-import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeMap;
 
 public class ForecastFactory {
+	/** Forecast providers found on the class path, by name */
+	private static final Map<String,ForecastProvider> providers = loadProviders();
+
+	private static Map<String,ForecastProvider> loadProviders() {
+		final Map<String,ForecastProvider> providers = new TreeMap<>();
+		for(ForecastProvider provider : ServiceLoader.load(ForecastProvider.class))
+			providers.putIfAbsent(provider.getName(), provider);
+		return providers;
+	}
+
+	/** @return Names of the forecasts that can be built */
+	public static Set<String> getNames() {
+		return providers.keySet();
+	}
+
+	/** @return Version of each forecast that can be built, by name */
+	public static Map<String,Integer> getVersions() {
+		final Map<String,Integer> versions = new TreeMap<>();
+		for(ForecastProvider provider : providers.values())
+			versions.put(provider.getName(), provider.getVersion());
+		return versions;
+	}
+
+	/**
+	 * @return Classes whose code determines the forecasts: the calculation classes forecasts share, and each
+	 * provider with the forecast it is declared in and that forecast's member classes
+	 */
+	public static List<Class<?>> getCalculationClasses() {
+		final List<Class<?>> classes = new ArrayList<>(List.of(ConsolidatedHistory.class, LinearForecast.class,
+			RollingPrimitives.class, SignalRegistry.class));
+		for(ForecastProvider provider : providers.values()) {
+			final Class<?> forecastClass = provider.getClass().getDeclaringClass();
+			if(forecastClass == null) {
+				classes.add(provider.getClass());
+			} else {
+				classes.add(forecastClass);
+				classes.addAll(List.of(forecastClass.getDeclaredClasses()));
+			}
+		}
+		return classes;
+	}
+
 	/** @return ForecastCalculator constructed from the one specified in the forecast.calculator property */
 	public static ForecastCalculator getCalculatorInstance(MCProperties properties) {
-		try {
-			String fcName = properties.getProperty("forecast.calculator");
-			@SuppressWarnings("unchecked")
-			Class<ForecastCalculator> fcClazz =
-				(Class<ForecastCalculator>) Class.forName("com.mistrycapital.cryptobot.forecasts." + fcName);
-			return fcClazz.getConstructor(MCProperties.class).newInstance(properties);
-		} catch(ClassNotFoundException | NoSuchMethodException | IllegalAccessException | InstantiationException | InvocationTargetException e) {
-			throw new RuntimeException(e);
-		}
+		return getCalculatorInstance(properties, properties.getProperty("forecast.calculator"),
+			new RollingPrimitives());
+	}
+
+	/**
+	 * @param spec Forecast name, optionally followed by a colon and the name of its properties, as in
+	 * Alta:altaShadow for an Alta forecast configured by forecast.altaShadow.* properties. The properties name
+	 * defaults to the lower case forecast name
+	 * @param primitives Rolling primitives for the forecast to declare its rolling calculations in
+	 */
+	public static ForecastCalculator getCalculatorInstance(MCProperties properties, String spec,
+		RollingPrimitives primitives)
+	{
+		if(spec == null)
+			throw new RuntimeException("No forecast calculator specified");
+		final int colon = spec.indexOf(':');
+		final String name = colon < 0 ? spec.trim() : spec.substring(0, colon).trim();
+		final String fcName = colon < 0 ? name.toLowerCase(Locale.US) : spec.substring(colon + 1).trim();
+		final ForecastProvider provider = providers.get(name);
+		if(provider == null)
+			throw new RuntimeException("Unknown forecast calculator " + name + ", must be one of " + getNames());
+		return provider.create(properties, fcName, primitives);
 	}
 }
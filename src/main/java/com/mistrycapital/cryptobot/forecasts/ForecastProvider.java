@@ -0,0 +1,26 @@
+package com.mistrycapital.cryptobot.forecasts;
+
+import com.mistrycapital.cryptobot.util.MCProperties;
+
+/**
+ * Builds a forecast calculator by name. Providers are found with {@link java.util.ServiceLoader}, so a forecast is
+ * made available by listing its provider in the provides clause of module-info.java, and in
+ * META-INF/services/com.mistrycapital.cryptobot.forecasts.ForecastProvider for runs on the class path
+ */
+public interface ForecastProvider {
+	/** @return Name the forecast is configured by, as in forecast.calculator */
+	String getName();
+
+	/**
+	 * @return Version of the forecast's calculation. Raise it with any change that alters the forecasts calculated,
+	 * so forecasts saved by earlier simulations are not reused
+	 */
+	int getVersion();
+
+	/**
+	 * @param fcName Name of the forecast's properties, as in forecast.[fcName].coeffs.all
+	 * @param primitives Rolling primitives the forecast should declare any rolling calculations in. An ensemble
+	 * shares one instance between its members
+	 */
+	ForecastCalculator create(MCProperties properties, String fcName, RollingPrimitives primitives);
+}
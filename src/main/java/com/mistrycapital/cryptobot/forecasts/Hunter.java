@@ -1,9 +1,11 @@
 package com.mistrycapital.cryptobot.forecasts;
 
+import com.mistrycapital.cryptobot.aggregatedata.ColumnWindow;
 import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedHistory;
-import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedSnapshot;
+import com.mistrycapital.cryptobot.aggregatedata.SnapshotField;
 import com.mistrycapital.cryptobot.appender.ForecastAppender;
 import com.mistrycapital.cryptobot.gdax.common.Product;
+import com.mistrycapital.cryptobot.util.MCProperties;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -26,13 +28,28 @@ public class Hunter implements ForecastCalculator {
 	}
 
 	private double getLagRet(final ConsolidatedHistory consolidatedHistory, final Product product) {
+		final ColumnWindow rets = consolidatedHistory.window(product, SnapshotField.RET, 36);
 		double lagRet = 0.0;
-		int count = 0;
-		for(ConsolidatedSnapshot snapshot : consolidatedHistory.values()) {
-			lagRet += Math.log(1 + snapshot.getProductSnapshot(product).ret);
-			count++;
-			if(count >= 36) break;
-		}
+		for(int i = rets.to - 1; i >= rets.from; i--)
+			lagRet += Math.log(1 + rets.values[i]);
 		return lagRet;
 	}
+
+	/** Builds Hunter forecasts for {@link ForecastFactory}. Hunter has no properties or rolling calculations */
+	public static class Provider implements ForecastProvider {
+		@Override
+		public String getName() {
+			return "Hunter";
+		}
+
+		@Override
+		public int getVersion() {
+			return 1;
+		}
+
+		@Override
+		public ForecastCalculator create(MCProperties properties, String fcName, RollingPrimitives primitives) {
+			return new Hunter();
+		}
+	}
 }
@@ -0,0 +1,22 @@
+package com.mistrycapital.cryptobot.forecasts;
+
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedHistory;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+
+/**
+ * Forecast that is an intercept plus a linear combination of signals, so its coefficients can be estimated online
+ */
+public interface LinearForecast extends ForecastCalculator {
+	/** @return Names of the signals the coefficients after the intercept multiply, in coefficient order */
+	String[] getSignalNames();
+
+	/** @return Copy of the product's coefficients, intercept first */
+	double[] getCoeffs(Product product);
+
+	/**
+	 * Calculates the latest value of each signal in getSignalNames() for the product, without logging
+	 *
+	 * @param signals Filled with the signal values, in coefficient order
+	 */
+	void calculateSignals(ConsolidatedHistory consolidatedHistory, Product product, double[] signals);
+}
@@ -0,0 +1,222 @@
+package com.mistrycapital.cryptobot.forecasts;
+
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedHistory;
+import com.mistrycapital.cryptobot.aggregatedata.ProductSnapshot;
+import com.mistrycapital.cryptobot.appender.ForecastAppender;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+import com.mistrycapital.cryptobot.regression.RecursiveLeastSquares;
+import com.mistrycapital.cryptobot.util.MCLoggerFactory;
+import com.mistrycapital.cryptobot.util.MCProperties;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Linear forecast whose coefficients are re-estimated online with recursive least squares. Every interval the base
+ * forecast's signals are saved, and once the 2 hour return after them is realized (measured the same way as
+ * fut_ret_2h in datasets) they update each product's estimate, starting from the base forecast's fitted coefficients.
+ * Updates cost O(n^2) in the number of signals per product per interval. In shadow mode, the default, the base
+ * forecast is traded unchanged and the online coefficients' drift and errors are only logged; set
+ * forecast.[fcName].live to trade the online forecast
+ */
+public class OnlineForecast implements ForecastCalculator {
+	private static final Logger log = MCLoggerFactory.getLogger();
+
+	private static final long TWO_HOUR_NANOS = 2 * 60 * 60 * 1000000000L;
+	private static final long THREE_HOUR_NANOS = 3 * 60 * 60 * 1000000000L;
+	/** Drift is logged after this many updates for a product, hourly with five minute intervals */
+	private static final int DRIFT_LOG_UPDATES = 12;
+
+	private final LinearForecast base;
+	private final String[] signalNames;
+	private final boolean live;
+	private final ProductState[] states;
+
+	public OnlineForecast(MCProperties properties) {
+		this(properties, "online", new RollingPrimitives());
+	}
+
+	/**
+	 * @param fcName Name of this forecast's properties, as in forecast.[fcName].base
+	 * @param primitives Rolling primitives for the base forecast
+	 */
+	public OnlineForecast(MCProperties properties, String fcName, RollingPrimitives primitives) {
+		final String baseSpec = properties.getProperty("forecast." + fcName + ".base", "Alta");
+		final ForecastCalculator baseCalculator =
+			ForecastFactory.getCalculatorInstance(properties, baseSpec, primitives);
+		if(!(baseCalculator instanceof LinearForecast))
+			throw new RuntimeException("Online forecast needs a linear base forecast: " + baseSpec);
+		base = (LinearForecast) baseCalculator;
+		signalNames = base.getSignalNames();
+		live = properties.getBooleanProperty("forecast." + fcName + ".live", false);
+		final double forgetting = properties.getDoubleProperty("forecast." + fcName + ".forgetting", 0.9999);
+		final double initialVariance =
+			properties.getDoubleProperty("forecast." + fcName + ".initialVariance", 1.0);
+		states = new ProductState[Product.count];
+		for(Product product : Product.FAST_VALUES)
+			states[product.getIndex()] = new ProductState(
+				new RecursiveLeastSquares(base.getCoeffs(product), forgetting, initialVariance), signalNames.length);
+		log.info("Online forecast on " + baseSpec + (live ? " trading" : " in shadow mode") + " with forgetting "
+			+ forgetting);
+	}
+
+	@Override
+	public double calculate(final ConsolidatedHistory consolidatedHistory, final Product product,
+		final ForecastAppender forecastAppender)
+	{
+		final ProductState state = states[product.getIndex()];
+		final long timeNanos = consolidatedHistory.latest().getTimeNanos();
+		final ProductSnapshot snapshot = consolidatedHistory.latest().getProductSnapshot(product);
+		final boolean newInterval = timeNanos > state.latestTimeNanos;
+		if(newInterval) {
+			state.latestTimeNanos = timeNanos;
+			update(product, state, timeNanos);
+			if(snapshot != null && !Double.isNaN(snapshot.lastPrice))
+				state.lastPrice = snapshot.lastPrice;
+		}
+
+		base.calculateSignals(consolidatedHistory, product, state.signals);
+		final double offlineForecast = predict(state.offlineCoeffs, state.signals);
+		final double onlineForecast = state.rls.predict(state.signals);
+		if(newInterval && snapshot != null && !Double.isNaN(snapshot.lastPrice))
+			state.pending.addLast(
+				new Observation(timeNanos, snapshot.lastPrice, state.signals.clone(), offlineForecast, onlineForecast));
+		final double fcVal = live ? onlineForecast : offlineForecast;
+
+		if(forecastAppender != null)
+			try {
+				final Map<String,Double> inputVariables = new LinkedHashMap<>();
+				for(int i = 0; i < signalNames.length; i++)
+					inputVariables.put(signalNames[i], state.signals[i]);
+				inputVariables.put("offlineForecast", offlineForecast);
+				inputVariables.put("onlineForecast", onlineForecast);
+				forecastAppender.logForecast(product, inputVariables, fcVal);
+			} catch(IOException e) {
+				log.error("Could not log forecast for " + product, e);
+			}
+
+		return fcVal;
+	}
+
+	/**
+	 * Updates the estimate with every saved interval whose 2 hour return is realized as of the given time. As in
+	 * datasets, the return runs to the last price at or before 2 hours later, and intervals with no data between 2
+	 * and 3 hours later are dropped
+	 */
+	private void update(final Product product, final ProductState state, final long timeNanos) {
+		while(!state.pending.isEmpty() && state.pending.peekFirst().timeNanos + TWO_HOUR_NANOS < timeNanos) {
+			final Observation observation = state.pending.removeFirst();
+			if(observation.timeNanos + THREE_HOUR_NANOS < timeNanos)
+				continue;
+			final double ret = state.lastPrice / observation.price - 1.0;
+			if(Double.isNaN(ret))
+				continue;
+			state.rls.update(observation.signals, ret);
+			if(Double.isNaN(observation.offlineForecast) || Double.isNaN(observation.onlineForecast))
+				continue;
+			state.offlineSqErr += (ret - observation.offlineForecast) * (ret - observation.offlineForecast);
+			state.onlineSqErr += (ret - observation.onlineForecast) * (ret - observation.onlineForecast);
+			state.errCount++;
+			if(state.errCount % DRIFT_LOG_UPDATES == 0)
+				logDrift(product, state);
+		}
+	}
+
+	private static double predict(final double[] coeffs, final double[] signals) {
+		double value = coeffs[0];
+		for(int i = 1; i < coeffs.length; i++)
+			value += coeffs[i] * signals[i - 1];
+		return value;
+	}
+
+	private void logDrift(final Product product, final ProductState state) {
+		final double[] offlineCoeffs = state.offlineCoeffs;
+		final double[] onlineCoeffs = state.rls.getCoefficients();
+		double diff = 0.0;
+		double norm = 0.0;
+		for(int i = 0; i < offlineCoeffs.length; i++) {
+			diff += (onlineCoeffs[i] - offlineCoeffs[i]) * (onlineCoeffs[i] - offlineCoeffs[i]);
+			norm += offlineCoeffs[i] * offlineCoeffs[i];
+		}
+		log.info(product + " online coeffs drift " + Math.sqrt(diff / norm)
+			+ " rmse offline " + Math.sqrt(state.offlineSqErr / state.errCount)
+			+ " online " + Math.sqrt(state.onlineSqErr / state.errCount) + " over " + state.errCount + " returns");
+		log.debug(product + " online coeffs " + Arrays.toString(onlineCoeffs));
+	}
+
+	@Override
+	public Map<String,Double> getInputVariables(final ConsolidatedHistory consolidatedHistory, final Product product) {
+		return base.getInputVariables(consolidatedHistory, product);
+	}
+
+	/** @return false when trading the online forecast, which depends on every return seen so far */
+	@Override
+	public boolean isCacheable() {
+		return !live;
+	}
+
+	/** @return Copy of the product's online coefficients, intercept first */
+	public double[] getOnlineCoeffs(final Product product) {
+		return states[product.getIndex()].rls.getCoefficients();
+	}
+
+	/** Signals of an interval waiting for its 2 hour return */
+	private static class Observation {
+		final long timeNanos;
+		final double price;
+		final double[] signals;
+		final double offlineForecast;
+		final double onlineForecast;
+
+		Observation(long timeNanos, double price, double[] signals, double offlineForecast, double onlineForecast) {
+			this.timeNanos = timeNanos;
+			this.price = price;
+			this.signals = signals;
+			this.offlineForecast = offlineForecast;
+			this.onlineForecast = onlineForecast;
+		}
+	}
+
+	/** Online estimate for one product. Products are only ever touched by their own calculations */
+	private static class ProductState {
+		final RecursiveLeastSquares rls;
+		/** Fitted coefficients of the base forecast */
+		final double[] offlineCoeffs;
+		final double[] signals;
+		final ArrayDeque<Observation> pending = new ArrayDeque<>();
+		long latestTimeNanos = Long.MIN_VALUE;
+		/** Last price before the latest interval */
+		double lastPrice = Double.NaN;
+		double offlineSqErr;
+		double onlineSqErr;
+		long errCount;
+
+		ProductState(RecursiveLeastSquares rls, int signals) {
+			this.rls = rls;
+			offlineCoeffs = rls.getCoefficients();
+			this.signals = new double[signals];
+		}
+	}
+
+	/** Builds online forecasts for {@link ForecastFactory} */
+	public static class Provider implements ForecastProvider {
+		@Override
+		public String getName() {
+			return "Online";
+		}
+
+		@Override
+		public int getVersion() {
+			return 1;
+		}
+
+		@Override
+		public ForecastCalculator create(MCProperties properties, String fcName, RollingPrimitives primitives) {
+			return new OnlineForecast(properties, fcName, primitives);
+		}
+	}
+}
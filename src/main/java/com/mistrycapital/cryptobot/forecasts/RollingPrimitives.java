@@ -0,0 +1,401 @@
+package com.mistrycapital.cryptobot.forecasts;
+
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedHistory;
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedSnapshot;
+import com.mistrycapital.cryptobot.aggregatedata.ProductSnapshot;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Rolling sums and vwap max/min windows over the history for each product, brought up to date incrementally, and
+ * snapshot signals that do not depend on the product forecast. Forecasts declare the primitives they need when they
+ * are built and read them after calling advance(). Forecasts in an ensemble share one instance, so each primitive is
+ * calculated once per interval however many forecasts read it; primitives declared with the same name must
+ * therefore calculate the same thing. As with forecasts, different products may be advanced at the same time but a
+ * product is never advanced concurrently. Snapshot signals are calculated once per interval for all products by
+ * whichever product reads them first
+ */
+public class RollingPrimitives {
+	/** Rolling sums are recomputed from scratch after this many intervals */
+	private static final int REBUILD_UPDATES = 1024;
+
+	private final List<RollingSum> sums = new ArrayList<>();
+	private final Map<String,Integer> sumIndexes = new HashMap<>();
+	private final List<Integer> maxMinHours = new ArrayList<>();
+	/** Created when a product is first advanced, after every primitive has been declared */
+	private final ProductState[] states = new ProductState[Product.count];
+	private final List<ToDoubleFunction<ConsolidatedHistory>> snapshotSignals = new ArrayList<>();
+	private final Map<String,Integer> snapshotSignalIndexes = new HashMap<>();
+	/** Snapshot signals of the latest interval read, replaced whole so products can read them concurrently */
+	private volatile SnapshotValues snapshotValues;
+
+	/**
+	 * Declares a sum over the lookback of a value calculated from each of the product's snapshots
+	 *
+	 * @return Index to read the sum by, the same for every declaration of the name
+	 */
+	public int declareSum(String name, int lookbackHours, ToDoubleFunction<ProductSnapshot> calculate) {
+		Integer index = sumIndexes.get(name);
+		if(index == null) {
+			checkNotStarted();
+			index = sums.size();
+			sums.add(new RollingSum(lookbackHours, calculate));
+			sumIndexes.put(name, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Declares a window tracking the earliest vwap max and min over the lookback
+	 *
+	 * @return Index to read the window by, the same for every declaration of the lookback
+	 */
+	public int declareTimeToMaxMin(int lookbackHours) {
+		int index = maxMinHours.indexOf(lookbackHours);
+		if(index < 0) {
+			checkNotStarted();
+			index = maxMinHours.size();
+			maxMinHours.add(lookbackHours);
+		}
+		return index;
+	}
+
+	/**
+	 * Declares a signal calculated from the latest interval of the history that is the same for every product, such
+	 * as a BTC return
+	 *
+	 * @return Index to read the signal by, the same for every declaration of the name
+	 */
+	public int declareSnapshotSignal(String name, ToDoubleFunction<ConsolidatedHistory> calculate) {
+		Integer index = snapshotSignalIndexes.get(name);
+		if(index == null) {
+			checkNotStarted();
+			index = snapshotSignals.size();
+			snapshotSignals.add(calculate);
+			snapshotSignalIndexes.put(name, index);
+		}
+		return index;
+	}
+
+	private void checkNotStarted() {
+		boolean started = snapshotValues != null;
+		for(ProductState state : states)
+			started |= state != null;
+		if(started)
+			throw new RuntimeException("Rolling primitives must be declared before they are calculated");
+	}
+
+	/** @return Sum of the declared value over the product's snapshots in the window */
+	public double getSum(Product product, int sum) {
+		return states[product.getIndex()].sums[sum];
+	}
+
+	/** @return Number of intervals with a snapshot for the product in the sum's window */
+	public int getDatapoints(Product product, int sum) {
+		return states[product.getIndex()].datapoints[sum];
+	}
+
+	/**
+	 * @return Snapshots since the earliest max less snapshots since the earliest min in the window, where a missing
+	 * max or min counts every snapshot in the window
+	 */
+	public double getTimeToMaxMin(Product product, int window) {
+		final ProductState state = states[product.getIndex()];
+		return state.maxMinWindows[window].timeToMaxMin(state.datapointCount);
+	}
+
+	/**
+	 * @return Value of the snapshot signal as of the latest interval of the history, calculating every snapshot
+	 * signal if this is the first read for the interval
+	 */
+	public double getSnapshotSignal(ConsolidatedHistory consolidatedHistory, int signal) {
+		SnapshotValues values = snapshotValues;
+		if(values == null || values.history != consolidatedHistory || values.count != consolidatedHistory.getCount())
+			values = calculateSnapshotSignals(consolidatedHistory);
+		return values.values[signal];
+	}
+
+	private synchronized SnapshotValues calculateSnapshotSignals(ConsolidatedHistory consolidatedHistory) {
+		final long count = consolidatedHistory.getCount();
+		SnapshotValues values = snapshotValues;
+		if(values != null && values.history == consolidatedHistory && values.count == count)
+			return values; // calculated by another product while we waited
+		final double[] signalValues = new double[snapshotSignals.size()];
+		for(int i = 0; i < signalValues.length; i++)
+			signalValues[i] = snapshotSignals.get(i).applyAsDouble(consolidatedHistory);
+		values = new SnapshotValues(consolidatedHistory, count, signalValues);
+		snapshotValues = values;
+		return values;
+	}
+
+	/**
+	 * Brings the product's sums and max/min windows up to the latest interval of the history. Intervals added since
+	 * the last call are added to every window and intervals that fell out of a window are removed, so a call per
+	 * interval is O(1) amortized and later calls for the same interval do nothing. The state is rebuilt from
+	 * scratch for a different history, after a jump, and every REBUILD_UPDATES updates to keep rounding from
+	 * accumulating
+	 */
+	public void advance(final ConsolidatedHistory consolidatedHistory, final Product product) {
+		final long count = consolidatedHistory.getCount();
+		ProductState state = states[product.getIndex()];
+		if(state == null) {
+			state = new ProductState(sums.size(), maxMinHours);
+			states[product.getIndex()] = state;
+		}
+		if(state.history == consolidatedHistory && state.count == count)
+			return;
+
+		if(state.history != consolidatedHistory || count < state.count
+			|| count - state.count > consolidatedHistory.size() || state.updates >= REBUILD_UPDATES)
+		{
+			rebuild(consolidatedHistory, product, count, state);
+			return;
+		}
+
+		for(; state.count < count; state.count++) {
+			final ProductSnapshot snapshot = consolidatedHistory.get(state.count).getProductSnapshot(product);
+			state.updates++;
+			if(snapshot == null) continue;
+			for(int k = 0; k < sums.size(); k++) {
+				state.sums[k] += sums.get(k).calculate.applyAsDouble(snapshot);
+				state.datapoints[k]++;
+			}
+			for(final MaxMinWindow window : state.maxMinWindows)
+				window.add(state.count, state.datapointCount, snapshot.vwap);
+			state.datapointCount++;
+		}
+
+		final long latestTimeNanos = consolidatedHistory.get(count - 1).getTimeNanos();
+		for(int k = 0; k < sums.size(); k++) {
+			final RollingSum sum = sums.get(k);
+			final long cutoffNanos = latestTimeNanos - sum.lookbackHours * 3600000000000L;
+			for(; state.starts[k] < count; state.starts[k]++) {
+				final ConsolidatedSnapshot consolidatedSnapshot = consolidatedHistory.get(state.starts[k]);
+				if(consolidatedSnapshot.getTimeNanos() >= cutoffNanos)
+					break;
+				final ProductSnapshot snapshot = consolidatedSnapshot.getProductSnapshot(product);
+				if(snapshot == null) continue;
+				state.sums[k] -= sum.calculate.applyAsDouble(snapshot);
+				state.datapoints[k]--;
+			}
+		}
+		for(final MaxMinWindow window : state.maxMinWindows) {
+			final long cutoffNanos = latestTimeNanos - window.lookbackHours * 3600000000000L;
+			for(; window.start < count; window.start++) {
+				final ConsolidatedSnapshot consolidatedSnapshot = consolidatedHistory.get(window.start);
+				if(consolidatedSnapshot.getTimeNanos() >= cutoffNanos)
+					break;
+				if(consolidatedSnapshot.getProductSnapshot(product) != null)
+					window.datapoints--;
+			}
+			window.evict();
+		}
+	}
+
+	private void rebuild(final ConsolidatedHistory consolidatedHistory, final Product product, final long count,
+		final ProductState state)
+	{
+		state.history = consolidatedHistory;
+		state.updates = 0;
+		state.count = count;
+		for(int k = 0; k < sums.size(); k++) {
+			final RollingSum sum = sums.get(k);
+			state.starts[k] = consolidatedHistory.firstWithin(count, sum.lookbackHours * 3600);
+			state.sums[k] = 0.0;
+			state.datapoints[k] = 0;
+			for(long i = state.starts[k]; i < count; i++) {
+				final ProductSnapshot snapshot = consolidatedHistory.get(i).getProductSnapshot(product);
+				if(snapshot == null) continue;
+				state.sums[k] += sum.calculate.applyAsDouble(snapshot);
+				state.datapoints[k]++;
+			}
+		}
+
+		long first = count;
+		for(final MaxMinWindow window : state.maxMinWindows) {
+			window.clear(consolidatedHistory.firstWithin(count, window.lookbackHours * 3600));
+			first = Math.min(first, window.start);
+		}
+		state.datapointCount = 0;
+		for(long i = first; i < count; i++) {
+			final ProductSnapshot snapshot = consolidatedHistory.get(i).getProductSnapshot(product);
+			if(snapshot == null) continue;
+			for(final MaxMinWindow window : state.maxMinWindows)
+				if(i >= window.start)
+					window.add(i, state.datapointCount, snapshot.vwap);
+			state.datapointCount++;
+		}
+	}
+
+	/** Snapshot signal values as of a history count */
+	private static class SnapshotValues {
+		final ConsolidatedHistory history;
+		final long count;
+		final double[] values;
+
+		SnapshotValues(ConsolidatedHistory history, long count, double[] values) {
+			this.history = history;
+			this.count = count;
+			this.values = values;
+		}
+	}
+
+	private static class RollingSum {
+		final int lookbackHours;
+		/** Used to get the value summed from the snapshot */
+		final ToDoubleFunction<ProductSnapshot> calculate;
+
+		RollingSum(int lookbackHours, ToDoubleFunction<ProductSnapshot> calculate) {
+			this.lookbackHours = lookbackHours;
+			this.calculate = calculate;
+		}
+	}
+
+	/** Rolling window sums and max/min windows for one product, as of a history count */
+	private static class ProductState {
+		/** History the sums were calculated over */
+		ConsolidatedHistory history;
+		/** History count the sums include */
+		long count;
+		/** Intervals added since the sums were last rebuilt */
+		int updates;
+		/** Oldest sequence number in each window */
+		final long[] starts;
+		final double[] sums;
+		/** Number of intervals with a snapshot for the product in each window */
+		final int[] datapoints;
+		final MaxMinWindow[] maxMinWindows;
+		/** Number of snapshots for the product added to the max/min windows since they were rebuilt */
+		long datapointCount;
+
+		ProductState(int sums, List<Integer> maxMinHours) {
+			starts = new long[sums];
+			this.sums = new double[sums];
+			datapoints = new int[sums];
+			maxMinWindows = new MaxMinWindow[maxMinHours.size()];
+			for(int i = 0; i < maxMinWindows.length; i++)
+				maxMinWindows[i] = new MaxMinWindow(maxMinHours.get(i));
+		}
+	}
+
+	/**
+	 * Vwap max and min over one product's lookback window, kept in monotonic deques. The max deque holds every
+	 * snapshot not followed by a strictly greater vwap, so its head is the earliest max in the window, and the min
+	 * deque likewise. Each snapshot is added and removed at most once, so updates are O(1) amortized
+	 */
+	private static class MaxMinWindow {
+		final int lookbackHours;
+		/** Oldest sequence number in the window */
+		long start;
+		/** Number of intervals with a snapshot for the product in the window */
+		int datapoints;
+		final MonotonicDeque max = new MonotonicDeque();
+		/** Negated vwaps, so the head is the min */
+		final MonotonicDeque min = new MonotonicDeque();
+
+		MaxMinWindow(int lookbackHours) {
+			this.lookbackHours = lookbackHours;
+		}
+
+		void clear(long start) {
+			this.start = start;
+			datapoints = 0;
+			max.clear();
+			min.clear();
+		}
+
+		/**
+		 * Adds the latest snapshot. Only vwaps beating the starting max of 0 or min of Double.MAX_VALUE can be the
+		 * max or min, so NaN vwaps are never added
+		 *
+		 * @param datapoint Number of snapshots for the product before this one
+		 */
+		void add(long sequence, long datapoint, double vwap) {
+			datapoints++;
+			if(vwap > 0.0)
+				max.add(sequence, datapoint, vwap);
+			if(vwap < Double.MAX_VALUE)
+				min.add(sequence, datapoint, -vwap);
+		}
+
+		/** Drops deque entries before the start of the window */
+		void evict() {
+			max.evictBefore(start);
+			min.evictBefore(start);
+		}
+
+		/**
+		 * @param datapointCount Number of snapshots for the product added so far
+		 * @return Snapshots since the max less snapshots since the min, where a missing max or min counts every
+		 * snapshot in the window
+		 */
+		double timeToMaxMin(long datapointCount) {
+			final long intervalsToMax = max.isEmpty() ? datapoints : datapointCount - 1 - max.headDatapoint();
+			final long intervalsToMin = min.isEmpty() ? datapoints : datapointCount - 1 - min.headDatapoint();
+			return intervalsToMax - intervalsToMin;
+		}
+	}
+
+	/** Deque of snapshots with non-increasing values, in ring buffers that grow as needed */
+	private static class MonotonicDeque {
+		private long[] sequences = new long[64];
+		private long[] datapoints = new long[64];
+		private double[] values = new double[64];
+		private int head;
+		private int size;
+
+		void clear() {
+			head = 0;
+			size = 0;
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		long headDatapoint() {
+			return datapoints[head];
+		}
+
+		/** Removes entries with values strictly less than the new one, then appends it */
+		void add(long sequence, long datapoint, double value) {
+			while(size > 0 && values[(head + size - 1) & (values.length - 1)] < value)
+				size--;
+			if(size == values.length)
+				grow();
+			final int tail = (head + size) & (values.length - 1);
+			sequences[tail] = sequence;
+			datapoints[tail] = datapoint;
+			values[tail] = value;
+			size++;
+		}
+
+		void evictBefore(long sequence) {
+			while(size > 0 && sequences[head] < sequence) {
+				head = (head + 1) & (values.length - 1);
+				size--;
+			}
+		}
+
+		private void grow() {
+			final long[] newSequences = new long[sequences.length * 2];
+			final long[] newDatapoints = new long[datapoints.length * 2];
+			final double[] newValues = new double[values.length * 2];
+			for(int i = 0; i < size; i++) {
+				final int from = (head + i) & (values.length - 1);
+				newSequences[i] = sequences[from];
+				newDatapoints[i] = datapoints[from];
+				newValues[i] = values[from];
+			}
+			sequences = newSequences;
+			datapoints = newDatapoints;
+			values = newValues;
+			head = 0;
+		}
+	}
+}
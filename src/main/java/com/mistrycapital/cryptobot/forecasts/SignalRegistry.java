@@ -0,0 +1,48 @@
+package com.mistrycapital.cryptobot.forecasts;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns each named forecast signal a slot in a double[]. Names are resolved once when a forecast is built, so
+ * evaluation reads and writes signals by index; a name to value map is only built when one is asked for
+ */
+public class SignalRegistry {
+	private final Map<String,Integer> slots = new HashMap<>();
+	private final List<String> names = new ArrayList<>();
+
+	/** @return Slot of the named signal, adding it if it is new */
+	public int register(String name) {
+		Integer slot = slots.get(name);
+		if(slot == null) {
+			slot = names.size();
+			slots.put(name, slot);
+			names.add(name);
+		}
+		return slot;
+	}
+
+	/** @return Slot of the named signal */
+	public int getSlot(String name) {
+		final Integer slot = slots.get(name);
+		if(slot == null)
+			throw new RuntimeException("Unknown signal " + name);
+		return slot;
+	}
+
+	/** @return Number of signals */
+	public int size() {
+		return names.size();
+	}
+
+	/** @return Map from name to value of every signal, in slot order */
+	public Map<String,Double> toMap(double[] values) {
+		final Map<String,Double> map = new LinkedHashMap<>(2 * names.size());
+		for(int i = 0; i < names.size(); i++)
+			map.put(names.get(i), values[i]);
+		return map;
+	}
+}
@@ -10,16 +10,12 @@ import com.mistrycapital.cryptobot.util.MCProperties;
 import org.slf4j.Logger;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Locale;
 import java.util.Map;
 
-import static java.util.Map.entry;
-
 /**
  * Reversion with modifications forecast
  */
-public class Snowbird implements ForecastCalculator {
+public class Snowbird implements LinearForecast {
 	private static final Logger log = MCLoggerFactory.getLogger();
 
 	private static final int MIN_DATA_POINTS = 10;
@@ -28,7 +24,25 @@ public class Snowbird implements ForecastCalculator {
 	private final int sixHourDatapoints;
 	private final int twelveHourDatapoints;
 	private final double[][] coeffs;
-	private Map<String,Double> variableMap;
+	private final SignalRegistry registry;
+	/**
+	 * Signal values of the latest calculation, by product index then slot. Slots follow signalsToUse. Keeping them
+	 * per product lets different products be calculated at the same time
+	 */
+	private final double[][] values;
+	private final int lagRet6Slot;
+	private final int bookRatioxRetSlot;
+	private final int upRatioxRetSlot;
+	private final int normVolxRetSlot;
+	private final int RSIRatioxRetSlot;
+	private final int tradeRatioSlot;
+	private final int newRatioSlot;
+	private final int cancelRatioSlot;
+	private final int timeToMaxMinSlot;
+	private final int lagBTCRet6Slot;
+	private final int weightedMidRet100Slot;
+	private final int weightedMidRet12h100Slot;
+	private final int bookMASlot;
 
 	public static final String[] signalsToUse =
 		new String[] {"lagRet6", "bookRatioxRet", "upRatioxRet", "normVolxRet", "RSIRatioxRet", "tradeRatio",
@@ -36,12 +50,18 @@ public class Snowbird implements ForecastCalculator {
 			"bookMA"};
 
 	public Snowbird(MCProperties properties) {
+		this(properties, "snowbird");
+	}
+
+	/**
+	 * @param fcName Name of this forecast's properties, as in forecast.[fcName].coeffs.all
+	 */
+	public Snowbird(MCProperties properties, String fcName) {
 		final int intervalSeconds = properties.getIntProperty("history.intervalSeconds");
 		twoHourDatapoints = 2 * 60 * 60 / intervalSeconds;
 		sixHourDatapoints = twoHourDatapoints * 3;
 		twelveHourDatapoints = sixHourDatapoints * 2;
 
-		String fcName = getClass().getSimpleName().toLowerCase(Locale.US);
 		coeffs = new double[Product.count][signalsToUse.length + 1];
 		for(Product product : Product.FAST_VALUES) {
 			int productIndex = product.getIndex();
@@ -58,25 +78,40 @@ public class Snowbird implements ForecastCalculator {
 			for(int i = 0; i < coeffs[productIndex].length; i++)
 			{ coeffs[productIndex][i] = Double.parseDouble(split[i]); }
 		}
-		variableMap = new HashMap<>();
-		for(String signal : signalsToUse) { variableMap.put(signal, 0.0); }
+		registry = new SignalRegistry();
+		for(String signal : signalsToUse) { registry.register(signal); }
+		values = new double[Product.count][registry.size()];
+		lagRet6Slot = registry.getSlot("lagRet6");
+		bookRatioxRetSlot = registry.getSlot("bookRatioxRet");
+		upRatioxRetSlot = registry.getSlot("upRatioxRet");
+		normVolxRetSlot = registry.getSlot("normVolxRet");
+		RSIRatioxRetSlot = registry.getSlot("RSIRatioxRet");
+		tradeRatioSlot = registry.getSlot("tradeRatio");
+		newRatioSlot = registry.getSlot("newRatio");
+		cancelRatioSlot = registry.getSlot("cancelRatio");
+		timeToMaxMinSlot = registry.getSlot("timeToMaxMin");
+		lagBTCRet6Slot = registry.getSlot("lagBTCRet6");
+		weightedMidRet100Slot = registry.getSlot("weightedMidRet100");
+		weightedMidRet12h100Slot = registry.getSlot("weightedMidRet12h100");
+		bookMASlot = registry.getSlot("bookMA");
 	}
 
 	@Override
 	public double calculate(final ConsolidatedHistory consolidatedHistory, final Product product,
 		final ForecastAppender forecastAppender)
 	{
-		final Map<String,Double> signals = getInputVariables(consolidatedHistory, product);
+		final double[] values = computeSignals(consolidatedHistory, product);
 		final double[] productCoeffs = coeffs[product.getIndex()];
 
+		// slots follow signalsToUse, so coefficients line up with values
 		double fcVal = productCoeffs[0];
 		for(int i = 0; i < signalsToUse.length; i++) {
-			fcVal += productCoeffs[i + 1] * signals.get(signalsToUse[i]);
+			fcVal += productCoeffs[i + 1] * values[i];
 		}
 
 		if(forecastAppender != null)
 			try {
-				forecastAppender.logForecast(product, signals, fcVal);
+				forecastAppender.logForecast(product, registry.toMap(values), fcVal);
 			} catch(IOException e) {
 				log.error("Could not log forecast for " + product, e);
 			}
@@ -86,126 +121,72 @@ public class Snowbird implements ForecastCalculator {
 
 	@Override
 	public Map<String,Double> getInputVariables(final ConsolidatedHistory consolidatedHistory, final Product product) {
-		ProductSnapshot latest = consolidatedHistory.latest().getProductSnapshot(product);
+		return registry.toMap(computeSignals(consolidatedHistory, product));
+	}
+
+	@Override
+	public String[] getSignalNames() {
+		return signalsToUse.clone();
+	}
+
+	@Override
+	public double[] getCoeffs(final Product product) {
+		return coeffs[product.getIndex()].clone();
+	}
+
+	@Override
+	public void calculateSignals(final ConsolidatedHistory consolidatedHistory, final Product product,
+		final double[] signals)
+	{
+		// slots follow signalsToUse
+		System.arraycopy(computeSignals(consolidatedHistory, product), 0, signals, 0, signalsToUse.length);
+	}
+
+	/**
+	 * Calculates every signal for the product as of the latest interval
+	 *
+	 * @return The product's values, by slot
+	 */
+	private double[] computeSignals(final ConsolidatedHistory consolidatedHistory, final Product product) {
+		final long count = consolidatedHistory.getCount();
+		final ConsolidatedSnapshot latestSnapshot = consolidatedHistory.get(count - 1);
+		final ProductSnapshot latest = latestSnapshot.getProductSnapshot(product);
 
 		// calc static metrics
 		final int book5PctCount = latest.bidCount5Pct + latest.askCount5Pct;
 		final double bookRatio = ((double) latest.bidCount5Pct) / book5PctCount;
+		final double weightedMidRet100 = latest.weightedMid100 / latest.midPrice - 1;
+
+		// Every other metric comes from one pass back from the latest interval. Position k counts intervals back
+		// from the latest, starting at 1, and each metric looks at the positions it always has: the last 6 hours
+		// by time for the book MA, and the latest 2h, 6h and 12h worth of datapoints (plus one) for the rest
+		final long bookStart = consolidatedHistory.firstWithin(count, 60 * 60 * 6);
+		final int sixHourPoints = Math.min(consolidatedHistory.size(), sixHourDatapoints + 1);
+		final int twelveHourPoints = Math.min(consolidatedHistory.size(), twelveHourDatapoints + 1);
+		final long first = Math.min(bookStart, count - Math.max(sixHourPoints, twelveHourPoints));
 
 		// MA book
 		int points6h = 0;
 		double bookMA = 0.0;
-		for(ConsolidatedSnapshot snapshot : consolidatedHistory.inOrder(60 * 60 * 6)) {
-			final ProductSnapshot data = snapshot.getProductSnapshot(product);
-			final double periodBookRatio = ((double) data.bidCount5Pct) / (data.bidCount5Pct + data.askCount5Pct);
-			// SMA was better than EMA
-			bookMA += periodBookRatio;
-			points6h++;
-		}
-		bookMA /= points6h;
-
-		// weighted mid and 2h ago
-		final double weightedMidRet100 = latest.weightedMid100 / latest.midPrice - 1;
+		// weighted mid and 12h ago
 		double weightedMid12h100 = Double.NaN;
 		double mid12h = Double.NaN;
-		int weightedMidDataPoints = 0;
-		for(ConsolidatedSnapshot snapshot : consolidatedHistory.values()) {
-			if(weightedMidDataPoints <= twelveHourDatapoints) {
-				weightedMidDataPoints++;
-				ProductSnapshot data = snapshot.getProductSnapshot(product);
-
-				weightedMid12h100 = data.weightedMid100;
-				mid12h = data.midPrice;
-			} else break;
-		}
-
-		// get 2h, 6h lag returns
+		// 2h, 6h lag returns
 		double price2h = Double.NaN;
 		double price6h = Double.NaN;
 		double priceBTC6h = Double.NaN;
-		int retDataPoints = 0;
-		for(ConsolidatedSnapshot snapshot : consolidatedHistory.values()) {
-			if(retDataPoints <= sixHourDatapoints) {
-				retDataPoints++;
-				ProductSnapshot data = snapshot.getProductSnapshot(product);
-				if(Double.isNaN(data.lastPrice))
-					continue;
-
-				price6h = data.lastPrice;
-				final double priceBTC = snapshot.getProductSnapshot(Product.BTC_USD).lastPrice;
-				if(!Double.isNaN(priceBTC))
-					priceBTC6h = priceBTC;
-
-				if(retDataPoints <= twoHourDatapoints) {
-					price2h = data.lastPrice;
-				}
-			} else break;
-		}
-		final double lagRet = retDataPoints < MIN_DATA_POINTS ? Double.NaN : Math.log(latest.lastPrice / price2h);
-		final double lagRet6 = retDataPoints < MIN_DATA_POINTS ? Double.NaN : Math.log(latest.lastPrice / price6h);
-		final double lagBTCRet6 = retDataPoints < MIN_DATA_POINTS ? Double.NaN : Math.log(
-			consolidatedHistory.latest().getProductSnapshot(Product.BTC_USD).lastPrice / priceBTC6h
-		);
-
-		// calc on balance volume metrics
+		// on balance volume metrics
 		double sumVolxRet = 0.0;
 		double sumVolxRet12 = 0.0;
 		double volume = 0.0;
-		int volDataPoints = 0;
-		for(ConsolidatedSnapshot snapshot : consolidatedHistory.values()) {
-			if(volDataPoints <= twelveHourDatapoints) {
-				volDataPoints++;
-				ProductSnapshot data = snapshot.getProductSnapshot(product);
-
-				if(Double.isNaN(data.ret) || Double.isNaN(data.volume))
-					continue;
-
-				final double volxRet = Math.log(1 + data.ret) * data.volume;
-				sumVolxRet12 += volxRet;
-				if(volDataPoints <= sixHourDatapoints) {
-					volume += data.volume;
-					sumVolxRet += volxRet;
-				}
-			} else break;
-		}
-		if(volDataPoints < MIN_DATA_POINTS) {
-			sumVolxRet = sumVolxRet12 = volume = Double.NaN;
-		}
-
-		// calc 6h sum metrics
+		// 6h sum metrics
 		int bidTradeCount = 0;
 		int askTradeCount = 0;
 		int bidCancelCount = 0;
 		int askCancelCount = 0;
 		int newBidCount = 0;
 		int newAskCount = 0;
-		int sumDataPoints = 0;
-		for(ConsolidatedSnapshot snapshot : consolidatedHistory.values()) {
-			if(sumDataPoints <= sixHourDatapoints) {
-				sumDataPoints++;
-
-				ProductSnapshot data = snapshot.getProductSnapshot(product);
-				// these are longs so they cannot be NaN
-				bidTradeCount += data.bidTradeCount;
-				askTradeCount += data.askTradeCount;
-				bidCancelCount += data.bidCancelCount;
-				askCancelCount += data.askCancelCount;
-				newBidCount += data.newBidCount;
-				newAskCount += data.newAskCount;
-			} else break;
-		}
-		final double tradeRatio;
-		final double cancelRatio;
-		final double newRatio;
-		if(sumDataPoints < MIN_DATA_POINTS) {
-			tradeRatio = cancelRatio = newRatio = Double.NaN;
-		} else {
-			tradeRatio = ((double) bidTradeCount) / (bidTradeCount + askTradeCount);
-			cancelRatio = (bidCancelCount - askCancelCount) / ((double) book5PctCount);
-			newRatio = (newBidCount - newAskCount) / ((double) book5PctCount);
-		}
-
-		// calc price change interval metrics
+		// price change interval metrics
 		int upIntervals = 0;
 		int downIntervals = 0;
 		int intervalsToMin = 0;
@@ -214,74 +195,148 @@ public class Snowbird implements ForecastCalculator {
 		double maxPrice = 0.0;
 		double sumUpChange = 0.0;
 		double sumDownChange = 0.0;
-		int changeDataPoints = 0;
-		for(ConsolidatedSnapshot snapshot : consolidatedHistory.values()) {
-			if(changeDataPoints <= sixHourDatapoints) {
-				changeDataPoints++;
-
-				ProductSnapshot data = snapshot.getProductSnapshot(product);
-				if(Double.isNaN(data.ret) || Double.isNaN(data.lastPrice) || Double.isNaN(data.vwap))
-					continue;
-
-				final double prevPrice = data.lastPrice / (1 + data.ret);
-				if(data.ret >= 0) {
-					upIntervals++;
-					sumUpChange += data.lastPrice - prevPrice;
-				} else {
-					downIntervals++;
-					sumDownChange += prevPrice - data.lastPrice;
-				}
 
-				if(data.vwap < minPrice) {
-					minPrice = data.vwap;
-					intervalsToMin = changeDataPoints + 1;
-				}
-				if(data.vwap > maxPrice) {
-					maxPrice = data.vwap;
-					intervalsToMax = changeDataPoints + 1;
+		for(long i = count - 1; i >= first; i--) {
+			final int k = (int) (count - i);
+			final ConsolidatedSnapshot snapshot = consolidatedHistory.get(i);
+			final ProductSnapshot data = snapshot.getProductSnapshot(product);
+
+			if(i >= bookStart) {
+				// SMA was better than EMA
+				bookMA += ((double) data.bidCount5Pct) / (data.bidCount5Pct + data.askCount5Pct);
+				points6h++;
+			}
+
+			if(k <= twelveHourPoints) {
+				weightedMid12h100 = data.weightedMid100;
+				mid12h = data.midPrice;
+
+				if(!Double.isNaN(data.ret) && !Double.isNaN(data.volume)) {
+					final double volxRet = Math.log(1 + data.ret) * data.volume;
+					sumVolxRet12 += volxRet;
+					if(k <= sixHourDatapoints) {
+						volume += data.volume;
+						sumVolxRet += volxRet;
+					}
 				}
-			} else break;
+			}
+
+			if(k > sixHourPoints)
+				continue;
+
+			if(!Double.isNaN(data.lastPrice)) {
+				price6h = data.lastPrice;
+				final double priceBTC = snapshot.getProductSnapshot(Product.BTC_USD).lastPrice;
+				if(!Double.isNaN(priceBTC))
+					priceBTC6h = priceBTC;
+				if(k <= twoHourDatapoints)
+					price2h = data.lastPrice;
+			}
+
+			// these are longs so they cannot be NaN
+			bidTradeCount += data.bidTradeCount;
+			askTradeCount += data.askTradeCount;
+			bidCancelCount += data.bidCancelCount;
+			askCancelCount += data.askCancelCount;
+			newBidCount += data.newBidCount;
+			newAskCount += data.newAskCount;
+
+			if(Double.isNaN(data.ret) || Double.isNaN(data.lastPrice) || Double.isNaN(data.vwap))
+				continue;
+			final double prevPrice = data.lastPrice / (1 + data.ret);
+			if(data.ret >= 0) {
+				upIntervals++;
+				sumUpChange += data.lastPrice - prevPrice;
+			} else {
+				downIntervals++;
+				sumDownChange += prevPrice - data.lastPrice;
+			}
+			if(data.vwap < minPrice) {
+				minPrice = data.vwap;
+				intervalsToMin = k + 1;
+			}
+			if(data.vwap > maxPrice) {
+				maxPrice = data.vwap;
+				intervalsToMax = k + 1;
+			}
+		}
+		bookMA /= points6h;
+
+		final double lagRet = sixHourPoints < MIN_DATA_POINTS ? Double.NaN : Math.log(latest.lastPrice / price2h);
+		final double lagRet6 = sixHourPoints < MIN_DATA_POINTS ? Double.NaN : Math.log(latest.lastPrice / price6h);
+		final double lagBTCRet6 = sixHourPoints < MIN_DATA_POINTS ? Double.NaN : Math.log(
+			latestSnapshot.getProductSnapshot(Product.BTC_USD).lastPrice / priceBTC6h
+		);
+
+		if(twelveHourPoints < MIN_DATA_POINTS) {
+			sumVolxRet = sumVolxRet12 = volume = Double.NaN;
 		}
+
+		final double tradeRatio;
+		final double cancelRatio;
+		final double newRatio;
 		final double upRatio;
 		final double timeToMaxMin;
 		final double RSIRatio;
-		if(changeDataPoints < MIN_DATA_POINTS) {
+		if(sixHourPoints < MIN_DATA_POINTS) {
+			tradeRatio = cancelRatio = newRatio = Double.NaN;
 			upRatio = timeToMaxMin = RSIRatio = Double.NaN;
 		} else {
+			tradeRatio = ((double) bidTradeCount) / (bidTradeCount + askTradeCount);
+			cancelRatio = (bidCancelCount - askCancelCount) / ((double) book5PctCount);
+			newRatio = (newBidCount - newAskCount) / ((double) book5PctCount);
 			upRatio = ((double) upIntervals) / (upIntervals + downIntervals);
 			timeToMaxMin = intervalsToMax - intervalsToMin;
 			RSIRatio = sumUpChange / sumDownChange;
 		}
 
+		final double[] values = this.values[product.getIndex()];
 		// Things we tried that didn't work
 		// o 2 hour lag return, btc return
 		// o up volume ratio (up volume / volume), also x ret
 		// o un-normalized on balance volume (sum of volume x ret)
 		// o illiq up and down (ret / volume when down) - down was better, also x ret
 		// o RSI ratio without lag ret
-		variableMap.put("lagRet6", lagRet6);
-		variableMap.put("bookRatioxRet", bookRatio * lagRet);
-		variableMap.put("tradeRatio", tradeRatio);
-		variableMap.put("cancelRatio", cancelRatio);
-		variableMap.put("newRatio", newRatio);
-		variableMap.put("upRatioxRet", upRatio * lagRet);
-		variableMap.put("normVolxRet", (sumVolxRet12 - sumVolxRet) / volume); // modified OBV indicator
-		variableMap.put("timeToMaxMin", timeToMaxMin);
-		variableMap.put("RSIRatioxRet", RSIRatio * lagRet);
-		variableMap.put("lagBTCRet6", lagBTCRet6);
-		variableMap.put("weightedMidRet100", weightedMidRet100);
-		variableMap.put("weightedMidRet12h100", weightedMid12h100 / mid12h - 1);
-
-		variableMap.put("bookMA", bookMA);
+		values[lagRet6Slot] = lagRet6;
+		values[bookRatioxRetSlot] = bookRatio * lagRet;
+		values[tradeRatioSlot] = tradeRatio;
+		values[cancelRatioSlot] = cancelRatio;
+		values[newRatioSlot] = newRatio;
+		values[upRatioxRetSlot] = upRatio * lagRet;
+		values[normVolxRetSlot] = (sumVolxRet12 - sumVolxRet) / volume; // modified OBV indicator
+		values[timeToMaxMinSlot] = timeToMaxMin;
+		values[RSIRatioxRetSlot] = RSIRatio * lagRet;
+		values[lagBTCRet6Slot] = lagBTCRet6;
+		values[weightedMidRet100Slot] = weightedMidRet100;
+		values[weightedMidRet12h100Slot] = weightedMid12h100 / mid12h - 1;
+
+		values[bookMASlot] = bookMA;
 
 		// These don't contribute much (0.1% R^2, low t-stats) but may be justified
-//		variableMap.put("bookRatio", bookRatio);
-//		variableMap.put("tradeRatioxRet", tradeRatio * lagRet);
-//		variableMap.put("cancelRatioxRet", cancelRatio * lagRet);
-//		variableMap.put("newRatioxRet", newRatio * lagRet);
-//		variableMap.put("upRatio", upRatio);
-
-		return variableMap;
+		// (register them in the constructor and set their slots here to try them again)
+		// o bookRatio
+		// o tradeRatioxRet = tradeRatio * lagRet
+		// o cancelRatioxRet = cancelRatio * lagRet
+		// o newRatioxRet = newRatio * lagRet
+		// o upRatio
+		return values;
 	}
 
+	/** Builds Snowbird forecasts for {@link ForecastFactory} */
+	public static class Provider implements ForecastProvider {
+		@Override
+		public String getName() {
+			return "Snowbird";
+		}
+
+		@Override
+		public int getVersion() {
+			return 1;
+		}
+
+		@Override
+		public ForecastCalculator create(MCProperties properties, String fcName, RollingPrimitives primitives) {
+			return new Snowbird(properties, fcName);
+		}
+	}
 }
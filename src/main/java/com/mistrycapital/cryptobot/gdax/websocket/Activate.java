@@ -1,30 +1,49 @@
 package com.mistrycapital.cryptobot.gdax.websocket;
 
 import com.google.gson.JsonObject;
+import com.mistrycapital.cryptobot.gdax.common.OrderSide;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+
+import java.util.UUID;
 
 public class Activate extends OrderGdaxMessage {
+	private static final int STOP_PRICE = 1;
+	private static final int HAS_SIZE = 2;
+	private static final int SIZE = 4;
+	private static final int FUNDS = 8;
+
+	/** Bit set of fields already decoded */
+	private int decoded;
 	/** Stop price */
-	private final double stopPrice;
+	private double stopPrice;
 	/** True if size specified. If false, use funds */
-	private final boolean hasSize;
+	private boolean hasSize;
 	/** Size */
-	private final double size;
+	private double size;
 	/** Funds */
-	private final double funds;
-	/** Stop type - loss or entry */
-	private final StopType stopType;
+	private double funds;
+	/** Stop type - loss or entry, null until decoded */
+	private StopType stopType;
 	
 	public Activate(JsonObject json) {
 		super(json);
-		stopPrice = Double.parseDouble(json.get("stop_price").getAsString());
-		hasSize = json.has("size");
-		if(hasSize) {
-			size = Double.parseDouble(json.get("size").getAsString());
-		} else {
-			size = 0.0;
-		}
-		funds = json.has("funds") ? Double.parseDouble(json.get("funds").getAsString()) : 0.0;
-		stopType = StopType.parse(json.get("stop_type").getAsString());
+	}
+
+	public Activate(String json) {
+		super(json);
+	}
+
+	/** Creates a message from already decoded fields */
+	Activate(long timeMicros, Product product, long sequence, UUID orderId, OrderSide side,
+		double stopPrice, boolean hasSize, double size, double funds, StopType stopType)
+	{
+		super(timeMicros, product, sequence, orderId, side);
+		this.stopPrice = stopPrice;
+		this.hasSize = hasSize;
+		this.size = size;
+		this.funds = funds;
+		this.stopType = stopType;
+		decoded = STOP_PRICE | HAS_SIZE | SIZE | FUNDS;
 	}
 
 	@Override
@@ -38,25 +57,43 @@ public class Activate extends OrderGdaxMessage {
 	}
 	
 	public final double getStopPrice() {
+		if((decoded & STOP_PRICE) == 0) {
+			stopPrice = RawJson.doubleValue(json, "\"stop_price\"");
+			decoded |= STOP_PRICE;
+		}
 		return stopPrice;
 	}
 	
 	public final boolean hasSize() {
+		if((decoded & HAS_SIZE) == 0) {
+			hasSize = RawJson.has(json, "\"size\"");
+			decoded |= HAS_SIZE;
+		}
 		return hasSize;
 	}
 	
 	public final double getSize() {
-		if(!hasSize) {
+		if(!hasSize()) {
 			throw new RuntimeException("Size retrieved but stop order did not specify size");
 		}
+		if((decoded & SIZE) == 0) {
+			size = RawJson.doubleValue(json, "\"size\"");
+			decoded |= SIZE;
+		}
 		return size;
 	}
 	
 	public final double getFunds() {
+		if((decoded & FUNDS) == 0) {
+			funds = RawJson.doubleValue(json, "\"funds\"", 0.0);
+			decoded |= FUNDS;
+		}
 		return funds;
 	}
 	
 	public final StopType getStopType() {
+		if(stopType == null)
+			stopType = StopType.parse(RawJson.requiredValue(json, "\"stop_type\""));
 		return stopType;
 	}
-}
\ No newline at end of file
+}
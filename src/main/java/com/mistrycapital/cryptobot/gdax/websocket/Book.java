@@ -4,6 +4,7 @@ import java.util.UUID;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.mistrycapital.cryptobot.gdax.common.Product;
 
 public class Book extends CommonGdaxMessage {
 	/** Bids */
@@ -17,6 +18,21 @@ public class Book extends CommonGdaxMessage {
 		asks = parseOrderArray(json.get("asks").getAsJsonArray());
 	}
 	
+	/**
+	 * Creates a book from already decoded orders. The first bidCount orders are bids and the rest are asks
+	 */
+	public Book(long timeMicros, Product product, long sequence, UUID[] orderIds, double[] prices, double[] sizes,
+		int bidCount)
+	{
+		super(timeMicros, product, sequence);
+		bids = new Order[bidCount];
+		asks = new Order[orderIds.length - bidCount];
+		for(int i = 0; i < bids.length; i++)
+			bids[i] = new Order(orderIds[i], prices[i], sizes[i]);
+		for(int i = 0; i < asks.length; i++)
+			asks[i] = new Order(orderIds[bidCount + i], prices[bidCount + i], sizes[bidCount + i]);
+	}
+
 	private Order[] parseOrderArray(final JsonArray orderArray) {
 		Order[] orders = new Order[orderArray.size()];
 		for(int i=0; i<orders.length; i++) {
@@ -1,24 +1,42 @@
 package com.mistrycapital.cryptobot.gdax.websocket;
 
 import com.google.gson.JsonObject;
+import com.mistrycapital.cryptobot.gdax.common.OrderSide;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+
+import java.util.UUID;
 
 public class ChangeFunds extends OrderGdaxMessage {
+	private static final int PRICE = 1;
+	private static final int OLD_FUNDS = 2;
+	private static final int NEW_FUNDS = 4;
+
+	/** Bit set of fields already decoded */
+	private int decoded;
 	/** Price */
-	private final double price;
+	private double price;
 	/** Old funds */
-	private final double oldFunds;
+	private double oldFunds;
 	/** New funds */
-	private final double newFunds;
+	private double newFunds;
 
 	public ChangeFunds(JsonObject json) {
 		super(json);
-		if(json.has("price")) {
-			price = Double.parseDouble(json.get("price").getAsString());
-		} else {
-			price = Double.NaN;
-		}
-		oldFunds = Double.parseDouble(json.get("old_funds").getAsString());
-		newFunds = Double.parseDouble(json.get("new_funds").getAsString());
+	}
+
+	public ChangeFunds(String json) {
+		super(json);
+	}
+
+	/** Creates a message from already decoded fields */
+	ChangeFunds(long timeMicros, Product product, long sequence, UUID orderId, OrderSide side,
+		double price, double oldFunds, double newFunds)
+	{
+		super(timeMicros, product, sequence, orderId, side);
+		this.price = price;
+		this.oldFunds = oldFunds;
+		this.newFunds = newFunds;
+		decoded = PRICE | OLD_FUNDS | NEW_FUNDS;
 	}
 
 	@Override
@@ -32,14 +50,26 @@ public class ChangeFunds extends OrderGdaxMessage {
 	}
 
 	public final double getPrice() {
+		if((decoded & PRICE) == 0) {
+			price = RawJson.doubleValue(json, "\"price\"", Double.NaN);
+			decoded |= PRICE;
+		}
 		return price;
 	}
 	
 	public final double getOldFunds() {
+		if((decoded & OLD_FUNDS) == 0) {
+			oldFunds = RawJson.doubleValue(json, "\"old_funds\"");
+			decoded |= OLD_FUNDS;
+		}
 		return oldFunds;
 	}
 	
 	public final double getNewFunds() {
+		if((decoded & NEW_FUNDS) == 0) {
+			newFunds = RawJson.doubleValue(json, "\"new_funds\"");
+			decoded |= NEW_FUNDS;
+		}
 		return newFunds;
 	}
-}
\ No newline at end of file
+}
@@ -1,24 +1,42 @@
 package com.mistrycapital.cryptobot.gdax.websocket;
 
 import com.google.gson.JsonObject;
+import com.mistrycapital.cryptobot.gdax.common.OrderSide;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+
+import java.util.UUID;
 
 public class ChangeSize extends OrderGdaxMessage {
+	private static final int PRICE = 1;
+	private static final int OLD_SIZE = 2;
+	private static final int NEW_SIZE = 4;
+
+	/** Bit set of fields already decoded */
+	private int decoded;
 	/** Price */
-	private final double price;
+	private double price;
 	/** Old size */
-	private final double oldSize;
+	private double oldSize;
 	/** New size */
-	private final double newSize;
+	private double newSize;
 
 	public ChangeSize(JsonObject json) {
 		super(json);
-		if(json.has("price")) {
-			price = Double.parseDouble(json.get("price").getAsString());
-		} else {
-			price = Double.NaN;
-		}
-		oldSize = Double.parseDouble(json.get("old_size").getAsString());
-		newSize = Double.parseDouble(json.get("new_size").getAsString());
+	}
+
+	public ChangeSize(String json) {
+		super(json);
+	}
+
+	/** Creates a message from already decoded fields */
+	ChangeSize(long timeMicros, Product product, long sequence, UUID orderId, OrderSide side,
+		double price, double oldSize, double newSize)
+	{
+		super(timeMicros, product, sequence, orderId, side);
+		this.price = price;
+		this.oldSize = oldSize;
+		this.newSize = newSize;
+		decoded = PRICE | OLD_SIZE | NEW_SIZE;
 	}
 
 	@Override
@@ -32,14 +50,26 @@ public class ChangeSize extends OrderGdaxMessage {
 	}
 
 	public final double getPrice() {
+		if((decoded & PRICE) == 0) {
+			price = RawJson.doubleValue(json, "\"price\"", Double.NaN);
+			decoded |= PRICE;
+		}
 		return price;
 	}
 	
 	public final double getOldSize() {
+		if((decoded & OLD_SIZE) == 0) {
+			oldSize = RawJson.doubleValue(json, "\"old_size\"");
+			decoded |= OLD_SIZE;
+		}
 		return oldSize;
 	}
 	
 	public final double getNewSize() {
+		if((decoded & NEW_SIZE) == 0) {
+			newSize = RawJson.doubleValue(json, "\"new_size\"");
+			decoded |= NEW_SIZE;
+		}
 		return newSize;
 	}
-}
\ No newline at end of file
+}
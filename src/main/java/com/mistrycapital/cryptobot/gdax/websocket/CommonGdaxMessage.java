@@ -23,6 +23,22 @@ abstract class CommonGdaxMessage implements GdaxMessage {
 		sequence = json.get("sequence").getAsLong();
 	}
 
+	/**
+	 * Decodes only the header fields from the raw message string. Subclasses decode their remaining fields from
+	 * the string on first access
+	 */
+	CommonGdaxMessage(String json) {
+		timeMicros = parseTimeMicros(RawJson.requiredValue(json, "\"time\""));
+		product = Product.parse(RawJson.requiredValue(json, "\"product_id\""));
+		sequence = RawJson.longValue(json, "\"sequence\"");
+	}
+
+	CommonGdaxMessage(long timeMicros, Product product, long sequence) {
+		this.timeMicros = timeMicros;
+		this.product = product;
+		this.sequence = sequence;
+	}
+
 	private static Calendar utcCal = Calendar.getInstance(TimeZone.getTimeZone(ZoneOffset.UTC));
 	//"2014-11-07T08:19:28.464459Z"
 	private static final Pattern gdaxIsoPattern =
@@ -49,39 +65,50 @@ abstract class CommonGdaxMessage implements GdaxMessage {
 	}
 
 	/** Highly optimized time parser. This is useful because profiling results showed ~20% of message parsing
-	 * time was spent in parsing time strings.
+	 * time was spent in parsing time strings. It works directly on the string and does not use a shared
+	 * calendar, so it is safe to call from multiple threads.
 	 * @param timeString Time string in the format 2014-11-07T08:19:28.464459Z or 2014-11-07T08:19:28Z
 	 * @return Time in micros since epoch
 	 */
 	static final long parseTimeMicros(String timeString) {
-		char[] timeChars = timeString.toCharArray();
-		final int year = parseIntFromChars(timeChars, 0, 4);
-		final int month = parseIntFromChars(timeChars, 5, 7);
-		final int day = parseIntFromChars(timeChars, 8, 10);
-		final int hour = parseIntFromChars(timeChars, 11, 13);
-		final int min = parseIntFromChars(timeChars, 14, 16);
-		final int sec = parseIntFromChars(timeChars, 17, 19);
+		final int year = parseIntFromChars(timeString, 0, 4);
+		final int month = parseIntFromChars(timeString, 5, 7);
+		final int day = parseIntFromChars(timeString, 8, 10);
+		final int hour = parseIntFromChars(timeString, 11, 13);
+		final int min = parseIntFromChars(timeString, 14, 16);
+		final int sec = parseIntFromChars(timeString, 17, 19);
 		final int micros;
-		if(timeChars.length == 20)
+		if(timeString.length() == 20)
 			micros = 0;
 		else
-			micros = parseIntFromChars(timeChars, 20, timeChars.length-1);
-		utcCal.set(year, month - 1, day, hour, min, sec);
-		final long seconds = utcCal.getTimeInMillis() / 1000L;
+			micros = parseIntFromChars(timeString, 20, timeString.length()-1);
+		final long seconds = epochDay(year, month, day) * 86400L + hour * 3600L + min * 60L + sec;
 		return seconds * 1000000L + micros;
 	}
 
 	/**
-	 * Parses the characters in the array starting at startIdx and ending at endIdx-1
+	 * @return Days since 1970-01-01 for the given date in the proleptic Gregorian calendar
+	 */
+	static final long epochDay(int year, int month, int day) {
+		final int y = month <= 2 ? year - 1 : year;
+		final int era = (y >= 0 ? y : y - 399) / 400;
+		final int yearOfEra = y - era * 400;
+		final int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097L + dayOfEra - 719468L;
+	}
+
+	/**
+	 * Parses the characters in the string starting at startIdx and ending at endIdx-1
 	 * @return int value of the given characters
 	 */
-	static final int parseIntFromChars(char[] chars, int startIdx, int endIdx) {
-		if(startIdx>=chars.length || endIdx>chars.length)
+	static final int parseIntFromChars(CharSequence chars, int startIdx, int endIdx) {
+		if(startIdx>=chars.length() || endIdx>chars.length())
 			throw new NumberFormatException();
 
 		int retVal = 0;
 		for(int i=startIdx; i<endIdx; i++) {
-			char ch = chars[i];
+			char ch = chars.charAt(i);
 			if(ch < '0' || ch > '9')
 				throw new NumberFormatException();
 
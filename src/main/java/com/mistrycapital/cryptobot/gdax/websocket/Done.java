@@ -1,34 +1,47 @@
 package com.mistrycapital.cryptobot.gdax.websocket;
 
 import com.google.gson.JsonObject;
+import com.mistrycapital.cryptobot.gdax.common.OrderSide;
 import com.mistrycapital.cryptobot.gdax.common.OrderType;
+import com.mistrycapital.cryptobot.gdax.common.Product;
 import com.mistrycapital.cryptobot.gdax.common.Reason;
 
+import java.util.UUID;
+
 public class Done extends OrderGdaxMessage {
+	private static final int IS_LIMIT_ORDER = 1;
+	private static final int PRICE = 2;
+	private static final int REMAINING_SIZE = 4;
+
+	/** Bit set of fields already decoded */
+	private int decoded;
 	/** True if limit order, false if market */
-	private final boolean isLimitOrder;
-	/** Order type (market, limit) */
-	private final OrderType orderType;
+	private boolean isLimitOrder;
 	/** Price */
-	private final double price;
+	private double price;
 	/** Remaining size (for limit orders) */
-	private final double remainingSize;
-	/** Reason done - cancelled or filled */
-	private final Reason reason;
+	private double remainingSize;
+	/** Reason done - cancelled or filled, null until decoded */
+	private Reason reason;
 
 	public Done(JsonObject json) {
 		super(json);
-		isLimitOrder = json.has("price");
-		if(isLimitOrder) {
-			price = Double.parseDouble(json.get("price").getAsString());
-			remainingSize = Double.parseDouble(json.get("remaining_size").getAsString());
-			orderType = OrderType.LIMIT;
-		} else {
-			price = 0.0;
-			remainingSize = 0.0;
-			orderType = OrderType.MARKET;
-		}
-		reason = Reason.parse(json.get("reason").getAsString());
+	}
+
+	public Done(String json) {
+		super(json);
+	}
+
+	/** Creates a message from already decoded fields */
+	Done(long timeMicros, Product product, long sequence, UUID orderId, OrderSide side,
+		boolean isLimitOrder, double price, double remainingSize, Reason reason)
+	{
+		super(timeMicros, product, sequence, orderId, side);
+		this.isLimitOrder = isLimitOrder;
+		this.price = price;
+		this.remainingSize = remainingSize;
+		this.reason = reason;
+		decoded = IS_LIMIT_ORDER | PRICE | REMAINING_SIZE;
 	}
 
 	@Override
@@ -42,28 +55,42 @@ public class Done extends OrderGdaxMessage {
 	}
 	
 	public final boolean isLimitOrder() {
+		if((decoded & IS_LIMIT_ORDER) == 0) {
+			isLimitOrder = RawJson.has(json, "\"price\"");
+			decoded |= IS_LIMIT_ORDER;
+		}
 		return isLimitOrder;
 	}
 
 	public final OrderType getOrderType() {
-		return orderType;
+		return isLimitOrder() ? OrderType.LIMIT : OrderType.MARKET;
 	}
 
 	public final double getPrice() {
-		if(!isLimitOrder) {
+		if(!isLimitOrder()) {
 			throw new RuntimeException("Tried to get price of market order");
 		}
+		if((decoded & PRICE) == 0) {
+			price = RawJson.doubleValue(json, "\"price\"");
+			decoded |= PRICE;
+		}
 		return price;
 	}
 	
 	public final double getRemainingSize() {
-		if(!isLimitOrder) {
+		if(!isLimitOrder()) {
 			throw new RuntimeException("Tried to get price of market order");
 		}
+		if((decoded & REMAINING_SIZE) == 0) {
+			remainingSize = RawJson.doubleValue(json, "\"remaining_size\"");
+			decoded |= REMAINING_SIZE;
+		}
 		return remainingSize;
 	}
 	
 	public final Reason getReason() {
+		if(reason == null)
+			reason = Reason.parse(RawJson.requiredValue(json, "\"reason\""));
 		return reason;
 	}
-}
\ No newline at end of file
+}
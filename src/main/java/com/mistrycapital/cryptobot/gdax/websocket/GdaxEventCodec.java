@@ -0,0 +1,358 @@
+package com.mistrycapital.cryptobot.gdax.websocket;
+
+import com.mistrycapital.cryptobot.gdax.common.OrderSide;
+import com.mistrycapital.cryptobot.gdax.common.OrderType;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+import com.mistrycapital.cryptobot.gdax.common.Reason;
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessage.Type;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Encodes gdax messages as compact binary events, and decodes them back. Every event starts with a fixed width
+ * record holding the type, product, sequence, time in micros, up to three fixed-point amounts and two ids. A book
+ * record is followed by a block of fixed width orders, bids first. Amounts are stored in units of 1e-8, which holds
+ * every price and size gdax reports exactly. Absent amounts and ids are marked in the flags and decode as NaN or null.
+ *
+ * <pre>
+ * offset  size  field
+ *      0     1  type code
+ *      1     1  product index
+ *      2     1  side (0 none, 1 buy, 2 sell)
+ *      3     1  reason, order type or stop type (0 none, else ordinal + 1)
+ *      4     4  flags, or bid count for a book
+ *      8     8  sequence
+ *     16     8  time in micros
+ *     24     8  price (stop price for activate), or ask count for a book
+ *     32     8  size (remaining size for open/done, new size/funds for change)
+ *     40     8  funds, old size/funds for change, or trade id for match
+ *     48    16  order id (maker order id for match)
+ *     64    16  client oid for received, taker order id for match
+ * </pre>
+ */
+public final class GdaxEventCodec {
+	/** Marks the start of an event log file, "GDXE" */
+	private static final int FILE_MAGIC = 0x47445845;
+	/** Version of the event format written */
+	private static final int FILE_VERSION = 1;
+	/** Size of the header at the start of an event log file */
+	public static final int FILE_HEADER_SIZE = 8;
+	/** Size of every event record */
+	public static final int RECORD_SIZE = 80;
+	/** Size of each order following a book record: price, size and order id */
+	public static final int BOOK_ORDER_SIZE = 32;
+	/** Most orders a book record may hold, far more than any full book, so corrupt counts are caught early */
+	private static final int MAX_BOOK_ORDERS = 1 << 22;
+	/** Fixed-point units per unit of price or size */
+	private static final double FIXED_POINT_SCALE = 100000000.0;
+
+	private static final int HAS_PRICE = 1;
+	private static final int HAS_SIZE = 2;
+	private static final int HAS_EXTRA = 4;
+	private static final int HAS_ID = 8;
+	private static final int HAS_ID2 = 16;
+	/** Done message for a limit order */
+	private static final int LIMIT_ORDER = 32;
+
+	private static final int TYPE = 0;
+	private static final int PRODUCT = 1;
+	private static final int SIDE = 2;
+	private static final int CODE = 3;
+	private static final int FLAGS = 4;
+	private static final int SEQUENCE = 8;
+	private static final int TIME = 16;
+	private static final int PRICE = 24;
+	private static final int SIZE = 32;
+	private static final int EXTRA = 40;
+	private static final int ID = 48;
+	private static final int ID2 = 64;
+
+	/** Message type for each type code. Codes are part of the file format and must not change */
+	private static final Type[] TYPES_BY_CODE = {
+		null, Type.BOOK, Type.RECEIVED, Type.OPEN, Type.DONE, Type.MATCH, Type.CHANGE_SIZE, Type.CHANGE_FUNDS,
+		Type.ACTIVATE, Type.UNKNOWN
+	};
+	/** Type code for each message type, by ordinal */
+	private static final byte[] CODES_BY_TYPE = new byte[Type.values().length];
+
+	static {
+		for(byte code = 1; code < TYPES_BY_CODE.length; code++)
+			CODES_BY_TYPE[TYPES_BY_CODE[code].ordinal()] = code;
+	}
+
+	private GdaxEventCodec() {}
+
+	/** Writes the header that starts an event log file */
+	public static void putFileHeader(ByteBuffer buffer) {
+		buffer.putInt(FILE_MAGIC);
+		buffer.putInt(FILE_VERSION);
+	}
+
+	/**
+	 * Reads the header that starts an event log file
+	 *
+	 * @throws RuntimeException if this is not an event log or was written in another version of the format
+	 */
+	public static void checkFileHeader(ByteBuffer buffer) {
+		final int magic = buffer.getInt();
+		final int version = buffer.getInt();
+		if(magic != FILE_MAGIC || version != FILE_VERSION)
+			throw new RuntimeException("Not a version " + FILE_VERSION + " gdax event log, magic=" + magic
+				+ " version=" + version);
+	}
+
+	/** @return Number of bytes needed to encode the given message */
+	public static int encodedSize(GdaxMessage message) {
+		if(message.getType() == Type.BOOK) {
+			final Book book = (Book) message;
+			return RECORD_SIZE + (book.getBids().length + book.getAsks().length) * BOOK_ORDER_SIZE;
+		}
+		return RECORD_SIZE;
+	}
+
+	/**
+	 * @return Size of the event starting at the buffer's position. At least RECORD_SIZE bytes must remain
+	 * @throws RuntimeException if the record has a bad type code or order counts, as in a corrupt log
+	 */
+	public static int eventSize(ByteBuffer buffer) {
+		final int start = buffer.position();
+		if(typeAt(buffer, start) != Type.BOOK)
+			return RECORD_SIZE;
+		final int bids = buffer.getInt(start + FLAGS);
+		final long asks = buffer.getLong(start + PRICE);
+		if(bids < 0 || asks < 0 || bids + asks > MAX_BOOK_ORDERS)
+			throw new RuntimeException("Bad book order counts " + bids + " and " + asks + " at " + start);
+		return RECORD_SIZE + (bids + (int) asks) * BOOK_ORDER_SIZE;
+	}
+
+	/** @return Type of the record starting at the given position */
+	private static Type typeAt(ByteBuffer buffer, int start) {
+		final int code = buffer.get(start + TYPE);
+		if(code <= 0 || code >= TYPES_BY_CODE.length)
+			throw new RuntimeException("Bad event type code " + code + " at " + start);
+		return TYPES_BY_CODE[code];
+	}
+
+	/**
+	 * Writes the message at the buffer's position and advances past it
+	 *
+	 * @throws RuntimeException if the message type cannot be encoded
+	 */
+	public static void encode(GdaxMessage message, ByteBuffer buffer) {
+		final int start = buffer.position();
+		final Type type = message.getType();
+		if(CODES_BY_TYPE[type.ordinal()] == 0)
+			throw new RuntimeException("Cannot encode message type " + type);
+		for(int i = 0; i < RECORD_SIZE; i += 8)
+			buffer.putLong(start + i, 0L);
+		buffer.put(start + TYPE, CODES_BY_TYPE[type.ordinal()]);
+		buffer.put(start + PRODUCT, (byte) message.getProduct().getIndex());
+		buffer.putLong(start + SEQUENCE, message.getSequence());
+		buffer.putLong(start + TIME, message.getTimeMicros());
+
+		int flags = 0;
+		switch(type) {
+			case BOOK:
+				final Book book = (Book) message;
+				buffer.putInt(start + FLAGS, book.getBids().length);
+				buffer.putLong(start + PRICE, book.getAsks().length);
+				buffer.position(start + RECORD_SIZE);
+				encodeOrders(book.getBids(), buffer);
+				encodeOrders(book.getAsks(), buffer);
+				return;
+			case RECEIVED:
+				final Received received = (Received) message;
+				flags |= putAmount(buffer, start + PRICE, received.getPrice(), HAS_PRICE);
+				flags |= putAmount(buffer, start + SIZE, received.getSize(), HAS_SIZE);
+				flags |= putAmount(buffer, start + EXTRA, received.getFunds(), HAS_EXTRA);
+				flags |= putId(buffer, start + ID, received.getOrderId(), HAS_ID);
+				flags |= putId(buffer, start + ID2, received.getClientOid(), HAS_ID2);
+				buffer.put(start + SIDE, sideCode(received.getOrderSide()));
+				buffer.put(start + CODE, (byte) (received.getOrderType().ordinal() + 1));
+				break;
+			case OPEN:
+				final Open open = (Open) message;
+				flags |= putAmount(buffer, start + PRICE, open.getPrice(), HAS_PRICE);
+				flags |= putAmount(buffer, start + SIZE, open.getRemainingSize(), HAS_SIZE);
+				flags |= putId(buffer, start + ID, open.getOrderId(), HAS_ID);
+				buffer.put(start + SIDE, sideCode(open.getOrderSide()));
+				break;
+			case DONE:
+				final Done done = (Done) message;
+				if(done.isLimitOrder()) {
+					flags |= LIMIT_ORDER;
+					flags |= putAmount(buffer, start + PRICE, done.getPrice(), HAS_PRICE);
+					flags |= putAmount(buffer, start + SIZE, done.getRemainingSize(), HAS_SIZE);
+				}
+				flags |= putId(buffer, start + ID, done.getOrderId(), HAS_ID);
+				buffer.put(start + SIDE, sideCode(done.getOrderSide()));
+				buffer.put(start + CODE, (byte) (done.getReason().ordinal() + 1));
+				break;
+			case MATCH:
+				final Match match = (Match) message;
+				flags |= putAmount(buffer, start + PRICE, match.getPrice(), HAS_PRICE);
+				flags |= putAmount(buffer, start + SIZE, match.getSize(), HAS_SIZE);
+				buffer.putLong(start + EXTRA, match.getTradeId());
+				flags |= HAS_EXTRA;
+				flags |= putId(buffer, start + ID, match.getMakerOrderId(), HAS_ID);
+				flags |= putId(buffer, start + ID2, match.getTakerOrderId(), HAS_ID2);
+				buffer.put(start + SIDE, sideCode(match.getOrderSide()));
+				break;
+			case CHANGE_SIZE:
+				final ChangeSize changeSize = (ChangeSize) message;
+				flags |= putAmount(buffer, start + PRICE, changeSize.getPrice(), HAS_PRICE);
+				flags |= putAmount(buffer, start + SIZE, changeSize.getNewSize(), HAS_SIZE);
+				flags |= putAmount(buffer, start + EXTRA, changeSize.getOldSize(), HAS_EXTRA);
+				flags |= putId(buffer, start + ID, changeSize.getOrderId(), HAS_ID);
+				buffer.put(start + SIDE, sideCode(changeSize.getOrderSide()));
+				break;
+			case CHANGE_FUNDS:
+				final ChangeFunds changeFunds = (ChangeFunds) message;
+				flags |= putAmount(buffer, start + PRICE, changeFunds.getPrice(), HAS_PRICE);
+				flags |= putAmount(buffer, start + SIZE, changeFunds.getNewFunds(), HAS_SIZE);
+				flags |= putAmount(buffer, start + EXTRA, changeFunds.getOldFunds(), HAS_EXTRA);
+				flags |= putId(buffer, start + ID, changeFunds.getOrderId(), HAS_ID);
+				buffer.put(start + SIDE, sideCode(changeFunds.getOrderSide()));
+				break;
+			case ACTIVATE:
+				final Activate activate = (Activate) message;
+				flags |= putAmount(buffer, start + PRICE, activate.getStopPrice(), HAS_PRICE);
+				if(activate.hasSize())
+					flags |= putAmount(buffer, start + SIZE, activate.getSize(), HAS_SIZE);
+				flags |= putAmount(buffer, start + EXTRA, activate.getFunds(), HAS_EXTRA);
+				flags |= putId(buffer, start + ID, activate.getOrderId(), HAS_ID);
+				buffer.put(start + SIDE, sideCode(activate.getOrderSide()));
+				buffer.put(start + CODE, (byte) (activate.getStopType().ordinal() + 1));
+				break;
+			case UNKNOWN:
+				break;
+		}
+		buffer.putInt(start + FLAGS, flags);
+		buffer.position(start + RECORD_SIZE);
+	}
+
+	/**
+	 * Reads the event at the buffer's position and advances past it. The whole event must be in the buffer
+	 *
+	 * @param interest Message types to decode
+	 * @return Decoded message, or null if its type is not in the interest set
+	 */
+	public static GdaxMessage decode(ByteBuffer buffer, Set<Type> interest) {
+		final int start = buffer.position();
+		final Type type = typeAt(buffer, start);
+		final int size = eventSize(buffer);
+		if(!interest.contains(type)) {
+			buffer.position(start + size);
+			return null;
+		}
+
+		final int productIndex = buffer.get(start + PRODUCT);
+		if(productIndex < 0 || productIndex >= Product.count)
+			throw new RuntimeException("Bad product index " + productIndex + " at " + start);
+		final Product product = Product.FAST_VALUES[productIndex];
+		final long sequence = buffer.getLong(start + SEQUENCE);
+		final long timeMicros = buffer.getLong(start + TIME);
+		final int flags = buffer.getInt(start + FLAGS);
+		final OrderSide side = side(buffer.get(start + SIDE));
+		final int enumCode = buffer.get(start + CODE) - 1;
+		final UUID id = getId(buffer, start + ID, flags, HAS_ID);
+		final UUID id2 = getId(buffer, start + ID2, flags, HAS_ID2);
+		final double price = getAmount(buffer, start + PRICE, flags, HAS_PRICE);
+		final double amount = getAmount(buffer, start + SIZE, flags, HAS_SIZE);
+		final double extra = getAmount(buffer, start + EXTRA, flags, HAS_EXTRA);
+		final GdaxMessage message;
+		switch(type) {
+			case BOOK:
+				final int orderCount = (size - RECORD_SIZE) / BOOK_ORDER_SIZE;
+				final UUID[] orderIds = new UUID[orderCount];
+				final double[] prices = new double[orderCount];
+				final double[] sizes = new double[orderCount];
+				for(int i = 0; i < orderCount; i++) {
+					final int orderStart = start + RECORD_SIZE + i * BOOK_ORDER_SIZE;
+					prices[i] = buffer.getLong(orderStart) / FIXED_POINT_SCALE;
+					sizes[i] = buffer.getLong(orderStart + 8) / FIXED_POINT_SCALE;
+					orderIds[i] = new UUID(buffer.getLong(orderStart + 16), buffer.getLong(orderStart + 24));
+				}
+				message = new Book(timeMicros, product, sequence, orderIds, prices, sizes, flags);
+				break;
+			case RECEIVED:
+				message = new Received(timeMicros, product, sequence, id, side, price, amount, extra,
+					OrderType.values()[enumCode], id2);
+				break;
+			case OPEN:
+				message = new Open(timeMicros, product, sequence, id, side, price, amount);
+				break;
+			case DONE:
+				message = new Done(timeMicros, product, sequence, id, side, (flags & LIMIT_ORDER) != 0, price, amount,
+					Reason.values()[enumCode]);
+				break;
+			case MATCH:
+				final long tradeId = buffer.getLong(start + EXTRA);
+				message = new Match(timeMicros, product, sequence, tradeId, id, id2, price, amount, side);
+				break;
+			case CHANGE_SIZE:
+				message = new ChangeSize(timeMicros, product, sequence, id, side, price, extra, amount);
+				break;
+			case CHANGE_FUNDS:
+				message = new ChangeFunds(timeMicros, product, sequence, id, side, price, extra, amount);
+				break;
+			case ACTIVATE:
+				message = new Activate(timeMicros, product, sequence, id, side, price, (flags & HAS_SIZE) != 0, amount,
+					extra, StopType.values()[enumCode]);
+				break;
+			default:
+				message = new Unknown(timeMicros, product, sequence);
+				break;
+		}
+		buffer.position(start + size);
+		return message;
+	}
+
+	private static void encodeOrders(Book.Order[] orders, ByteBuffer buffer) {
+		for(Book.Order order : orders) {
+			buffer.putLong(toFixedPoint(order.price));
+			buffer.putLong(toFixedPoint(order.size));
+			buffer.putLong(order.orderId.getMostSignificantBits());
+			buffer.putLong(order.orderId.getLeastSignificantBits());
+		}
+	}
+
+	/** Writes the amount if present. @return The given flag if the amount was written, 0 otherwise */
+	private static int putAmount(ByteBuffer buffer, int index, double amount, int flag) {
+		if(Double.isNaN(amount))
+			return 0;
+		buffer.putLong(index, toFixedPoint(amount));
+		return flag;
+	}
+
+	/** Writes the id if present. @return The given flag if the id was written, 0 otherwise */
+	private static int putId(ByteBuffer buffer, int index, UUID id, int flag) {
+		if(id == null)
+			return 0;
+		buffer.putLong(index, id.getMostSignificantBits());
+		buffer.putLong(index + 8, id.getLeastSignificantBits());
+		return flag;
+	}
+
+	private static double getAmount(ByteBuffer buffer, int index, int flags, int flag) {
+		return (flags & flag) == 0 ? Double.NaN : buffer.getLong(index) / FIXED_POINT_SCALE;
+	}
+
+	private static UUID getId(ByteBuffer buffer, int index, int flags, int flag) {
+		return (flags & flag) == 0 ? null : new UUID(buffer.getLong(index), buffer.getLong(index + 8));
+	}
+
+	private static long toFixedPoint(double amount) {
+		return Math.round(amount * FIXED_POINT_SCALE);
+	}
+
+	private static byte sideCode(OrderSide side) {
+		return side == null ? 0 : (byte) (side.ordinal() + 1);
+	}
+
+	private static OrderSide side(byte code) {
+		return code == 0 ? null : OrderSide.values()[code - 1];
+	}
+}
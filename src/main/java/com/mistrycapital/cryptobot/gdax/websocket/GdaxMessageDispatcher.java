@@ -0,0 +1,82 @@
+package com.mistrycapital.cryptobot.gdax.websocket;
+
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessage.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Passes each message to only those processors that are interested in its type
+ */
+public class GdaxMessageDispatcher implements GdaxMessageProcessor {
+	/** Interested processors for each message type, indexed by type ordinal */
+	private final GdaxMessageProcessor[][] processorsByType;
+	private final Set<Type> interest;
+
+	public GdaxMessageDispatcher(GdaxMessageProcessor... processors) {
+		processorsByType = new GdaxMessageProcessor[Type.values().length][];
+		for(Type type : Type.values()) {
+			List<GdaxMessageProcessor> interested = new ArrayList<>(processors.length);
+			for(GdaxMessageProcessor processor : processors) {
+				if(processor.getInterest().contains(type))
+					interested.add(processor);
+			}
+			processorsByType[type.ordinal()] = interested.toArray(new GdaxMessageProcessor[0]);
+		}
+		interest = GdaxMessageProcessor.combinedInterest(processors);
+	}
+
+	@Override
+	public Set<Type> getInterest() {
+		return interest;
+	}
+
+	@Override
+	public void process(final Book msg) {
+		for(GdaxMessageProcessor processor : processorsByType[Type.BOOK.ordinal()])
+			processor.process(msg);
+	}
+
+	@Override
+	public void process(final Received msg) {
+		for(GdaxMessageProcessor processor : processorsByType[Type.RECEIVED.ordinal()])
+			processor.process(msg);
+	}
+
+	@Override
+	public void process(final Open msg) {
+		for(GdaxMessageProcessor processor : processorsByType[Type.OPEN.ordinal()])
+			processor.process(msg);
+	}
+
+	@Override
+	public void process(final Done msg) {
+		for(GdaxMessageProcessor processor : processorsByType[Type.DONE.ordinal()])
+			processor.process(msg);
+	}
+
+	@Override
+	public void process(final Match msg) {
+		for(GdaxMessageProcessor processor : processorsByType[Type.MATCH.ordinal()])
+			processor.process(msg);
+	}
+
+	@Override
+	public void process(final ChangeSize msg) {
+		for(GdaxMessageProcessor processor : processorsByType[Type.CHANGE_SIZE.ordinal()])
+			processor.process(msg);
+	}
+
+	@Override
+	public void process(final ChangeFunds msg) {
+		for(GdaxMessageProcessor processor : processorsByType[Type.CHANGE_FUNDS.ordinal()])
+			processor.process(msg);
+	}
+
+	@Override
+	public void process(final Activate msg) {
+		for(GdaxMessageProcessor processor : processorsByType[Type.ACTIVATE.ordinal()])
+			processor.process(msg);
+	}
+}
@@ -0,0 +1,169 @@
+package com.mistrycapital.cryptobot.gdax.websocket;
+
+import com.google.gson.JsonParser;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessage.Type;
+
+import java.util.Set;
+
+/**
+ * Parses gdax message strings, as received on the websocket feed or saved in our data files. Only message types
+ * in the interest set are decoded; the type of a message is found by scanning the raw string so
+ * uninterested messages are never decoded. Only book messages go through the JSON parser. Other fields of order
+ * messages are decoded on first access, so callers that process messages must log and skip those that turn out
+ * to be malformed
+ */
+public class GdaxMessageParser {
+	private final JsonParser jsonParser;
+	/** True for each type (by ordinal) that should be fully decoded */
+	private final boolean[] interested;
+
+	/** Creates a parser that decodes all messages */
+	public GdaxMessageParser() {
+		this(GdaxMessageProcessor.ALL_TYPES);
+	}
+
+	public GdaxMessageParser(Set<Type> interest) {
+		jsonParser = new JsonParser();
+		interested = new boolean[Type.values().length];
+		setInterest(interest);
+	}
+
+	/** Sets the message types to be fully decoded */
+	public void setInterest(Set<Type> interest) {
+		for(Type type : Type.values())
+			interested[type.ordinal()] = interest.contains(type);
+	}
+
+	/** @return true if messages of the given type are fully decoded */
+	public boolean isInterested(Type type) {
+		return interested[type.ordinal()];
+	}
+
+	/**
+	 * Parses the message regardless of interest
+	 *
+	 * @return Decoded message, or null if it is not a recognizable gdax message
+	 */
+	public GdaxMessage parse(String msgStr) {
+		return decode(msgStr, typeString(msgStr));
+	}
+
+	/**
+	 * @return Decoded message, or null if it is not of an interesting type or not a recognizable gdax message
+	 */
+	public GdaxMessage parseInterested(String msgStr) {
+		final String typeStr = typeString(msgStr);
+		if(!isInterestedInRaw(typeOf(typeStr)))
+			return null;
+		final GdaxMessage message = decode(msgStr, typeStr);
+		return message == null || isInterested(message.getType()) ? message : null;
+	}
+
+	/**
+	 * Decodes interesting messages fully. For other messages, decodes only the type, product, sequence and time
+	 * so that sequence gaps can still be detected
+	 *
+	 * @return Decoded message, or null if it is not a recognizable gdax message
+	 */
+	public GdaxMessage parseForSequencing(String msgStr) {
+		final String typeStr = typeString(msgStr);
+		final Type type = typeOf(typeStr);
+		if(isInterestedInRaw(type))
+			return decode(msgStr, typeStr);
+
+		final String productStr = RawJson.stringValue(msgStr, "\"product_id\"");
+		final String timeStr = RawJson.stringValue(msgStr, "\"time\"");
+		if(productStr == null || timeStr == null || !RawJson.has(msgStr, "\"sequence\""))
+			return null;
+		return new Skipped(type, CommonGdaxMessage.parseTimeMicros(timeStr), Product.parse(productStr),
+			RawJson.longValue(msgStr, "\"sequence\""));
+	}
+
+	/** Change messages can only be told apart after decoding, so keep them if either kind is interesting */
+	private boolean isInterestedInRaw(Type type) {
+		if(type == Type.CHANGE_SIZE)
+			return interested[Type.CHANGE_SIZE.ordinal()] || interested[Type.CHANGE_FUNDS.ordinal()];
+		return interested[type.ordinal()];
+	}
+
+	/**
+	 * Book messages are decoded fully with the JSON parser. All other messages decode only their header here and
+	 * the remaining fields lazily from the message string when accessed
+	 */
+	private GdaxMessage decode(String msgStr, String typeStr) {
+		switch(typeStr) {
+			case "book":
+			case "order_book":
+				// saved full book data
+				return new Book(jsonParser.parse(msgStr).getAsJsonObject());
+			case "received":
+				// can optimize this by only handling orders that are ours, but maybe we want the info
+				// on other people's orders
+				return new Received(msgStr);
+			case "open":
+				// new order on book
+				return new Open(msgStr);
+			case "done":
+				// order taken off book - could be filled or canceled
+				return new Done(msgStr);
+			case "match":
+				// trade occurred
+				return new Match(msgStr);
+			case "change":
+				// order modified
+				if(RawJson.has(msgStr, "\"new_size\"")) {
+					return new ChangeSize(msgStr);
+				} else {
+					return new ChangeFunds(msgStr);
+				}
+			case "activate":
+				// new stop order
+				return new Activate(msgStr);
+			default:
+				// this could be a new message type or something else
+				if(RawJson.has(msgStr, "\"sequence\"") && RawJson.has(msgStr, "\"product_id\"")
+					&& RawJson.has(msgStr, "\"time\""))
+				{
+					return new Unknown(msgStr);
+				}
+				return null;
+		}
+	}
+
+	/**
+	 * Finds the message type string without parsing the whole message
+	 */
+	private static String typeString(String msgStr) {
+		final String typeStr = RawJson.stringValue(msgStr, "\"type\"");
+		if(typeStr == null)
+			throw new RuntimeException("No type in gdax message " + msgStr);
+		return typeStr;
+	}
+
+	/**
+	 * @return Type for the given type string. Change messages are reported as CHANGE_SIZE since the two kinds
+	 * cannot be told apart from the type field alone
+	 */
+	static Type typeOf(String typeStr) {
+		switch(typeStr) {
+			case "book":
+			case "order_book":
+				return Type.BOOK;
+			case "received":
+				return Type.RECEIVED;
+			case "open":
+				return Type.OPEN;
+			case "done":
+				return Type.DONE;
+			case "match":
+				return Type.MATCH;
+			case "change":
+				return Type.CHANGE_SIZE;
+			case "activate":
+				return Type.ACTIVATE;
+			default:
+				return Type.UNKNOWN;
+		}
+	}
+}
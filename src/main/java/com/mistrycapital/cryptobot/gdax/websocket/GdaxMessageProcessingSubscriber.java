@@ -1,5 +1,6 @@
 package com.mistrycapital.cryptobot.gdax.websocket;
 
+import java.util.Set;
 import java.util.concurrent.Flow.Subscriber;
 import java.util.concurrent.Flow.Subscription;
 
@@ -17,6 +18,11 @@ public class GdaxMessageProcessingSubscriber implements Subscriber<GdaxMessage>
 		this.processor = processor;
 	}
 
+	/** @return Message types the underlying processor is interested in */
+	Set<GdaxMessage.Type> getInterest() {
+		return processor.getInterest();
+	}
+
 	@Override
 	public void onComplete() {
 	}
@@ -28,7 +34,13 @@ public class GdaxMessageProcessingSubscriber implements Subscriber<GdaxMessage>
 
 	@Override
 	public void onNext(GdaxMessage msg) {
-		msg.process(processor);
+		try {
+			msg.process(processor);
+		} catch(RuntimeException e) {
+			// fields are decoded on first access, so a malformed message only fails here
+			log.error("Error processing " + msg.getType() + " message sequence " + msg.getSequence() + " for "
+				+ msg.getProduct(), e);
+		}
 		subscription.request(1);
 	}
 
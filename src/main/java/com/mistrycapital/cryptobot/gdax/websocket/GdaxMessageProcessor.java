@@ -1,6 +1,15 @@
 package com.mistrycapital.cryptobot.gdax.websocket;
 
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessage.Type;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
 public interface GdaxMessageProcessor {
+	/** Every message type that can be processed (unknown messages are never processed) */
+	Set<Type> ALL_TYPES = Collections.unmodifiableSet(EnumSet.complementOf(EnumSet.of(Type.UNKNOWN)));
+
 	void process(Book msg);
 	void process(Received msg);
 	void process(Open msg);
@@ -9,4 +18,22 @@ public interface GdaxMessageProcessor {
 	void process(ChangeSize msg);
 	void process(ChangeFunds msg);
 	void process(Activate msg);
-}
\ No newline at end of file
+
+	/**
+	 * @return Message types this processor acts on. Messages of any other type may not be decoded or dispatched
+	 * to this processor at all, so processors should only declare the types they do something with
+	 */
+	default Set<Type> getInterest() {
+		return ALL_TYPES;
+	}
+
+	/**
+	 * @return Union of the interests of all given processors
+	 */
+	static Set<Type> combinedInterest(GdaxMessageProcessor... processors) {
+		final EnumSet<Type> interest = EnumSet.noneOf(Type.class);
+		for(GdaxMessageProcessor processor : processors)
+			interest.addAll(processor.getInterest());
+		return interest;
+	}
+}
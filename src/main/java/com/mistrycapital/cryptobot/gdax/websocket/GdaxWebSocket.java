@@ -19,7 +19,12 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Flow.Subscriber;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -31,6 +36,11 @@ public class GdaxWebSocket extends SynchronousPublisher<GdaxMessage> {
 	private final FileAppender fileAppender;
 	private final HttpClient httpClient;
 	private final JsonParser jsonParser;
+	private final GdaxMessageParser messageParser;
+	/** Subscribers for each message type, indexed by type ordinal */
+	private final List<Subscriber<? super GdaxMessage>>[] subscribersByType;
+	/** Union of all subscribers' interests */
+	private final Set<Type> combinedInterest;
 
 	private final Queue<GdaxMessage>[] pending;
 	private final AtomicBoolean[] building;
@@ -49,6 +59,12 @@ public class GdaxWebSocket extends SynchronousPublisher<GdaxMessage> {
 		this.fileAppender = fileAppender;
 		httpClient = HttpClient.newHttpClient();
 		jsonParser = new JsonParser();
+		combinedInterest = EnumSet.noneOf(Type.class);
+		messageParser = new GdaxMessageParser(combinedInterest);
+		subscribersByType = (List<Subscriber<? super GdaxMessage>>[]) new List<?>[Type.values().length];
+		for(int i = 0; i < subscribersByType.length; i++) {
+			subscribersByType[i] = new ArrayList<>();
+		}
 		pending = (Queue<GdaxMessage>[]) new Queue<?>[Product.count];
 		building = new AtomicBoolean[Product.count];
 		sequence = new AtomicLong[Product.count];
@@ -116,7 +132,8 @@ public class GdaxWebSocket extends SynchronousPublisher<GdaxMessage> {
 
 		try {
 
-			final GdaxMessage msg = parseMessage(msgStr);
+			// messages nobody is interested in are only decoded enough to check the sequence
+			final GdaxMessage msg = messageParser.parseForSequencing(msgStr);
 			if(msg == null) {
 				log.debug("Unknown msg: " + msgStr);
 			} else {
@@ -143,9 +160,9 @@ public class GdaxWebSocket extends SynchronousPublisher<GdaxMessage> {
 						log.trace("Skipping msg " + pendingMsg);
 
 					} else {
-						// we don't handle received or unknown messages right now
+						// we don't handle unknown messages, and other types go only to interested subscribers
 						if(pendingMsg.getType() != Type.UNKNOWN) {
-							submit(pendingMsg);
+							submit(pendingMsg, subscribersByType[pendingMsg.getType().ordinal()]);
 						}
 						sequence[index].set(pendingMsg.getSequence());
 					}
@@ -157,48 +174,9 @@ public class GdaxWebSocket extends SynchronousPublisher<GdaxMessage> {
 		}
 	}
 
+	/** Fully decodes the given message regardless of subscriber interest */
 	GdaxMessage parseMessage(String msg) {
-		JsonObject json = jsonParser.parse(msg).getAsJsonObject();
-		String type = json.get("type").getAsString();
-		GdaxMessage message = null;
-		switch(type) {
-			case "received":
-				// can optimize this by only handling orders that are ours, but maybe we want the info
-				// on other people's orders
-				message = new Received(json);
-				break;
-			case "open":
-				// new order on book
-				message = new Open(json);
-				break;
-			case "done":
-				// order taken off book - could be filled or canceled
-				message = new Done(json);
-				break;
-			case "match":
-				// trade occurred
-				message = new Match(json);
-				break;
-			case "change":
-				// order modified
-				if(json.has("new_size")) {
-					message = new ChangeSize(json);
-				} else {
-					message = new ChangeFunds(json);
-				}
-				break;
-			case "activate":
-				// new stop order
-				message = new Activate(json);
-				break;
-			default:
-				// this could be a new message type or received
-				if(json.has("sequence") && json.has("product_id") && json.has("time")) {
-					message = new Unknown(json);
-				}
-		}
-		json = null; // mark for GC
-		return message;
+		return messageParser.parse(msg);
 	}
 
 	void startBuilding(final Product product)
@@ -243,7 +221,7 @@ public class GdaxWebSocket extends SynchronousPublisher<GdaxMessage> {
 						}
 						Book message = new Book(json);
 						json = null; // mark for GC
-						submit(message);
+						submit(message, subscribersByType[Type.BOOK.ordinal()]);
 						sequence[product.getIndex()].set(message.getSequence());
 						building[product.getIndex()].set(false);
 						message = null; // mark for GC
@@ -268,6 +246,23 @@ public class GdaxWebSocket extends SynchronousPublisher<GdaxMessage> {
 		connected = false;
 	}
 
+	/**
+	 * Subscribes to messages. Subscribers that process messages only receive the types they are interested in;
+	 * other subscribers receive everything
+	 */
+	@Override
+	public void subscribe(final Subscriber<? super GdaxMessage> subscriber) {
+		final Set<Type> interest = subscriber instanceof GdaxMessageProcessingSubscriber
+			? ((GdaxMessageProcessingSubscriber) subscriber).getInterest()
+			: GdaxMessageProcessor.ALL_TYPES;
+		super.subscribe(subscriber);
+		for(Type type : interest) {
+			subscribersByType[type.ordinal()].add(subscriber);
+		}
+		combinedInterest.addAll(interest);
+		messageParser.setInterest(combinedInterest);
+	}
+
 	public void subscribe(GdaxMessageProcessor processor) {
 		subscribe(new GdaxMessageProcessingSubscriber(processor));
 	}
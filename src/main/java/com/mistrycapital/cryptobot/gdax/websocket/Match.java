@@ -4,29 +4,56 @@ import java.util.UUID;
 
 import com.google.gson.JsonObject;
 import com.mistrycapital.cryptobot.gdax.common.OrderSide;
+import com.mistrycapital.cryptobot.gdax.common.Product;
 
+/**
+ * Trade message. As with order messages, fields other than the header are decoded from the retained message
+ * string on first access
+ */
 public class Match extends CommonGdaxMessage {
+	private static final int TRADE_ID = 1;
+	private static final int PRICE = 2;
+	private static final int SIZE = 4;
+
+	/** Raw message */
+	private final String json;
+	/** Bit set of fields already decoded */
+	private int decoded;
 	/** Trade id */
-	private final long tradeId;
-	/** Order id of maker */
-	private final UUID makerOrderId;
-	/** Order id of taker */
-	private final UUID takerOrderId;
+	private long tradeId;
+	/** Order id of maker, null until decoded */
+	private UUID makerOrderId;
+	/** Order id of taker, null until decoded */
+	private UUID takerOrderId;
 	/** Price */
-	private final double price;
+	private double price;
 	/** Size traded */
-	private final double size;
-	/** Order side */
-	private final OrderSide side;
+	private double size;
+	/** Order side, null until decoded */
+	private OrderSide side;
 
 	public Match(JsonObject json) {
+		this(json.toString());
+	}
+
+	public Match(String json) {
 		super(json);
-		tradeId = json.get("trade_id").getAsLong();
-		makerOrderId = UUID.fromString(json.get("maker_order_id").getAsString());
-		takerOrderId = UUID.fromString(json.get("taker_order_id").getAsString());
-		price = Double.parseDouble(json.get("price").getAsString());
-		size = Double.parseDouble(json.get("size").getAsString());
-		side = OrderSide.parse(json.get("side").getAsString());
+		this.json = json;
+	}
+
+	/** Creates a message from already decoded fields, with no message string */
+	Match(long timeMicros, Product product, long sequence, long tradeId, UUID makerOrderId, UUID takerOrderId,
+		double price, double size, OrderSide side)
+	{
+		super(timeMicros, product, sequence);
+		json = null;
+		this.tradeId = tradeId;
+		this.makerOrderId = makerOrderId;
+		this.takerOrderId = takerOrderId;
+		this.price = price;
+		this.size = size;
+		this.side = side;
+		decoded = TRADE_ID | PRICE | SIZE;
 	}
 
 	@Override
@@ -40,26 +67,44 @@ public class Match extends CommonGdaxMessage {
 	}
 	
 	public final long getTradeId() {
+		if((decoded & TRADE_ID) == 0) {
+			tradeId = RawJson.longValue(json, "\"trade_id\"");
+			decoded |= TRADE_ID;
+		}
 		return tradeId;
 	}
 
 	public final UUID getMakerOrderId() {
+		if(makerOrderId == null)
+			makerOrderId = UUID.fromString(RawJson.requiredValue(json, "\"maker_order_id\""));
 		return makerOrderId;
 	}
 	
 	public final UUID getTakerOrderId() {
+		if(takerOrderId == null)
+			takerOrderId = UUID.fromString(RawJson.requiredValue(json, "\"taker_order_id\""));
 		return takerOrderId;
 	}
 	
 	public final double getPrice() {
+		if((decoded & PRICE) == 0) {
+			price = RawJson.doubleValue(json, "\"price\"");
+			decoded |= PRICE;
+		}
 		return price;
 	}
 	
 	public final double getSize() {
+		if((decoded & SIZE) == 0) {
+			size = RawJson.doubleValue(json, "\"size\"");
+			decoded |= SIZE;
+		}
 		return size;
 	}
 	
 	public final OrderSide getOrderSide() {
+		if(side == null)
+			side = OrderSide.parse(RawJson.requiredValue(json, "\"side\""));
 		return side;
 	}
 }
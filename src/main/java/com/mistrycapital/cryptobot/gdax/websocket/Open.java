@@ -1,17 +1,38 @@
 package com.mistrycapital.cryptobot.gdax.websocket;
 
 import com.google.gson.JsonObject;
+import com.mistrycapital.cryptobot.gdax.common.OrderSide;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+
+import java.util.UUID;
 
 public class Open extends OrderGdaxMessage {
+	private static final int PRICE = 1;
+	private static final int REMAINING_SIZE = 2;
+
+	/** Bit set of fields already decoded */
+	private int decoded;
 	/** Price */
-	private final double price;
+	private double price;
 	/** Remaining size */
-	private final double remainingSize;
+	private double remainingSize;
 	
 	public Open(JsonObject json) {
 		super(json);
-		price = Double.parseDouble(json.get("price").getAsString());
-		remainingSize = Double.parseDouble(json.get("remaining_size").getAsString());
+	}
+
+	public Open(String json) {
+		super(json);
+	}
+
+	/** Creates a message from already decoded fields */
+	Open(long timeMicros, Product product, long sequence, UUID orderId, OrderSide side,
+		double price, double remainingSize)
+	{
+		super(timeMicros, product, sequence, orderId, side);
+		this.price = price;
+		this.remainingSize = remainingSize;
+		decoded = PRICE | REMAINING_SIZE;
 	}
 
 	@Override
@@ -25,10 +46,18 @@ public class Open extends OrderGdaxMessage {
 	}
 
 	public final double getPrice() {
+		if((decoded & PRICE) == 0) {
+			price = RawJson.doubleValue(json, "\"price\"");
+			decoded |= PRICE;
+		}
 		return price;
 	}
 	
 	public final double getRemainingSize() {
+		if((decoded & REMAINING_SIZE) == 0) {
+			remainingSize = RawJson.doubleValue(json, "\"remaining_size\"");
+			decoded |= REMAINING_SIZE;
+		}
 		return remainingSize;
 	}
-}
\ No newline at end of file
+}
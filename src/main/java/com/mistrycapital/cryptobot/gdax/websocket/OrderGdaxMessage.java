@@ -4,24 +4,47 @@ import java.util.UUID;
 
 import com.google.gson.JsonObject;
 import com.mistrycapital.cryptobot.gdax.common.OrderSide;
+import com.mistrycapital.cryptobot.gdax.common.Product;
 
+/**
+ * Order message whose fields other than the header are decoded from the retained message string on first access.
+ * Decoded values are cached without synchronization, so the first access of a field should not race between
+ * threads; handing the message off through a queue or executor is fine.
+ */
 abstract class OrderGdaxMessage extends CommonGdaxMessage {
-	/** Order id */
-	protected final UUID orderId;
-	/** Order side */
-	protected final OrderSide side;
-	
+	/** Raw message */
+	protected final String json;
+	/** Order id, null until decoded */
+	private UUID orderId;
+	/** Order side, null until decoded */
+	private OrderSide side;
+
 	OrderGdaxMessage(JsonObject json) {
+		this(json.toString());
+	}
+
+	OrderGdaxMessage(String json) {
 		super(json);
-		orderId = UUID.fromString(json.get("order_id").getAsString());
-		side = OrderSide.parse(json.get("side").getAsString());
+		this.json = json;
+	}
+
+	/** Creates a message from already decoded fields, with no message string */
+	OrderGdaxMessage(long timeMicros, Product product, long sequence, UUID orderId, OrderSide side) {
+		super(timeMicros, product, sequence);
+		json = null;
+		this.orderId = orderId;
+		this.side = side;
 	}
 
 	public final UUID getOrderId() {
+		if(orderId == null)
+			orderId = UUID.fromString(RawJson.requiredValue(json, "\"order_id\""));
 		return orderId;
 	}
 	
 	public final OrderSide getOrderSide() {
+		if(side == null)
+			side = OrderSide.parse(RawJson.requiredValue(json, "\"side\""));
 		return side;
 	}
 
@@ -36,9 +59,9 @@ abstract class OrderGdaxMessage extends CommonGdaxMessage {
 		builder.append(" for ");
 		builder.append(product);
 		builder.append(" order ");
-		builder.append(orderId);
+		builder.append(getOrderId());
 		builder.append(' ');
-		builder.append(side);
+		builder.append(getOrderSide());
 		return builder.toString();
 	}
 }
@@ -0,0 +1,114 @@
+package com.mistrycapital.cryptobot.gdax.websocket;
+
+import java.util.UUID;
+
+/**
+ * Helpers to pull individual fields out of a flat gdax JSON message without parsing the whole message. Keys must
+ * be given with their quotes, e.g. "\"price\"", so that "price" does not match "stop_price". Values may be
+ * quoted or bare.
+ */
+final class RawJson {
+	private RawJson() {}
+
+	/**
+	 * @return Index of the first character of the value for the given quoted key, or -1 if not found
+	 */
+	static int valueStart(String json, String quotedKey) {
+		int idx = json.indexOf(quotedKey);
+		if(idx < 0)
+			return -1;
+		idx = skipWhitespace(json, idx + quotedKey.length());
+		if(idx >= json.length() || json.charAt(idx) != ':')
+			return -1;
+		return skipWhitespace(json, idx + 1);
+	}
+
+	/** @return true if the message has the given key */
+	static boolean has(String json, String quotedKey) {
+		return valueStart(json, quotedKey) >= 0;
+	}
+
+	/**
+	 * @return Value of the given key without quotes, or null if not found
+	 */
+	static String stringValue(String json, String quotedKey) {
+		final int start = valueStart(json, quotedKey);
+		if(start < 0 || start >= json.length())
+			return null;
+		if(json.charAt(start) == '"') {
+			final int end = json.indexOf('"', start + 1);
+			return end < 0 ? null : json.substring(start + 1, end);
+		}
+		int end = start;
+		while(end < json.length()) {
+			final char ch = json.charAt(end);
+			if(ch == ',' || ch == '}' || ch == ']' || Character.isWhitespace(ch))
+				break;
+			end++;
+		}
+		return json.substring(start, end);
+	}
+
+	/**
+	 * @return Value of the given key, or the given default if not found
+	 */
+	static double doubleValue(String json, String quotedKey, double missingValue) {
+		final String value = stringValue(json, quotedKey);
+		return value == null ? missingValue : Double.parseDouble(value);
+	}
+
+	/**
+	 * @return Value of the given key
+	 * @throws RuntimeException if the key is not found
+	 */
+	static double doubleValue(String json, String quotedKey) {
+		return Double.parseDouble(requiredValue(json, quotedKey));
+	}
+
+	/**
+	 * @return Value of the given non-negative integer key
+	 * @throws RuntimeException if the key is not found
+	 */
+	static long longValue(String json, String quotedKey) {
+		final int start = valueStart(json, quotedKey);
+		if(start < 0)
+			throw new RuntimeException("Missing " + quotedKey + " in gdax message " + json);
+		int idx = start < json.length() && json.charAt(start) == '"' ? start + 1 : start;
+		final int digitStart = idx;
+		long retVal = 0;
+		for(; idx < json.length(); idx++) {
+			final char ch = json.charAt(idx);
+			if(ch < '0' || ch > '9')
+				break;
+			retVal = retVal * 10 + (ch - '0');
+		}
+		if(idx == digitStart)
+			throw new NumberFormatException("Bad " + quotedKey + " in gdax message " + json);
+		return retVal;
+	}
+
+	/**
+	 * @return Value of the given key, or null if not found
+	 */
+	static UUID uuidValue(String json, String quotedKey) {
+		final String value = stringValue(json, quotedKey);
+		return value == null ? null : UUID.fromString(value);
+	}
+
+	/**
+	 * @return Value of the given key
+	 * @throws RuntimeException if the key is not found
+	 */
+	static String requiredValue(String json, String quotedKey) {
+		final String value = stringValue(json, quotedKey);
+		if(value == null)
+			throw new RuntimeException("Missing " + quotedKey + " in gdax message " + json);
+		return value;
+	}
+
+	private static int skipWhitespace(String json, int idx) {
+		while(idx < json.length() && Character.isWhitespace(json.charAt(idx)))
+			idx++;
+		return idx;
+	}
+}
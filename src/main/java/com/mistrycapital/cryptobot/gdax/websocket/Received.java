@@ -1,29 +1,50 @@
 package com.mistrycapital.cryptobot.gdax.websocket;
 
 import com.google.gson.JsonObject;
+import com.mistrycapital.cryptobot.gdax.common.OrderSide;
 import com.mistrycapital.cryptobot.gdax.common.OrderType;
+import com.mistrycapital.cryptobot.gdax.common.Product;
 
 import java.util.UUID;
 
 public class Received extends OrderGdaxMessage {
+	private static final int PRICE = 1;
+	private static final int SIZE = 2;
+	private static final int FUNDS = 4;
+	private static final int CLIENT_OID = 8;
+
+	/** Bit set of fields already decoded */
+	private int decoded;
 	/** Price */
-	private final double price;
+	private double price;
 	/** Size */
-	private final double size;
+	private double size;
 	/** Funds (for some market orders) */
-	private final double funds;
-	/** Limit or market order */
-	private final OrderType orderType;
+	private double funds;
+	/** Limit or market order, null until decoded */
+	private OrderType orderType;
 	/** Client oid, if exists, null otherwise */
-	private final UUID clientOid;
+	private UUID clientOid;
 
 	public Received(JsonObject json) {
 		super(json);
-		price = json.has("price") ? Double.parseDouble(json.get("price").getAsString()) : Double.NaN;
-		size = json.has("size") ? Double.parseDouble(json.get("size").getAsString()) : Double.NaN;
-		funds = json.has("funds") ? Double.parseDouble(json.get("funds").getAsString()) : Double.NaN;
-		orderType = OrderType.parse(json.get("order_type").getAsString());
-		clientOid = json.has("client_oid") ? UUID.fromString(json.get("client_oid").getAsString()) : null;
+	}
+
+	public Received(String json) {
+		super(json);
+	}
+
+	/** Creates a message from already decoded fields */
+	Received(long timeMicros, Product product, long sequence, UUID orderId, OrderSide side,
+		double price, double size, double funds, OrderType orderType, UUID clientOid)
+	{
+		super(timeMicros, product, sequence, orderId, side);
+		this.price = price;
+		this.size = size;
+		this.funds = funds;
+		this.orderType = orderType;
+		this.clientOid = clientOid;
+		decoded = PRICE | SIZE | FUNDS | CLIENT_OID;
 	}
 
 	@Override
@@ -38,26 +59,44 @@ public class Received extends OrderGdaxMessage {
 
 	/** Price */
 	public final double getPrice() {
+		if((decoded & PRICE) == 0) {
+			price = RawJson.doubleValue(json, "\"price\"", Double.NaN);
+			decoded |= PRICE;
+		}
 		return price;
 	}
 
 	/** Size */
 	public final double getSize() {
+		if((decoded & SIZE) == 0) {
+			size = RawJson.doubleValue(json, "\"size\"", Double.NaN);
+			decoded |= SIZE;
+		}
 		return size;
 	}
 
 	/** Funds (for some market orders) */
 	public final double getFunds() {
+		if((decoded & FUNDS) == 0) {
+			funds = RawJson.doubleValue(json, "\"funds\"", Double.NaN);
+			decoded |= FUNDS;
+		}
 		return funds;
 	}
 
 	/** Limit or market order */
 	public final OrderType getOrderType() {
+		if(orderType == null)
+			orderType = OrderType.parse(RawJson.requiredValue(json, "\"order_type\""));
 		return orderType;
 	}
 
 	/** Client oid, if exists, null otherwise */
 	public final UUID getClientOid() {
+		if((decoded & CLIENT_OID) == 0) {
+			clientOid = RawJson.uuidValue(json, "\"client_oid\"");
+			decoded |= CLIENT_OID;
+		}
 		return clientOid;
 	}
 }
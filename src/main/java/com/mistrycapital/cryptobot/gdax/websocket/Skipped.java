@@ -0,0 +1,26 @@
+package com.mistrycapital.cryptobot.gdax.websocket;
+
+import com.mistrycapital.cryptobot.gdax.common.Product;
+
+/**
+ * Message of a type no subscriber is interested in. Only the header fields needed for sequence gap
+ * checks are decoded
+ */
+final class Skipped extends CommonGdaxMessage {
+	private final Type type;
+
+	Skipped(Type type, long timeMicros, Product product, long sequence) {
+		super(timeMicros, product, sequence);
+		this.type = type;
+	}
+
+	@Override
+	public Type getType() {
+		return type;
+	}
+
+	@Override
+	public void process(final GdaxMessageProcessor processor) {
+		// nothing to do - no processor is interested in this message
+	}
+}
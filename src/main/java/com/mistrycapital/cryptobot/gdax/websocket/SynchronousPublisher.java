@@ -21,13 +21,18 @@ class SynchronousPublisher<T> implements Publisher<T> {
 	}
 
 	void submit(final T message) {
-		for(int i = 0; i < subscribers.size(); i++) {
+		submit(message, subscribers);
+	}
+
+	/** Submits the message to the given subscribers only */
+	void submit(final T message, final List<Subscriber<? super T>> targets) {
+		for(int i = 0; i < targets.size(); i++) {
 			try {
-				subscribers.get(i).onNext(message);
+				targets.get(i).onNext(message);
 			} catch(Exception e) {
 				log.error("Error thrown by SynchronousPublisher subscriber", e);
 				try {
-					subscribers.get(i).onError(e);
+					targets.get(i).onError(e);
 				} catch(Exception e2) {}
 			}
 		}
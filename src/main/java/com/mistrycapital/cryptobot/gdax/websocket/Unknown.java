@@ -1,12 +1,21 @@
 package com.mistrycapital.cryptobot.gdax.websocket;
 
 import com.google.gson.JsonObject;
+import com.mistrycapital.cryptobot.gdax.common.Product;
 
 public class Unknown extends CommonGdaxMessage {
 	public Unknown(JsonObject json) {
 		super(json);
 	}
 
+	public Unknown(String json) {
+		super(json);
+	}
+
+	Unknown(long timeMicros, Product product, long sequence) {
+		super(timeMicros, product, sequence);
+	}
+
 	@Override
 	public Type getType() {
 		return Type.UNKNOWN;
@@ -2,6 +2,8 @@ package com.mistrycapital.cryptobot.marketmaking;
 
 import com.mistrycapital.cryptobot.book.OrderBookManager;
 import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessage;
+import com.mistrycapital.cryptobot.sim.BatchQueue;
+import com.mistrycapital.cryptobot.sim.GdaxEventLogReader;
 import com.mistrycapital.cryptobot.sim.GdaxMessageFileReader;
 import com.mistrycapital.cryptobot.sim.GdaxMessageTranslator;
 import com.mistrycapital.cryptobot.sim.SimTimeKeeper;
@@ -12,9 +14,6 @@ import org.slf4j.Logger;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 
 public class SpreadSim {
 	private static final Logger log = MCLoggerFactory.getLogger();
@@ -24,29 +23,48 @@ public class SpreadSim {
 		MCProperties properties = new MCProperties();
 		Path dataDir = Paths.get(properties.getProperty("dataDir"));
 		log.debug("Reading data from " + dataDir);
+		final int decodeThreads = properties.getIntProperty("sim.decodeThreads",
+			Math.max(1, Runtime.getRuntime().availableProcessors() - 2));
+		final int readAheadEntries = properties.getIntProperty("sim.readAheadEntries", 2);
+		final boolean useEventLogs = properties.getBooleanProperty("sim.useEventLogs", false);
 
 		SimTimeKeeper timeKeeper = new SimTimeKeeper();
 		OrderBookManager orderBookManager = new OrderBookManager(timeKeeper);
 
-		BlockingQueue<GdaxMessage> messageQueue = new LinkedBlockingQueue<>();
-		BlockingQueue<String> messageStringQueue = new ArrayBlockingQueue<>(10000);
+		BatchQueue<GdaxMessage> messageQueue = new BatchQueue<>(100);
 		SpreadTracker spreadTracker = new SpreadTracker(messageQueue, timeKeeper, orderBookManager);
-		GdaxMessageTranslator translator = new GdaxMessageTranslator(messageStringQueue, messageQueue, spreadTracker);
-		GdaxMessageFileReader reader = new GdaxMessageFileReader(dataDir, messageStringQueue, translator);
-
-		Thread readerThread = new Thread(() -> {
-			try {
-				reader.readZipFile(dataDir.resolve("gdax-orders-2018-07-22.zip"));
-				translator.markDone();
-			} catch(IOException e) {
-				throw new RuntimeException(e);
-			}
-		});
-		readerThread.setDaemon(true);
-		readerThread.start();
-		Thread translatorThread = new Thread(translator);
-		translatorThread.setDaemon(true);
-		translatorThread.start();
+		if(useEventLogs) {
+			GdaxEventLogReader reader = new GdaxEventLogReader(dataDir, messageQueue, orderBookManager.getInterest());
+			Thread readerThread = new Thread(() -> {
+				try {
+					reader.readEventLog(dataDir.resolve("gdax-orders-2018-07-22.events"));
+					reader.finish();
+				} catch(IOException e) {
+					throw new RuntimeException(e);
+				}
+			});
+			readerThread.setDaemon(true);
+			readerThread.start();
+		} else {
+			BatchQueue<String> messageStringQueue = new BatchQueue<>(10);
+			GdaxMessageTranslator translator = new GdaxMessageTranslator(messageStringQueue, messageQueue,
+				orderBookManager.getInterest(), decodeThreads);
+			GdaxMessageFileReader reader = new GdaxMessageFileReader(dataDir, messageStringQueue, readAheadEntries);
+
+			Thread readerThread = new Thread(() -> {
+				try {
+					reader.readZipFile(dataDir.resolve("gdax-orders-2018-07-22.zip"));
+					reader.finish();
+				} catch(IOException e) {
+					throw new RuntimeException(e);
+				}
+			});
+			readerThread.setDaemon(true);
+			readerThread.start();
+			Thread translatorThread = new Thread(translator);
+			translatorThread.setDaemon(true);
+			translatorThread.start();
+		}
 
 		spreadTracker.run();
 	}
@@ -5,23 +5,22 @@ import com.mistrycapital.cryptobot.book.TopOfBookSubscriber;
 import com.mistrycapital.cryptobot.gdax.common.OrderSide;
 import com.mistrycapital.cryptobot.gdax.common.Product;
 import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessage;
-import com.mistrycapital.cryptobot.sim.DoneNotificationRecipient;
+import com.mistrycapital.cryptobot.sim.BatchQueue;
 import com.mistrycapital.cryptobot.sim.SimTimeKeeper;
+import com.mistrycapital.cryptobot.sim.StageTimer;
 import com.mistrycapital.cryptobot.util.MCLoggerFactory;
 import org.slf4j.Logger;
 
-import java.util.concurrent.BlockingQueue;
+import java.util.List;
 
-public class SpreadTracker implements Runnable, DoneNotificationRecipient, TopOfBookSubscriber {
+public class SpreadTracker implements Runnable, TopOfBookSubscriber {
 	private static final Logger log = MCLoggerFactory.getLogger();
 
-	private final BlockingQueue<GdaxMessage> messageQueue;
+	private final BatchQueue<GdaxMessage> messageQueue;
 	private final SimTimeKeeper timeKeeper;
 	private final OrderBookManager orderBookManager;
 
-	private boolean done = false;
-
-	SpreadTracker(BlockingQueue<GdaxMessage> messageQueue, SimTimeKeeper timeKeeper,
+	SpreadTracker(BatchQueue<GdaxMessage> messageQueue, SimTimeKeeper timeKeeper,
 		OrderBookManager orderBookManager)
 	{
 		this.messageQueue = messageQueue;
@@ -30,33 +29,28 @@ public class SpreadTracker implements Runnable, DoneNotificationRecipient, TopOf
 		orderBookManager.subscribe(this);
 	}
 
-	@Override
-	public void markDone() {
-		done = true;
-	}
-
 	@Override
 	public void run() {
+		final StageTimer timer = new StageTimer("Spread tracker");
 		int msgCount = 0;
-		while(true) {
-			final GdaxMessage message = messageQueue.poll();
-			if(message == null && done)
-				break;
-			if(message == null) {
-				try {
-					Thread.sleep(1);
-				} catch(InterruptedException e) {}
-				continue;
-			}
-
-			timeKeeper.advanceTime(message.getTimeMicros() * 1000L);
-			message.process(orderBookManager);
+		try {
+			List<GdaxMessage> messages;
+			while((messages = messageQueue.take(timer)) != null) {
+				for(GdaxMessage message : messages) {
+					timeKeeper.advanceTime(message.getTimeMicros() * 1000L);
+					message.process(orderBookManager);
 
-			if(msgCount++ % 100000 == 0) {
-				log.debug("Processed " + msgCount + " messages, num >10bp " + num10bp +
-					" num >20bp " + num20bp + " buy >10bp " + numBid10bp + " sell >10bp " + numAsk10bp);
+					if(msgCount++ % 100000 == 0) {
+						log.debug("Processed " + msgCount + " messages, num >10bp " + num10bp +
+							" num >20bp " + num20bp + " buy >10bp " + numBid10bp + " sell >10bp " + numAsk10bp);
+					}
+				}
 			}
+		} catch(InterruptedException e) {
+			throw new RuntimeException(e);
 		}
+		timer.stop();
+		log.info(timer.toString());
 	}
 
 	// only eth for now
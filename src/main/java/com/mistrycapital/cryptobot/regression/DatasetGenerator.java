@@ -1,16 +1,14 @@
 package com.mistrycapital.cryptobot.regression;
 
-import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedHistory;
 import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedSnapshot;
+import com.mistrycapital.cryptobot.forecasts.BatchForecaster;
 import com.mistrycapital.cryptobot.forecasts.ForecastCalculator;
 import com.mistrycapital.cryptobot.gdax.common.Product;
 import com.mistrycapital.cryptobot.sim.SnapshotReader;
 import com.mistrycapital.cryptobot.time.Intervalizer;
+import com.mistrycapital.cryptobot.util.FastCsvReader;
 import com.mistrycapital.cryptobot.util.MCLoggerFactory;
 import com.mistrycapital.cryptobot.util.MCProperties;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 import org.slf4j.Logger;
 
 import java.io.*;
@@ -19,6 +17,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -34,30 +33,28 @@ public class DatasetGenerator {
 	}
 
 	/**
-	 * Reads sample data and calculates forecast inputs
+	 * Reads sample data and calculates forecast inputs. Products are calculated in parallel
 	 *
+	 * @param forecastCalculators Creates a new forecast calculator for each product
 	 * @return Table of forecast inputs at each point
 	 */
-	public Table<TimeProduct> calcSignalDataset(Path dataDir, ForecastCalculator forecastCalculator)
+	public Table<TimeProduct> calcSignalDataset(Path dataDir, Supplier<ForecastCalculator> forecastCalculators)
 		throws IOException
 	{
 		final List<ConsolidatedSnapshot> snapshots =
-			SnapshotReader.readSnapshots(SnapshotReader.getSampleFiles(dataDir));
+			SnapshotReader.readSnapshots(SnapshotReader.getSampleFiles(dataDir),
+				properties.getBooleanProperty("sim.useSampleStore", false));
 
 		var intervalizer = new Intervalizer(properties);
-		var consolidatedHistory = new ConsolidatedHistory(intervalizer);
+		var batchForecaster = new BatchForecaster(intervalizer, forecastCalculators);
 
 		var columnMap = new HashMap<String,Column<TimeProduct>>();
-		for(ConsolidatedSnapshot snapshot : snapshots) {
-			consolidatedHistory.add(snapshot);
-			for(Product product : Product.FAST_VALUES) {
-				var inputVariables = forecastCalculator.getInputVariables(consolidatedHistory, product);
-
-				var key = new TimeProduct(snapshot.getTimeNanos(), product);
-				for(var entry : inputVariables.entrySet()) {
-					var column = columnMap.computeIfAbsent(entry.getKey(), k -> new Column<>());
-					column.add(key, entry.getValue());
-				}
+		for(BatchForecaster.Series series : batchForecaster.getAllInputVariables(snapshots)) {
+			for(int j = 0; j < series.names.length; j++) {
+				var column = columnMap.computeIfAbsent(series.names[j], k -> new Column<>());
+				final double[] values = series.values[j];
+				for(int i = 0; i < series.size; i++)
+					column.add(new TimeProduct(series.times[i], series.product), values[i]);
 			}
 		}
 
@@ -130,31 +127,28 @@ public class DatasetGenerator {
 	{
 		final var table = new Table<TimeProduct>();
 
-		try(
-			Reader in = Files.newBufferedReader(dataFile);
-			CSVParser parser = CSVFormat.EXCEL.withFirstRecordAsHeader().parse(in);
-		)
-		{
-			Map<String,Integer> headerMap = parser.getHeaderMap();
-			List<String> columnNames = new ArrayList<>(headerMap.keySet());
+		try(FastCsvReader reader = new FastCsvReader(Files.newBufferedReader(dataFile))) {
+			final int timeColumn = reader.getColumnIndex("unixTimestamp");
+			final int productColumn = reader.getColumnIndex("product");
+			List<String> columnNames = new ArrayList<>(Arrays.asList(reader.getHeader()));
 			columnNames.remove("unixTimestamp");
 			columnNames.remove("product");
 			List<Column<TimeProduct>> columns = columnNames.stream()
 				.map(k -> new Column<TimeProduct>())
 				.collect(Collectors.toList());
-			List<Integer> columnIndices = columnNames.stream()
-				.map(headerMap::get)
-				.collect(Collectors.toList());
+			int[] columnIndices = columnNames.stream()
+				.mapToInt(reader::getColumnIndex)
+				.toArray();
 
 			// read each row and add to columns
-			for(CSVRecord record : parser) {
-				var timeNanos = Long.parseLong(record.get("unixTimestamp")) * 1000000000L;
-				var product = Product.parse(record.get("product"));
+			while(reader.next()) {
+				var timeNanos = reader.getLong(timeColumn) * 1000000000L;
+				var product = Product.parse(reader.getString(productColumn));
 				var key = new TimeProduct(timeNanos, product);
-				for(int i = 0; i < columnNames.size(); i++) {
-					String value = record.get(columnIndices.get(i));
-					if(value != null && !value.isEmpty() && !value.equals("NaN"))
-						columns.get(i).add(key, Double.parseDouble(value));
+				for(int i = 0; i < columnIndices.length; i++) {
+					double value = reader.getDouble(columnIndices[i]);
+					if(!Double.isNaN(value))
+						columns.get(i).add(key, value);
 				}
 			}
 
@@ -0,0 +1,108 @@
+package com.mistrycapital.cryptobot.regression;
+
+import java.util.Arrays;
+
+/**
+ * Linear regression estimated one observation at a time with recursive least squares. Each update costs O(n^2) in
+ * the number of coefficients, with no history kept. Observations are weighted down by the forgetting factor every
+ * update, so the coefficients track a relationship that drifts; a factor of 1 weights all observations equally and
+ * converges to ordinary least squares. The first coefficient is the intercept
+ */
+public class RecursiveLeastSquares {
+	private final int n;
+	private final double forgetting;
+	private final double[] coeffs;
+	/** Inverse of the weighted covariance of the regressors, scaled by the error variance */
+	private final double[][] p;
+	/** Scratch for the regressors with a leading 1, P x, and x' P */
+	private final double[] x;
+	private final double[] px;
+	private final double[] xp;
+	private long count;
+
+	/**
+	 * @param initialCoeffs Coefficients to start from, intercept first
+	 * @param forgetting Weight of the previous observations at each update, in (0, 1]
+	 * @param initialVariance Variance of the initial coefficients. Small values keep the estimates close to the
+	 *                        initial coefficients until many observations have arrived
+	 */
+	public RecursiveLeastSquares(double[] initialCoeffs, double forgetting, double initialVariance) {
+		if(forgetting <= 0.0 || forgetting > 1.0)
+			throw new RuntimeException("Forgetting factor must be in (0, 1]: " + forgetting);
+		n = initialCoeffs.length;
+		this.forgetting = forgetting;
+		coeffs = initialCoeffs.clone();
+		p = new double[n][n];
+		for(int i = 0; i < n; i++)
+			p[i][i] = initialVariance;
+		x = new double[n];
+		px = new double[n];
+		xp = new double[n];
+	}
+
+	/**
+	 * Adds an observation. Observations with any NaN are ignored
+	 *
+	 * @param regressors Values of the regressors, excluding the intercept
+	 */
+	public void update(double[] regressors, double y) {
+		if(Double.isNaN(y))
+			return;
+		x[0] = 1.0;
+		for(int i = 1; i < n; i++) {
+			x[i] = regressors[i - 1];
+			if(Double.isNaN(x[i]))
+				return;
+		}
+
+		double xpx = 0.0;
+		for(int i = 0; i < n; i++) {
+			double pxi = 0.0;
+			double xpi = 0.0;
+			for(int j = 0; j < n; j++) {
+				pxi += p[i][j] * x[j];
+				xpi += x[j] * p[j][i];
+			}
+			px[i] = pxi;
+			xp[i] = xpi;
+			xpx += x[i] * pxi;
+		}
+		final double denominator = forgetting + xpx;
+		final double error = y - predictX();
+		for(int i = 0; i < n; i++) {
+			final double gain = px[i] / denominator;
+			coeffs[i] += gain * error;
+			for(int j = 0; j < n; j++)
+				p[i][j] = (p[i][j] - gain * xp[j]) / forgetting;
+		}
+		count++;
+	}
+
+	/**
+	 * @param regressors Values of the regressors, excluding the intercept
+	 * @return Prediction with the current coefficients
+	 */
+	public double predict(double[] regressors) {
+		double value = coeffs[0];
+		for(int i = 1; i < n; i++)
+			value += coeffs[i] * regressors[i - 1];
+		return value;
+	}
+
+	private double predictX() {
+		double value = 0.0;
+		for(int i = 0; i < n; i++)
+			value += coeffs[i] * x[i];
+		return value;
+	}
+
+	/** @return Copy of the current coefficients, intercept first */
+	public double[] getCoefficients() {
+		return Arrays.copyOf(coeffs, n);
+	}
+
+	/** @return Number of observations used */
+	public long getCount() {
+		return count;
+	}
+}
@@ -0,0 +1,82 @@
+package com.mistrycapital.cryptobot.sim;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Bounded queue of batches connecting two stages of the replay pipeline. Whole batches are handed off so the
+ * queue lock is taken once per batch rather than once per message, and the consumer drains every batch that is
+ * ready at once. The end of the stream is marked with a sentinel, so consumers block instead of polling and
+ * need no done flag. Each end should be used by a single thread.
+ */
+public class BatchQueue<T> {
+	/** Number of items producers should put in a batch */
+	public static final int BATCH_SIZE = 1000;
+
+	/** Marks the end of the stream */
+	private final List<T> endOfStream = new ArrayList<>(0);
+	private final BlockingQueue<List<T>> queue;
+	/** Batches already drained by the consumer but not yet taken */
+	private final Queue<List<T>> drained;
+
+	/**
+	 * @param capacity Maximum number of batches waiting in the queue
+	 */
+	public BatchQueue(int capacity) {
+		queue = new ArrayBlockingQueue<>(capacity);
+		drained = new ArrayDeque<>(capacity);
+	}
+
+	/**
+	 * Hands off the given batch, blocking while the queue is full. Empty batches are dropped. Time spent blocked
+	 * is counted as idle for the given stage
+	 */
+	public void put(List<T> batch, StageTimer timer)
+		throws InterruptedException
+	{
+		if(batch.isEmpty())
+			return;
+		if(!queue.offer(batch)) {
+			final long waitStartNanos = System.nanoTime();
+			queue.put(batch);
+			timer.addIdleNanos(System.nanoTime() - waitStartNanos);
+		}
+	}
+
+	/**
+	 * Marks the end of the stream. Nothing may be put after this
+	 */
+	public void close(StageTimer timer)
+		throws InterruptedException
+	{
+		final long waitStartNanos = System.nanoTime();
+		queue.put(endOfStream);
+		timer.addIdleNanos(System.nanoTime() - waitStartNanos);
+	}
+
+	/**
+	 * Takes the next batch, blocking until one is ready. Time spent blocked is counted as idle for the given stage
+	 *
+	 * @return Next batch, or null if the stream has ended
+	 */
+	public List<T> take(StageTimer timer)
+		throws InterruptedException
+	{
+		if(drained.isEmpty()) {
+			if(queue.drainTo(drained) == 0) {
+				final long waitStartNanos = System.nanoTime();
+				drained.add(queue.take());
+				timer.addIdleNanos(System.nanoTime() - waitStartNanos);
+				queue.drainTo(drained);
+			}
+		}
+		final List<T> batch = drained.peek();
+		if(batch == endOfStream)
+			return null; // leave the sentinel so later calls also see the end
+		return drained.remove();
+	}
+}
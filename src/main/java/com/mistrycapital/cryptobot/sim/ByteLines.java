@@ -0,0 +1,81 @@
+package com.mistrycapital.cryptobot.sim;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Batch of lines framed in a shared byte buffer. Each line only becomes a String when it is read, so the
+ * conversion happens on whichever thread decodes the batch rather than on the reader
+ */
+final class ByteLines extends AbstractList<String> implements RandomAccess {
+	private final byte[] buffer;
+	/** Start offset of each line in the buffer */
+	private final int[] starts;
+	/** End offset (exclusive) of each line in the buffer */
+	private final int[] ends;
+	private final int size;
+
+	private ByteLines(byte[] buffer, int[] starts, int[] ends, int size) {
+		this.buffer = buffer;
+		this.starts = starts;
+		this.ends = ends;
+		this.size = size;
+	}
+
+	@Override
+	public String get(int index) {
+		if(index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Line " + index + " of " + size);
+		return new String(buffer, starts[index], ends[index] - starts[index], StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Frames lines in the given buffer. Empty lines are skipped and a trailing carriage return is dropped
+	 */
+	static class Framer {
+		private final byte[] buffer;
+		private final int length;
+		private int position;
+
+		Framer(byte[] buffer, int length) {
+			this.buffer = buffer;
+			this.length = length;
+			position = 0;
+		}
+
+		/** @return true if there are more bytes to frame */
+		boolean hasMore() {
+			return position < length;
+		}
+
+		/**
+		 * @return Batch of up to maxLines of the next lines, which may be empty at the end of the buffer
+		 */
+		ByteLines next(int maxLines) {
+			final int[] starts = new int[maxLines];
+			final int[] ends = new int[maxLines];
+			int count = 0;
+			while(count < maxLines && position < length) {
+				final int start = position;
+				int end = start;
+				while(end < length && buffer[end] != '\n')
+					end++;
+				position = end + 1;
+				if(end > start && buffer[end - 1] == '\r')
+					end--;
+				if(end > start) {
+					starts[count] = start;
+					ends[count] = end;
+					count++;
+				}
+			}
+			return new ByteLines(buffer, starts, ends, count);
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package com.mistrycapital.cryptobot.sim;
+
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedSnapshot;
+import com.mistrycapital.cryptobot.appender.IntervalDataAppender;
+import com.mistrycapital.cryptobot.book.OrderBookManager;
+import com.mistrycapital.cryptobot.dynamic.DynamicTracker;
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessage;
+import com.mistrycapital.cryptobot.time.Intervalizer;
+import com.mistrycapital.cryptobot.util.MCLoggerFactory;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Samples each day of recorded data independently on a pool of workers. Every worker replays one day with its own
+ * book, tracker and time keeper, which works because the recorder writes book snapshots at the start of each hourly
+ * file. Days are written out in date order to their own samples-yyyy-MM-dd.csv file, and the first interval of each
+ * day gets its return from the last prices of the day before, as it would in a single sequential replay
+ */
+public class DayParallelSampler {
+	private static final Logger log = MCLoggerFactory.getLogger();
+
+	private final Path dataDir;
+	private final String baseFilename;
+	private final Intervalizer intervalizer;
+	private final int dayThreads;
+	private final boolean useEventLogs;
+
+	/**
+	 * @param useEventLogs true to replay binary event logs from {@link GdaxEventLogConverter} instead of zips
+	 */
+	public DayParallelSampler(Path dataDir, String baseFilename, Intervalizer intervalizer, int dayThreads,
+		boolean useEventLogs)
+	{
+		this.dataDir = dataDir;
+		this.baseFilename = baseFilename;
+		this.intervalizer = intervalizer;
+		this.dayThreads = Math.max(1, dayThreads);
+		this.useEventLogs = useEventLogs;
+	}
+
+	/**
+	 * Samples every day that has not been checkpointed yet
+	 */
+	public void sampleAll()
+		throws IOException
+	{
+		final List<Path> dayPaths = GdaxMessageFileReader.findDailyFiles(dataDir, useEventLogs ? "events" : "zip")
+			.stream()
+			.filter(path -> GdaxMessageFileReader.hasNoCheckpoint(getZipPath(path)))
+			.collect(Collectors.toList());
+		log.info("Sampling " + dayPaths.size() + " days in " + dataDir + " on " + dayThreads + " threads");
+
+		final ExecutorService workers = Executors.newFixedThreadPool(dayThreads);
+		try {
+			final List<Future<List<ConsolidatedSnapshot>>> days = new ArrayList<>(dayPaths.size());
+			for(Path dayPath : dayPaths)
+				days.add(workers.submit(() -> sampleDay(dayPath)));
+
+			// last snapshot of the previous day sampled, to carry last prices across the day boundary
+			ConsolidatedSnapshot prevSnapshot = null;
+			for(int i = 0; i < dayPaths.size(); i++) {
+				final List<ConsolidatedSnapshot> snapshots = days.get(i).get();
+				days.set(i, null);
+				if(!snapshots.isEmpty())
+					snapshots.set(0, snapshots.get(0).withPrevSnapshot(prevSnapshot));
+				writeDay(GdaxMessageFileReader.getDate(dayPaths.get(i)), snapshots);
+				GdaxMessageFileReader.writeCheckpoint(getZipPath(dayPaths.get(i)));
+				if(!snapshots.isEmpty())
+					prevSnapshot = snapshots.get(snapshots.size() - 1);
+			}
+		} catch(InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		} finally {
+			workers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Replays one day from scratch
+	 *
+	 * @return Snapshots of every interval in the day, the last one taken at the end of the day's last interval
+	 */
+	private List<ConsolidatedSnapshot> sampleDay(Path dayPath) {
+		final long startNanos = System.nanoTime();
+		final SimTimeKeeper timeKeeper = new SimTimeKeeper();
+		final OrderBookManager orderBookManager = new OrderBookManager(timeKeeper);
+		final DynamicTracker dynamicTracker = new DynamicTracker();
+		final List<ConsolidatedSnapshot> snapshots = new ArrayList<>();
+		final BatchQueue<GdaxMessage> messageQueue = new BatchQueue<>(100);
+		final GdaxSampleWriter writer = new GdaxSampleWriter(timeKeeper, intervalizer, orderBookManager,
+			dynamicTracker, (timeMs, snapshot) -> snapshots.add(snapshot), messageQueue);
+
+		final Thread readerThread;
+		if(useEventLogs) {
+			final GdaxEventLogReader reader = new GdaxEventLogReader(dataDir, messageQueue, writer.getInterest());
+			readerThread = new Thread(() -> {
+				try {
+					reader.readEventLog(dayPath);
+				} catch(IOException e) {
+					throw new RuntimeException(e);
+				} finally {
+					reader.finish();
+				}
+			});
+		} else {
+			final BatchQueue<String> messageStringQueue = new BatchQueue<>(10);
+			final GdaxMessageFileReader reader = new GdaxMessageFileReader(dataDir, messageStringQueue);
+			final Thread translatorThread =
+				new Thread(new GdaxMessageTranslator(messageStringQueue, messageQueue, writer.getInterest()));
+			translatorThread.setDaemon(true);
+			translatorThread.start();
+			readerThread = new Thread(() -> {
+				try {
+					reader.readZipFile(dayPath);
+				} catch(IOException e) {
+					throw new RuntimeException(e);
+				} finally {
+					reader.finish();
+				}
+			});
+		}
+		readerThread.setDaemon(true);
+		readerThread.start();
+
+		writer.sample();
+		log.info("Sampled " + dayPath + " in " + (System.nanoTime() - startNanos) / 1000000000.0 + "s");
+		return snapshots;
+	}
+
+	/** Writes all of a day's snapshots to that day's file */
+	private void writeDay(LocalDate date, List<ConsolidatedSnapshot> snapshots)
+		throws IOException
+	{
+		final SimTimeKeeper timeKeeper = new SimTimeKeeper();
+		final IntervalDataAppender appender = IntervalDataAppender.forDate(dataDir, baseFilename, date, timeKeeper);
+		try {
+			for(ConsolidatedSnapshot snapshot : snapshots) {
+				timeKeeper.advanceTime(snapshot.getTimeNanos());
+				appender.recordSnapshot(timeKeeper.epochMs(), snapshot);
+			}
+		} finally {
+			appender.close();
+		}
+	}
+
+	/** @return Zip whose checkpoint covers the given day file */
+	private Path getZipPath(Path dayPath) {
+		return useEventLogs ? GdaxEventLogConverter.getZipPath(dayPath) : dayPath;
+	}
+}
@@ -0,0 +1,194 @@
+package com.mistrycapital.cryptobot.sim;
+
+import com.mistrycapital.cryptobot.forecasts.ForecastFactory;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+import com.mistrycapital.cryptobot.util.MCLoggerFactory;
+import com.mistrycapital.cryptobot.util.MCProperties;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Forecast of every product at every interval of a simulation, in primitive arrays searched by time. The cache can
+ * be saved to a binary file named by a hash of the forecast configuration, along with a fingerprint of each sample
+ * file it was calculated from, so a later run only has to calculate forecasts for sample files that are new or
+ * have changed
+ */
+class ForecastCache {
+	private static final Logger log = MCLoggerFactory.getLogger();
+
+	/** "GDXF" */
+	private static final int MAGIC = 0x47445846;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+	/** Name hash, size and last modified time of a sample file */
+	private static final int FINGERPRINT_SIZE = 24;
+	/** Forecast properties that change how forecasts are run but not their values, so are left out of the key */
+	private static final Set<String> NON_SEMANTIC_KEYS = Set.of("forecast.threads");
+
+	private long[] times = new long[365 * 24 * 12];
+	private double[] forecasts = new double[times.length * Product.count];
+	private int size;
+
+	void add(long timeNanos, double[] productForecasts) {
+		if(size == times.length) {
+			times = Arrays.copyOf(times, size * 2);
+			forecasts = Arrays.copyOf(forecasts, size * 2 * Product.count);
+		}
+		times[size] = timeNanos;
+		System.arraycopy(productForecasts, 0, forecasts, size * Product.count, Product.count);
+		size++;
+	}
+
+	double get(long timeNanos, Product product) {
+		final int index = Arrays.binarySearch(times, 0, size, timeNanos);
+		if(index < 0)
+			throw new RuntimeException("No cached forecast at " + timeNanos);
+		return forecasts[index * Product.count + product.getIndex()];
+	}
+
+	/** @return Number of intervals cached */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Drops the forecasts at or after the given time
+	 */
+	void truncate(long timeNanos) {
+		final int index = Arrays.binarySearch(times, 0, size, timeNanos);
+		size = index >= 0 ? index : -index - 1;
+	}
+
+	/**
+	 * @return Hash of every forecast and history property, the version of every forecast and the bytecode of the
+	 * forecast calculation classes, which together determine the forecasts calculated from given samples. Forecasts
+	 * not configured are included too, since a forecast may build others as members or as its base
+	 */
+	static long configKey(MCProperties properties) {
+		final StringBuilder builder = new StringBuilder();
+		for(Map.Entry<String,Integer> version : ForecastFactory.getVersions().entrySet())
+			builder.append(version.getKey()).append(" version ").append(version.getValue()).append('\n');
+		for(String name : new TreeSet<>(properties.stringPropertyNames()))
+			if((name.startsWith("forecast.") || name.startsWith("history.")) && !NON_SEMANTIC_KEYS.contains(name))
+				builder.append(name).append('=').append(properties.getProperty(name)).append('\n');
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(builder.toString().getBytes(StandardCharsets.UTF_8));
+			for(Class<?> calculationClass : ForecastFactory.getCalculationClasses())
+				digest.update(classBytes(calculationClass));
+			return ByteBuffer.wrap(digest.digest()).getLong();
+		} catch(NoSuchAlgorithmException | IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static byte[] classBytes(Class<?> cls)
+		throws IOException
+	{
+		try(InputStream in = cls.getResourceAsStream("/" + cls.getName().replace('.', '/') + ".class")) {
+			if(in == null)
+				throw new IOException("Could not find the class file of " + cls.getName());
+			return in.readAllBytes();
+		}
+	}
+
+	/** @return Cache file in the data directory for the given configuration key */
+	static Path getCachePath(Path dataDir, long key) {
+		return dataDir.resolve("forecast-cache-" + Long.toHexString(key) + ".bin");
+	}
+
+	/**
+	 * Replaces the contents of this cache with those saved in the given file, if it was saved with the same key
+	 *
+	 * @return Number of leading sample files that are unchanged since the cache was saved. Forecasts calculated
+	 * from those files are valid; any from later files must be recalculated. 0 if there is no usable cache
+	 */
+	int read(Path cacheFile, long key, List<Path> sampleFiles)
+		throws IOException
+	{
+		size = 0;
+		if(!Files.exists(cacheFile))
+			return 0;
+		final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(cacheFile)).order(ByteOrder.LITTLE_ENDIAN);
+		if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getLong(8) != key
+			|| buffer.getInt(16) != Product.count)
+		{
+			log.info("Ignoring forecast cache with a different version or configuration: " + cacheFile);
+			return 0;
+		}
+		final int fileCount = buffer.getInt(20);
+		final int rows = buffer.getInt(24);
+		// forecasts from removed files cannot be told apart, so start again
+		if(fileCount > sampleFiles.size())
+			return 0;
+
+		buffer.position(HEADER_SIZE);
+		int unchanged = 0;
+		final ByteBuffer fingerprint = ByteBuffer.allocate(FINGERPRINT_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		for(int i = 0; i < fileCount; i++) {
+			fingerprint(sampleFiles.get(i), fingerprint.clear());
+			if(buffer.getLong() != fingerprint.getLong(0) || buffer.getLong() != fingerprint.getLong(8)
+				|| buffer.getLong() != fingerprint.getLong(16))
+			{
+				buffer.position(HEADER_SIZE + fileCount * FINGERPRINT_SIZE);
+				break;
+			}
+			unchanged++;
+		}
+
+		times = new long[Math.max(rows, 1024)];
+		forecasts = new double[times.length * Product.count];
+		buffer.asLongBuffer().get(times, 0, rows);
+		buffer.position(buffer.position() + rows * 8);
+		buffer.asDoubleBuffer().get(forecasts, 0, rows * Product.count);
+		size = rows;
+		return unchanged;
+	}
+
+	/**
+	 * Saves this cache with the given key and fingerprints of the sample files it was calculated from. The cache is
+	 * written to a temporary file that is renamed into place once complete
+	 */
+	void write(Path cacheFile, long key, List<Path> sampleFiles)
+		throws IOException
+	{
+		final ByteBuffer buffer = ByteBuffer.allocate(
+			HEADER_SIZE + sampleFiles.size() * FINGERPRINT_SIZE + size * 8 + size * Product.count * 8)
+			.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putLong(key).putInt(Product.count).putInt(sampleFiles.size())
+			.putInt(size);
+		buffer.position(HEADER_SIZE);
+		for(Path sampleFile : sampleFiles)
+			fingerprint(sampleFile, buffer);
+		buffer.asLongBuffer().put(times, 0, size);
+		buffer.position(buffer.position() + size * 8);
+		buffer.asDoubleBuffer().put(forecasts, 0, size * Product.count);
+
+		final Path tmpPath = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+		Files.write(tmpPath, buffer.array());
+		Files.move(tmpPath, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static void fingerprint(Path sampleFile, ByteBuffer buffer)
+		throws IOException
+	{
+		buffer.putLong(sampleFile.getFileName().toString().hashCode());
+		buffer.putLong(Files.size(sampleFile));
+		buffer.putLong(Files.getLastModifiedTime(sampleFile).toMillis());
+	}
+}
@@ -0,0 +1,157 @@
+package com.mistrycapital.cryptobot.sim;
+
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxEventCodec;
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessage;
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessageParser;
+import com.mistrycapital.cryptobot.util.MCLoggerFactory;
+import org.slf4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Converts recorded gdax-orders-yyyy-MM-dd.zip files into binary event logs (gdax-orders-yyyy-MM-dd.events) that
+ * replay without any JSON parsing. Each day is converted on its own thread
+ */
+public class GdaxEventLogConverter {
+	private static final Logger log = MCLoggerFactory.getLogger();
+
+	/** Size of the write buffer for each day */
+	private static final int BUFFER_SIZE = 8 * 1024 * 1024;
+
+	private final Path dataDir;
+	private final int threads;
+
+	public GdaxEventLogConverter(Path dataDir, int threads) {
+		this.dataDir = dataDir;
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Converts every zip in the data dir that does not yet have an event log
+	 */
+	public void convertAll()
+		throws IOException
+	{
+		final List<Path> zipPaths = GdaxMessageFileReader.findDailyFiles(dataDir, "zip").stream()
+			.filter(zipPath -> !Files.exists(getEventLogPath(zipPath)))
+			.collect(Collectors.toList());
+		log.info("Converting " + zipPaths.size() + " zip files in " + dataDir + " on " + threads + " threads");
+
+		final ExecutorService converters = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<?>> conversions = new ArrayList<>(zipPaths.size());
+			for(Path zipPath : zipPaths) {
+				conversions.add(converters.submit(() -> {
+					convert(zipPath);
+					return null;
+				}));
+			}
+			for(int i = 0; i < zipPaths.size(); i++) {
+				try {
+					conversions.get(i).get();
+				} catch(ExecutionException e) {
+					log.error("Could not convert " + zipPaths.get(i), e.getCause());
+				}
+			}
+		} catch(InterruptedException e) {
+			throw new RuntimeException(e);
+		} finally {
+			converters.shutdown();
+		}
+	}
+
+	/**
+	 * Converts one zip file. The log is written to a temporary file that is only renamed into place once complete,
+	 * so an interrupted conversion is never replayed
+	 */
+	public static void convert(Path zipPath)
+		throws IOException
+	{
+		final long startNanos = System.nanoTime();
+		final Path eventLogPath = getEventLogPath(zipPath);
+		final Path tmpPath = eventLogPath.resolveSibling(eventLogPath.getFileName() + ".tmp");
+		final GdaxMessageParser messageParser = new GdaxMessageParser();
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		long messageCount = 0;
+
+		try(
+			ZipFile zipFile = new ZipFile(zipPath.toFile());
+			FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)
+		) {
+			GdaxEventCodec.putFileHeader(buffer);
+			final List<ZipEntry> entries = zipFile.stream()
+				.sorted(GdaxMessageFileReader.hourlyJsonSorter)
+				.collect(Collectors.toList());
+			for(ZipEntry entry : entries) {
+				BufferedReader reader = new BufferedReader(new InputStreamReader(zipFile.getInputStream(entry)));
+				String line;
+				while((line = reader.readLine()) != null) {
+					final GdaxMessage message;
+					try {
+						message = messageParser.parse(line);
+						if(message == null)
+							continue;
+						final int size = GdaxEventCodec.encodedSize(message);
+						if(buffer.remaining() < size) {
+							write(channel, buffer);
+							if(buffer.capacity() < size)
+								buffer = ByteBuffer.allocate(size);
+						}
+						final int start = buffer.position();
+						try {
+							GdaxEventCodec.encode(message, buffer);
+						} catch(RuntimeException e) {
+							buffer.position(start);
+							throw e;
+						}
+						messageCount++;
+					} catch(Exception e) {
+						log.error("Error in converting line: " + line, e);
+					}
+				}
+			}
+			write(channel, buffer);
+		}
+		Files.move(tmpPath, eventLogPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		log.info("Converted " + messageCount + " messages from " + zipPath + " in "
+			+ (System.nanoTime() - startNanos) / 1000000000.0 + "s");
+	}
+
+	/** Writes out and clears the buffer */
+	private static void write(FileChannel channel, ByteBuffer buffer)
+		throws IOException
+	{
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	/** @return Path of the event log converted from the given zip */
+	static Path getEventLogPath(Path zipPath) {
+		return zipPath.resolveSibling(zipPath.getFileName().toString().replace(".zip", ".events"));
+	}
+
+	/** @return Path of the zip the given event log was converted from */
+	static Path getZipPath(Path eventLogPath) {
+		return eventLogPath.resolveSibling(eventLogPath.getFileName().toString().replace(".events", ".zip"));
+	}
+}
@@ -0,0 +1,162 @@
+package com.mistrycapital.cryptobot.sim;
+
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxEventCodec;
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessage;
+import com.mistrycapital.cryptobot.util.MCLoggerFactory;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Reads binary event logs written by {@link GdaxEventLogConverter} and passes on the decoded messages in batches.
+ * Takes the place of both the file reader and the translator when replaying. Events of uninteresting types are
+ * skipped without being decoded. Shares checkpoints with the zip files the logs were converted from
+ */
+public class GdaxEventLogReader implements Runnable {
+	private static final Logger log = MCLoggerFactory.getLogger();
+
+	/** Initial size of the read buffer; grows if a single book event is larger */
+	private static final int BUFFER_SIZE = 8 * 1024 * 1024;
+
+	private final Path dataDir;
+	private final BatchQueue<GdaxMessage> messageQueue;
+	private final Set<GdaxMessage.Type> interest;
+	private final StageTimer timer;
+	private ByteBuffer buffer;
+	/** Day to resume reading from, or null to read all unchecked logs */
+	private LocalDate resumeDate;
+
+	/**
+	 * @param interest Message types the consumer will process. Other events are skipped
+	 */
+	public GdaxEventLogReader(Path dataDir, BatchQueue<GdaxMessage> messageQueue, Set<GdaxMessage.Type> interest) {
+		this.dataDir = dataDir;
+		this.messageQueue = messageQueue;
+		this.interest = interest;
+		timer = new StageTimer("Event log reader");
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	}
+
+	/**
+	 * Starts reading from the log of the day containing the given time rather than the first unchecked log. Logs
+	 * from that day on are read even if checked, since the reader may have checked them before the consumer caught up
+	 */
+	public void resumeFrom(Instant time) {
+		resumeDate = time.atZone(ZoneOffset.UTC).toLocalDate();
+	}
+
+	@Override
+	public void run() {
+		timer.start();
+		try {
+			log.info("Looking for event logs in " + dataDir);
+			final List<Path> eventLogPaths = GdaxMessageFileReader.findDailyFiles(dataDir, "events").stream()
+				.filter(path -> resumeDate == null
+					? GdaxMessageFileReader.hasNoCheckpoint(GdaxEventLogConverter.getZipPath(path))
+					: !GdaxMessageFileReader.getDate(path).isBefore(resumeDate))
+				.collect(Collectors.toList());
+			for(Path eventLogPath : eventLogPaths) {
+				final long startNanos = System.nanoTime();
+				readEventLog(eventLogPath);
+				GdaxMessageFileReader.writeCheckpoint(GdaxEventLogConverter.getZipPath(eventLogPath));
+				log.info("Completed " + eventLogPath + " in " + (System.nanoTime() - startNanos) / 1000000000.0 + "s");
+			}
+		} catch(IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			finish();
+		}
+	}
+
+	/**
+	 * Marks the end of the message stream. Must be called once after the last log is read
+	 */
+	public void finish() {
+		try {
+			messageQueue.close(timer);
+		} catch(InterruptedException e) {
+			throw new RuntimeException(e);
+		} finally {
+			timer.stop();
+		}
+		log.info(timer.toString());
+	}
+
+	/**
+	 * Reads all events in the given log and sends the interesting ones to the queue in batches
+	 */
+	public void readEventLog(Path eventLogPath)
+		throws IOException
+	{
+		try(FileChannel channel = FileChannel.open(eventLogPath, StandardOpenOption.READ)) {
+			buffer.clear();
+			buffer.flip();
+			if(!fill(channel, GdaxEventCodec.FILE_HEADER_SIZE))
+				throw new RuntimeException("Empty event log " + eventLogPath);
+			GdaxEventCodec.checkFileHeader(buffer);
+
+			List<GdaxMessage> batch = new ArrayList<>(BatchQueue.BATCH_SIZE);
+			while(true) {
+				if(buffer.remaining() < GdaxEventCodec.RECORD_SIZE
+					|| buffer.remaining() < GdaxEventCodec.eventSize(buffer))
+				{
+					final int needed = buffer.remaining() < GdaxEventCodec.RECORD_SIZE
+						? GdaxEventCodec.RECORD_SIZE : GdaxEventCodec.eventSize(buffer);
+					if(fill(channel, needed))
+						continue;
+					if(buffer.hasRemaining())
+						throw new RuntimeException("Truncated event log " + eventLogPath);
+					break;
+				}
+
+				final GdaxMessage message = GdaxEventCodec.decode(buffer, interest);
+				if(message != null) {
+					batch.add(message);
+					if(batch.size() == BatchQueue.BATCH_SIZE) {
+						messageQueue.put(batch, timer);
+						batch = new ArrayList<>(BatchQueue.BATCH_SIZE);
+					}
+				}
+			}
+			messageQueue.put(batch, timer);
+		} catch(InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Reads more of the file into the buffer, growing the buffer if it cannot hold the needed bytes
+	 *
+	 * @return false if the end of the file was reached before the needed bytes were available
+	 */
+	private boolean fill(FileChannel channel, int needed)
+		throws IOException
+	{
+		if(buffer.capacity() < needed) {
+			final ByteBuffer larger = ByteBuffer.allocateDirect(needed);
+			larger.put(buffer);
+			buffer = larger;
+		} else {
+			buffer.compact();
+		}
+		while(buffer.position() < needed) {
+			if(channel.read(buffer) < 0) {
+				buffer.flip();
+				return false;
+			}
+		}
+		buffer.flip();
+		return true;
+	}
+}
@@ -3,16 +3,20 @@ package com.mistrycapital.cryptobot.sim;
 import com.mistrycapital.cryptobot.util.MCLoggerFactory;
 import org.slf4j.Logger;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.Comparator;
-import java.util.List;
-import java.util.concurrent.BlockingQueue;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.BiPredicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -22,21 +26,33 @@ import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 
 /**
- * Reads all gdax message files (in zips) sequentially and gets each message string
+ * Reads all gdax message files (in zips) in order and passes on the message strings in batches. The next few
+ * hourly entries, including those of the next day's zip, are inflated ahead on a small pool into byte buffers;
+ * lines are framed on the buffers and only become Strings when they are decoded
  */
 public class GdaxMessageFileReader implements Runnable {
 	private static final Logger log = MCLoggerFactory.getLogger();
 
 	private final Path dataDir;
-	private final BlockingQueue<String> messageStringQueue;
-	private final DoneNotificationRecipient writer;
+	private final BatchQueue<String> messageStringQueue;
+	/** Number of entries inflated ahead of the one being framed */
+	private final int readAheadEntries;
+	private final StageTimer timer;
+	/** Time to resume reading from, or null to read all unchecked zips */
+	private ZonedDateTime resumeTime;
 
-	public GdaxMessageFileReader(Path dataDir, BlockingQueue<String> messageStringQueue,
-		DoneNotificationRecipient writer)
-	{
+	public GdaxMessageFileReader(Path dataDir, BatchQueue<String> messageStringQueue) {
+		this(dataDir, messageStringQueue, 1);
+	}
+
+	/**
+	 * @param readAheadEntries Number of zip entries inflated in parallel ahead of the one being framed
+	 */
+	public GdaxMessageFileReader(Path dataDir, BatchQueue<String> messageStringQueue, int readAheadEntries) {
 		this.dataDir = dataDir;
 		this.messageStringQueue = messageStringQueue;
-		this.writer = writer;
+		this.readAheadEntries = Math.max(1, readAheadEntries);
+		timer = new StageTimer("File reader");
 	}
 
 	private static final Pattern hourlyJsonPattern =
@@ -57,79 +73,240 @@ public class GdaxMessageFileReader implements Runnable {
 		return aStr.compareTo(bStr);
 	};
 
-	long waitMs = 0;
+	/**
+	 * Starts reading from the hourly entry containing the given time rather than the first unchecked zip. Zips from
+	 * that day on are read even if checked, since the reader may have checked them before the consumer caught up
+	 */
+	public void resumeFrom(Instant time) {
+		resumeTime = ZonedDateTime.ofInstant(time, ZoneOffset.UTC);
+	}
 
 	@Override
 	public void run() {
+		timer.start();
 		try {
-			for(Path zipPath : getZipFiles()) {
-				try {
-					long startNanos = System.nanoTime();
-					readZipFile(zipPath);
-					writeCheckpoint(zipPath);
-					log.info("Completed " + zipPath + " in " + (System.nanoTime() - startNanos) / 1000000000.0 + "s");
-				} catch(ZipException e) {
-					log.error("Could not parse zip " + zipPath, e);
-				}
-			}
-			writer.markDone();
+			readZipFiles(getZipFiles(), true);
 		} catch(IOException e) {
 			throw new RuntimeException(e);
+		} finally {
+			finish();
 		}
 	}
 
 	/**
-	 * @return List of all files in the dataDir folder that match gdax-orders-yyyy-MM-dd.zip
+	 * Marks the end of the message string stream. Must be called once after the last file is read
+	 */
+	public void finish() {
+		try {
+			messageStringQueue.close(timer);
+		} catch(InterruptedException e) {
+			throw new RuntimeException(e);
+		} finally {
+			timer.stop();
+		}
+		log.info(timer.toString());
+	}
+
+	/**
+	 * @return List of all files in the dataDir folder that match gdax-orders-yyyy-MM-dd.zip and have not been
+	 * read before, in date order
 	 */
 	private List<Path> getZipFiles()
 		throws IOException
 	{
-		final BiPredicate<Path,BasicFileAttributes> zipMatcher = (path, attributes) ->
-			path.getFileName().toString().matches("gdax-orders-\\d\\d\\d\\d-\\d\\d-\\d\\d.*.zip");
-
 		log.info("Looking for zip files in " + dataDir);
-		return Files
-			.find(dataDir, 1, zipMatcher)
+		if(resumeTime != null) {
+			return findDailyFiles(dataDir, "zip").stream()
+				.filter(zipPath -> !getDate(zipPath).isBefore(resumeTime.toLocalDate()))
+				.collect(Collectors.toList());
+		}
+		return findDailyFiles(dataDir, "zip").stream()
 			.filter(GdaxMessageFileReader::hasNoCheckpoint)
 			.collect(Collectors.toList());
 	}
 
+	/**
+	 * @return List of all files in the dataDir folder that match gdax-orders-yyyy-MM-dd*.extension, in date order
+	 */
+	static List<Path> findDailyFiles(Path dataDir, String extension)
+		throws IOException
+	{
+		final String pattern = "gdax-orders-\\d\\d\\d\\d-\\d\\d-\\d\\d.*\\." + extension;
+		final BiPredicate<Path,BasicFileAttributes> matcher = (path, attributes) ->
+			path.getFileName().toString().matches(pattern);
+
+		return Files
+			.find(dataDir, 1, matcher)
+			.sorted()
+			.collect(Collectors.toList());
+	}
+
 	/**
 	 * Reads the zip file, sorts entries by hour, and reads the entries
 	 */
 	public void readZipFile(Path zipPath)
 		throws IOException
 	{
-		ZipFile zipFile = new ZipFile(zipPath.toFile());
-		List<ZipEntry> entries = zipFile.stream()
+		readZipFiles(Collections.singletonList(zipPath), false);
+	}
+
+	/**
+	 * Reads the entries of the given zips in order, inflating up to readAheadEntries entries ahead in parallel
+	 *
+	 * @param checkpoint true to write a checkpoint for each zip once all its lines are passed on
+	 */
+	private void readZipFiles(List<Path> zipPaths, boolean checkpoint)
+		throws IOException
+	{
+		final ExecutorService inflaters = Executors.newFixedThreadPool(readAheadEntries, runnable -> {
+			Thread thread = new Thread(runnable, "gdax-inflater");
+			thread.setDaemon(true);
+			return thread;
+		});
+		final Iterator<Path> zipIterator = zipPaths.iterator();
+		final Deque<PendingEntry> pending = new ArrayDeque<>(readAheadEntries + 1);
+		final Deque<PendingEntry> unsubmitted = new ArrayDeque<>();
+		try {
+			while(true) {
+				// keep readAheadEntries entries inflating, opening the next zip when this one's entries run out
+				while(pending.size() < readAheadEntries) {
+					if(unsubmitted.isEmpty() && zipIterator.hasNext())
+						openZip(zipIterator.next(), unsubmitted);
+					if(unsubmitted.isEmpty())
+						break;
+					final PendingEntry entry = unsubmitted.remove();
+					entry.data = inflaters.submit(entry::inflate);
+					pending.add(entry);
+				}
+				if(pending.isEmpty())
+					break;
+
+				final PendingEntry entry = pending.remove();
+				if(!entry.zip.failed)
+					readEntry(entry);
+				if(entry.lastInZip)
+					completeZip(entry.zip, checkpoint);
+			}
+		} catch(InterruptedException e) {
+			throw new RuntimeException(e);
+		} finally {
+			inflaters.shutdownNow();
+		}
+	}
+
+	/**
+	 * Opens the zip and adds its entries, sorted by hour, to the given list
+	 */
+	private void openZip(Path zipPath, Deque<PendingEntry> entries)
+		throws IOException
+	{
+		final ZipFile zipFile;
+		try {
+			zipFile = new ZipFile(zipPath.toFile());
+		} catch(ZipException e) {
+			log.error("Could not parse zip " + zipPath, e);
+			return;
+		}
+		final OpenZip zip = new OpenZip(zipPath, zipFile);
+		final boolean resumeDay = resumeTime != null && getDate(zipPath).equals(resumeTime.toLocalDate());
+		final List<ZipEntry> zipEntries = zipFile.stream()
+			.filter(zipEntry -> !resumeDay || getHour(zipEntry) >= resumeTime.getHour())
 			.sorted(hourlyJsonSorter)
 			.collect(Collectors.toList());
-
-		for(ZipEntry entry : entries) {
-			log.info("Reading entry " + entry.getName() + " in zip " + zipPath);
-			InputStream inputStream = zipFile.getInputStream(entry);
-			readJsonFile(inputStream);
+		if(zipEntries.isEmpty()) {
+			completeZip(zip, false);
+			return;
 		}
+		for(int i = 0; i < zipEntries.size(); i++)
+			entries.add(new PendingEntry(zip, zipEntries.get(i), i == zipEntries.size() - 1));
 	}
 
 	/**
-	 * Reads the JSON file from the given input stream and sends all messages to the queue
+	 * Waits for the entry to be inflated, then frames its lines and sends them to the queue in batches
 	 */
-	private void readJsonFile(InputStream inputStream) {
-		BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-		reader.lines().forEach(line -> {
-			try {
-				if(messageStringQueue.remainingCapacity() == 0) {
-					Thread.sleep(1);
-					waitMs += 10;
-					if(waitMs % 100000 == 0)
-						log.debug("Waited " + (waitMs / 1000) + "s in string reader");
-				}
-				messageStringQueue.put(line);
-			} catch(InterruptedException e) {
-				throw new RuntimeException(e);
+	private void readEntry(PendingEntry entry)
+		throws InterruptedException
+	{
+		final byte[] data;
+		final long waitStartNanos = System.nanoTime();
+		try {
+			data = entry.data.get();
+		} catch(ExecutionException e) {
+			log.error("Could not parse zip " + entry.zip.path, e.getCause());
+			entry.zip.failed = true;
+			return;
+		} finally {
+			timer.addIdleNanos(System.nanoTime() - waitStartNanos);
+		}
+
+		log.info("Reading entry " + entry.zipEntry.getName() + " in zip " + entry.zip.path);
+		final ByteLines.Framer framer = new ByteLines.Framer(data, data.length);
+		while(framer.hasMore())
+			messageStringQueue.put(framer.next(BatchQueue.BATCH_SIZE), timer);
+	}
+
+	/** Closes the zip and writes its checkpoint if all entries were read */
+	private void completeZip(OpenZip zip, boolean checkpoint)
+		throws IOException
+	{
+		zip.zipFile.close();
+		if(zip.failed)
+			return;
+		if(checkpoint)
+			writeCheckpoint(zip.path);
+		log.info("Completed " + zip.path + " in " + (System.nanoTime() - zip.startNanos) / 1000000000.0 + "s");
+	}
+
+	/** Zip file whose entries are being read */
+	private static class OpenZip {
+		final Path path;
+		final ZipFile zipFile;
+		final long startNanos;
+		/** Set if an entry could not be inflated; the rest of the zip is skipped and no checkpoint written */
+		volatile boolean failed;
+
+		OpenZip(Path path, ZipFile zipFile) {
+			this.path = path;
+			this.zipFile = zipFile;
+			startNanos = System.nanoTime();
+		}
+	}
+
+	/** Zip entry waiting to be inflated or framed */
+	private static class PendingEntry {
+		final OpenZip zip;
+		final ZipEntry zipEntry;
+		final boolean lastInZip;
+		Future<byte[]> data;
+
+		PendingEntry(OpenZip zip, ZipEntry zipEntry, boolean lastInZip) {
+			this.zip = zip;
+			this.zipEntry = zipEntry;
+			this.lastInZip = lastInZip;
+		}
+
+		/** Inflates the whole entry into memory, skipping the work if an earlier entry of the zip failed */
+		byte[] inflate()
+			throws IOException
+		{
+			if(zip.failed)
+				return new byte[0];
+			try(InputStream inputStream = zip.zipFile.getInputStream(zipEntry)) {
+				return inputStream.readAllBytes();
 			}
-		});
+		}
+	}
+
+	/** @return Date of the given gdax-orders-yyyy-MM-dd daily file */
+	static LocalDate getDate(Path dailyPath) {
+		final int start = "gdax-orders-".length();
+		return LocalDate.parse(dailyPath.getFileName().toString().substring(start, start + 10));
+	}
+
+	/** @return Hour of the given hourly json entry, or -1 if it is not named like one */
+	private static int getHour(ZipEntry zipEntry) {
+		final Matcher matcher = hourlyJsonPattern.matcher(zipEntry.getName());
+		return matcher.matches() ? Integer.parseInt(matcher.group(1)) : -1;
 	}
 
 	static Path getCheckpointPath(Path zipPath) {
@@ -144,6 +321,7 @@ public class GdaxMessageFileReader implements Runnable {
 	static void writeCheckpoint(Path zipPath)
 		throws IOException
 	{
-		Files.createFile(getCheckpointPath(zipPath));
+		if(hasNoCheckpoint(zipPath))
+			Files.createFile(getCheckpointPath(zipPath));
 	}
 }
@@ -1,116 +1,195 @@
 package com.mistrycapital.cryptobot.sim;
 
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.mistrycapital.cryptobot.gdax.websocket.*;
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessage;
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessageParser;
 import com.mistrycapital.cryptobot.util.MCLoggerFactory;
 import org.slf4j.Logger;
 
-import java.util.concurrent.BlockingQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
-public class GdaxMessageTranslator implements Runnable, DoneNotificationRecipient {
+/**
+ * Decodes batches of message strings into batches of gdax messages. With more than one decode thread, batches are
+ * decoded on a pool of workers and the decoded batches are put back in the order they were read before being passed
+ * on. File order is per-product sequence order, so consumers see each product's messages in sequence.
+ */
+public class GdaxMessageTranslator implements Runnable {
 	private static final Logger log = MCLoggerFactory.getLogger();
 
-	private final BlockingQueue<String> messageStringQueue;
-	private final BlockingQueue<GdaxMessage> messageQueue;
-	private final DoneNotificationRecipient writer;
-	private final JsonParser jsonParser;
-	private volatile boolean done;
+	/** Marks the end of the decoded batches in the reorder buffer */
+	private static final Future<List<GdaxMessage>> END_OF_BATCHES = CompletableFuture.completedFuture(null);
 
-	public GdaxMessageTranslator(BlockingQueue<String> messageStringQueue, BlockingQueue<GdaxMessage> messageQueue,
-		DoneNotificationRecipient writer)
+	private final BatchQueue<String> messageStringQueue;
+	private final BatchQueue<GdaxMessage> messageQueue;
+	private final int decodeThreads;
+	/** Parser for each decode thread */
+	private final ThreadLocal<GdaxMessageParser> messageParsers;
+	private final StageTimer timer;
+	/** Time spent decoding, summed across decode threads */
+	private final AtomicLong decodeNanos;
+
+	/**
+	 * @param interest Message types the consumer will process. Other messages are dropped without being decoded
+	 */
+	public GdaxMessageTranslator(BatchQueue<String> messageStringQueue, BatchQueue<GdaxMessage> messageQueue,
+		Set<GdaxMessage.Type> interest)
+	{
+		this(messageStringQueue, messageQueue, interest, 1);
+	}
+
+	/**
+	 * @param interest      Message types the consumer will process. Other messages are dropped without being decoded
+	 * @param decodeThreads Number of threads decoding messages in parallel
+	 */
+	public GdaxMessageTranslator(BatchQueue<String> messageStringQueue, BatchQueue<GdaxMessage> messageQueue,
+		Set<GdaxMessage.Type> interest, int decodeThreads)
 	{
 		this.messageStringQueue = messageStringQueue;
 		this.messageQueue = messageQueue;
-		this.writer = writer;
-		jsonParser = new JsonParser();
-		done = false;
+		this.decodeThreads = Math.max(1, decodeThreads);
+		messageParsers = ThreadLocal.withInitial(() -> new GdaxMessageParser(interest));
+		timer = new StageTimer("Translator");
+		decodeNanos = new AtomicLong();
 	}
 
 	/**
-	 * Mark that there are no further messages to be read beyond what is in the queue
+	 * Translates until the end of the string stream, then marks the end of the message stream
 	 */
 	@Override
-	public void markDone() {
-		done = true;
+	public void run() {
+		timer.start();
+		try {
+			if(decodeThreads == 1) {
+				translateSerially();
+			} else {
+				translateInParallel();
+			}
+		} catch(InterruptedException e) {
+			throw new RuntimeException(e);
+		} finally {
+			timer.stop();
+		}
+		log.info(timer + ", decoding " + decodeNanos.get() / 1000000000.0 + "s over " + decodeThreads + " threads");
 	}
 
-	private long readWaitMs = 0;
-
-	@Override
-	public void run() {
-		while(true) {
-			final String msgString = messageStringQueue.poll();
-			if(msgString == null && done)
-				break;
-			if(msgString == null) {
-				try {
-					Thread.sleep(1);
-					readWaitMs++;
-					if(readWaitMs % 1000 == 0)
-						log.debug("Waited " + (readWaitMs/1000) + "s in translator reader");
-				} catch(InterruptedException e) {}
-				continue;
+	private void translateSerially()
+		throws InterruptedException
+	{
+		try {
+			List<String> lines;
+			while((lines = messageStringQueue.take(timer)) != null) {
+				messageQueue.put(decodeBatch(lines), timer);
 			}
+		} finally {
+			messageQueue.close(timer);
+		}
+	}
 
+	/**
+	 * Decodes batches on a pool of workers. Futures for the batches go into a bounded reorder buffer in the order
+	 * the lines were read, and an emitter thread takes them from the head of the buffer, so messages leave in read
+	 * order no matter which worker finishes first. If the emitter fails, the remaining decoding is cancelled and its
+	 * error is rethrown here rather than leaving the reader blocked on a full buffer.
+	 */
+	private void translateInParallel()
+		throws InterruptedException
+	{
+		final ExecutorService decoders = Executors.newFixedThreadPool(decodeThreads, runnable -> {
+			Thread thread = new Thread(runnable, "gdax-decoder");
+			thread.setDaemon(true);
+			return thread;
+		});
+		final BlockingQueue<Future<List<GdaxMessage>>> reorderBuffer = new ArrayBlockingQueue<>(4 * decodeThreads);
+		final StageTimer emitterTimer = new StageTimer("Translator emitter");
+		final AtomicReference<Throwable> emitterFailure = new AtomicReference<>();
+		final Thread emitter = new Thread(() -> {
 			try {
-				GdaxMessage gdaxMessage = parseMessage(msgString);
-				if(gdaxMessage != null) {
-					if(messageQueue.remainingCapacity() == 0) {
-						Thread.sleep(1);
-					}
-					messageQueue.put(gdaxMessage);
+				emitInOrder(reorderBuffer, emitterTimer);
+			} catch(RuntimeException | Error e) {
+				emitterFailure.set(e);
+				throw e;
+			}
+		}, "gdax-decode-emitter");
+		emitter.setDaemon(true);
+		emitter.start();
+
+		try {
+			List<String> lines;
+			while((lines = messageStringQueue.take(timer)) != null) {
+				final List<String> batch = lines;
+				final Future<List<GdaxMessage>> decoded = decoders.submit(() -> decodeBatch(batch));
+				if(!reorderBuffer.offer(decoded)) {
+					final long waitStartNanos = System.nanoTime();
+					putWhileEmitting(reorderBuffer, decoded, emitter, emitterFailure);
+					timer.addIdleNanos(System.nanoTime() - waitStartNanos);
 				}
+			}
+			putWhileEmitting(reorderBuffer, END_OF_BATCHES, emitter, emitterFailure);
+			emitter.join();
+			if(emitterFailure.get() != null)
+				throw new RuntimeException("Could not pass on decoded messages", emitterFailure.get());
+			log.info(emitterTimer.toString());
+		} finally {
+			decoders.shutdownNow();
+		}
+	}
+
+	/**
+	 * Puts the decoded batch in the reorder buffer, waiting for space only while the emitter is still taking from it
+	 */
+	private static void putWhileEmitting(BlockingQueue<Future<List<GdaxMessage>>> reorderBuffer,
+		Future<List<GdaxMessage>> decoded, Thread emitter, AtomicReference<Throwable> emitterFailure)
+		throws InterruptedException
+	{
+		while(!reorderBuffer.offer(decoded, 100, TimeUnit.MILLISECONDS)) {
+			if(!emitter.isAlive())
+				throw new RuntimeException("Could not pass on decoded messages", emitterFailure.get());
+		}
+	}
+
+	/** Decodes the given lines, dropping uninteresting messages */
+	private List<GdaxMessage> decodeBatch(List<String> lines) {
+		final long startNanos = System.nanoTime();
+		final GdaxMessageParser messageParser = messageParsers.get();
+		final List<GdaxMessage> messages = new ArrayList<>(lines.size());
+		for(String msgString : lines) {
+			try {
+				GdaxMessage gdaxMessage = messageParser.parseInterested(msgString);
+				if(gdaxMessage != null)
+					messages.add(gdaxMessage);
 			} catch(Exception e) {
 				log.error("Error in parsing line: " + msgString, e);
 			}
 		}
-		writer.markDone();
+		decodeNanos.addAndGet(System.nanoTime() - startNanos);
+		return messages;
 	}
 
-	private GdaxMessage parseMessage(String msgStr) {
-		// TODO: Reuse websocket code
-		JsonObject json = jsonParser.parse(msgStr).getAsJsonObject();
-		String type = json.get("type").getAsString();
-		GdaxMessage message = null;
-		switch(type) {
-			case "book":
-			case "order_book":
-				// saved full book data
-				message = new Book(json);
-				break;
-			case "open":
-				// new order on book
-				message = new Open(json);
-				break;
-			case "done":
-				// order taken off book - could be filled or canceled
-				message = new Done(json);
-				break;
-			case "match":
-				// trade occurred
-				message = new Match(json);
-				break;
-			case "change":
-				// order modified
-				if(json.has("new_size")) {
-					message = new ChangeSize(json);
-				} else {
-					message = new ChangeFunds(json);
+	/** Passes on decoded batches in the order they entered the reorder buffer, then marks the end of the stream */
+	private void emitInOrder(BlockingQueue<Future<List<GdaxMessage>>> reorderBuffer, StageTimer emitterTimer) {
+		emitterTimer.start();
+		try {
+			try {
+				while(true) {
+					final long waitStartNanos = System.nanoTime();
+					final Future<List<GdaxMessage>> decoded = reorderBuffer.take();
+					if(decoded == END_OF_BATCHES)
+						break;
+					final List<GdaxMessage> messages = decoded.get();
+					emitterTimer.addIdleNanos(System.nanoTime() - waitStartNanos);
+					messageQueue.put(messages, emitterTimer);
 				}
-				break;
-			case "activate":
-				// new stop order
-				message = new Activate(json);
-				break;
-			case "received":
-				// received message
-				// fall through - we don't need these in sampling
-			default:
-				// this could be a new message type or received
-				// or something else
+			} finally {
+				messageQueue.close(emitterTimer);
+			}
+		} catch(InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		} finally {
+			emitterTimer.stop();
 		}
-		json = null; // mark for GC
-		return message;
 	}
 }
@@ -1,96 +1,224 @@
 package com.mistrycapital.cryptobot.sim;
 
 import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedSnapshot;
-import com.mistrycapital.cryptobot.appender.IntervalDataAppender;
+import com.mistrycapital.cryptobot.appender.SnapshotRecorder;
 import com.mistrycapital.cryptobot.book.OrderBookManager;
 import com.mistrycapital.cryptobot.dynamic.DynamicTracker;
 import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessage;
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessageDispatcher;
 import com.mistrycapital.cryptobot.time.Intervalizer;
 import com.mistrycapital.cryptobot.util.MCLoggerFactory;
 import org.slf4j.Logger;
 
 import java.io.IOException;
-import java.util.concurrent.BlockingQueue;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.Set;
 
-public class GdaxSampleWriter implements DoneNotificationRecipient {
+public class GdaxSampleWriter {
 	private static final Logger log = MCLoggerFactory.getLogger();
 
 	private final SimTimeKeeper timeKeeper;
-	private final Intervalizer intervalizer;
+	/** Intervalizer for each resolution sampled */
+	private final Intervalizer[] intervalizers;
 	private final OrderBookManager orderBookManager;
 	private final DynamicTracker dynamicTracker;
-	private final IntervalDataAppender intervalDataAppender;
-	private final BlockingQueue<GdaxMessage> messageQueue;
-	private volatile boolean done;
-	private long nextIntervalMillis;
+	/** Routes messages to the book and tracker based on their interest */
+	private final GdaxMessageDispatcher dispatcher;
+	/** Recorder for each resolution sampled */
+	private final SnapshotRecorder[] snapshotRecorders;
+	private final BatchQueue<GdaxMessage> messageQueue;
+	/** End of the current interval of each resolution */
+	private final long[] nextIntervalMillis;
+	/** File to save checkpoints to, or null to not checkpoint */
+	private Path checkpointPath;
+	private long checkpointPeriodMillis;
+	private long nextCheckpointMillis;
+	/** Checkpoint being resumed from; messages are skipped until its last message has gone by */
+	private SampleCheckpoint resumeCheckpoint;
 
 	public GdaxSampleWriter(SimTimeKeeper timeKeeper, Intervalizer intervalizer, OrderBookManager orderBookManager,
-		DynamicTracker dynamicTracker, IntervalDataAppender intervalDataAppender,
-		BlockingQueue<GdaxMessage> messageQueue)
+		DynamicTracker dynamicTracker, SnapshotRecorder snapshotRecorder,
+		BatchQueue<GdaxMessage> messageQueue)
 	{
+		this(timeKeeper, Collections.singletonList(intervalizer), orderBookManager, dynamicTracker,
+			Collections.singletonList(snapshotRecorder), messageQueue);
+	}
+
+	/**
+	 * Samples intervals of several lengths in a single pass over the messages. The tracker must have a resolution
+	 * for each intervalizer; snapshots of each resolution go to the recorder at the same position
+	 */
+	public GdaxSampleWriter(SimTimeKeeper timeKeeper, List<Intervalizer> intervalizers,
+		OrderBookManager orderBookManager, DynamicTracker dynamicTracker, List<SnapshotRecorder> snapshotRecorders,
+		BatchQueue<GdaxMessage> messageQueue)
+	{
+		if(intervalizers.size() != dynamicTracker.getResolutions() || intervalizers.size() != snapshotRecorders.size())
+			throw new IllegalArgumentException("Need an intervalizer and recorder for each of the "
+				+ dynamicTracker.getResolutions() + " tracker resolutions");
 		this.timeKeeper = timeKeeper;
-		this.intervalizer = intervalizer;
+		this.intervalizers = intervalizers.toArray(new Intervalizer[0]);
 		this.orderBookManager = orderBookManager;
 		this.dynamicTracker = dynamicTracker;
-		this.intervalDataAppender = intervalDataAppender;
+		this.snapshotRecorders = snapshotRecorders.toArray(new SnapshotRecorder[0]);
 		this.messageQueue = messageQueue;
-		done = false;
+		nextIntervalMillis = new long[intervalizers.size()];
+		dispatcher = new GdaxMessageDispatcher(orderBookManager, dynamicTracker);
+	}
+
+	/** @return Message types this writer needs; others can be dropped before they reach the queue */
+	public Set<GdaxMessage.Type> getInterest() {
+		return dispatcher.getInterest();
+	}
+
+	/**
+	 * Saves a checkpoint to the given file at the end of the first interval in every checkpointHours hours of
+	 * message time. The file is deleted once the end of the message stream is reached
+	 */
+	public void checkpointEvery(Path checkpointPath, int checkpointHours) {
+		this.checkpointPath = checkpointPath;
+		checkpointPeriodMillis = checkpointHours * 3600000L;
 	}
 
 	/**
-	 * Mark that there are no further messages to be read beyond what is in the queue
+	 * Restores books, trackers and interval timing from the given checkpoint, if it exists. The messages up to and
+	 * including the last one processed before the checkpoint are then skipped, so the reader must resume at or
+	 * before the returned time
+	 *
+	 * @return Time of the last message processed before the checkpoint, or null if there is no checkpoint
 	 */
-	@Override
-	public void markDone() {
-		done = true;
+	public Instant resume(Path checkpointPath) {
+		if(!Files.exists(checkpointPath))
+			return null;
+		try {
+			resumeCheckpoint = SampleCheckpoint.read(checkpointPath, orderBookManager, dynamicTracker);
+		} catch(IOException e) {
+			throw new RuntimeException(e);
+		}
+		timeKeeper.advanceTime(resumeCheckpoint.timeNanos);
+		System.arraycopy(resumeCheckpoint.nextIntervalMillis, 0, nextIntervalMillis, 0, nextIntervalMillis.length);
+		log.info("Resuming from checkpoint at " + timeKeeper.iso8601());
+		final long lastTimeMicros = resumeCheckpoint.lastTimeMicros;
+		return Instant.ofEpochSecond(lastTimeMicros / 1000000L, lastTimeMicros % 1000000L * 1000L);
 	}
 
+	/**
+	 * Processes messages and records a snapshot at each interval until the end of the message stream
+	 */
 	public void sample() {
+		final StageTimer timer = new StageTimer("Sample writer");
 		int sampleCount = 0;
+		long messageCount = 0;
+		long skippedCount = 0;
 		long startMs = System.currentTimeMillis();
-		while(true) {
-			final GdaxMessage message = messageQueue.poll();
-			if(message == null && done)
-				break;
-			if(message == null) {
+		List<GdaxMessage> messages;
+		while((messages = takeBatch(timer)) != null) {
+			for(GdaxMessage message : messages) {
+				if(resumeCheckpoint != null) {
+					// already processed before the checkpoint
+					skippedCount++;
+					if(resumeCheckpoint.isLastMessage(message)) {
+						log.info("Skipped " + skippedCount + " messages processed before the checkpoint");
+						resumeCheckpoint = null;
+					}
+					continue;
+				}
+				timeKeeper.advanceTime(message.getTimeMicros() * 1000L);
 				try {
-					Thread.sleep(1);
-				} catch(InterruptedException e) {}
-				continue;
-			}
-
-			timeKeeper.advanceTime(message.getTimeMicros() * 1000L);
-			message.process(orderBookManager);
-			message.process(dynamicTracker);
+					message.process(dispatcher);
+				} catch(RuntimeException e) {
+					// fields are decoded on first access, so a malformed message only fails here
+					log.error("Error processing " + message.getType() + " message sequence " + message.getSequence()
+						+ " for " + message.getProduct(), e);
+				}
+				messageCount++;
 
-			// check for next interval time
-			if(nextIntervalMillis == 0) {
-				nextIntervalMillis = intervalizer.calcNextIntervalMillis(timeKeeper.epochMs());
-			} else if(timeKeeper.epochMs() >= nextIntervalMillis) {
-				try {
-					final ConsolidatedSnapshot consolidatedSnapshot =
-						ConsolidatedSnapshot.getSnapshot(orderBookManager, dynamicTracker, timeKeeper);
-					intervalDataAppender.recordSnapshot(timeKeeper.epochMs(), consolidatedSnapshot);
-				} catch(IOException e) {
-					log.error("Could not store snapshot, time=" + timeKeeper.epochNanos() + " " + timeKeeper.iso8601(),
-						e);
+				// check for next interval time of each resolution
+				final long nowMillis = timeKeeper.epochMs();
+				boolean sampled = false;
+				for(int resolution = 0; resolution < nextIntervalMillis.length; resolution++) {
+					if(nextIntervalMillis[resolution] == 0) {
+						nextIntervalMillis[resolution] = intervalizers[resolution].calcNextIntervalMillis(nowMillis);
+					} else if(nowMillis >= nextIntervalMillis[resolution]) {
+						recordSnapshot(resolution);
+						nextIntervalMillis[resolution] = intervalizers[resolution].calcNextIntervalMillis(nowMillis);
+						sampled = true;
+					}
 				}
-				nextIntervalMillis = intervalizer.calcNextIntervalMillis(timeKeeper.epochMs());
-				sampleCount++;
-				if(sampleCount % 100 == 0) {
-					log.debug("Processed " + sampleCount + " intervals in "
-						+ (System.currentTimeMillis() - startMs) / 1000.0 + "s");
+				if(sampled) {
+					if(checkpointPath != null && nowMillis >= nextCheckpointMillis)
+						writeCheckpoint(message);
+					sampleCount++;
+					if(sampleCount % 100 == 0) {
+						log.debug("Processed " + sampleCount + " intervals in "
+							+ (System.currentTimeMillis() - startMs) / 1000.0 + "s, "
+							+ messageRate(messageCount, startMs) + " msgs/s");
+					}
 				}
 			}
 		}
-		timeKeeper.advanceTime(nextIntervalMillis * 1000000L);
-		final ConsolidatedSnapshot consolidatedSnapshot =
-			ConsolidatedSnapshot.getSnapshot(orderBookManager, dynamicTracker, timeKeeper);
+		timer.stop();
+		if(resumeCheckpoint != null)
+			log.error("Never reached the last message of the checkpoint, no messages were sampled");
+		// close each resolution's last interval, in time order
+		IntStream.range(0, nextIntervalMillis.length).boxed()
+			.sorted(Comparator.comparingLong(resolution -> nextIntervalMillis[resolution]))
+			.forEach(resolution -> {
+				timeKeeper.advanceTime(nextIntervalMillis[resolution] * 1000000L);
+				recordSnapshot(resolution);
+			});
+		log.info("Sampled " + messageCount + " messages into " + sampleCount + " intervals in "
+			+ (System.currentTimeMillis() - startMs) / 1000.0 + "s, " + messageRate(messageCount, startMs) + " msgs/s");
+		log.info(timer.toString());
+		if(checkpointPath != null) {
+			try {
+				Files.deleteIfExists(checkpointPath);
+			} catch(IOException e) {
+				log.error("Could not delete checkpoint " + checkpointPath, e);
+			}
+		}
+	}
+
+	/** Records a snapshot of the given resolution's interval ending now */
+	private void recordSnapshot(int resolution) {
+		try {
+			final ConsolidatedSnapshot consolidatedSnapshot =
+				ConsolidatedSnapshot.getSnapshot(orderBookManager, dynamicTracker, resolution, timeKeeper);
+			snapshotRecorders[resolution].recordSnapshot(timeKeeper.epochMs(), consolidatedSnapshot);
+		} catch(IOException e) {
+			log.error("Could not store snapshot, time=" + timeKeeper.epochNanos() + " " + timeKeeper.iso8601(), e);
+		}
+	}
+
+	/** Saves a checkpoint with the given message as the last one processed */
+	private void writeCheckpoint(GdaxMessage lastMessage) {
 		try {
-			intervalDataAppender.recordSnapshot(timeKeeper.epochMs(), consolidatedSnapshot);
+			SampleCheckpoint.write(checkpointPath, timeKeeper.epochNanos(), nextIntervalMillis, lastMessage,
+				orderBookManager, dynamicTracker);
+			log.info("Saved checkpoint at " + timeKeeper.iso8601());
 		} catch(IOException e) {
-			log.error("Could not store final snapshot, time=" + timeKeeper.epochNanos() + " " + timeKeeper.iso8601(),
-				e);
+			log.error("Could not save checkpoint, time=" + timeKeeper.epochNanos() + " " + timeKeeper.iso8601(), e);
 		}
+		nextCheckpointMillis = (timeKeeper.epochMs() / checkpointPeriodMillis + 1) * checkpointPeriodMillis;
+	}
+
+	/** @return Next batch of messages, or null at the end of the stream */
+	private List<GdaxMessage> takeBatch(StageTimer timer) {
+		try {
+			return messageQueue.take(timer);
+		} catch(InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/** @return Messages per second since the given start time */
+	private static long messageRate(long messageCount, long startMs) {
+		final long elapsedMs = Math.max(1L, System.currentTimeMillis() - startMs);
+		return messageCount * 1000L / elapsedMs;
 	}
 }
\ No newline at end of file
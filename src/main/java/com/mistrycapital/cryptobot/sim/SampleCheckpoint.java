@@ -0,0 +1,118 @@
+package com.mistrycapital.cryptobot.sim;
+
+import com.mistrycapital.cryptobot.book.OrderBookManager;
+import com.mistrycapital.cryptobot.dynamic.DynamicTracker;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+import com.mistrycapital.cryptobot.gdax.websocket.Book;
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxEventCodec;
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessage;
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessageProcessor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Binary checkpoint of the sample writer taken at the end of an interval: every book (encoded as a Book event),
+ * the dynamic tracker's current intervals, the interval timing, and the identity of the last message processed.
+ * A replay resumes from the hourly entry containing that message and skips everything up to and including it
+ */
+class SampleCheckpoint {
+	/** "GDXC" */
+	private static final int MAGIC = 0x47445843;
+	private static final int VERSION = 2;
+
+	/** Writer time when the checkpoint was taken */
+	final long timeNanos;
+	/** End of the interval in progress for each tracker resolution */
+	final long[] nextIntervalMillis;
+	private final GdaxMessage.Type lastType;
+	private final Product lastProduct;
+	private final long lastSequence;
+	/** Time of the last message processed before the checkpoint */
+	final long lastTimeMicros;
+
+	private SampleCheckpoint(long timeNanos, long[] nextIntervalMillis, GdaxMessage.Type lastType, Product lastProduct,
+		long lastSequence, long lastTimeMicros)
+	{
+		this.timeNanos = timeNanos;
+		this.nextIntervalMillis = nextIntervalMillis;
+		this.lastType = lastType;
+		this.lastProduct = lastProduct;
+		this.lastSequence = lastSequence;
+		this.lastTimeMicros = lastTimeMicros;
+	}
+
+	/** @return true if the given message is the last one processed before the checkpoint */
+	boolean isLastMessage(GdaxMessage message) {
+		return message.getSequence() == lastSequence && message.getTimeMicros() == lastTimeMicros
+			&& message.getProduct() == lastProduct && message.getType() == lastType;
+	}
+
+	/**
+	 * Writes a checkpoint to a temporary file that is renamed into place once complete, so a crash while writing
+	 * leaves the previous checkpoint intact
+	 */
+	static void write(Path path, long timeNanos, long[] nextIntervalMillis, GdaxMessage lastMessage,
+		OrderBookManager orderBookManager, DynamicTracker dynamicTracker)
+		throws IOException
+	{
+		final Book[] books = new Book[Product.count];
+		int size = 44 + 8 * nextIntervalMillis.length + dynamicTracker.getStateSize();
+		for(Product product : Product.FAST_VALUES) {
+			books[product.getIndex()] = orderBookManager.getBook(product).getBookMessage();
+			size += GdaxEventCodec.encodedSize(books[product.getIndex()]);
+		}
+
+		final ByteBuffer buffer = ByteBuffer.allocate(size);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putLong(timeNanos);
+		buffer.putInt(nextIntervalMillis.length);
+		for(long millis : nextIntervalMillis)
+			buffer.putLong(millis);
+		buffer.putInt(lastMessage.getType().ordinal());
+		buffer.putInt(lastMessage.getProduct().getIndex());
+		buffer.putLong(lastMessage.getSequence());
+		buffer.putLong(lastMessage.getTimeMicros());
+		dynamicTracker.writeState(buffer);
+		for(Book book : books)
+			GdaxEventCodec.encode(book, buffer);
+
+		final Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+		Files.write(tmpPath, buffer.array());
+		Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Reads a checkpoint, rebuilding the books and restoring the tracker from it
+	 *
+	 * @return Checkpoint with the timing and resume position
+	 */
+	static SampleCheckpoint read(Path path, OrderBookManager orderBookManager, DynamicTracker dynamicTracker)
+		throws IOException
+	{
+		final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+		if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+			throw new RuntimeException("Not a version " + VERSION + " sample checkpoint: " + path);
+		final long timeNanos = buffer.getLong();
+		final long[] nextIntervalMillis = new long[buffer.getInt()];
+		if(nextIntervalMillis.length != dynamicTracker.getResolutions())
+			throw new RuntimeException("Checkpoint has " + nextIntervalMillis.length
+				+ " resolutions but the tracker has " + dynamicTracker.getResolutions() + ": " + path);
+		for(int i = 0; i < nextIntervalMillis.length; i++)
+			nextIntervalMillis[i] = buffer.getLong();
+		final GdaxMessage.Type lastType = GdaxMessage.Type.values()[buffer.getInt()];
+		final Product lastProduct = Product.FAST_VALUES[buffer.getInt()];
+		final long lastSequence = buffer.getLong();
+		final long lastTimeMicros = buffer.getLong();
+		dynamicTracker.readState(buffer);
+		for(int i = 0; i < Product.count; i++)
+			orderBookManager.process((Book) GdaxEventCodec.decode(buffer, GdaxMessageProcessor.ALL_TYPES));
+
+		return new SampleCheckpoint(timeNanos, nextIntervalMillis, lastType, lastProduct, lastSequence,
+			lastTimeMicros);
+	}
+}
@@ -0,0 +1,183 @@
+package com.mistrycapital.cryptobot.sim;
+
+import com.mistrycapital.cryptobot.aggregatedata.ProductSnapshot;
+import com.mistrycapital.cryptobot.aggregatedata.SnapshotField;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Columnar binary copy of one day's sample csv, written next to it as samples-yyyy-MM-dd.columns. Holds the time
+ * of each interval and one column of doubles per field per product. The file is memory mapped, so opening a store
+ * costs no parsing; snapshots are still copied out of the columns one row at a time
+ */
+public class SampleStore {
+	/** "GDXS" */
+	private static final int MAGIC = 0x47445853;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+
+	/** Number of intervals */
+	private final int rows;
+	/** Interval times in nanos since epoch */
+	private final LongBuffer times;
+	/** Bit mask of the products present in each interval, by product index */
+	private final LongBuffer productMasks;
+	/** Field columns, indexed by product index * SnapshotField.count + field ordinal */
+	private final DoubleBuffer[] columns;
+
+	private SampleStore(ByteBuffer buffer, Path storePath) {
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+			throw new RuntimeException("Not a version " + VERSION + " sample store: " + storePath);
+		rows = buffer.getInt(8);
+		if(buffer.getInt(12) != Product.count || buffer.getInt(16) != SnapshotField.count)
+			throw new RuntimeException("Sample store has different products or fields: " + storePath);
+
+		times = slice(buffer, HEADER_SIZE, rows * 8).asLongBuffer();
+		productMasks = slice(buffer, HEADER_SIZE + rows * 8, rows * 8).asLongBuffer();
+		columns = new DoubleBuffer[Product.count * SnapshotField.count];
+		for(int i = 0; i < columns.length; i++)
+			columns[i] = slice(buffer, HEADER_SIZE + (i + 2) * rows * 8, rows * 8).asDoubleBuffer();
+	}
+
+	/** @return Store path for the given sample csv */
+	public static Path getStorePath(Path sampleFile) {
+		return sampleFile.resolveSibling(sampleFile.getFileName().toString().replace(".csv", ".columns"));
+	}
+
+	/** @return true if the sample csv has a store that was written after the csv was last changed */
+	public static boolean isCurrent(Path sampleFile)
+		throws IOException
+	{
+		final Path storePath = getStorePath(sampleFile);
+		return Files.exists(storePath)
+			&& Files.getLastModifiedTime(storePath).compareTo(Files.getLastModifiedTime(sampleFile)) >= 0;
+	}
+
+	/**
+	 * Maps the given store into memory
+	 */
+	public static SampleStore open(Path storePath)
+		throws IOException
+	{
+		try(FileChannel channel = FileChannel.open(storePath, StandardOpenOption.READ)) {
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new SampleStore(buffer, storePath);
+		}
+	}
+
+	/**
+	 * Converts a sample csv into a store next to it. The store is written to a temporary file that is renamed into
+	 * place once complete
+	 */
+	public static void convert(Path sampleFile)
+		throws IOException
+	{
+		// group the csv rows into intervals by timestamp
+		final List<Long> times = new ArrayList<>();
+		final List<ProductSnapshot[]> intervals = new ArrayList<>();
+		try(
+			Reader in = Files.newBufferedReader(sampleFile);
+			CSVParser parser = CSVFormat.EXCEL.withFirstRecordAsHeader().parse(in)
+		)
+		{
+			for(CSVRecord record : parser) {
+				final long timeNanos = Long.parseLong(record.get("unixTimestamp")) * 1000000000L;
+				if(times.isEmpty() || times.get(times.size() - 1) != timeNanos) {
+					times.add(timeNanos);
+					intervals.add(new ProductSnapshot[Product.count]);
+				}
+				final ProductSnapshot productSnapshot = new ProductSnapshot(record);
+				intervals.get(intervals.size() - 1)[productSnapshot.product.getIndex()] = productSnapshot;
+			}
+		}
+
+		final int rows = times.size();
+		final int columnCount = Product.count * SnapshotField.count + 2;
+		final ByteBuffer buffer =
+			ByteBuffer.allocate(HEADER_SIZE + columnCount * rows * 8).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(Product.count).putInt(SnapshotField.count);
+		buffer.position(HEADER_SIZE);
+		for(long timeNanos : times)
+			buffer.putLong(timeNanos);
+		for(ProductSnapshot[] interval : intervals) {
+			long mask = 0L;
+			for(int i = 0; i < interval.length; i++)
+				if(interval[i] != null)
+					mask |= 1L << i;
+			buffer.putLong(mask);
+		}
+		for(Product product : Product.FAST_VALUES) {
+			for(SnapshotField field : SnapshotField.FAST_VALUES) {
+				for(ProductSnapshot[] interval : intervals) {
+					final ProductSnapshot productSnapshot = interval[product.getIndex()];
+					buffer.putDouble(productSnapshot == null ? Double.NaN : field.get(productSnapshot));
+				}
+			}
+		}
+
+		final Path storePath = getStorePath(sampleFile);
+		final Path tmpPath = storePath.resolveSibling(storePath.getFileName() + ".tmp");
+		Files.write(tmpPath, buffer.array());
+		Files.move(tmpPath, storePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/** @return Number of intervals in the store */
+	public int size() {
+		return rows;
+	}
+
+	/** @return Time of the given interval in nanos since epoch */
+	public long getTimeNanos(int row) {
+		return times.get(row);
+	}
+
+	/** @return true if the sample file had a row for the product in the given interval */
+	public boolean hasProduct(int row, Product product) {
+		return (productMasks.get(row) & (1L << product.getIndex())) != 0;
+	}
+
+	/** @return Value of the field for the product in the given interval, read in place */
+	public double get(int row, Product product, SnapshotField field) {
+		return columns[product.getIndex() * SnapshotField.count + field.ordinal()].get(row);
+	}
+
+	/** @return Read only view of the field's values for the product in every interval, without copying */
+	public DoubleBuffer getColumn(Product product, SnapshotField field) {
+		return columns[product.getIndex() * SnapshotField.count + field.ordinal()].asReadOnlyBuffer();
+	}
+
+	/** @return Product snapshot for the given interval, copied out of the store */
+	public ProductSnapshot getProductSnapshot(int row, Product product) {
+		final double[] values = new double[SnapshotField.count];
+		final int start = product.getIndex() * SnapshotField.count;
+		for(int i = 0; i < values.length; i++)
+			values[i] = columns[start + i].get(row);
+		return new ProductSnapshot(product, values);
+	}
+
+	/** @return Little endian view of length bytes of the buffer starting at the given position */
+	private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+		final ByteBuffer duplicate = buffer.duplicate();
+		duplicate.position(position);
+		duplicate.limit(position + length);
+		return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+}
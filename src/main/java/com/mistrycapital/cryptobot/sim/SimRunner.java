@@ -12,6 +12,7 @@ import com.mistrycapital.cryptobot.appender.ForecastAppender;
 import com.mistrycapital.cryptobot.book.BBO;
 import com.mistrycapital.cryptobot.book.BBOProvider;
 import com.mistrycapital.cryptobot.book.OrderBookManager;
+import com.mistrycapital.cryptobot.forecasts.BatchForecaster;
 import com.mistrycapital.cryptobot.forecasts.ForecastCalculator;
 import com.mistrycapital.cryptobot.forecasts.ForecastFactory;
 import com.mistrycapital.cryptobot.gdax.client.GdaxClient;
@@ -47,6 +48,9 @@ public class SimRunner implements Runnable {
 	private final int startingUsd;
 	private final ParameterOptimizer parameterOptimizer;
 	private final String searchObjective;
+	private final boolean useSampleStore;
+	private final int cachedDays;
+	private final boolean persistForecasts;
 
 	public SimRunner(MCProperties properties, Path dataDir)
 	{
@@ -60,19 +64,24 @@ public class SimRunner implements Runnable {
 		startingUsd = properties.getIntProperty("sim.startUsd", 10000);
 		parameterOptimizer = new ParameterOptimizer();
 		searchObjective = properties.getProperty("sim.searchObjective", "return");
+		useSampleStore = properties.getBooleanProperty("sim.useSampleStore", false);
+		cachedDays = properties.getIntProperty("sim.cachedDays", 0);
+		persistForecasts = properties.getBooleanProperty("sim.persistForecasts", false);
 	}
 
 	@Override
 	public void run() {
 		try {
 
+			SnapshotDayStore consolidatedSnapshots =
+				new SnapshotDayStore(SnapshotReader.getSampleFiles(dataDir), useSampleStore, cachedDays);
+			log.info("Streaming " + consolidatedSnapshots.getDayCount() + " days of snapshots, caching "
+				+ (cachedDays > 0 ? cachedDays + " days" : "all of them"));
+			if(cachedDays > 0 && cachedDays < consolidatedSnapshots.getDayCount())
+				log.warn("The history is longer than sim.cachedDays, so days are read from disk again on every run");
 			long startNanos = System.nanoTime();
-			List<ConsolidatedSnapshot> consolidatedSnapshots =
-				SnapshotReader.readSnapshots(SnapshotReader.getSampleFiles(dataDir));
-			log.info("Reading snapshots took " + ((System.nanoTime() - startNanos) / 1000000000.0) + "sec");
-			startNanos = System.nanoTime();
 			MCProperties simProperties = new MCProperties();
-			Map<Long,List<Double>> forecastCache = cacheForecasts(consolidatedSnapshots, simProperties);
+			ForecastCache forecastCache = cacheForecasts(consolidatedSnapshots, simProperties);
 			log.info("Caching forecasts took " + ((System.nanoTime() - startNanos) / 1000000000.0) + "sec");
 
 			boolean search = simProperties.getBooleanProperty("sim.searchParameters", false);
@@ -139,44 +148,87 @@ public class SimRunner implements Runnable {
 			log.info("Win %                 \t" + result.winPct);
 			log.info("Loss %                \t" + result.lossPct);
 			log.info("Win-Loss              \t" + result.winPct / result.lossPct);
+			consolidatedSnapshots.close();
 
 		} catch(IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
-	private Map<Long,List<Double>> cacheForecasts(List<ConsolidatedSnapshot> consolidatedSnapshots,
-		MCProperties simProperties)
+	private ForecastCache cacheForecasts(SnapshotDayStore consolidatedSnapshots, MCProperties simProperties)
 		throws IOException
 	{
+		ForecastCache cache = new ForecastCache();
+		double[] forecasts = new double[Product.count];
+		if(!simProperties.getBooleanProperty("sim.logForecasts", false)) {
+			// reuse forecasts saved by an earlier run with the same configuration for days that have not changed
+			List<Path> sampleFiles = consolidatedSnapshots.getSampleFiles();
+			long key = ForecastCache.configKey(simProperties);
+			Path cacheFile = ForecastCache.getCachePath(dataDir, key);
+			boolean cacheable = ForecastFactory.getCalculatorInstance(simProperties).isCacheable();
+			if(!cacheable)
+				log.info("Forecasts depend on every interval before them, so calculating all of them without saving");
+			int firstDay = persistForecasts && cacheable ? cache.read(cacheFile, key, sampleFiles) : 0;
+			if(firstDay == sampleFiles.size()) {
+				log.warn("Reusing all " + cache.size() + " forecasts saved in " + cacheFile
+					+ ". Delete the file if code outside the forecast classes changed them");
+				return cache;
+			}
+
+			// forecasts from the first changed day on are recalculated, after warming up the history
+			long cutoffNanos = Long.MAX_VALUE;
+			for(int day = firstDay; day < sampleFiles.size() && cutoffNanos == Long.MAX_VALUE; day++) {
+				List<ConsolidatedSnapshot> daySnapshots = consolidatedSnapshots.getDay(day);
+				if(!daySnapshots.isEmpty())
+					cutoffNanos = daySnapshots.get(0).getTimeNanos();
+			}
+			cache.truncate(cutoffNanos);
+			if(cache.size() > 0)
+				log.warn("Reusing " + cache.size() + " forecasts saved in " + cacheFile + ", calculating from day "
+					+ firstDay + ". Delete the file if code outside the forecast classes changed them");
+			int warmupDays = intervalizer.getHistoryIntervals() * intervalizer.getIntervalSeconds() / 86400 + 1;
+
+			// products are independent, so calculate them in parallel over the whole history
+			BatchForecaster batchForecaster =
+				new BatchForecaster(intervalizer, () -> ForecastFactory.getCalculatorInstance(simProperties));
+			BatchForecaster.Series[] series =
+				batchForecaster.calculateAll(consolidatedSnapshots.fromDay(Math.max(0, firstDay - warmupDays)));
+			for(int i = 0; i < series[0].size; i++) {
+				if(series[0].times[i] < cutoffNanos)
+					continue;
+				for(Product product : Product.FAST_VALUES) {
+					forecasts[product.getIndex()] = series[product.getIndex()].values[0][i];
+				}
+				cache.add(series[0].times[i], forecasts);
+			}
+			if(persistForecasts && cacheable)
+				cache.write(cacheFile, key, sampleFiles);
+			return cache;
+		}
+
+		// forecasts are logged in time order, so calculate them one interval at a time
 		ConsolidatedHistory history = new ConsolidatedHistory(intervalizer);
 		ForecastCalculator forecastCalculator = ForecastFactory.getCalculatorInstance(simProperties);
 		SimTimeKeeper simTimeKeeper = new SimTimeKeeper();
-		ForecastAppender forecastAppender = null;
-		if(simProperties.getBooleanProperty("sim.logForecasts", false)) {
-			List<Path> existingFiles = Files.find(dataDir, 1,
-				(path, attr) -> path.getFileName().toString().matches("forecasts-\\d{4}-\\d{2}-\\d{2}.csv"))
-				.sorted()
-				.collect(Collectors.toList());
-			for(Path file : existingFiles) { Files.deleteIfExists(file); }
-			forecastAppender = new ForecastAppender(dataDir, forecastFile, simTimeKeeper);
-		}
-		Map<Long,List<Double>> cache = new HashMap<>(365);
+		List<Path> existingFiles = Files.find(dataDir, 1,
+			(path, attr) -> path.getFileName().toString().matches("forecasts-\\d{4}-\\d{2}-\\d{2}.csv"))
+			.sorted()
+			.collect(Collectors.toList());
+		for(Path file : existingFiles) { Files.deleteIfExists(file); }
+		ForecastAppender forecastAppender = new ForecastAppender(dataDir, forecastFile, simTimeKeeper);
 		for(ConsolidatedSnapshot snapshot : consolidatedSnapshots) {
 			simTimeKeeper.advanceTime(snapshot.getTimeNanos());
 			history.add(snapshot);
-			List<Double> forecasts = new ArrayList<>(Product.count);
 			for(Product product : Product.FAST_VALUES) {
-				forecasts.add(product.getIndex(), forecastCalculator.calculate(history, product, forecastAppender));
+				forecasts[product.getIndex()] = forecastCalculator.calculate(history, product, forecastAppender);
 			}
-			cache.put(snapshot.getTimeNanos(), forecasts);
+			cache.add(snapshot.getTimeNanos(), forecasts);
 		}
-		if(forecastAppender != null)
-			forecastAppender.close();
+		forecastAppender.close();
 		return cache;
 	}
 
-	private SimResult simulate(List<ConsolidatedSnapshot> consolidatedSnapshots, Map<Long,List<Double>> forecastCache,
+	private SimResult simulate(Iterable<ConsolidatedSnapshot> consolidatedSnapshots, ForecastCache forecastCache,
 		MCProperties simProperties)
 		throws IOException
 	{
@@ -217,7 +269,9 @@ public class SimRunner implements Runnable {
 		long nextDay = intervalizer.calcNextDayMillis(0);
 		List<Double> dailyPositionValuesUsd = new ArrayList<>(365);
 		List<Integer> dailyTradeCount = new ArrayList<>(365);
+		ConsolidatedSnapshot lastSnapshot = null;
 		for(ConsolidatedSnapshot consolidatedSnapshot : consolidatedSnapshots) {
+			lastSnapshot = consolidatedSnapshot;
 			if(shouldSkipJan && consolidatedSnapshot.getTimeNanos() < 1518048000 * 1000000000L)
 				continue; // spotty/strange data before 2/8, just skip
 			if(!sampleTesting.isSampleValid(consolidatedSnapshot.getTimeNanos()))
@@ -233,7 +287,6 @@ public class SimRunner implements Runnable {
 			history.add(consolidatedSnapshot);
 			tradeEvaluator.evaluate();
 		}
-		ConsolidatedSnapshot lastSnapshot = consolidatedSnapshots.get(consolidatedSnapshots.size() - 1);
 		timeKeeper.advanceTime(nextDay * 1000000L);
 		dailyPositionValuesUsd.add(accountant.getPositionValueUsd(lastSnapshot));
 		dailyTradeCount.add(executionEngine.getAndResetTradeCount());
@@ -256,10 +309,11 @@ public class SimRunner implements Runnable {
 		return simResult;
 	}
 
+	/** Forecasts for every product at each interval time, in primitive arrays appended in time order */
 	class CachedForecastCalculator implements ForecastCalculator {
-		private Map<Long,List<Double>> cache;
+		private ForecastCache cache;
 
-		CachedForecastCalculator(Map<Long,List<Double>> cache) {
+		CachedForecastCalculator(ForecastCache cache) {
 			this.cache = cache;
 		}
 
@@ -267,7 +321,7 @@ public class SimRunner implements Runnable {
 		public double calculate(final ConsolidatedHistory consolidatedHistory, final Product product,
 			final ForecastAppender forecastAppender)
 		{
-			return cache.get(consolidatedHistory.latest().getTimeNanos()).get(product.getIndex());
+			return cache.get(consolidatedHistory.latest().getTimeNanos(), product);
 		}
 
 		@Override
@@ -0,0 +1,161 @@
+package com.mistrycapital.cryptobot.sim;
+
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedSnapshot;
+import com.mistrycapital.cryptobot.util.MCLoggerFactory;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Snapshots of all sampled days, read from disk a day at a time. Decoded days are kept in a least recently used
+ * cache, by default big enough for the whole history so each day is only read once, and while one day is being
+ * iterated the next is decoded in the background. The rows of each day's last interval are kept after the day is
+ * decoded, so the following day is read without reading this one again. Iterating gives the same snapshots in the
+ * same order as {@link SnapshotReader#readSnapshots}
+ */
+public class SnapshotDayStore implements Iterable<ConsolidatedSnapshot> {
+	private static final Logger log = MCLoggerFactory.getLogger();
+
+	private final List<Path> sampleFiles;
+	private final boolean useSampleStore;
+	/** Decoded or decoding days by index, least recently used first */
+	private final LinkedHashMap<Integer,CompletableFuture<List<ConsolidatedSnapshot>>> cache;
+	/** Rows of each decoded day's last interval, by day. Only touched by the prefetch thread */
+	private final SnapshotReader.SampleRows[] lastIntervals;
+	private final ExecutorService prefetcher;
+
+	/**
+	 * @param sampleFiles Daily sample files in date order
+	 * @param cachedDays Maximum number of decoded days to keep, at least 2 so the next day can be prefetched, or 0
+	 *                   to keep every day
+	 */
+	public SnapshotDayStore(List<Path> sampleFiles, boolean useSampleStore, int cachedDays) {
+		this.sampleFiles = new ArrayList<>(sampleFiles);
+		this.useSampleStore = useSampleStore;
+		lastIntervals = new SnapshotReader.SampleRows[sampleFiles.size()];
+		final int maxDays = cachedDays <= 0 ? Math.max(2, sampleFiles.size()) : Math.max(2, cachedDays);
+		cache = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer,CompletableFuture<List<ConsolidatedSnapshot>>> e) {
+				return size() > maxDays;
+			}
+		};
+		prefetcher = Executors.newSingleThreadExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "SnapshotDayStore-prefetch");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/** @return Number of days in the store */
+	public int getDayCount() {
+		return sampleFiles.size();
+	}
+
+	/** @return Daily sample files in date order */
+	public List<Path> getSampleFiles() {
+		return Collections.unmodifiableList(sampleFiles);
+	}
+
+	/**
+	 * @return Snapshots completed by the given day's rows, decoding the day if it is not cached and starting to
+	 * decode the following day
+	 */
+	public List<ConsolidatedSnapshot> getDay(int day) {
+		final CompletableFuture<List<ConsolidatedSnapshot>> future;
+		synchronized(cache) {
+			future = request(day);
+			if(day + 1 < sampleFiles.size())
+				request(day + 1);
+		}
+		try {
+			return future.get();
+		} catch(InterruptedException | ExecutionException e) {
+			throw new RuntimeException("Could not read " + sampleFiles.get(day), e);
+		}
+	}
+
+	/** @return Cached or newly started decode of the given day */
+	private CompletableFuture<List<ConsolidatedSnapshot>> request(int day) {
+		CompletableFuture<List<ConsolidatedSnapshot>> future = cache.get(day);
+		if(future == null) {
+			future = CompletableFuture.supplyAsync(() -> decode(day), prefetcher);
+			cache.put(day, future);
+		}
+		return future;
+	}
+
+	private List<ConsolidatedSnapshot> decode(int day) {
+		final long startNanos = System.nanoTime();
+		try {
+			SnapshotReader.SampleRows prevLastInterval = null;
+			if(day > 0) {
+				prevLastInterval = lastIntervals[day - 1];
+				// only when starting part way through the history
+				if(prevLastInterval == null)
+					prevLastInterval = SnapshotReader.readLastInterval(sampleFiles.get(day - 1), useSampleStore);
+			}
+			final SnapshotReader.SampleDay sampleDay =
+				SnapshotReader.readDay(prevLastInterval, sampleFiles.get(day), useSampleStore);
+			lastIntervals[day] = sampleDay.lastInterval;
+			log.debug("Read " + sampleFiles.get(day) + " in " + (System.nanoTime() - startNanos) / 1000000.0 + "ms");
+			return Collections.unmodifiableList(sampleDay.snapshots);
+		} catch(IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public Iterator<ConsolidatedSnapshot> iterator() {
+		return iterator(0);
+	}
+
+	/** @return Snapshots completed by the given day's rows and every later day's */
+	public Iterable<ConsolidatedSnapshot> fromDay(int firstDay) {
+		return () -> iterator(firstDay);
+	}
+
+	private Iterator<ConsolidatedSnapshot> iterator(int firstDay) {
+		return new Iterator<>() {
+			private int day = firstDay - 1;
+			private List<ConsolidatedSnapshot> snapshots = Collections.emptyList();
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				while(next >= snapshots.size()) {
+					if(day + 1 >= sampleFiles.size())
+						return false;
+					day++;
+					snapshots = getDay(day);
+					next = 0;
+				}
+				return true;
+			}
+
+			@Override
+			public ConsolidatedSnapshot next() {
+				if(!hasNext())
+					throw new NoSuchElementException();
+				return snapshots.get(next++);
+			}
+		};
+	}
+
+	/** Stops the prefetch thread */
+	public void close() {
+		prefetcher.shutdownNow();
+	}
+}
@@ -2,19 +2,17 @@ package com.mistrycapital.cryptobot.sim;
 
 import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedSnapshot;
 import com.mistrycapital.cryptobot.aggregatedata.ProductSnapshot;
+import com.mistrycapital.cryptobot.aggregatedata.SnapshotField;
 import com.mistrycapital.cryptobot.gdax.common.Product;
+import com.mistrycapital.cryptobot.util.FastCsvReader;
 import com.mistrycapital.cryptobot.util.MCLoggerFactory;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 import org.slf4j.Logger;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -46,50 +44,198 @@ public class SnapshotReader {
 	public static List<ConsolidatedSnapshot> readSnapshots(Collection<Path> sampleFiles)
 		throws IOException
 	{
-		List<ConsolidatedSnapshot> consolidatedSnapshots = new ArrayList<>(365 * 24 * 12); // 1 year
-		ProductSnapshot[] productSnapshots = new ProductSnapshot[Product.count];
-		SimTimeKeeper timeKeeper = new SimTimeKeeper();
-		long prevTime = 0;
+		return readSnapshots(sampleFiles, false);
+	}
 
-		// TODO: Improve performance by using a faster CSV reader
-		for(Path sampleFile : sampleFiles) {
-			try(
-				Reader in = Files.newBufferedReader(sampleFile);
-				CSVParser parser = CSVFormat.EXCEL.withFirstRecordAsHeader().parse(in)
-			)
-			{
-				for(CSVRecord record : parser) {
-					long timeNanos = Long.parseLong(record.get("unixTimestamp")) * 1000000000L;
-					timeKeeper.advanceTime(timeNanos);
-					ProductSnapshot productSnapshot = new ProductSnapshot(record);
-					productSnapshots[productSnapshot.product.getIndex()] = productSnapshot;
-
-					if(timeNanos > prevTime) {
-						log.debug("Restoring snapshot from " + timeKeeper.iso8601());
-						if(prevTime > 0) {
-							ConsolidatedSnapshot consolidatedSnapshot =
-								new ConsolidatedSnapshot(productSnapshots, timeNanos);
-							consolidatedSnapshots.add(consolidatedSnapshot);
-							productSnapshots = new ProductSnapshot[Product.count];
-						}
-					}
-					prevTime = timeNanos;
+	/**
+	 * Reads given sample files in order and creates a list of snapshots. Files are read in parallel and their rows
+	 * are then grouped into snapshots in file order, so the result is the same as reading them one by one
+	 *
+	 * @param useSampleStore true to read each file's columnar {@link SampleStore} instead of parsing the csv,
+	 * writing the store next to the csv first if it has no current one
+	 * @return Snapshots read from the files in order
+	 */
+	public static List<ConsolidatedSnapshot> readSnapshots(Collection<Path> sampleFiles, boolean useSampleStore)
+		throws IOException
+	{
+		final List<SampleRows> fileRows = sampleFiles.parallelStream()
+			.map(sampleFile -> {
+				try {
+					return readRows(sampleFile, useSampleStore);
+				} catch(IOException e) {
+					throw new RuntimeException(e);
 				}
+			})
+			.collect(Collectors.toList());
+
+		final SnapshotAssembler assembler = new SnapshotAssembler(365 * 24 * 12); // 1 year
+		for(SampleRows rows : fileRows)
+			for(int i = 0; i < rows.size; i++)
+				assembler.add(rows.timeNanos[i], rows.snapshots[i]);
+
+		return assembler.consolidatedSnapshots;
+	}
+
+	/**
+	 * Reads the snapshots of one day on its own. The result matches that day's part of reading every file with
+	 * {@link #readSnapshots(Collection, boolean)}: the previous day's last interval is fed in first because the
+	 * day's first row completes it, and the day's own last interval is left for the next day
+	 *
+	 * @param prevLastInterval Rows of the previous day's last interval, as returned with that day, or null for the
+	 *                         first day
+	 * @return Snapshots completed by the rows of the given day, with the rows of its own last interval
+	 */
+	static SampleDay readDay(SampleRows prevLastInterval, Path sampleFile, boolean useSampleStore)
+		throws IOException
+	{
+		final SnapshotAssembler assembler = new SnapshotAssembler(24 * 12);
+		if(prevLastInterval != null) {
+			for(int i = 0; i < prevLastInterval.size; i++)
+				assembler.add(prevLastInterval.timeNanos[i], prevLastInterval.snapshots[i]);
+		}
+		final SampleRows rows = readRows(sampleFile, useSampleStore);
+		for(int i = 0; i < rows.size; i++)
+			assembler.add(rows.timeNanos[i], rows.snapshots[i]);
+		return new SampleDay(assembler.consolidatedSnapshots, lastInterval(rows));
+	}
+
+	/**
+	 * @return Rows of the given day's last interval, for reading the following day when this one was not read
+	 */
+	static SampleRows readLastInterval(Path sampleFile, boolean useSampleStore)
+		throws IOException
+	{
+		return lastInterval(readRows(sampleFile, useSampleStore));
+	}
+
+	private static SampleRows lastInterval(SampleRows rows) {
+		int start = rows.size;
+		while(start > 0 && rows.timeNanos[start - 1] == rows.timeNanos[rows.size - 1])
+			start--;
+		final SampleRows lastRows = new SampleRows(rows.size - start);
+		for(int i = start; i < rows.size; i++)
+			lastRows.add(rows.timeNanos[i], rows.snapshots[i]);
+		return lastRows;
+	}
+
+	private static SampleRows readRows(Path sampleFile, boolean useSampleStore)
+		throws IOException
+	{
+		return useSampleStore ? readStore(sampleFile) : readCsv(sampleFile);
+	}
+
+	/** @return Rows of the given sample csv, read with a {@link FastCsvReader} */
+	private static SampleRows readCsv(Path sampleFile)
+		throws IOException
+	{
+		final SampleRows rows = new SampleRows();
+		try(FastCsvReader reader = new FastCsvReader(Files.newBufferedReader(sampleFile))) {
+			final int timeColumn = reader.getColumnIndex("unixTimestamp");
+			final int productColumn = reader.getColumnIndex("product");
+			final int[] fieldColumns = new int[SnapshotField.count];
+			for(SnapshotField field : SnapshotField.FAST_VALUES)
+				fieldColumns[field.ordinal()] = reader.getColumnIndex(field.getColumnName());
+
+			final double[] values = new double[SnapshotField.count];
+			while(reader.next()) {
+				final long timeNanos = reader.getLong(timeColumn) * 1000000000L;
+				Product product = null;
+				for(Product candidate : Product.FAST_VALUES)
+					if(reader.matches(productColumn, candidate.toString()))
+						product = candidate;
+				if(product == null)
+					product = Product.parse(reader.getString(productColumn));
+				for(int i = 0; i < values.length; i++)
+					values[i] = reader.getDouble(fieldColumns[i]);
+				rows.add(timeNanos, new ProductSnapshot(product, values));
 			}
 		}
+		return rows;
+	}
+
+	/** @return Rows of the given sample csv, copied out of its store, which is written first if not current */
+	private static SampleRows readStore(Path sampleFile)
+		throws IOException
+	{
+		if(!SampleStore.isCurrent(sampleFile)) {
+			log.debug("Converting " + sampleFile + " to a sample store");
+			SampleStore.convert(sampleFile);
+		}
+		final SampleRows rows = new SampleRows();
+		final SampleStore store = SampleStore.open(SampleStore.getStorePath(sampleFile));
+		for(int row = 0; row < store.size(); row++) {
+			final long timeNanos = store.getTimeNanos(row);
+			for(Product product : Product.FAST_VALUES)
+				if(store.hasProduct(row, product))
+					rows.add(timeNanos, store.getProductSnapshot(row, product));
+		}
+		return rows;
+	}
 
-		return consolidatedSnapshots;
+	/** Snapshots completed by one day's rows, and the rows of its last interval that the next day completes */
+	static class SampleDay {
+		final List<ConsolidatedSnapshot> snapshots;
+		final SampleRows lastInterval;
 
+		SampleDay(List<ConsolidatedSnapshot> snapshots, SampleRows lastInterval) {
+			this.snapshots = snapshots;
+			this.lastInterval = lastInterval;
+		}
+	}
+
+	/** Product snapshots of one file with their times, in file order */
+	static class SampleRows {
+		long[] timeNanos;
+		ProductSnapshot[] snapshots;
+		int size;
+
+		SampleRows() {
+			this(24 * 12 * Product.count);
+		}
+
+		SampleRows(int capacity) {
+			timeNanos = new long[Math.max(1, capacity)];
+			snapshots = new ProductSnapshot[timeNanos.length];
+		}
+
+		void add(long time, ProductSnapshot snapshot) {
+			if(size == timeNanos.length) {
+				timeNanos = Arrays.copyOf(timeNanos, size * 2);
+				snapshots = Arrays.copyOf(snapshots, size * 2);
+			}
+			timeNanos[size] = time;
+			snapshots[size] = snapshot;
+			size++;
+		}
 	}
 
 	/**
-	 * @return true if array is filled with values, false if one is null
+	 * Groups product snapshots read in file order into consolidated snapshots
 	 */
-	private static <T> boolean isFull(T[] array) {
-		for(T element : array)
-			if(element == null)
-				return false;
+	private static class SnapshotAssembler {
+		final List<ConsolidatedSnapshot> consolidatedSnapshots;
+		ProductSnapshot[] productSnapshots = new ProductSnapshot[Product.count];
+		final SimTimeKeeper timeKeeper = new SimTimeKeeper();
+		long prevTime = 0;
+
+		SnapshotAssembler(int expectedSnapshots) {
+			consolidatedSnapshots = new ArrayList<>(expectedSnapshots);
+		}
+
+		void add(long timeNanos, ProductSnapshot productSnapshot) {
+			timeKeeper.advanceTime(timeNanos);
+			productSnapshots[productSnapshot.product.getIndex()] = productSnapshot;
 
-		return true;
+			if(timeNanos > prevTime) {
+				log.debug("Restoring snapshot from " + timeKeeper.iso8601());
+				if(prevTime > 0) {
+					ConsolidatedSnapshot consolidatedSnapshot =
+						new ConsolidatedSnapshot(productSnapshots, timeNanos);
+					consolidatedSnapshots.add(consolidatedSnapshot);
+					productSnapshots = new ProductSnapshot[Product.count];
+				}
+			}
+			prevTime = timeNanos;
+		}
 	}
 }
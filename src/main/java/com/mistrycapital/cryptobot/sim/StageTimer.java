@@ -0,0 +1,49 @@
+package com.mistrycapital.cryptobot.sim;
+
+/**
+ * Tracks how long a replay pipeline stage spends working versus waiting on its neighbours
+ */
+public class StageTimer {
+	private final String name;
+	private long startNanos;
+	private long stopNanos;
+	private volatile long idleNanos;
+
+	/** Creates a timer started now */
+	public StageTimer(String name) {
+		this.name = name;
+		startNanos = System.nanoTime();
+	}
+
+	/** Marks the start of the stage's work, if later than creation */
+	public void start() {
+		startNanos = System.nanoTime();
+	}
+
+	/** Marks the end of the stage's work */
+	public void stop() {
+		stopNanos = System.nanoTime();
+	}
+
+	/** Adds time the stage spent blocked waiting for input or for room to pass on its output */
+	public void addIdleNanos(long nanos) {
+		idleNanos += nanos;
+	}
+
+	/** @return Seconds between start and stop not spent idle */
+	public double busySeconds() {
+		return (stopNanos - startNanos - idleNanos) / 1000000000.0;
+	}
+
+	/** @return Seconds spent idle */
+	public double idleSeconds() {
+		return idleNanos / 1000000000.0;
+	}
+
+	@Override
+	public String toString() {
+		final long totalNanos = Math.max(1L, stopNanos - startNanos);
+		return name + " busy " + busySeconds() + "s idle " + idleSeconds() + "s ("
+			+ (100 * (totalNanos - idleNanos) / totalNanos) + "% busy)";
+	}
+}
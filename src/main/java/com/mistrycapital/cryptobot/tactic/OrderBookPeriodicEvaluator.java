@@ -38,13 +38,15 @@ public class OrderBookPeriodicEvaluator implements Runnable {
 	private long nextIntervalMillis;
 	private long nextHourMillis;
 	private long nextDayMillis;
+	/** Time from the latest interval boundary until trades were decided, in milliseconds */
+	private long decisionLatencyMillis;
 
 	public OrderBookPeriodicEvaluator(TimeKeeper timeKeeper, Intervalizer intervalizer,
 		ConsolidatedHistory consolidatedHistory, Accountant accountant, OrderBookManager orderBookManager,
 		DynamicTracker dynamicTracker, IntervalDataAppender intervalDataAppender, ForecastCalculator forecastCalculator,
 		Tactic tactic, TradeRiskValidator tradeRiskValidator, ExecutionEngine executionEngine,
 		DecisionAppender decisionAppender, DailyAppender dailyAppender, ForecastAppender forecastAppender,
-		DBRecorder dbRecorder)
+		DBRecorder dbRecorder, int forecastThreads)
 	{
 		this.timeKeeper = timeKeeper;
 		this.intervalizer = intervalizer;
@@ -57,7 +59,12 @@ public class OrderBookPeriodicEvaluator implements Runnable {
 		nextIntervalMillis = intervalizer.calcNextIntervalMillis(timeKeeper.epochMs());
 		nextHourMillis = intervalizer.calcNextHourMillis(timeKeeper.epochMs());
 		tradeEvaluator = new TradeEvaluator(consolidatedHistory, forecastCalculator, tactic, tradeRiskValidator,
-			executionEngine, decisionAppender, dailyAppender, forecastAppender);
+			executionEngine, decisionAppender, dailyAppender, forecastAppender, forecastThreads);
+	}
+
+	/** @return Time from the latest interval boundary until trades were decided, in milliseconds */
+	public long getDecisionLatencyMillis() {
+		return decisionLatencyMillis;
 	}
 
 	@Override
@@ -67,8 +74,14 @@ public class OrderBookPeriodicEvaluator implements Runnable {
 				// evaluate if needed
 				long remainingMs = nextIntervalMillis - timeKeeper.epochMs();
 				if(remainingMs <= 0) {
-					if(recordData())
+					if(recordData()) {
+						final long evaluateMs = timeKeeper.epochMs();
 						tradeEvaluator.evaluate();
+						decisionLatencyMillis =
+							evaluateMs - nextIntervalMillis + tradeEvaluator.getDecisionNanos() / 1000000L;
+						log.info("Decided trades " + decisionLatencyMillis + "ms after interval boundary, "
+							+ "forecasts took " + tradeEvaluator.getForecastNanos() / 1000000.0 + "ms");
+					}
 					final long timeMs = timeKeeper.epochMs();
 					nextIntervalMillis = intervalizer.calcNextIntervalMillis(timeMs);
 					remainingMs = nextIntervalMillis - timeMs;
@@ -14,7 +14,13 @@ import com.mistrycapital.cryptobot.util.MCLoggerFactory;
 import org.slf4j.Logger;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.Nullable;
 
 public class TradeEvaluator {
@@ -30,15 +36,37 @@ public class TradeEvaluator {
 	private final ForecastAppender forecastAppender;
 
 	private double[] forecasts;
+	/** Pool calculating products concurrently, or null to calculate them on the calling thread */
+	private final ExecutorService forecastPool;
+	private final List<Callable<Double>> forecastTasks;
+	/** Time taken by the latest evaluation to calculate forecasts, and to reach a decision, in nanos */
+	private long forecastNanos;
+	private long decisionNanos;
 
 	/**
-	 * Creates an evaluator
+	 * Creates an evaluator that calculates forecasts on the calling thread
 	 * Note that forecast appender and decision logger can be null if we do not want to log
 	 */
 	public TradeEvaluator(ConsolidatedHistory consolidatedHistory, ForecastCalculator forecastCalculator, Tactic tactic,
 		TradeRiskValidator tradeRiskValidator, ExecutionEngine executionEngine,
 		@Nullable DecisionAppender decisionAppender, @Nullable DailyAppender dailyAppender,
 		@Nullable ForecastAppender forecastAppender)
+	{
+		this(consolidatedHistory, forecastCalculator, tactic, tradeRiskValidator, executionEngine, decisionAppender,
+			dailyAppender, forecastAppender, 0);
+	}
+
+	/**
+	 * Creates an evaluator
+	 * Note that forecast appender and decision logger can be null if we do not want to log
+	 *
+	 * @param forecastThreads Number of threads to calculate products' forecasts concurrently on, or 0 to calculate
+	 *                        them one after another on the calling thread
+	 */
+	public TradeEvaluator(ConsolidatedHistory consolidatedHistory, ForecastCalculator forecastCalculator, Tactic tactic,
+		TradeRiskValidator tradeRiskValidator, ExecutionEngine executionEngine,
+		@Nullable DecisionAppender decisionAppender, @Nullable DailyAppender dailyAppender,
+		@Nullable ForecastAppender forecastAppender, int forecastThreads)
 	{
 		this.consolidatedHistory = consolidatedHistory;
 		this.forecastCalculator = forecastCalculator;
@@ -49,19 +77,48 @@ public class TradeEvaluator {
 		this.dailyAppender = dailyAppender;
 		this.forecastAppender = forecastAppender;
 		forecasts = new double[Product.count];
+		if(forecastThreads > 0) {
+			forecastPool = Executors.newFixedThreadPool(forecastThreads, runnable -> {
+				final Thread thread = new Thread(runnable, "TradeEvaluator-forecast");
+				thread.setDaemon(true);
+				return thread;
+			});
+			forecastTasks = new ArrayList<>(Product.count);
+			for(Product product : Product.FAST_VALUES)
+				forecastTasks.add(() -> forecastCalculator.calculate(consolidatedHistory, product, forecastAppender));
+		} else {
+			forecastPool = null;
+			forecastTasks = null;
+		}
+	}
+
+	/** @return Time the latest evaluation took to calculate all forecasts, in nanos */
+	public long getForecastNanos() {
+		return forecastNanos;
+	}
+
+	/** @return Time from the start of the latest evaluation until its trades were decided, in nanos */
+	public long getDecisionNanos() {
+		return decisionNanos;
 	}
 
 	/**
 	 * Evaluates forecasts and trades if warranted
 	 */
 	public void evaluate() {
+		final long startNanos = System.nanoTime();
 		ConsolidatedSnapshot snapshot = consolidatedHistory.latest();
 
 		// update signals
-		for(Product product : Product.FAST_VALUES) {
-			forecasts[product.getIndex()] =
-				forecastCalculator.calculate(consolidatedHistory, product, forecastAppender);
+		if(forecastPool == null) {
+			for(Product product : Product.FAST_VALUES) {
+				forecasts[product.getIndex()] =
+					forecastCalculator.calculate(consolidatedHistory, product, forecastAppender);
+			}
+		} else {
+			calculateConcurrently();
 		}
+		forecastNanos = System.nanoTime() - startNanos;
 
 		// possibly trade
 		List<TradeInstruction> origInstructions = tactic.decideTrades(snapshot, forecasts);
@@ -72,6 +129,7 @@ public class TradeEvaluator {
 					tactic.notifyReject(instruction);
 			}
 		}
+		decisionNanos = System.nanoTime() - startNanos;
 		if(instructions != null && instructions.size() > 0)
 			executionEngine.trade(instructions);
 
@@ -84,4 +142,18 @@ public class TradeEvaluator {
 			log.error("Error saving decision or daily data", e);
 		}
 	}
+
+	/**
+	 * Calculates each product's forecast as a task on the forecast pool. Forecast calculators keep scratch state
+	 * per product, and each product is calculated by one task, so the tasks share no mutable state
+	 */
+	private void calculateConcurrently() {
+		try {
+			final List<Future<Double>> results = forecastPool.invokeAll(forecastTasks);
+			for(Product product : Product.FAST_VALUES)
+				forecasts[product.getIndex()] = results.get(product.getIndex()).get();
+		} catch(InterruptedException | ExecutionException e) {
+			throw new RuntimeException("Could not calculate forecasts", e);
+		}
+	}
 }
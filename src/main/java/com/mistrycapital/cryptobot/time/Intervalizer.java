@@ -14,8 +14,12 @@ public class Intervalizer {
 	private final int historyIntervals;
 
 	public Intervalizer(MCProperties properties) {
-		secondsToKeep = properties.getIntProperty("history.secondsToKeep");
-		intervalSeconds = properties.getIntProperty("history.intervalSeconds");
+		this(properties.getIntProperty("history.secondsToKeep"), properties.getIntProperty("history.intervalSeconds"));
+	}
+
+	public Intervalizer(int secondsToKeep, int intervalSeconds) {
+		this.secondsToKeep = secondsToKeep;
+		this.intervalSeconds = intervalSeconds;
 		historyIntervals = secondsToKeep / intervalSeconds;
 	}
 
@@ -37,6 +41,13 @@ public class Intervalizer {
 		return (curMillis / DAY_MILLIS + 1) * DAY_MILLIS;
 	}
 
+	/**
+	 * @return Length of each interval in seconds
+	 */
+	public final int getIntervalSeconds() {
+		return intervalSeconds;
+	}
+
 	/**
 	 * @return Number of intervals to store in history
 	 */
@@ -0,0 +1,253 @@
+package com.mistrycapital.cryptobot.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Minimal csv reader for the numeric files written by this project (samples, cached datasets). The header is read
+ * once and columns are addressed by index. Rows are framed in place in a char buffer and numbers are parsed
+ * straight from it, so reading a row allocates nothing. Quoted fields are not supported
+ */
+public class FastCsvReader implements Closeable {
+	/** Powers of ten that are exact doubles */
+	private static final double[] POWERS_OF_TEN = new double[23];
+
+	static {
+		POWERS_OF_TEN[0] = 1.0;
+		for(int i = 1; i < POWERS_OF_TEN.length; i++)
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+	}
+
+	private final Reader in;
+	private final String[] header;
+	private char[] buffer = new char[1 << 16];
+	/** Number of valid chars in the buffer */
+	private int limit;
+	/** Start of the next row in the buffer */
+	private int position;
+	private boolean eof;
+	/** Start and end (exclusive) of each field of the current row */
+	private int[] fieldStarts = new int[64];
+	private int[] fieldEnds = new int[64];
+	private int fieldCount;
+
+	/**
+	 * Reads the header row from the given reader
+	 */
+	public FastCsvReader(Reader in)
+		throws IOException
+	{
+		this.in = in;
+		if(!next())
+			throw new RuntimeException("Missing csv header");
+		header = new String[fieldCount];
+		for(int i = 0; i < fieldCount; i++)
+			header[i] = getString(i);
+	}
+
+	/** @return Column names from the header */
+	public String[] getHeader() {
+		return header.clone();
+	}
+
+	/** @return Index of the named column */
+	public int getColumnIndex(String columnName) {
+		for(int i = 0; i < header.length; i++)
+			if(header[i].equals(columnName))
+				return i;
+		throw new RuntimeException("Missing csv column " + columnName + " in " + Arrays.toString(header));
+	}
+
+	/**
+	 * Moves to the next row, skipping blank lines
+	 *
+	 * @return false at the end of the input
+	 */
+	public boolean next()
+		throws IOException
+	{
+		while(true) {
+			// find the end of the row, refilling the buffer if it is not all there
+			int end = position;
+			while(true) {
+				while(end < limit && buffer[end] != '\n')
+					end++;
+				if(end < limit || eof)
+					break;
+				end -= position;
+				fill();
+				end += position;
+			}
+			if(position >= limit && eof)
+				return false;
+
+			final int rowEnd = end > position && buffer[end - 1] == '\r' ? end - 1 : end;
+			final int rowStart = position;
+			position = end + 1;
+			if(rowEnd == rowStart)
+				continue;
+
+			fieldCount = 0;
+			int fieldStart = rowStart;
+			for(int i = rowStart; i <= rowEnd; i++) {
+				if(i == rowEnd || buffer[i] == ',') {
+					if(fieldCount == fieldStarts.length) {
+						fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+						fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+					}
+					fieldStarts[fieldCount] = fieldStart;
+					fieldEnds[fieldCount] = i;
+					fieldCount++;
+					fieldStart = i + 1;
+				}
+			}
+			return true;
+		}
+	}
+
+	/** @return Number of fields in the current row */
+	public int getFieldCount() {
+		return fieldCount;
+	}
+
+	/** @return true if the field is empty in the current row */
+	public boolean isEmpty(int column) {
+		return fieldStarts[column] == fieldEnds[column];
+	}
+
+	/** @return true if the field holds exactly the given text */
+	public boolean matches(int column, String text) {
+		final int start = fieldStarts[column];
+		if(fieldEnds[column] - start != text.length())
+			return false;
+		for(int i = 0; i < text.length(); i++)
+			if(buffer[start + i] != text.charAt(i))
+				return false;
+		return true;
+	}
+
+	/** @return Field as a string. Allocates, so meant for the header and rare text columns */
+	public String getString(int column) {
+		return new String(buffer, fieldStarts[column], fieldEnds[column] - fieldStarts[column]);
+	}
+
+	/** @return Field parsed as a long */
+	public long getLong(int column) {
+		int i = fieldStarts[column];
+		final int end = fieldEnds[column];
+		final boolean negative = i < end && buffer[i] == '-';
+		if(negative || i < end && buffer[i] == '+')
+			i++;
+		if(i == end)
+			throw new NumberFormatException("Not a long: " + getString(column));
+		long value = 0L;
+		for(; i < end; i++) {
+			final int digit = buffer[i] - '0';
+			if(digit < 0 || digit > 9)
+				throw new NumberFormatException("Not a long: " + getString(column));
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parses the field as a double. Decimals with up to 15 significant digits and a small exponent are converted
+	 * exactly without allocating; anything else falls back to Double.parseDouble
+	 *
+	 * @return Field parsed as a double, or NaN if the field is empty
+	 */
+	public double getDouble(int column) {
+		final int start = fieldStarts[column];
+		final int end = fieldEnds[column];
+		if(start == end)
+			return Double.NaN;
+
+		int i = start;
+		final boolean negative = buffer[i] == '-';
+		if(negative || buffer[i] == '+')
+			i++;
+		long mantissa = 0L;
+		int digits = 0;
+		int exponent = 0;
+		boolean seenDigit = false;
+		boolean seenPoint = false;
+		for(; i < end; i++) {
+			final char c = buffer[i];
+			if(c >= '0' && c <= '9') {
+				seenDigit = true;
+				if(mantissa != 0 || c != '0')
+					digits++;
+				mantissa = mantissa * 10 + (c - '0');
+				if(seenPoint)
+					exponent--;
+				if(digits > 15)
+					return parseSlow(column);
+			} else if(c == '.' && !seenPoint) {
+				seenPoint = true;
+			} else {
+				break;
+			}
+		}
+		if(!seenDigit)
+			return parseSlow(column);
+		if(i < end) {
+			if(buffer[i] != 'e' && buffer[i] != 'E' || ++i == end)
+				return parseSlow(column);
+			final boolean negativeExponent = buffer[i] == '-';
+			if(negativeExponent || buffer[i] == '+')
+				i++;
+			int explicitExponent = 0;
+			for(; i < end; i++) {
+				final int digit = buffer[i] - '0';
+				if(digit < 0 || digit > 9 || explicitExponent > 1000)
+					return parseSlow(column);
+				explicitExponent = explicitExponent * 10 + digit;
+			}
+			exponent += negativeExponent ? -explicitExponent : explicitExponent;
+		}
+
+		// mantissa < 10^15 is exact, and one rounding of an exact product or quotient is correctly rounded
+		final double value;
+		if(mantissa == 0)
+			value = 0.0;
+		else if(exponent >= 0 && exponent < POWERS_OF_TEN.length)
+			value = mantissa * POWERS_OF_TEN[exponent];
+		else if(exponent < 0 && -exponent < POWERS_OF_TEN.length)
+			value = mantissa / POWERS_OF_TEN[-exponent];
+		else
+			return parseSlow(column);
+		return negative ? -value : value;
+	}
+
+	/** Handles NaN, Infinity and decimals too long for the fast path */
+	private double parseSlow(int column) {
+		return Double.parseDouble(getString(column));
+	}
+
+	/** Moves the unread part of the buffer to the front and reads more, growing the buffer for very long rows */
+	private void fill()
+		throws IOException
+	{
+		final int remaining = limit - position;
+		if(remaining == buffer.length)
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		else
+			System.arraycopy(buffer, position, buffer, 0, remaining);
+		position = 0;
+		limit = remaining;
+		final int read = in.read(buffer, limit, buffer.length - limit);
+		if(read < 0)
+			eof = true;
+		else
+			limit += read;
+	}
+
+	@Override
+	public void close()
+		throws IOException
+	{
+		in.close();
+	}
+}
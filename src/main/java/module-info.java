@@ -15,4 +15,12 @@ module crypto {
 	requires java.naming;
 	requires logback.classic;
 	exports com.mistrycapital.cryptobot.gdax.websocket;
+
+	uses com.mistrycapital.cryptobot.forecasts.ForecastProvider;
+	provides com.mistrycapital.cryptobot.forecasts.ForecastProvider with
+		com.mistrycapital.cryptobot.forecasts.Alta.Provider,
+		com.mistrycapital.cryptobot.forecasts.Ensemble.Provider,
+		com.mistrycapital.cryptobot.forecasts.Hunter.Provider,
+		com.mistrycapital.cryptobot.forecasts.OnlineForecast.Provider,
+		com.mistrycapital.cryptobot.forecasts.Snowbird.Provider;
 }
\ No newline at end of file
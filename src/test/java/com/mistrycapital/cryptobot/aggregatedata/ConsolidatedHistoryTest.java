@@ -1,9 +1,12 @@
 package com.mistrycapital.cryptobot.aggregatedata;
 
+import com.mistrycapital.cryptobot.gdax.common.Product;
 import com.mistrycapital.cryptobot.time.Intervalizer;
 import com.mistrycapital.cryptobot.util.MCProperties;
 import org.junit.jupiter.api.Test;
 
+import java.util.ConcurrentModificationException;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -46,4 +49,84 @@ class ConsolidatedHistoryTest {
 		assertEquals(snapshot2, iter.next());
 		assertFalse(iter.hasNext());
 	}
-}
\ No newline at end of file
+
+	@Test
+	void shouldKeepContiguousFieldWindows() {
+		MCProperties properties = new MCProperties();
+		properties.setProperty("history.secondsToKeep", "4");
+		properties.setProperty("history.intervalSeconds", "1");
+		ConsolidatedHistory history = new ConsolidatedHistory(new Intervalizer(properties));
+		assertEquals(0, history.window(Product.BTC_USD, SnapshotField.RET, 3).size());
+
+		for(int i = 1; i <= 7; i++) {
+			ProductSnapshot[] productSnapshots = new ProductSnapshot[Product.count];
+			double[] values = new double[SnapshotField.count];
+			values[SnapshotField.RET.ordinal()] = i;
+			productSnapshots[Product.BTC_USD.getIndex()] = new ProductSnapshot(Product.BTC_USD, values);
+			history.add(new ConsolidatedSnapshot(productSnapshots, i * 1000000000L));
+
+			ColumnWindow window = history.window(Product.BTC_USD, SnapshotField.RET, 3);
+			assertEquals(Math.min(i, 3), window.size());
+			for(int j = 0; j < window.size(); j++) {
+				assertEquals(i - j, window.get(j));
+				assertEquals(i - window.size() + 1 + j, window.values[window.from + j]);
+			}
+			assertTrue(Double.isNaN(history.window(Product.ETH_USD, SnapshotField.RET, 1).get(0)));
+		}
+		assertEquals(4, history.size());
+		assertEquals(4, history.window(Product.BTC_USD, SnapshotField.RET, 10).size());
+		assertEquals(3, history.intervalsWithin(2));
+	}
+
+	@Test
+	void shouldKeepViewsWhileAdding() {
+		MCProperties properties = new MCProperties();
+		properties.setProperty("history.secondsToKeep", "3");
+		properties.setProperty("history.intervalSeconds", "1");
+		ConsolidatedHistory history = new ConsolidatedHistory(new Intervalizer(properties));
+		ConsolidatedSnapshot[] snapshots = new ConsolidatedSnapshot[6];
+		for(int i = 0; i < snapshots.length; i++)
+			snapshots[i] = new ConsolidatedSnapshot(new ProductSnapshot[Product.count], (i + 1) * 1000000000L);
+		for(int i = 0; i < 3; i++)
+			history.add(snapshots[i]);
+
+		var values = history.values().iterator();
+		var inOrder = history.inOrder(1).iterator();
+		assertEquals(snapshots[2], values.next());
+		history.add(snapshots[3]);
+		history.add(snapshots[4]);
+		assertEquals(snapshots[1], values.next());
+		assertEquals(snapshots[0], values.next());
+		assertFalse(values.hasNext());
+		assertEquals(snapshots[1], inOrder.next());
+		assertEquals(snapshots[2], inOrder.next());
+		assertFalse(inOrder.hasNext());
+
+		var overrun = history.values().iterator();
+		for(int i = 0; i < 6; i++)
+			history.add(snapshots[i % snapshots.length]);
+		assertThrows(ConcurrentModificationException.class, overrun::next);
+	}
+
+	@Test
+	void shouldFindLookbackAcrossGaps() {
+		MCProperties properties = new MCProperties();
+		properties.setProperty("history.secondsToKeep", "10");
+		properties.setProperty("history.intervalSeconds", "1");
+		ConsolidatedHistory history = new ConsolidatedHistory(new Intervalizer(properties));
+		// one second grid with a gap between 3 and 7
+		for(long second : new long[] {1, 2, 3, 7, 8, 9})
+			history.add(new ConsolidatedSnapshot(new ProductSnapshot[Product.count], second * 1000000000L));
+
+		final long count = history.getCount();
+		assertEquals(6, count);
+		assertEquals(3, history.intervalsWithin(2));
+		assertEquals(3, history.intervalsWithin(5));
+		assertEquals(4, history.intervalsWithin(6));
+		assertEquals(6, history.intervalsWithin(100));
+		assertEquals(1, history.intervalsWithin(0));
+		assertEquals(2, history.firstWithin(count, 6));
+		assertEquals(7000000000L, history.get(history.firstWithin(count, 2)).getTimeNanos());
+		assertEquals(history.inOrder(6).iterator().next(), history.get(history.firstWithin(count, 6)));
+	}
+}
@@ -153,4 +153,19 @@ class ProductSnapshotTest {
 		String joined = allData.stream().map(Object::toString).collect(Collectors.joining(","));
 		assertEquals(joined, snapshot.toCSVString());
 	}
-}
\ No newline at end of file
+
+	@Test
+	void shouldTakeReturnFromPrevLastPrice() {
+		IntervalData intervalData = new IntervalData();
+		intervalData.lastPrice = 101.0;
+		intervalData.volume = 2.0;
+		ProductSnapshot snapshot = ProductSnapshot.getSnapshot(Product.BTC_USD, mock(OrderBook.class), intervalData);
+		assertTrue(Double.isNaN(snapshot.ret));
+
+		assertSame(snapshot, snapshot.withPrevLastPrice(Double.NaN));
+		ProductSnapshot patched = snapshot.withPrevLastPrice(100.0);
+		assertEquals(0.01, patched.ret, EPSILON);
+		assertEquals(101.0, patched.lastPrice, EPSILON);
+		assertEquals(snapshot.toCSVString().replace(",101.0,NaN,2.0,", ",101.0," + patched.ret + ",2.0,"), patched.toCSVString());
+	}
+}
@@ -0,0 +1,161 @@
+package com.mistrycapital.cryptobot.forecasts;
+
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedHistory;
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedSnapshot;
+import com.mistrycapital.cryptobot.aggregatedata.ProductSnapshot;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+import com.mistrycapital.cryptobot.time.Intervalizer;
+import com.mistrycapital.cryptobot.util.MCProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.mistrycapital.cryptobot.forecasts.TestHistories.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AltaTest {
+	/** Signals to use and forecast for ETH at steps 150, 420 and 699, from the two pass implementation */
+	private static final double[][] ETH_EXPECTED = {
+		{0.4942603533311673, 0.0012251528109638108, 0.04213543243549665, 0.005287519801715046, -7.17883357357634E-4,
+			-2.772727272727273, -4.1688311688311686, 0.4949800577637189, 0.5945945945945945, 1.7144001138221683,
+			-79.0, 0.011333018779954518, -4.970419791257008E-4, -8.874927765681885},
+		{0.5166798436288728, -7.349352431993933E-4, -0.03231753674215418, -0.0070168088038709,
+			-1.4475786587613994E-5, 3.3157894736842106, 2.665071770334928, 0.5148934726557199, 0.43243243243243246,
+			0.645616897672609, 99.0, -0.02204945051101781, 0.0011961185291500254, 11.422585217678279},
+		{0.5050446495986026, -2.262005113509353E-4, -0.027402515062711814, -0.010789878695761757,
+			2.6190098374097987E-4, -3.4457831325301207, -0.6325301204819277, 0.5236077481840193, 0.43243243243243246,
+			0.7895893557885634, 58.0, -0.038069640165891316, 0.001637838165180705, 6.289192287043756}
+	};
+	/** Same for BCH at step 684, where its snapshot is missing, and step 686 */
+	private static final double[][] BCH_EXPECTED = {
+		{0.4963591799233835, 6.599090767955565E-4, -0.010948172156864649, 0.0028996461520436334,
+			-0.002257056640842414, 6.27536231884058, 5.173913043478261, 0.4908316488593705, 0.5833333333333335,
+			1.2506692929158063, 76.0, 0.005136411144633035, -7.78396446180607E-4, 9.321695769003698},
+		{0.49777950577488606, 5.126079847367628E-4, -0.01096235963971387, -0.001133602922964938,
+			-0.0034698759962992157, 2.9886363636363638, 1.7102272727272727, 0.4918050348152116, 0.5833333333333335,
+			1.2968482630535159, 76.0, 0.007775650357409125, 3.158477815099481E-4, 8.886977796765663}
+	};
+
+	@Test
+	void shouldMatchRecordedSignals() {
+		MCProperties properties = makeProperties("alta", Alta.signalsToUse.length);
+		ConsolidatedHistory history = new ConsolidatedHistory(new Intervalizer(properties));
+		List<ConsolidatedSnapshot> snapshots = randomWalk(42, 700, 300, true, false);
+		Alta alta = new Alta(properties);
+		int ethCheck = 0;
+		int bchCheck = 0;
+		for(int i = 0; i < snapshots.size(); i++) {
+			history.add(snapshots.get(i));
+			for(Product product : Product.FAST_VALUES)
+				alta.calculate(history, product, null);
+			if(i == 150 || i == 420 || i == 699)
+				assertSignals(ETH_EXPECTED[ethCheck++], alta, history, Product.ETH_USD);
+			if(i == 684 || i == 686)
+				assertSignals(BCH_EXPECTED[bchCheck++], alta, history, Product.BCH_USD);
+		}
+		assertEquals(3, ethCheck);
+		assertEquals(2, bchCheck);
+	}
+
+	@Test
+	void shouldCalculateProductsConcurrently()
+		throws Exception
+	{
+		MCProperties properties = makeProperties("alta", Alta.signalsToUse.length);
+		ConsolidatedHistory history = new ConsolidatedHistory(new Intervalizer(properties));
+		Alta sequential = new Alta(properties);
+		Alta concurrent = new Alta(properties);
+		List<Callable<Double>> tasks = new ArrayList<>();
+		for(Product product : Product.FAST_VALUES)
+			tasks.add(() -> concurrent.calculate(history, product, null));
+		ExecutorService pool = Executors.newFixedThreadPool(Product.count);
+		try {
+			for(ConsolidatedSnapshot snapshot : randomWalk(42, 700, 300, true, false)) {
+				history.add(snapshot);
+				List<Future<Double>> results = pool.invokeAll(tasks);
+				for(Product product : Product.FAST_VALUES) {
+					double expected = sequential.calculate(history, product, null);
+					assertEquals(expected, (double) results.get(product.getIndex()).get());
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void shouldRollSameAsFullPass() {
+		MCProperties properties = makeProperties("alta", Alta.signalsToUse.length);
+		properties.setProperty("forecast.alta.calcAllSignals", "true");
+		ConsolidatedHistory history = new ConsolidatedHistory(new Intervalizer(properties));
+		Alta rolling = new Alta(properties);
+		for(ConsolidatedSnapshot snapshot : randomWalk(42, 700, 300, true, false)) {
+			history.add(snapshot);
+			for(Product product : Product.FAST_VALUES) {
+				Map<String,Double> expected = new HashMap<>(new Alta(properties).getInputVariables(history, product));
+				Map<String,Double> actual = rolling.getInputVariables(history, product);
+				assertEquals(expected.keySet(), actual.keySet());
+				for(String name : expected.keySet())
+					assertClose(expected.get(name), actual.get(name), name);
+			}
+		}
+	}
+
+	@Test
+	void shouldMatchWindowScanTimeToMaxMin() {
+		MCProperties properties = makeProperties("alta", Alta.signalsToUse.length);
+		properties.setProperty("forecast.alta.calcAllSignals", "true");
+		ConsolidatedHistory history = new ConsolidatedHistory(new Intervalizer(properties));
+		Alta alta = new Alta(properties);
+		for(ConsolidatedSnapshot snapshot : randomWalk(42, 700, 300, true, false)) {
+			history.add(snapshot);
+			for(Product product : Product.FAST_VALUES) {
+				Map<String,Double> signals = alta.getInputVariables(history, product);
+				for(int hours = 1; hours <= 12; hours++) {
+					double expected = scanTimeToMaxMin(history, product, hours);
+					assertEquals(expected, (double) signals.get("timeToMaxMin" + hours), "timeToMaxMin" + hours);
+				}
+			}
+		}
+	}
+
+	/** Intervals since the max less intervals since the min, found by scanning the whole window */
+	private static double scanTimeToMaxMin(ConsolidatedHistory history, Product product, int hours) {
+		final long count = history.getCount();
+		double minPrice = Double.MAX_VALUE;
+		double maxPrice = 0.0;
+		int intervalsToMin = 0;
+		int intervalsToMax = 0;
+		for(long j = history.firstWithin(count, hours * 3600); j < count; j++) {
+			ProductSnapshot snapshot = history.get(j).getProductSnapshot(product);
+			if(snapshot == null) continue;
+			if(snapshot.vwap < minPrice) {
+				minPrice = snapshot.vwap;
+				intervalsToMin = 0;
+			} else {
+				intervalsToMin++;
+			}
+			if(snapshot.vwap > maxPrice) {
+				maxPrice = snapshot.vwap;
+				intervalsToMax = 0;
+			} else {
+				intervalsToMax++;
+			}
+		}
+		return intervalsToMax - intervalsToMin;
+	}
+
+	private static void assertSignals(double[] expected, Alta alta, ConsolidatedHistory history, Product product) {
+		Map<String,Double> signals = alta.getInputVariables(history, product);
+		for(int i = 0; i < Alta.signalsToUse.length; i++)
+			assertClose(expected[i], signals.get(Alta.signalsToUse[i]), Alta.signalsToUse[i]);
+		assertClose(expected[Alta.signalsToUse.length], alta.calculate(history, product, null), "forecast");
+	}
+}
@@ -0,0 +1,44 @@
+package com.mistrycapital.cryptobot.forecasts;
+
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedHistory;
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedSnapshot;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+import com.mistrycapital.cryptobot.time.Intervalizer;
+import com.mistrycapital.cryptobot.util.MCProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchForecasterTest {
+	@Test
+	void shouldMatchSequentialCalculation() {
+		MCProperties properties = TestHistories.makeProperties("alta", Alta.signalsToUse.length);
+		Intervalizer intervalizer = new Intervalizer(properties);
+		List<ConsolidatedSnapshot> snapshots = TestHistories.randomWalk(42, 700, 300, true, false);
+		BatchForecaster batchForecaster = new BatchForecaster(intervalizer, () -> new Alta(properties));
+		BatchForecaster.Series[] forecasts = batchForecaster.calculateAll(snapshots);
+		BatchForecaster.Series[] inputs = batchForecaster.getAllInputVariables(snapshots);
+
+		ConsolidatedHistory history = new ConsolidatedHistory(intervalizer);
+		Alta alta = new Alta(properties);
+		for(int i = 0; i < snapshots.size(); i++) {
+			history.add(snapshots.get(i));
+			for(Product product : Product.FAST_VALUES) {
+				BatchForecaster.Series forecast = forecasts[product.getIndex()];
+				BatchForecaster.Series input = inputs[product.getIndex()];
+				assertEquals(snapshots.size(), forecast.size);
+				assertEquals(snapshots.get(i).getTimeNanos(), forecast.times[i]);
+
+				Map<String,Double> variables = alta.getInputVariables(history, product);
+				assertArrayEquals(variables.keySet().toArray(new String[0]), input.names);
+				int j = 0;
+				for(double value : variables.values())
+					assertEquals(value, input.values[j++][i]);
+				assertEquals(alta.calculate(history, product, null), forecast.values[0][i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package com.mistrycapital.cryptobot.forecasts;
+
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedHistory;
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedSnapshot;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+import com.mistrycapital.cryptobot.time.Intervalizer;
+import com.mistrycapital.cryptobot.util.MCProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnsembleTest {
+	@Test
+	void shouldMatchStandaloneMembers() {
+		MCProperties properties = TestHistories.makeProperties("alta", Alta.signalsToUse.length);
+		StringBuilder coeffs = new StringBuilder("-0.002");
+		for(int i = 0; i < Alta.signalsToUse.length; i++)
+			coeffs.append(',').append(0.003 * (i + 1));
+		properties.setProperty("forecast.altaShadow.coeffs.all", coeffs.toString());
+		properties.setProperty("forecast.altaShadow.calcAllSignals", "true");
+		properties.setProperty("forecast.calculator", "Ensemble");
+		properties.setProperty("forecast.ensemble.members", "Alta, Alta:altaShadow, Hunter");
+		properties.setProperty("forecast.ensemble.weights", "0.5,0,2");
+
+		ForecastCalculator ensemble = ForecastFactory.getCalculatorInstance(properties);
+		assertTrue(ensemble instanceof Ensemble);
+		assertTrue(ForecastFactory.getNames().containsAll(Set.of("Alta", "Snowbird", "Hunter")));
+		Alta alta = new Alta(properties);
+		Alta altaShadow = new Alta(properties, "altaShadow", new RollingPrimitives());
+		Hunter hunter = new Hunter();
+
+		ConsolidatedHistory history = new ConsolidatedHistory(new Intervalizer(properties));
+		for(ConsolidatedSnapshot snapshot : TestHistories.randomWalk(42, 700, 300, true, false)) {
+			history.add(snapshot);
+			for(Product product : Product.FAST_VALUES) {
+				double altaForecast = alta.calculate(history, product, null);
+				double shadowForecast = altaShadow.calculate(history, product, null);
+				double hunterForecast = hunter.calculate(history, product, null);
+				Map<String,Double> members = ensemble.getInputVariables(history, product);
+				assertEquals(altaForecast, (double) members.get("Alta"));
+				assertEquals(shadowForecast, (double) members.get("altaShadow"));
+				assertEquals(hunterForecast, (double) members.get("Hunter"));
+				assertEquals(0.5 * altaForecast + 2 * hunterForecast, ensemble.calculate(history, product, null),
+					1e-15);
+			}
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package com.mistrycapital.cryptobot.forecasts;
+
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedHistory;
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedSnapshot;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+import com.mistrycapital.cryptobot.time.Intervalizer;
+import com.mistrycapital.cryptobot.util.MCProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OnlineForecastTest {
+	@Test
+	void shouldTradeBaseForecastInShadowMode() {
+		MCProperties properties = TestHistories.makeProperties("alta", Alta.signalsToUse.length);
+		properties.setProperty("forecast.calculator", "Online");
+		properties.setProperty("forecast.online.base", "Alta");
+		properties.setProperty("forecast.online.initialVariance", "0.01");
+		ForecastCalculator online = ForecastFactory.getCalculatorInstance(properties);
+		properties.setProperty("forecast.live.base", "Alta");
+		properties.setProperty("forecast.live.live", "true");
+		properties.setProperty("forecast.live.initialVariance", "0.01");
+		OnlineForecast live = new OnlineForecast(properties, "live", new RollingPrimitives());
+		Alta alta = new Alta(properties);
+		// only the live forecast depends on every return before it
+		assertTrue(online.isCacheable());
+		assertFalse(live.isCacheable());
+
+		ConsolidatedHistory history = new ConsolidatedHistory(new Intervalizer(properties));
+		for(ConsolidatedSnapshot snapshot : TestHistories.randomWalk(42, 700, 300, true, false)) {
+			history.add(snapshot);
+			for(Product product : Product.FAST_VALUES) {
+				assertEquals(alta.calculate(history, product, null), online.calculate(history, product, null));
+				live.calculate(history, product, null);
+			}
+		}
+
+		// the live forecast trades coefficients updated by the realized returns
+		for(Product product : Product.FAST_VALUES) {
+			double[] coeffs = ((OnlineForecast) online).getOnlineCoeffs(product);
+			assertArrayEquals(coeffs, live.getOnlineCoeffs(product));
+			assertFalse(Arrays.equals(alta.getCoeffs(product), coeffs));
+			double[] signals = new double[Alta.signalsToUse.length];
+			alta.calculateSignals(history, product, signals);
+			double expected = coeffs[0];
+			for(int i = 0; i < signals.length; i++)
+				expected += coeffs[i + 1] * signals[i];
+			assertEquals(expected, live.calculate(history, product, null), 1e-12);
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package com.mistrycapital.cryptobot.forecasts;
+
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedHistory;
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedSnapshot;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+import com.mistrycapital.cryptobot.time.Intervalizer;
+import com.mistrycapital.cryptobot.util.MCProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollingPrimitivesTest {
+	@Test
+	void shouldCalculateSnapshotSignalsOncePerInterval()
+		throws Exception
+	{
+		MCProperties properties = TestHistories.makeProperties("alta", Alta.signalsToUse.length);
+		ConsolidatedHistory history = new ConsolidatedHistory(new Intervalizer(properties));
+		RollingPrimitives primitives = new RollingPrimitives();
+		AtomicInteger calculations = new AtomicInteger();
+		int btcPrice = primitives.declareSnapshotSignal("btcPrice", h -> {
+			calculations.incrementAndGet();
+			return h.latest().getProductSnapshot(Product.BTC_USD).lastPrice;
+		});
+		assertEquals(btcPrice, primitives.declareSnapshotSignal("btcPrice", h -> Double.NaN));
+
+		List<Callable<Double>> tasks = new ArrayList<>();
+		for(Product product : Product.FAST_VALUES)
+			tasks.add(() -> primitives.getSnapshotSignal(history, btcPrice));
+		ExecutorService pool = Executors.newFixedThreadPool(Product.count);
+		try {
+			List<ConsolidatedSnapshot> snapshots = TestHistories.randomWalk(42, 700, 300, true, false);
+			for(ConsolidatedSnapshot snapshot : snapshots) {
+				history.add(snapshot);
+				for(Future<Double> result : pool.invokeAll(tasks))
+					assertEquals(snapshot.getProductSnapshot(Product.BTC_USD).lastPrice, (double) result.get());
+			}
+			assertEquals(snapshots.size(), calculations.get());
+		} finally {
+			pool.shutdown();
+		}
+		assertThrows(RuntimeException.class, () -> primitives.declareSnapshotSignal("late", h -> 0.0));
+	}
+}
@@ -0,0 +1,36 @@
+package com.mistrycapital.cryptobot.forecasts;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignalRegistryTest {
+	@Test
+	void shouldMatchNameBasedMap() {
+		SignalRegistry registry = new SignalRegistry();
+		for(String signal : Snowbird.signalsToUse)
+			registry.register(signal);
+		assertEquals(0, registry.register(Snowbird.signalsToUse[0]));
+		assertEquals(Snowbird.signalsToUse.length, registry.size());
+
+		// signals set by slot, as forecasts do, and by name, as the maps they replaced were
+		double[] values = new double[registry.size()];
+		Map<String,Double> byName = new HashMap<>();
+		for(int i = Snowbird.signalsToUse.length - 1; i >= 0; i--) {
+			String signal = Snowbird.signalsToUse[i];
+			double value = i == 3 ? Double.NaN : 0.25 * i - 1.0;
+			values[registry.getSlot(signal)] = value;
+			byName.put(signal, value);
+		}
+
+		Map<String,Double> map = registry.toMap(values);
+		assertEquals(byName, map);
+		assertEquals(List.of(Snowbird.signalsToUse), new ArrayList<>(map.keySet()));
+		assertThrows(RuntimeException.class, () -> registry.getSlot("unknown"));
+	}
+}
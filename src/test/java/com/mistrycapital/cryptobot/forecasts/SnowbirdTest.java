@@ -0,0 +1,68 @@
+package com.mistrycapital.cryptobot.forecasts;
+
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedHistory;
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedSnapshot;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+import com.mistrycapital.cryptobot.time.Intervalizer;
+import com.mistrycapital.cryptobot.util.MCProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.mistrycapital.cryptobot.forecasts.TestHistories.*;
+import static java.lang.Double.NaN;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowbirdTest {
+	/** Signals to use and forecast at steps 5, 40, 180 and 399 for ETH then BTC, from the multi pass implementation */
+	private static final double[][] EXPECTED = {
+		{NaN, NaN, NaN, NaN, NaN, NaN, NaN, NaN, NaN, NaN, -8.96499940339357E-5, 0.001261034668075478,
+			0.40325503524809475, NaN},
+		{NaN, NaN, NaN, NaN, NaN, NaN, NaN, NaN, NaN, NaN, 7.115253539999866E-4, 2.7575134097812537E-4,
+			0.5726057073501433, NaN},
+		{-0.001313031238269874, -0.00346176217234848, -0.0036244945821597334, 0.0, -0.006873499104129349,
+			0.49682107175295187, -3.5904761904761906, 9.047619047619047, 4.0, -0.03402423966983331,
+			0.0023035128146444706, 0.001261034668075478, 0.4859627224677639, 0.9229281199564726},
+		{-0.03402423966983331, -0.006752175838111978, -0.0098370860112354, 0.0, -0.012290014550287286,
+			0.4629188103902623, -10.952, 9.728, 32.0, -0.03402423966983331, -4.031292216349902E-4,
+			2.7575134097812537E-4, 0.45934904722850334, 2.975291927521363},
+		{0.0253951643675227, -0.004779431271307315, -0.005029827928782936, -4.2331440087252636E-5,
+			-0.017291417386245542, 0.48864081472777127, 1.1939058171745152, -1.736842105263158, -38.0,
+			-0.04696691210904936, 2.9311505921070236E-4, -1.9618193107995285E-4, 0.5339426364361837,
+			-3.381189755931118},
+		{-0.04696691210904936, -0.006312630930188488, -0.004747714795702402, -2.853915949752639E-4,
+			-0.0068493543601862465, 0.4909127221889355, -19.5, -21.852941176470587, 71.0, -0.04696691210904936,
+			-8.068761224762078E-4, -0.001025918812558979, 0.5044374764581073, 3.3667955467459847},
+		{0.013190316367090109, 0.016883048434843135, 0.015888889833627632, -0.001038295517869099,
+			0.03527551759816702, 0.5117705806819803, 4.2785388127853885, -0.1095890410958904, 23.0,
+			0.006736358968309637, -0.0011575367292120387, 0.0011471410574965812, 0.5097237975313633,
+			2.4620533607973893},
+		{0.006736358968309637, -0.0018454306082079167, -0.001962886586523589, -2.096539340989148E-4,
+			-0.003905851273564565, 0.47402728311269404, -4.767634854771784, 2.323651452282158, -32.0,
+			0.006736358968309637, 0.002522817794091914, -9.760396453416531E-4, 0.4919182880227997,
+			-2.9338493984661054}
+	};
+
+	@Test
+	void shouldMatchMultiPassSignals() {
+		MCProperties properties = makeProperties("snowbird", Snowbird.signalsToUse.length);
+		ConsolidatedHistory history = new ConsolidatedHistory(new Intervalizer(properties));
+		List<ConsolidatedSnapshot> snapshots = randomWalk(7, 400, 150, false, true);
+		Snowbird snowbird = new Snowbird(properties);
+		int check = 0;
+		for(int i = 0; i < snapshots.size(); i++) {
+			history.add(snapshots.get(i));
+			if(i == 5 || i == 40 || i == 180 || i == 399)
+				for(Product product : new Product[] {Product.ETH_USD, Product.BTC_USD}) {
+					double[] expected = EXPECTED[check++];
+					Map<String,Double> signals = snowbird.getInputVariables(history, product);
+					for(int j = 0; j < Snowbird.signalsToUse.length; j++)
+						assertClose(expected[j], signals.get(Snowbird.signalsToUse[j]), Snowbird.signalsToUse[j]);
+					assertClose(expected[Snowbird.signalsToUse.length], snowbird.calculate(history, product, null),
+						"forecast");
+				}
+		}
+		assertEquals(EXPECTED.length, check);
+	}
+}
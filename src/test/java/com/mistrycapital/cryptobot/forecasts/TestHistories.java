@@ -0,0 +1,82 @@
+package com.mistrycapital.cryptobot.forecasts;
+
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedSnapshot;
+import com.mistrycapital.cryptobot.aggregatedata.ProductSnapshot;
+import com.mistrycapital.cryptobot.aggregatedata.SnapshotField;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+import com.mistrycapital.cryptobot.util.MCProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Histories and properties shared by the forecast tests
+ */
+class TestHistories {
+	/**
+	 * @return Properties keeping a day of five minute intervals, with coefficients for every signal of the forecast
+	 */
+	static MCProperties makeProperties(String fcName, int signalCount) {
+		MCProperties properties = new MCProperties();
+		properties.setProperty("history.secondsToKeep", "86400");
+		properties.setProperty("history.intervalSeconds", "300");
+		StringBuilder coeffs = new StringBuilder("0.001");
+		for(int i = 0; i < signalCount; i++)
+			coeffs.append(',').append(0.01 * (i + 1));
+		properties.setProperty("forecast." + fcName + ".coeffs.all", coeffs.toString());
+		return properties;
+	}
+
+	/**
+	 * Random walk of every product every five minutes, with a gap of three intervals before the given step
+	 *
+	 * @param missingProducts true to drop the third product every 97 steps
+	 * @param missingFields true to set some steps' last prices, returns and volumes to NaN
+	 */
+	static List<ConsolidatedSnapshot> randomWalk(long seed, int steps, int gapStep, boolean missingProducts,
+		boolean missingFields)
+	{
+		final Random random = new Random(seed);
+		final double[] lastPrices = {7400.0, 460.0, 800.0, 80.0, 16.0};
+		final List<ConsolidatedSnapshot> snapshots = new ArrayList<>();
+		long timeNanos = 1532217600L * 1000000000L;
+		for(int i = 0; i < steps; i++) {
+			timeNanos += (i == gapStep ? 4 : 1) * 300 * 1000000000L;
+			final ProductSnapshot[] productSnapshots = new ProductSnapshot[Product.count];
+			for(Product product : Product.FAST_VALUES) {
+				final int p = product.getIndex();
+				final double prevPrice = lastPrices[p];
+				lastPrices[p] = prevPrice * Math.exp(0.003 * random.nextGaussian());
+				if(missingProducts && p == 2 && i % 97 == 5)
+					continue;
+				final double[] values = new double[SnapshotField.count];
+				for(SnapshotField field : SnapshotField.FAST_VALUES)
+					values[field.ordinal()] = 1 + random.nextInt(200);
+				values[SnapshotField.LAST_PRICE.ordinal()] =
+					missingFields && i % 53 == 7 ? Double.NaN : lastPrices[p];
+				values[SnapshotField.RET.ordinal()] =
+					missingFields && i % 41 == 3 ? Double.NaN : lastPrices[p] / prevPrice - 1;
+				values[SnapshotField.VOLUME.ordinal()] =
+					missingFields && i % 37 == 11 ? Double.NaN : 10 * random.nextDouble();
+				values[SnapshotField.VWAP.ordinal()] = lastPrices[p] * (1 + 0.0005 * random.nextGaussian());
+				values[SnapshotField.MID_PRICE.ordinal()] = lastPrices[p] * (1 + 0.0002 * random.nextGaussian());
+				values[SnapshotField.WEIGHTED_MID_100.ordinal()] =
+					lastPrices[p] * (1 + 0.001 * random.nextGaussian());
+				productSnapshots[p] = new ProductSnapshot(product, values);
+			}
+			snapshots.add(new ConsolidatedSnapshot(productSnapshots, timeNanos));
+		}
+		return snapshots;
+	}
+
+	/** Asserts equal to within a relative 1e-9, or exactly for NaN and infinite values */
+	static void assertClose(double expected, double actual, String name) {
+		if(Double.isFinite(expected))
+			assertEquals(expected, actual, 1e-9 * Math.max(1.0, Math.abs(expected)), name);
+		else
+			assertEquals(expected, actual, name);
+	}
+}
@@ -0,0 +1,172 @@
+package com.mistrycapital.cryptobot.gdax.websocket;
+
+import com.google.gson.JsonParser;
+import com.mistrycapital.cryptobot.gdax.common.OrderSide;
+import com.mistrycapital.cryptobot.gdax.common.OrderType;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+import com.mistrycapital.cryptobot.gdax.common.Reason;
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessage.Type;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GdaxEventCodecTest {
+	private static final String HEADER =
+		"\"time\":\"2014-11-07T08:19:27.028459Z\",\"product_id\":\"LTC-USD\",\"sequence\":10,";
+	private static final UUID ORDER_ID = UUID.fromString("d50ec984-77a8-460a-b958-66f114b0de9b");
+	private static final UUID OTHER_ID = UUID.fromString("c76c8d6e-0087-4a84-9b38-20f019ba0e14");
+
+	@Test
+	void shouldRoundTripOrderMessages() {
+		Received received = roundTrip("{\"type\":\"received\"," + HEADER + "\"order_id\":\"" + ORDER_ID
+			+ "\",\"client_oid\":\"" + OTHER_ID + "\",\"size\":\"1.34\",\"price\":\"502.1\",\"side\":\"buy\","
+			+ "\"order_type\":\"limit\"}");
+		verifyHeader(received);
+		assertEquals(ORDER_ID, received.getOrderId());
+		assertEquals(OTHER_ID, received.getClientOid());
+		assertEquals(1.34, received.getSize());
+		assertEquals(502.1, received.getPrice());
+		assertTrue(Double.isNaN(received.getFunds()));
+		assertEquals(OrderSide.BUY, received.getOrderSide());
+		assertEquals(OrderType.LIMIT, received.getOrderType());
+
+		Received market = roundTrip("{\"type\":\"received\"," + HEADER + "\"order_id\":\"" + ORDER_ID
+			+ "\",\"funds\":\"3000.23456789\",\"side\":\"sell\",\"order_type\":\"market\"}");
+		assertNull(market.getClientOid());
+		assertTrue(Double.isNaN(market.getPrice()));
+		assertEquals(3000.23456789, market.getFunds());
+		assertEquals(OrderType.MARKET, market.getOrderType());
+
+		Open open = roundTrip("{\"type\":\"open\"," + HEADER + "\"order_id\":\"" + ORDER_ID
+			+ "\",\"price\":\"200.2\",\"remaining_size\":\"0.00000001\",\"side\":\"sell\"}");
+		verifyHeader(open);
+		assertEquals(ORDER_ID, open.getOrderId());
+		assertEquals(200.2, open.getPrice());
+		assertEquals(0.00000001, open.getRemainingSize());
+		assertEquals(OrderSide.SELL, open.getOrderSide());
+
+		Done done = roundTrip("{\"type\":\"done\"," + HEADER + "\"price\":\"200.2\",\"order_id\":\"" + ORDER_ID
+			+ "\",\"reason\":\"canceled\",\"side\":\"sell\",\"remaining_size\":\"0.5\"}");
+		verifyHeader(done);
+		assertTrue(done.isLimitOrder());
+		assertEquals(200.2, done.getPrice());
+		assertEquals(0.5, done.getRemainingSize());
+		assertEquals(Reason.CANCELED, done.getReason());
+
+		Done marketDone = roundTrip("{\"type\":\"done\"," + HEADER + "\"order_id\":\"" + ORDER_ID
+			+ "\",\"reason\":\"filled\",\"side\":\"buy\"}");
+		assertFalse(marketDone.isLimitOrder());
+		assertEquals(Reason.FILLED, marketDone.getReason());
+
+		ChangeSize changeSize = roundTrip("{\"type\":\"change\"," + HEADER + "\"order_id\":\"" + ORDER_ID
+			+ "\",\"new_size\":\"5.23512\",\"old_size\":\"12.234412\",\"price\":\"400.23\",\"side\":\"sell\"}");
+		assertEquals(5.23512, changeSize.getNewSize());
+		assertEquals(12.234412, changeSize.getOldSize());
+		assertEquals(400.23, changeSize.getPrice());
+
+		ChangeFunds changeFunds = roundTrip("{\"type\":\"change\"," + HEADER + "\"order_id\":\"" + ORDER_ID
+			+ "\",\"new_funds\":\"5.23512\",\"old_funds\":\"12.234412\",\"price\":\"400.23\",\"side\":\"sell\"}");
+		assertEquals(5.23512, changeFunds.getNewFunds());
+		assertEquals(12.234412, changeFunds.getOldFunds());
+
+		Activate activate = roundTrip("{\"type\":\"activate\"," + HEADER + "\"order_id\":\"" + ORDER_ID
+			+ "\",\"stop_type\":\"entry\",\"side\":\"buy\",\"stop_price\":\"80\",\"funds\":\"50\"}");
+		assertEquals(80.0, activate.getStopPrice());
+		assertFalse(activate.hasSize());
+		assertEquals(50.0, activate.getFunds());
+		assertEquals(StopType.ENTRY, activate.getStopType());
+	}
+
+	@Test
+	void shouldRoundTripMatch() {
+		Match match = roundTrip("{\"type\":\"match\",\"trade_id\":12345678901," + HEADER + "\"maker_order_id\":\""
+			+ ORDER_ID + "\",\"taker_order_id\":\"" + OTHER_ID + "\",\"size\":\"5.23512\",\"price\":\"6400.23\","
+			+ "\"side\":\"sell\"}");
+		verifyHeader(match);
+		assertEquals(12345678901L, match.getTradeId());
+		assertEquals(ORDER_ID, match.getMakerOrderId());
+		assertEquals(OTHER_ID, match.getTakerOrderId());
+		assertEquals(5.23512, match.getSize());
+		assertEquals(6400.23, match.getPrice());
+		assertEquals(OrderSide.SELL, match.getOrderSide());
+	}
+
+	@Test
+	void shouldRoundTripBookAndSkipUninterestedEvents() {
+		Book book = new Book(new JsonParser().parse("{" + HEADER + "\"bids\":[[\"295.96\",\"0.05088265\",\""
+			+ ORDER_ID + "\"]],\"asks\":[[\"295.97\",\"5.72036512\",\"" + OTHER_ID + "\"],[\"296.97\",\"6.7\",\""
+			+ ORDER_ID + "\"]]}").getAsJsonObject());
+		Open open = new Open("{\"type\":\"open\"," + HEADER + "\"order_id\":\"" + ORDER_ID
+			+ "\",\"price\":\"200.2\",\"remaining_size\":\"1\",\"side\":\"sell\"}");
+
+		ByteBuffer buffer = ByteBuffer.allocate(GdaxEventCodec.encodedSize(book) + GdaxEventCodec.RECORD_SIZE);
+		GdaxEventCodec.encode(book, buffer);
+		GdaxEventCodec.encode(open, buffer);
+		buffer.flip();
+		assertEquals(GdaxEventCodec.encodedSize(book) + GdaxEventCodec.RECORD_SIZE, buffer.remaining());
+
+		assertNull(GdaxEventCodec.decode(buffer, EnumSet.of(Type.OPEN)));
+		Open decodedOpen = (Open) GdaxEventCodec.decode(buffer, EnumSet.of(Type.OPEN));
+		assertEquals(200.2, decodedOpen.getPrice());
+		assertFalse(buffer.hasRemaining());
+
+		buffer.position(0);
+		assertEquals(GdaxEventCodec.encodedSize(book), GdaxEventCodec.eventSize(buffer));
+		Book decoded = (Book) GdaxEventCodec.decode(buffer, GdaxMessageProcessor.ALL_TYPES);
+		verifyHeader(decoded);
+		assertEquals(1, decoded.getBids().length);
+		assertEquals(ORDER_ID, decoded.getBids()[0].orderId);
+		assertEquals(295.96, decoded.getBids()[0].price);
+		assertEquals(0.05088265, decoded.getBids()[0].size);
+		assertEquals(2, decoded.getAsks().length);
+		assertEquals(OTHER_ID, decoded.getAsks()[0].orderId);
+		assertEquals(296.97, decoded.getAsks()[1].price);
+		assertEquals(6.7, decoded.getAsks()[1].size);
+	}
+
+	@Test
+	void shouldRejectCorruptRecords() {
+		Book book = new Book(new JsonParser().parse("{" + HEADER + "\"bids\":[[\"295.96\",\"0.05088265\",\""
+			+ ORDER_ID + "\"]],\"asks\":[]}").getAsJsonObject());
+		ByteBuffer buffer = ByteBuffer.allocate(GdaxEventCodec.encodedSize(book));
+		GdaxEventCodec.encode(book, buffer);
+		buffer.flip();
+
+		for(byte code : new byte[] {0, -3, 99}) {
+			buffer.put(0, code);
+			RuntimeException e = assertThrows(RuntimeException.class, () -> GdaxEventCodec.eventSize(buffer));
+			assertTrue(e.getMessage().startsWith("Bad event type code " + code), e.getMessage());
+		}
+		buffer.put(0, (byte) 1);
+		buffer.putInt(4, -1);
+		assertThrows(RuntimeException.class, () -> GdaxEventCodec.eventSize(buffer));
+		buffer.putInt(4, 1);
+		buffer.putLong(24, Integer.MAX_VALUE + 1L);
+		RuntimeException e = assertThrows(RuntimeException.class,
+			() -> GdaxEventCodec.decode(buffer, GdaxMessageProcessor.ALL_TYPES));
+		assertTrue(e.getMessage().startsWith("Bad book order counts"), e.getMessage());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends GdaxMessage> T roundTrip(String json) {
+		GdaxMessage message = new GdaxMessageParser().parse(json);
+		ByteBuffer buffer = ByteBuffer.allocate(GdaxEventCodec.encodedSize(message));
+		GdaxEventCodec.encode(message, buffer);
+		assertFalse(buffer.hasRemaining());
+		buffer.flip();
+		GdaxMessage decoded = GdaxEventCodec.decode(buffer, GdaxMessageProcessor.ALL_TYPES);
+		assertFalse(buffer.hasRemaining());
+		assertEquals(message.getClass(), decoded.getClass());
+		return (T) decoded;
+	}
+
+	private static void verifyHeader(GdaxMessage message) {
+		assertEquals(1415348367028459L, message.getTimeMicros());
+		assertEquals(Product.LTC_USD, message.getProduct());
+		assertEquals(10L, message.getSequence());
+	}
+}
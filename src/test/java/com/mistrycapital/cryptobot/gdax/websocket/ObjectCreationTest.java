@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.EnumSet;
 import java.util.UUID;
 import java.util.function.Consumer;
 
@@ -251,6 +252,28 @@ class ObjectCreationTest {
 			});
 	}
 
+	@Test
+	void shouldSkipUninterestedMessages() {
+		final String received = "{\"type\":\"received\",\"time\":\"2014-11-07T08:19:27.028459Z\"," +
+			"\"product_id\":\"ETH-USD\",\"sequence\":12,\"order_id\":\"d50ec984-77a8-460a-b958-66f114b0de9b\"," +
+			"\"size\":\"1.34\",\"price\":\"502.1\",\"side\":\"buy\",\"order_type\":\"limit\"}";
+		final String open = "{\"type\": \"open\", \"time\": \"2014-11-07T08:19:27.028459Z\", " +
+			"\"product_id\": \"ETH-USD\", \"sequence\": 13, \"order_id\": \"d50ec984-77a8-460a-b958-66f114b0de9b\", " +
+			"\"price\": \"200.2\", \"remaining_size\": \"1.00\", \"side\": \"sell\"}";
+		GdaxMessageParser parser = new GdaxMessageParser(EnumSet.of(Type.OPEN));
+
+		assertNull(parser.parseInterested(received));
+		assertTrue(parser.parseInterested(open) instanceof Open);
+
+		GdaxMessage skipped = parser.parseForSequencing(received);
+		assertFalse(skipped instanceof Received);
+		assertEquals(Type.RECEIVED, skipped.getType());
+		assertEquals(Product.ETH_USD, skipped.getProduct());
+		assertEquals(12L, skipped.getSequence());
+		assertEquals(1415348367028459L, skipped.getTimeMicros());
+		assertTrue(parser.parseForSequencing(open) instanceof Open);
+	}
+
 	@SuppressWarnings("unchecked")
 	private <T extends GdaxMessage> void verifyCorrectObject(String json, Class<T> clazz, Consumer<T> verifier) {
 		GdaxMessage msg = webSocket.parseMessage(json);
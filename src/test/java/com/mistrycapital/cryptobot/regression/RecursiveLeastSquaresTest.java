@@ -0,0 +1,49 @@
+package com.mistrycapital.cryptobot.regression;
+
+import org.apache.commons.math3.stat.regression.MillerUpdatingRegression;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecursiveLeastSquaresTest {
+	@Test
+	void shouldConvergeToLeastSquares() {
+		final Random random = new Random(11);
+		final double[] beta = {0.002, -0.5, 1.5, 0.03};
+		final MillerUpdatingRegression ols = new MillerUpdatingRegression(beta.length - 1, true);
+		final RecursiveLeastSquares rls = new RecursiveLeastSquares(new double[beta.length], 1.0, 1e6);
+		final double[] x = new double[beta.length - 1];
+		for(int i = 0; i < 5000; i++) {
+			x[0] = random.nextGaussian();
+			x[1] = 0.01 * random.nextGaussian();
+			x[2] = 10 * random.nextDouble();
+			double y = beta[0] + 0.1 * random.nextGaussian();
+			for(int j = 0; j < x.length; j++)
+				y += beta[j + 1] * x[j];
+			ols.addObservation(x.clone(), y);
+			rls.update(x, y);
+		}
+		rls.update(new double[] {Double.NaN, 0, 0}, 1.0);
+		assertEquals(5000, rls.getCount());
+
+		final double[] expected = ols.regress().getParameterEstimates();
+		final double[] actual = rls.getCoefficients();
+		for(int i = 0; i < expected.length; i++)
+			assertEquals(expected[i], actual[i], 1e-5 * Math.max(1.0, Math.abs(expected[i])));
+		assertEquals(actual[0] + actual[1] * x[0] + actual[2] * x[1] + actual[3] * x[2], rls.predict(x), 1e-12);
+	}
+
+	@Test
+	void shouldTrackChangingCoefficients() {
+		final Random random = new Random(3);
+		final RecursiveLeastSquares rls = new RecursiveLeastSquares(new double[] {0.0, 1.0}, 0.99, 1.0);
+		final double[] x = new double[1];
+		for(int i = 0; i < 2000; i++) {
+			x[0] = random.nextGaussian();
+			rls.update(x, (i < 1000 ? 1.0 : -2.0) * x[0] + 0.01 * random.nextGaussian());
+		}
+		assertEquals(-2.0, rls.getCoefficients()[1], 0.01);
+	}
+}
@@ -0,0 +1,61 @@
+package com.mistrycapital.cryptobot.sim;
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+import com.mistrycapital.cryptobot.util.MCProperties;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ForecastCacheTest {
+
+	@Test
+	void shouldReadUnchangedDaysBack()
+		throws Exception
+	{
+		final FileSystem fs = Jimfs.newFileSystem(Configuration.unix());
+		final Path dataDir = fs.getPath("/data");
+		Files.createDirectory(dataDir);
+		final List<Path> sampleFiles = new ArrayList<>();
+		for(int day = 0; day < 3; day++) {
+			final Path sampleFile = dataDir.resolve("samples-2018-07-2" + (2 + day) + ".csv");
+			Files.write(sampleFile, List.of("day " + day), StandardCharsets.UTF_8);
+			sampleFiles.add(sampleFile);
+		}
+
+		final ForecastCache cache = new ForecastCache();
+		final double[] forecasts = new double[Product.count];
+		for(int i = 0; i < 2000; i++) {
+			for(int p = 0; p < Product.count; p++)
+				forecasts[p] = i + 0.1 * p;
+			cache.add(1000L * i, forecasts);
+		}
+		final MCProperties properties = new MCProperties();
+		final long key = ForecastCache.configKey(properties);
+		final Path cacheFile = ForecastCache.getCachePath(dataDir, key);
+		cache.write(cacheFile, key, sampleFiles);
+
+		final ForecastCache read = new ForecastCache();
+		assertEquals(3, read.read(cacheFile, key, sampleFiles));
+		assertEquals(2000, read.size());
+		assertEquals(1234.3, read.get(1234000L, Product.FAST_VALUES[3]));
+		read.truncate(1500500L);
+		assertEquals(1501, read.size());
+
+		// a different configuration does not use the cache, and changed days are not valid
+		assertEquals(0, new ForecastCache().read(cacheFile, key + 1, sampleFiles));
+		Files.write(sampleFiles.get(1), List.of("day 1", "more rows"), StandardCharsets.UTF_8);
+		assertEquals(1, new ForecastCache().read(cacheFile, key, sampleFiles));
+
+		properties.setProperty("forecast.alta.coeffs.all", "0.1");
+		assertNotEquals(key, ForecastCache.configKey(properties));
+	}
+}
@@ -0,0 +1,69 @@
+package com.mistrycapital.cryptobot.sim;
+
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessage;
+import com.mistrycapital.cryptobot.gdax.websocket.Open;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GdaxEventLogReaderTest {
+
+	@Test
+	void shouldReplayConvertedZip(@TempDir Path dataDir)
+		throws Exception
+	{
+		Path zipPath = dataDir.resolve("gdax-orders-2018-07-22.zip");
+		final int messageCount = BatchQueue.BATCH_SIZE + 500;
+		try(ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zipPath))) {
+			for(int hour = 0; hour < 2; hour++) {
+				out.putNextEntry(new ZipEntry("gdax-orders-2018-07-22-0" + hour + ".json"));
+				StringBuilder builder = new StringBuilder();
+				for(int i = hour * messageCount / 2; i < (hour + 1) * messageCount / 2; i++) {
+					final String header = "\"product_id\":\"ETH-USD\",\"time\":\"2018-07-22T08:19:27.028459Z\","
+						+ "\"sequence\":" + (1000 + i) + ",\"order_id\":\"" + UUID.randomUUID() + "\",\"side\":\"buy\"";
+					builder.append("{\"type\":\"open\",").append(header)
+						.append(",\"price\":\"").append(price(i)).append("\",\"remaining_size\":\"1.5\"}\n");
+					builder.append("{\"type\":\"received\",").append(header)
+						.append(",\"price\":\"1.0\",\"size\":\"1.0\",\"order_type\":\"limit\"}\n");
+				}
+				builder.append("not a message\n");
+				out.write(builder.toString().getBytes(StandardCharsets.UTF_8));
+				out.closeEntry();
+			}
+		}
+
+		new GdaxEventLogConverter(dataDir, 2).convertAll();
+		assertTrue(Files.exists(dataDir.resolve("gdax-orders-2018-07-22.events")));
+
+		BatchQueue<GdaxMessage> queue = new BatchQueue<>(100);
+		new GdaxEventLogReader(dataDir, queue, EnumSet.of(GdaxMessage.Type.OPEN)).run();
+
+		List<GdaxMessage> messages = new ArrayList<>();
+		List<GdaxMessage> batch;
+		while((batch = queue.take(new StageTimer("Test"))) != null)
+			messages.addAll(batch);
+		assertEquals(messageCount, messages.size());
+		for(int i = 0; i < messageCount; i++) {
+			Open open = (Open) messages.get(i);
+			assertEquals(1000L + i, open.getSequence());
+			assertEquals(Double.parseDouble(price(i)), open.getPrice());
+			assertEquals(1.5, open.getRemainingSize());
+		}
+		assertTrue(Files.exists(dataDir.resolve("gdax-orders-2018-07-22-checked.txt")));
+	}
+
+	private static String price(int i) {
+		return String.format("400.%04d", i);
+	}
+}
@@ -1,8 +1,16 @@
 package com.mistrycapital.cryptobot.sim;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static com.mistrycapital.cryptobot.sim.GdaxMessageFileReader.hourlyJsonSorter;
 import static org.junit.jupiter.api.Assertions.*;
@@ -22,4 +30,51 @@ class GdaxMessageFileReaderTest {
 		assertEquals(1, hourlyJsonSorter.compare(ZipEntry2, ZipEntry1));
 		assertEquals(1, hourlyJsonSorter.compare(ZipEntry3, ZipEntry1));
 	}
-}
\ No newline at end of file
+
+	@Test
+	void shouldReadAheadInOrder(@TempDir Path dataDir)
+		throws Exception
+	{
+		List<String> expected = new ArrayList<>();
+		for(String day : new String[] {"2018-01-02", "2018-01-03"}) {
+			Path zipPath = dataDir.resolve("gdax-orders-" + day + ".zip");
+			try(ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zipPath))) {
+				// entries are stored out of hour order
+				for(int hour : new int[] {10, 2, 0}) {
+					out.putNextEntry(new ZipEntry("gdax-orders-" + day + "-" + String.format("%02d", hour) + ".json"));
+					writeLines(out, day + "-" + hour, hour == 2 ? BatchQueue.BATCH_SIZE + 3 : 5);
+					out.closeEntry();
+				}
+			}
+			for(int hour : new int[] {0, 2, 10}) {
+				for(int i = 0; i < (hour == 2 ? BatchQueue.BATCH_SIZE + 3 : 5); i++)
+					expected.add(day + "-" + hour + "-" + i);
+			}
+		}
+
+		BatchQueue<String> queue = new BatchQueue<>(100);
+		new GdaxMessageFileReader(dataDir, queue, 3).run();
+
+		StageTimer timer = new StageTimer("Test");
+		List<String> lines = new ArrayList<>();
+		List<String> batch;
+		while((batch = queue.take(timer)) != null)
+			lines.addAll(batch);
+		assertEquals(expected, lines);
+		assertTrue(Files.exists(dataDir.resolve("gdax-orders-2018-01-02-checked.txt")));
+		assertTrue(Files.exists(dataDir.resolve("gdax-orders-2018-01-03-checked.txt")));
+	}
+
+	/** Writes numbered lines, with a blank line and mixed line endings to check framing */
+	private static void writeLines(OutputStream out, String prefix, int count)
+		throws Exception
+	{
+		StringBuilder builder = new StringBuilder();
+		for(int i = 0; i < count; i++) {
+			builder.append(prefix).append('-').append(i).append(i % 2 == 0 ? "\n" : "\r\n");
+			if(i == 1)
+				builder.append('\n');
+		}
+		out.write(builder.toString().getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,87 @@
+package com.mistrycapital.cryptobot.sim;
+
+import com.mistrycapital.cryptobot.gdax.common.Product;
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessage;
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessageProcessor;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GdaxMessageTranslatorTest {
+
+	@Test
+	void shouldKeepReadOrderWhenDecodingInParallel()
+		throws Exception
+	{
+		final int messageCount = 10 * BatchQueue.BATCH_SIZE + 17;
+		BatchQueue<String> messageStringQueue = new BatchQueue<>(20);
+		BatchQueue<GdaxMessage> messageQueue = new BatchQueue<>(20);
+		StageTimer timer = new StageTimer("Test");
+		List<Product> expectedProducts = new ArrayList<>(messageCount);
+		List<String> lines = new ArrayList<>();
+		for(int i = 0; i < messageCount; i++) {
+			Product product = Product.FAST_VALUES[i % Product.count];
+			expectedProducts.add(product);
+			lines.add("{\"type\":\"open\",\"side\":\"buy\",\"product_id\":\"" + product
+				+ "\",\"time\":\"2018-07-22T08:19:27.028459Z\",\"sequence\":" + (1000 + i) + ",\"order_id\":\""
+				+ UUID.randomUUID() + "\",\"price\":\"20.0\",\"remaining_size\":\"1.0\"}");
+			if(lines.size() == BatchQueue.BATCH_SIZE) {
+				messageStringQueue.put(lines, timer);
+				lines = new ArrayList<>();
+			}
+		}
+		messageStringQueue.put(lines, timer);
+		messageStringQueue.close(timer);
+
+		GdaxMessageTranslator translator = new GdaxMessageTranslator(messageStringQueue, messageQueue,
+			GdaxMessageProcessor.ALL_TYPES, 4);
+		translator.run();
+
+		int i = 0;
+		List<GdaxMessage> messages;
+		while((messages = messageQueue.take(timer)) != null) {
+			for(GdaxMessage message : messages) {
+				assertEquals(1000L + i, message.getSequence());
+				assertEquals(expectedProducts.get(i), message.getProduct());
+				i++;
+			}
+		}
+		assertEquals(messageCount, i);
+		assertNull(messageQueue.take(timer));
+	}
+
+	@Test
+	void shouldFailInsteadOfBlockingWhenEmitterFails()
+		throws Exception
+	{
+		BatchQueue<String> messageStringQueue = new BatchQueue<>(100);
+		StageTimer timer = new StageTimer("Test");
+		for(int batch = 0; batch < 50; batch++) {
+			List<String> lines = new ArrayList<>();
+			for(int i = 0; i < 10; i++)
+				lines.add("{\"type\":\"open\",\"side\":\"buy\",\"product_id\":\"BTC-USD\","
+					+ "\"time\":\"2018-07-22T08:19:27.028459Z\",\"sequence\":" + (1000 + 10 * batch + i)
+					+ ",\"order_id\":\"" + UUID.randomUUID() + "\",\"price\":\"20.0\",\"remaining_size\":\"1.0\"}");
+			messageStringQueue.put(lines, timer);
+		}
+		messageStringQueue.close(timer);
+		BatchQueue<GdaxMessage> failingQueue = new BatchQueue<>(100) {
+			@Override
+			public void put(List<GdaxMessage> batch, StageTimer timer) {
+				throw new IllegalStateException("Consumer failed");
+			}
+		};
+
+		GdaxMessageTranslator translator = new GdaxMessageTranslator(messageStringQueue, failingQueue,
+			GdaxMessageProcessor.ALL_TYPES, 2);
+		assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+			RuntimeException e = assertThrows(RuntimeException.class, translator::run);
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		});
+	}
+}
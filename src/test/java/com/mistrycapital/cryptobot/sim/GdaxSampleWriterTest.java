@@ -0,0 +1,153 @@
+package com.mistrycapital.cryptobot.sim;
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedSnapshot;
+import com.mistrycapital.cryptobot.appender.SnapshotRecorder;
+import com.mistrycapital.cryptobot.book.OrderBookManager;
+import com.mistrycapital.cryptobot.dynamic.DynamicTracker;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessage;
+import com.mistrycapital.cryptobot.gdax.websocket.GdaxMessageParser;
+import com.mistrycapital.cryptobot.time.Intervalizer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GdaxSampleWriterTest {
+
+	@Test
+	void shouldResumeFromCheckpoint()
+		throws Exception
+	{
+		final List<GdaxMessage> messages = makeMessages();
+		final FileSystem fs = Jimfs.newFileSystem(Configuration.unix());
+		final Path dataDir = fs.getPath("/samples");
+		Files.createDirectory(dataDir);
+		final Path checkpointPath = dataDir.resolve("checkpoint.bin");
+		final Path savedPath = dataDir.resolve("saved.bin");
+
+		// full replay, saving the checkpoint as it stood at the 20th interval
+		final List<String> fullRows = new ArrayList<>();
+		sample(messages, checkpointPath, null, (timeMs, snapshot) -> {
+			fullRows.add(toRow(timeMs, snapshot));
+			if(fullRows.size() == 20)
+				Files.copy(checkpointPath, savedPath, StandardCopyOption.REPLACE_EXISTING);
+		});
+		assertFalse(Files.exists(checkpointPath));
+
+		final List<String> resumedRows = new ArrayList<>();
+		final Instant resumeTime = sample(messages, checkpointPath, savedPath,
+			(timeMs, snapshot) -> resumedRows.add(toRow(timeMs, snapshot)));
+		assertNotNull(resumeTime);
+		assertTrue(resumedRows.size() < fullRows.size() - 5);
+		assertEquals(fullRows.subList(fullRows.size() - resumedRows.size(), fullRows.size()), resumedRows);
+	}
+
+	@Test
+	void shouldSampleResolutionsInOnePass()
+		throws Exception
+	{
+		final List<GdaxMessage> messages = makeMessages();
+		final List<String> oneMinuteRows = new ArrayList<>();
+		final List<String> fifteenMinuteRows = new ArrayList<>();
+		SimTimeKeeper timeKeeper = new SimTimeKeeper();
+		GdaxSampleWriter writer = new GdaxSampleWriter(timeKeeper,
+			Arrays.asList(new Intervalizer(86400, 60), new Intervalizer(86400, 900)), new OrderBookManager(timeKeeper),
+			new DynamicTracker(2), Arrays.asList(
+				(timeMs, snapshot) -> oneMinuteRows.add(toRow(timeMs, snapshot)),
+				(timeMs, snapshot) -> fifteenMinuteRows.add(toRow(timeMs, snapshot))),
+			queue(messages));
+		writer.sample();
+
+		assertEquals(sampleSingle(messages, 60), oneMinuteRows);
+		assertEquals(sampleSingle(messages, 900), fifteenMinuteRows);
+		assertEquals(20, fifteenMinuteRows.size());
+	}
+
+	private static List<String> sampleSingle(List<GdaxMessage> messages, int intervalSeconds)
+		throws Exception
+	{
+		final List<String> rows = new ArrayList<>();
+		SimTimeKeeper timeKeeper = new SimTimeKeeper();
+		new GdaxSampleWriter(timeKeeper, new Intervalizer(86400, intervalSeconds), new OrderBookManager(timeKeeper),
+			new DynamicTracker(), (timeMs, snapshot) -> rows.add(toRow(timeMs, snapshot)), queue(messages)).sample();
+		return rows;
+	}
+
+	/** @return Closed queue holding the given messages */
+	private static BatchQueue<GdaxMessage> queue(List<GdaxMessage> messages)
+		throws Exception
+	{
+		BatchQueue<GdaxMessage> queue = new BatchQueue<>(1000);
+		StageTimer timer = new StageTimer("Test");
+		for(GdaxMessage message : messages) {
+			List<GdaxMessage> batch = new ArrayList<>(1);
+			batch.add(message);
+			queue.put(batch, timer);
+		}
+		queue.close(timer);
+		return queue;
+	}
+
+	private static Instant sample(List<GdaxMessage> messages, Path checkpointPath, Path resumePath,
+		SnapshotRecorder recorder)
+		throws Exception
+	{
+		SimTimeKeeper timeKeeper = new SimTimeKeeper();
+		GdaxSampleWriter writer = new GdaxSampleWriter(timeKeeper, new Intervalizer(86400, 300),
+			new OrderBookManager(timeKeeper), new DynamicTracker(), recorder, queue(messages));
+		writer.checkpointEvery(checkpointPath, 1);
+		Instant resumeTime = resumePath == null ? null : writer.resume(resumePath);
+		writer.sample();
+		return resumeTime;
+	}
+
+	/** Five hours of new orders, cancels and trades, one message a minute */
+	private static List<GdaxMessage> makeMessages() {
+		final GdaxMessageParser parser = new GdaxMessageParser();
+		final List<GdaxMessage> messages = new ArrayList<>();
+		final List<UUID> openIds = new ArrayList<>();
+		final long startSeconds = Instant.parse("2018-07-22T00:00:30Z").getEpochSecond();
+		for(int i = 0; i < 300; i++) {
+			final String header = "\"product_id\":\"" + Product.FAST_VALUES[i % 2] + "\",\"time\":\""
+				+ Instant.ofEpochSecond(startSeconds + 60L * i) + "\",\"sequence\":" + (100 + i) + ",";
+			final String side = i % 4 < 2 ? "buy" : "sell";
+			final String price = (i % 4 < 2 ? 300 : 310) + "." + (i % 7);
+			final String json;
+			if(i % 5 == 4) {
+				json = "{\"type\":\"match\",\"trade_id\":" + i + "," + header + "\"maker_order_id\":\""
+					+ UUID.randomUUID() + "\",\"taker_order_id\":\"" + UUID.randomUUID() + "\",\"size\":\"0.5\","
+					+ "\"price\":\"" + price + "\",\"side\":\"" + side + "\"}";
+			} else if(i % 5 == 3 && !openIds.isEmpty()) {
+				json = "{\"type\":\"done\"," + header + "\"price\":\"" + price + "\",\"order_id\":\""
+					+ openIds.remove(0) + "\",\"reason\":\"canceled\",\"side\":\"" + side
+					+ "\",\"remaining_size\":\"1.0\"}";
+			} else {
+				final UUID orderId = UUID.randomUUID();
+				openIds.add(orderId);
+				json = "{\"type\":\"open\"," + header + "\"order_id\":\"" + orderId + "\",\"price\":\"" + price
+					+ "\",\"remaining_size\":\"1." + i + "\",\"side\":\"" + side + "\"}";
+			}
+			messages.add(parser.parse(json));
+		}
+		return messages;
+	}
+
+	private static String toRow(long timeMs, ConsolidatedSnapshot snapshot) {
+		final StringBuilder builder = new StringBuilder().append(timeMs);
+		for(Product product : Product.FAST_VALUES)
+			builder.append('\n').append(snapshot.getProductSnapshot(product).toCSVString());
+		return builder.toString();
+	}
+}
@@ -0,0 +1,35 @@
+package com.mistrycapital.cryptobot.sim;
+
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedSnapshot;
+import com.mistrycapital.cryptobot.aggregatedata.SnapshotField;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.mistrycapital.cryptobot.sim.TestSamples.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampleStoreTest {
+
+	@Test
+	void shouldReadSameSnapshotsAsCsv(@TempDir Path dataDir)
+		throws Exception
+	{
+		final List<Path> sampleFiles = writeSampleFiles(dataDir, 2, 6, true);
+
+		final List<ConsolidatedSnapshot> fromCsv = SnapshotReader.readSnapshots(sampleFiles, false);
+		final List<ConsolidatedSnapshot> fromStore = SnapshotReader.readSnapshots(sampleFiles, true);
+		assertTrue(SampleStore.isCurrent(sampleFiles.get(0)));
+		assertEquals(toRows(fromCsv), toRows(fromStore));
+		assertEquals(11, fromStore.size());
+
+		final SampleStore store = SampleStore.open(SampleStore.getStorePath(sampleFiles.get(1)));
+		assertEquals(6, store.size());
+		assertFalse(store.hasProduct(3, Product.FAST_VALUES[1]));
+		assertEquals((1532217600L + 86400L + 600L) % 100000 + SnapshotField.RET.ordinal(),
+			store.getColumn(Product.FAST_VALUES[0], SnapshotField.RET).get(2));
+	}
+}
@@ -0,0 +1,53 @@
+package com.mistrycapital.cryptobot.sim;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.mistrycapital.cryptobot.sim.TestSamples.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotDayStoreTest {
+
+	@Test
+	void shouldStreamSameSnapshotsAsFullRead(@TempDir Path dataDir)
+		throws Exception
+	{
+		writeSampleFiles(dataDir, 5, 4, false);
+		final List<Path> sampleFiles = SnapshotReader.getSampleFiles(dataDir);
+
+		final List<String> expected = toRows(SnapshotReader.readSnapshots(sampleFiles, false));
+		assertEquals(19, expected.size());
+		final SnapshotDayStore store = new SnapshotDayStore(sampleFiles, true, 2);
+		try {
+			assertEquals(5, store.getDayCount());
+			// starting part way through reads the day before for its last interval
+			assertEquals(expected.subList(7, 19), toRows(store.fromDay(2)));
+			for(int pass = 0; pass < 2; pass++)
+				assertEquals(expected, toRows(store));
+		} finally {
+			store.close();
+		}
+	}
+
+	@Test
+	void shouldCacheWholeHistory(@TempDir Path dataDir)
+		throws Exception
+	{
+		final List<Path> sampleFiles = writeSampleFiles(dataDir, 3, 6, true);
+
+		final List<String> expected = toRows(SnapshotReader.readSnapshots(sampleFiles, false));
+		final SnapshotDayStore store = new SnapshotDayStore(sampleFiles, false, 0);
+		try {
+			assertEquals(expected, toRows(store));
+			for(Path sampleFile : sampleFiles)
+				Files.delete(sampleFile);
+			assertEquals(expected, toRows(store));
+		} finally {
+			store.close();
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.mistrycapital.cryptobot.sim;
+
+import com.mistrycapital.cryptobot.aggregatedata.ConsolidatedSnapshot;
+import com.mistrycapital.cryptobot.aggregatedata.ProductSnapshot;
+import com.mistrycapital.cryptobot.aggregatedata.SnapshotField;
+import com.mistrycapital.cryptobot.gdax.common.Product;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sample files and snapshot comparisons shared by the sim tests
+ */
+class TestSamples {
+	/**
+	 * Writes daily sample csvs starting 2018-07-22, every product every five minutes. Each field is derived from
+	 * the time, the product index and the field ordinal
+	 *
+	 * @param gap true to leave out the second product at the fourth interval of every day
+	 * @return Written files in date order
+	 */
+	static List<Path> writeSampleFiles(Path dataDir, int days, int intervals, boolean gap)
+		throws IOException
+	{
+		final List<Path> sampleFiles = new ArrayList<>();
+		for(int day = 0; day < days; day++) {
+			final List<String> lines = new ArrayList<>();
+			lines.add("date,unixTimestamp," + ProductSnapshot.csvHeaderRow());
+			for(int interval = 0; interval < intervals; interval++) {
+				final long timeSeconds = 1532217600L + 86400L * day + 300L * interval;
+				for(Product product : Product.FAST_VALUES) {
+					if(gap && interval == 3 && product.getIndex() == 1)
+						continue;
+					final StringBuilder builder = new StringBuilder("2018-07-22 00:00:00,").append(timeSeconds)
+						.append(',').append(product);
+					for(int field = 0; field < SnapshotField.count; field++)
+						builder.append(',').append(timeSeconds % 100000 + 100 * product.getIndex() + field);
+					lines.add(builder.toString());
+				}
+			}
+			final Path sampleFile = dataDir.resolve("samples-2018-07-2" + (2 + day) + ".csv");
+			Files.write(sampleFile, lines, StandardCharsets.UTF_8);
+			sampleFiles.add(sampleFile);
+		}
+		return sampleFiles;
+	}
+
+	/**
+	 * @return Each snapshot's time and product csv rows, for comparing snapshots read different ways
+	 */
+	static List<String> toRows(Iterable<ConsolidatedSnapshot> snapshots) {
+		final List<String> rows = new ArrayList<>();
+		for(ConsolidatedSnapshot snapshot : snapshots) {
+			final StringBuilder builder = new StringBuilder().append(snapshot.getTimeNanos());
+			for(Product product : Product.FAST_VALUES) {
+				final ProductSnapshot productSnapshot = snapshot.getProductSnapshot(product);
+				builder.append('\n').append(productSnapshot == null ? null : productSnapshot.toCSVString());
+			}
+			rows.add(builder.toString());
+		}
+		return rows;
+	}
+}
@@ -0,0 +1,64 @@
+package com.mistrycapital.cryptobot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FastCsvReaderTest {
+
+	@Test
+	void shouldParseRowsByIndex()
+		throws Exception
+	{
+		final String csv = "unixTimestamp,product,price,size\r\n"
+			+ "1532217600,BTC-USD,7401.5,-0.25\r\n"
+			+ "\r\n"
+			+ "1532217900,ETH-USD,NaN,\n"
+			+ "1532218200,LTC-USD,1.0E-5,12345678901234567890";
+		try(FastCsvReader reader = new FastCsvReader(new StringReader(csv))) {
+			final int price = reader.getColumnIndex("price");
+			final int size = reader.getColumnIndex("size");
+
+			assertTrue(reader.next());
+			assertEquals(1532217600L, reader.getLong(reader.getColumnIndex("unixTimestamp")));
+			assertTrue(reader.matches(1, "BTC-USD"));
+			assertEquals(7401.5, reader.getDouble(price));
+			assertEquals(-0.25, reader.getDouble(size));
+
+			assertTrue(reader.next());
+			assertEquals("ETH-USD", reader.getString(1));
+			assertTrue(Double.isNaN(reader.getDouble(price)));
+			assertTrue(reader.isEmpty(size));
+
+			assertTrue(reader.next());
+			assertEquals(1.0E-5, reader.getDouble(price));
+			assertEquals(12345678901234567890.0, reader.getDouble(size));
+			assertFalse(reader.next());
+		}
+	}
+
+	@Test
+	void shouldParseDoublesExactly()
+		throws Exception
+	{
+		final Random random = new Random(7);
+		final double[] values = new double[100000];
+		final StringBuilder builder = new StringBuilder("value\n");
+		for(int i = 0; i < values.length; i++) {
+			values[i] = i % 2 == 0
+				? random.nextInt(10000000) / 1000.0
+				: (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(30) - 15);
+			builder.append(values[i]).append('\n');
+		}
+		try(FastCsvReader reader = new FastCsvReader(new StringReader(builder.toString()))) {
+			for(double value : values) {
+				assertTrue(reader.next());
+				assertEquals(value, reader.getDouble(0));
+			}
+			assertFalse(reader.next());
+		}
+	}
+}